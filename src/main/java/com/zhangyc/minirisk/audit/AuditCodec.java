@@ -0,0 +1,241 @@
+package com.zhangyc.minirisk.audit;
+
+import com.zhangyc.minirisk.model.ConditionMatch;
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.model.RuleAction;
+import com.zhangyc.minirisk.model.RuleMatchDetail;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.FieldSlot;
+import com.zhangyc.minirisk.schema.FieldType;
+import com.zhangyc.minirisk.schema.SlotContext;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 审计日志的二进制编码（大端序）：
+ *
+ * <pre>
+ * 段文件头:  int SEGMENT_MAGIC | int FORMAT_VERSION | short fieldCount | { byte fieldType | str fieldPath }*
+ * 记录:      int length | payload（length == 0 表示段内没有更多记录）
+ * DECISION:  byte 1 | long timestamp | str scene | byte action
+ *            | short matchedCount | { str ruleId }*
+ *            | short fieldCount | { short fieldOrdinal | value }*
+ *            | short detailCount | { str ruleId | byte matched | short condCount
+ *                                    | { str field | str op | str expected | str actual | byte matched }* }*
+ * LOSS:      byte 2 | long timestamp | long lostCount
+ * str:       short byteLength（-1 表示 null）| UTF-8
+ * </pre>
+ *
+ * 字段按段文件头里的字段表编码（顺序号 + 按类型的定长 / 变长值），读的时候不依赖当前进程的 schema。
+ */
+final class AuditCodec {
+
+    static final int SEGMENT_MAGIC = 0x4D524155;
+    static final int FORMAT_VERSION = 1;
+
+    static final byte TYPE_DECISION = 1;
+    static final byte TYPE_LOSS = 2;
+
+    private static final RuleAction[] ACTIONS = RuleAction.values();
+    private static final FieldType[] FIELD_TYPES = FieldType.values();
+
+    private AuditCodec() {
+    }
+
+    static void writeSegmentHeader(ByteBuffer buf, FieldSlot[] slots) {
+        buf.putInt(SEGMENT_MAGIC).putInt(FORMAT_VERSION).putShort((short) slots.length);
+        for (FieldSlot slot : slots) {
+            buf.put((byte) slot.getType().ordinal());
+            putString(buf, slot.getPath());
+        }
+    }
+
+    /**
+     * 读段文件头，返回字段表（下标即字段顺序号）。
+     */
+    static FieldSlot[] readSegmentHeader(ByteBuffer buf) {
+        int magic = buf.getInt();
+        int version = buf.getInt();
+        if (magic != SEGMENT_MAGIC || version != FORMAT_VERSION) {
+            throw new IllegalStateException("不是审计日志段文件: magic=" + Integer.toHexString(magic)
+                    + ", version=" + version);
+        }
+        ContextSchema schema = new ContextSchema();
+        int fieldCount = buf.getShort();
+        FieldSlot[] slots = new FieldSlot[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            FieldType type = FIELD_TYPES[buf.get()];
+            slots[i] = schema.register(getString(buf), type);
+        }
+        return slots;
+    }
+
+    /**
+     * 编码一条决策记录（不含长度前缀），缓冲区不够时抛 BufferOverflowException。
+     */
+    static void writeDecision(ByteBuffer buf, long timestamp, String scene, SlotContext ctx,
+                              FieldSlot[] slots, DecisionResult result) {
+        buf.put(TYPE_DECISION).putLong(timestamp);
+        putString(buf, scene);
+        buf.put((byte) result.getFinalAction().ordinal());
+
+        List<Rule> matched = result.getMatchedRules();
+        buf.putShort((short) matched.size());
+        for (Rule rule : matched) {
+            putString(buf, rule.getId());
+        }
+
+        int countPos = buf.position();
+        buf.putShort((short) 0);
+        int fieldCount = 0;
+        for (int ordinal = 0; ordinal < slots.length; ordinal++) {
+            if (writeField(buf, ordinal, slots[ordinal], ctx)) {
+                fieldCount++;
+            }
+        }
+        buf.putShort(countPos, (short) fieldCount);
+
+        List<RuleMatchDetail> details = result.getRuleMatchDetails();
+        buf.putShort((short) details.size());
+        for (RuleMatchDetail detail : details) {
+            putString(buf, detail.getRule().getId());
+            buf.put(detail.isMatched() ? (byte) 1 : (byte) 0);
+            List<ConditionMatch> conditions = detail.getConditionMatches();
+            buf.putShort((short) conditions.size());
+            for (ConditionMatch cm : conditions) {
+                putString(buf, cm.getField());
+                putString(buf, cm.getOp());
+                putString(buf, cm.getExpectedValue());
+                putString(buf, cm.getActualValue());
+                buf.put(cm.isMatched() ? (byte) 1 : (byte) 0);
+            }
+        }
+    }
+
+    static void writeLoss(ByteBuffer buf, long timestamp, long lostCount) {
+        buf.put(TYPE_LOSS).putLong(timestamp).putLong(lostCount);
+    }
+
+    /**
+     * 解码一条记录（不含长度前缀）。
+     */
+    static AuditRecord read(ByteBuffer buf, FieldSlot[] slots) {
+        byte type = buf.get();
+        long timestamp = buf.getLong();
+        if (type == TYPE_LOSS) {
+            return new AuditRecord(timestamp, buf.getLong());
+        }
+        if (type != TYPE_DECISION) {
+            throw new IllegalStateException("未知记录类型: " + type);
+        }
+        String scene = getString(buf);
+        RuleAction action = ACTIONS[buf.get()];
+
+        int matchedCount = buf.getShort();
+        List<String> matched = new ArrayList<>(matchedCount);
+        for (int i = 0; i < matchedCount; i++) {
+            matched.add(getString(buf));
+        }
+
+        int fieldCount = buf.getShort();
+        Map<String, Object> context = new LinkedHashMap<>();
+        for (int i = 0; i < fieldCount; i++) {
+            FieldSlot slot = slots[buf.getShort()];
+            context.put(slot.getPath(), readValue(buf, slot.getType()));
+        }
+
+        int detailCount = buf.getShort();
+        List<AuditRecord.RuleExplanation> explanations = new ArrayList<>(detailCount);
+        for (int i = 0; i < detailCount; i++) {
+            String ruleId = getString(buf);
+            boolean ruleMatched = buf.get() != 0;
+            int condCount = buf.getShort();
+            List<ConditionMatch> conditions = new ArrayList<>(condCount);
+            for (int j = 0; j < condCount; j++) {
+                String field = getString(buf);
+                String op = getString(buf);
+                String expected = getString(buf);
+                String actual = getString(buf);
+                conditions.add(new ConditionMatch(field, op, expected, actual, buf.get() != 0));
+            }
+            explanations.add(new AuditRecord.RuleExplanation(ruleId, ruleMatched, conditions));
+        }
+        return new AuditRecord(timestamp, scene, action, matched, context, explanations);
+    }
+
+    /**
+     * 写一个字段（顺序号 + 值），默认值（0 / false / null）不写，返回是否写了。
+     */
+    private static boolean writeField(ByteBuffer buf, int ordinal, FieldSlot slot, SlotContext ctx) {
+        int index = slot.getIndex();
+        switch (slot.getType()) {
+            case LONG: {
+                long v = ctx.getLong(index);
+                if (v == 0L) {
+                    return false;
+                }
+                buf.putShort((short) ordinal).putLong(v);
+                return true;
+            }
+            case BOOLEAN:
+                if (!ctx.getBoolean(index)) {
+                    return false;
+                }
+                buf.putShort((short) ordinal).put((byte) 1);
+                return true;
+            case DOUBLE: {
+                double v = ctx.getDouble(index);
+                if (Double.doubleToRawLongBits(v) == 0L) {
+                    return false;
+                }
+                buf.putShort((short) ordinal).putDouble(v);
+                return true;
+            }
+            default: {
+                Object v = ctx.getObject(index);
+                if (v == null) {
+                    return false;
+                }
+                buf.putShort((short) ordinal);
+                putString(buf, String.valueOf(v));
+                return true;
+            }
+        }
+    }
+
+    private static Object readValue(ByteBuffer buf, FieldType type) {
+        switch (type) {
+            case LONG:
+                return buf.getLong();
+            case BOOLEAN:
+                return buf.get() != 0;
+            case DOUBLE:
+                return buf.getDouble();
+            default:
+                return getString(buf);
+        }
+    }
+
+    private static void putString(ByteBuffer buf, String s) {
+        if (s == null) {
+            buf.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, Short.MAX_VALUE);
+        buf.putShort((short) length).put(bytes, 0, length);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int length = buf.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,366 @@
+package com.zhangyc.minirisk.audit;
+
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.FieldSlot;
+import com.zhangyc.minirisk.schema.RiskContextAdapter;
+import com.zhangyc.minirisk.schema.SlotContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步决策审计日志：
+ * - 调用线程把决策（上下文、最终动作、命中规则、解释信息）编码成紧凑的二进制记录，放进无锁环形队列就返回；
+ * - 单个写线程把记录追加到内存映射的段文件里，段写满后滚动到下一个，超过 maxSegments 时删除最旧的段；
+ * - 有界丢失：队列满时直接丢弃并计数，写线程随后写一条 LOSS 记录标出丢了多少条，读的时候能看到缺口；
+ *   进程崩溃时最多丢失队列里的记录和还没刷盘的页（每 flushIntervalMillis 刷一次）。
+ *
+ * 记录先写内容、最后写长度，写到一半崩溃时长度仍是 0，读取会在这里停下，不会读到半条记录。
+ * 格式见 AuditCodec，读取见 AuditLogReader。
+ *
+ * 用法：
+ * <pre>
+ * AuditLog audit = new AuditLog(dir).setSegmentBytes(64 << 20).setMaxSegments(32).start();
+ * audit.append("PAY", ctx, result);
+ * </pre>
+ */
+public class AuditLog implements AutoCloseable {
+
+    /** 单条记录的最大字节数，超过的记录按丢失处理 */
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+
+    /** 队列为空时写线程的休眠时间 */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50L);
+
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    /** 适配器创建后不可变，所有线程共用 */
+    private static final RiskContextAdapter ADAPTER = new RiskContextAdapter(ContextSchema.defaultSchema());
+
+    /** 每个线程一份编码缓冲区和上下文快照 */
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final Path dir;
+    private long segmentBytes = 64L << 20;
+    private int maxSegments = 16;
+    private int ringCapacity = 1 << 16;
+    private long flushIntervalMillis = 1000L;
+
+    private final FieldSlot[] slots = ContextSchema.defaultSchema().getSlots().toArray(new FieldSlot[0]);
+
+    // ======== 环形队列：多生产者 / 单消费者 ========
+
+    private AtomicReferenceArray<byte[]> ring;
+    private int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    // ======== 只在写线程上使用 ========
+
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentSequence;
+    private long reportedLoss;
+    private long lastFlushNanos;
+    private boolean dirty;
+
+    private Thread writer;
+    private volatile boolean running;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong segmentsCreated = new AtomicLong();
+
+    public AuditLog(Path dir) {
+        this.dir = Objects.requireNonNull(dir, "dir must not be null");
+    }
+
+    // ======== 链式 set 方法，start 之前调用 ========
+
+    public AuditLog setSegmentBytes(long segmentBytes) {
+        if (segmentBytes < 4096 || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segmentBytes must be in [4096, 2^31): " + segmentBytes);
+        }
+        this.segmentBytes = segmentBytes;
+        return this;
+    }
+
+    /** 最多保留的段文件数，超过时删除最旧的 */
+    public AuditLog setMaxSegments(int maxSegments) {
+        if (maxSegments <= 0) {
+            throw new IllegalArgumentException("maxSegments must be positive: " + maxSegments);
+        }
+        this.maxSegments = maxSegments;
+        return this;
+    }
+
+    /** 队列容量，会向上取整到 2 的幂 */
+    public AuditLog setRingCapacity(int ringCapacity) {
+        if (ringCapacity <= 0) {
+            throw new IllegalArgumentException("ringCapacity must be positive: " + ringCapacity);
+        }
+        this.ringCapacity = Integer.highestOneBit(Math.max(1, ringCapacity - 1)) << 1;
+        return this;
+    }
+
+    /** 刷盘间隔（毫秒），<= 0 表示只在滚动和关闭时刷盘 */
+    public AuditLog setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+        return this;
+    }
+
+    public synchronized AuditLog start() {
+        if (writer != null) {
+            throw new IllegalStateException("审计日志已启动");
+        }
+        try {
+            Files.createDirectories(dir);
+            segmentSequence = lastSegmentSequence(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开审计日志目录失败: " + dir, e);
+        }
+        ring = new AtomicReferenceArray<>(ringCapacity);
+        mask = ringCapacity - 1;
+        running = true;
+        writer = new Thread(this::drain, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+        return this;
+    }
+
+    /**
+     * 记录一次决策，不阻塞；队列满时丢弃并返回 false。
+     */
+    public boolean append(String scene, RiskContext context, DecisionResult result) {
+        if (!running) {
+            dropped.increment();
+            return false;
+        }
+        Scratch scratch = SCRATCH.get();
+        ADAPTER.fill(context, scratch.context);
+        byte[] record = scratch.encode(System.currentTimeMillis(), scene, slots, result);
+        if (record == null || !offer(record)) {
+            dropped.increment();
+            return false;
+        }
+        appended.increment();
+        return true;
+    }
+
+    private boolean offer(byte[] record) {
+        long t;
+        do {
+            t = tail.get();
+            if (t - head.get() >= ring.length()) {
+                return false;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+        ring.setRelease((int) t & mask, record);
+        return true;
+    }
+
+    public long getAppendedCount() {
+        return appended.sum();
+    }
+
+    /** 因队列满、记录过大或已关闭而丢弃的条数 */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getSegmentsCreated() {
+        return segmentsCreated.get();
+    }
+
+    /**
+     * 停止接收新记录，等写线程把队列写完后刷盘关闭。
+     */
+    @Override
+    public synchronized void close() {
+        if (writer == null || !running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        try {
+            openNextSegment();
+            while (true) {
+                long h = head.get();
+                byte[] record = ring.getAcquire((int) h & mask);
+                if (record == null) {
+                    writeLossIfAny();
+                    maybeFlush();
+                    if (!running && tail.get() == h) {
+                        break;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                ring.setRelease((int) h & mask, null);
+                head.lazySet(h + 1);
+                write(record, record.length, false);
+                if ((h & 1023) == 0) {
+                    writeLossIfAny();
+                }
+            }
+            writeLossIfAny();
+        } catch (IOException e) {
+            throw new UncheckedIOException("写审计日志失败: " + dir, e);
+        } finally {
+            closeSegment();
+        }
+    }
+
+    private void writeLossIfAny() throws IOException {
+        long lost = dropped.sum();
+        if (lost > reportedLoss) {
+            ByteBuffer buf = ByteBuffer.allocate(17);
+            AuditCodec.writeLoss(buf, System.currentTimeMillis(), lost - reportedLoss);
+            write(buf.array(), buf.position(), true);
+            reportedLoss = lost;
+        }
+    }
+
+    /**
+     * 追加一条记录：先写内容，再写长度。
+     */
+    private void write(byte[] record, int length, boolean loss) throws IOException {
+        if (segment.remaining() < 4 + length) {
+            openNextSegment();
+            if (segment.remaining() < 4 + length) {
+                // 比整段还大的记录（只可能是配置的段太小），按丢失处理
+                dropped.increment();
+                return;
+            }
+        }
+        int pos = segment.position();
+        segment.position(pos + 4);
+        segment.put(record, 0, length);
+        segment.putInt(pos, length);
+        dirty = true;
+        if (!loss) {
+            written.incrementAndGet();
+        }
+        bytesWritten.addAndGet(4 + length);
+    }
+
+    private void maybeFlush() {
+        if (dirty && flushIntervalMillis > 0
+                && System.nanoTime() - lastFlushNanos >= TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis)) {
+            segment.force();
+            dirty = false;
+            lastFlushNanos = System.nanoTime();
+        }
+    }
+
+    private void openNextSegment() throws IOException {
+        closeSegment();
+        Path file = dir.resolve(segmentName(++segmentSequence));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        AuditCodec.writeSegmentHeader(segment, slots);
+        segmentsCreated.incrementAndGet();
+        lastFlushNanos = System.nanoTime();
+        deleteOldSegments();
+    }
+
+    private void closeSegment() {
+        if (channel == null) {
+            return;
+        }
+        segment.force();
+        dirty = false;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // 映射在 GC 时释放，关闭失败不影响已写入的数据
+        }
+        channel = null;
+    }
+
+    private void deleteOldSegments() throws IOException {
+        List<Path> segments = AuditLogReader.listSegments(dir);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    static String segmentName(long sequence) {
+        return String.format("%s%012d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX);
+    }
+
+    static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long lastSegmentSequence(Path dir) throws IOException {
+        List<Path> segments = AuditLogReader.listSegments(dir);
+        if (segments.isEmpty()) {
+            return 0L;
+        }
+        String name = segments.get(segments.size() - 1).getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * 调用线程的编码缓冲区：编码失败（缓冲区不够）时翻倍重试，最大 MAX_RECORD_BYTES。
+     */
+    private static final class Scratch {
+
+        private final SlotContext context = ContextSchema.defaultSchema().newContext();
+        private ByteBuffer buf = ByteBuffer.allocate(4096);
+
+        private byte[] encode(long timestamp, String scene, FieldSlot[] slots, DecisionResult result) {
+            while (true) {
+                buf.clear();
+                try {
+                    AuditCodec.writeDecision(buf, timestamp, scene, context, slots, result);
+                    byte[] record = new byte[buf.position()];
+                    buf.flip().get(record);
+                    return record;
+                } catch (BufferOverflowException e) {
+                    if (buf.capacity() >= MAX_RECORD_BYTES) {
+                        return null;
+                    }
+                    buf = ByteBuffer.allocate(buf.capacity() * 2);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.zhangyc.minirisk.audit;
+
+import com.zhangyc.minirisk.schema.FieldSlot;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * 审计日志读取：按段文件顺序（即写入顺序）逐条读出记录。
+ * 每个段以文件头里的字段表解码，读到长度为 0 的位置（段内剩余空间或写到一半的记录）就进入下一个段。
+ * 可以在写线程还在写的时候读，只会读到已经完整写入的记录。
+ */
+public final class AuditLogReader {
+
+    private AuditLogReader() {
+    }
+
+    /**
+     * 目录下的段文件，按序号从旧到新。
+     */
+    public static List<Path> listSegments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return Collections.emptyList();
+        }
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(AuditLog::isSegment).forEach(segments::add);
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * 依次把记录交给 visitor，visitor 返回 false 时停止。返回读取的记录数。
+     */
+    public static long read(Path dir, Predicate<AuditRecord> visitor) throws IOException {
+        long count = 0;
+        for (Path segment : listSegments(dir)) {
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                FieldSlot[] slots = AuditCodec.readSegmentHeader(buf);
+                while (buf.remaining() >= 4) {
+                    int length = buf.getInt();
+                    if (length <= 0 || length > buf.remaining()) {
+                        break;
+                    }
+                    int end = buf.position() + length;
+                    AuditRecord record = AuditCodec.read(buf.limit(end), slots);
+                    buf.limit(buf.capacity()).position(end);
+                    count++;
+                    if (!visitor.test(record)) {
+                        return count;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,134 @@
+package com.zhangyc.minirisk.audit;
+
+import com.zhangyc.minirisk.model.ConditionMatch;
+import com.zhangyc.minirisk.model.RuleAction;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 从审计日志里读出来的一条记录：
+ * - DECISION：一次决策（时间、场景、最终动作、命中规则、上下文字段、解释信息）；
+ * - LOSS：写入队列满时被丢弃的决策条数（写在丢弃发生之后的位置）。
+ */
+public final class AuditRecord {
+
+    public enum Type {
+        DECISION,
+        LOSS
+    }
+
+    /**
+     * 单条规则的解释：是否命中 + 每个叶子条件的比较情况。
+     */
+    public static final class RuleExplanation {
+
+        private final String ruleId;
+        private final boolean matched;
+        private final List<ConditionMatch> conditionMatches;
+
+        RuleExplanation(String ruleId, boolean matched, List<ConditionMatch> conditionMatches) {
+            this.ruleId = ruleId;
+            this.matched = matched;
+            this.conditionMatches = Collections.unmodifiableList(conditionMatches);
+        }
+
+        public String getRuleId() {
+            return ruleId;
+        }
+
+        public boolean isMatched() {
+            return matched;
+        }
+
+        public List<ConditionMatch> getConditionMatches() {
+            return conditionMatches;
+        }
+
+        @Override
+        public String toString() {
+            return ruleId + (matched ? "(matched)" : "(not matched)") + conditionMatches;
+        }
+    }
+
+    private final Type type;
+    private final long timestampMillis;
+    private final String scene;
+    private final RuleAction finalAction;
+    private final List<String> matchedRuleIds;
+    private final Map<String, Object> context;
+    private final List<RuleExplanation> explanations;
+    private final long lostCount;
+
+    AuditRecord(long timestampMillis, String scene, RuleAction finalAction, List<String> matchedRuleIds,
+                Map<String, Object> context, List<RuleExplanation> explanations) {
+        this.type = Type.DECISION;
+        this.timestampMillis = timestampMillis;
+        this.scene = scene;
+        this.finalAction = finalAction;
+        this.matchedRuleIds = Collections.unmodifiableList(matchedRuleIds);
+        this.context = Collections.unmodifiableMap(context);
+        this.explanations = Collections.unmodifiableList(explanations);
+        this.lostCount = 0L;
+    }
+
+    AuditRecord(long timestampMillis, long lostCount) {
+        this.type = Type.LOSS;
+        this.timestampMillis = timestampMillis;
+        this.scene = null;
+        this.finalAction = null;
+        this.matchedRuleIds = Collections.emptyList();
+        this.context = Collections.emptyMap();
+        this.explanations = Collections.emptyList();
+        this.lostCount = lostCount;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public String getScene() {
+        return scene;
+    }
+
+    public RuleAction getFinalAction() {
+        return finalAction;
+    }
+
+    public List<String> getMatchedRuleIds() {
+        return matchedRuleIds;
+    }
+
+    /** 字段路径 -> 取值，只包含非默认值的字段 */
+    public Map<String, Object> getContext() {
+        return context;
+    }
+
+    public List<RuleExplanation> getExplanations() {
+        return explanations;
+    }
+
+    /** LOSS 记录：丢弃的决策条数 */
+    public long getLostCount() {
+        return lostCount;
+    }
+
+    @Override
+    public String toString() {
+        if (type == Type.LOSS) {
+            return "AuditRecord{LOSS, ts=" + timestampMillis + ", lost=" + lostCount + '}';
+        }
+        return "AuditRecord{ts=" + timestampMillis +
+                ", scene=" + scene +
+                ", finalAction=" + finalAction +
+                ", matchedRules=" + matchedRuleIds +
+                ", context=" + context +
+                (explanations.isEmpty() ? "" : ", explanations=" + explanations) +
+                '}';
+    }
+}
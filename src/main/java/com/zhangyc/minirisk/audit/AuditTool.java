@@ -0,0 +1,63 @@
+package com.zhangyc.minirisk.audit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * 审计日志查看工具：按写入顺序打印记录，可以按场景 / 最终动作过滤。
+ *
+ * 运行：java -cp ... com.zhangyc.minirisk.audit.AuditTool <dir> [--scene PAY] [--action REJECT] [--limit N]
+ */
+@Slf4j
+public class AuditTool {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            log.info("usage: AuditTool <dir> [--scene PAY] [--action REJECT] [--limit N]");
+            return;
+        }
+        Path dir = Paths.get(args[0]);
+        String scene = null;
+        String action = null;
+        long limit = Long.MAX_VALUE;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--scene":
+                    scene = args[i + 1].toUpperCase(Locale.ROOT);
+                    break;
+                case "--action":
+                    action = args[i + 1].toUpperCase(Locale.ROOT);
+                    break;
+                case "--limit":
+                    limit = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知参数: " + args[i]);
+            }
+        }
+
+        String sceneFilter = scene;
+        String actionFilter = action;
+        long max = limit;
+        long[] printed = new long[1];
+        long[] lost = new long[1];
+        long total = AuditLogReader.read(dir, record -> {
+            if (record.getType() == AuditRecord.Type.LOSS) {
+                lost[0] += record.getLostCount();
+                log.info("{}", record);
+                return true;
+            }
+            if ((sceneFilter == null || sceneFilter.equalsIgnoreCase(record.getScene()))
+                    && (actionFilter == null || actionFilter.equals(String.valueOf(record.getFinalAction())))) {
+                log.info("{}", record);
+                printed[0]++;
+            }
+            return printed[0] < max;
+        });
+        log.info("records read={}, printed={}, lost={}", total, printed[0], lost[0]);
+    }
+}
@@ -0,0 +1,471 @@
+package com.zhangyc.minirisk.batch;
+
+import com.zhangyc.minirisk.batch.ColumnKernels.CompareOp;
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.compile.ConditionCompiler;
+import com.zhangyc.minirisk.compile.ConditionExpr;
+import com.zhangyc.minirisk.compile.SlotPredicate;
+import com.zhangyc.minirisk.compile.StringOps;
+import com.zhangyc.minirisk.model.MatchedRuleBits;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.FieldSlot;
+import com.zhangyc.minirisk.schema.SlotContext;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * 按列执行一个编译好的规则集：
+ * - 每个不同的叶子条件只执行一次，对整列做比较，结果是一张行位图；
+ * - 数值比较（LONG / BOOLEAN / DOUBLE 的区间比较）交给 ColumnKernels，可以走 SIMD；
+ * - 其余叶子（字符串、DOUBLE 的 == / !=、算术比较）逐行执行编译好的 SlotPredicate；
+ * - 规则的 AND / OR / NOT 变成位图的 & / | / 取反，最后得到每条规则的行位图。
+ *
+ * 可以执行堆上的 ColumnarBatch，也可以执行堆外的 OffHeapColumnarBatch：
+ * 堆外列按窗口批量拷到一小段复用的数组里再比较；字符串 == / != 在堆外批次上直接比较字典编码，
+ * 字符串匹配（startsWith / contains / regex / containsAny）对字典里每个不同的取值只执行一次，再按编码查表。
+ *
+ * 语义与 CompiledRuleEngine 逐行执行完全一致。构建后不可变，可以多线程共享（每次 evaluate 自己分配位图）。
+ */
+public final class BatchEvaluator {
+
+    private final CompiledRuleSet ruleSet;
+    private final ColumnKernels kernels;
+
+    /** 堆外批次每次拷到堆上比较的行数（64 的倍数，保证能放进 L1 / L2） */
+    private static final int WINDOW = 1024;
+
+    /** 去重后的叶子条件，下标即叶子位图的下标 */
+    private final List<Leaf> leaves = new ArrayList<>();
+
+    /** 每条规则的位图计算树，下标与规则集一致 */
+    private final Node[] ruleNodes;
+
+    public BatchEvaluator(CompiledRuleSet ruleSet) {
+        this(ruleSet, ColumnKernels.best());
+    }
+
+    public BatchEvaluator(CompiledRuleSet ruleSet, ColumnKernels kernels) {
+        this.ruleSet = Objects.requireNonNull(ruleSet, "ruleSet must not be null");
+        this.kernels = Objects.requireNonNull(kernels, "kernels must not be null");
+
+        Map<ConditionExpr, Node> leafNodes = new HashMap<>();
+        this.ruleNodes = new Node[ruleSet.size()];
+        for (int i = 0; i < ruleNodes.length; i++) {
+            ruleNodes[i] = toNode(ruleSet.get(i).getCondition(), leafNodes);
+        }
+    }
+
+    public ColumnKernels getKernels() {
+        return kernels;
+    }
+
+    public CompiledRuleSet getRuleSet() {
+        return ruleSet;
+    }
+
+    /**
+     * 执行一批数据。batch 的 schema 必须与规则集编译时使用的 schema 相同。
+     */
+    public BatchResult evaluate(ColumnarBatch batch) {
+        checkSchema(batch.getSchema());
+        int rows = batch.size();
+        long[][] leafMasks = new long[leaves.size()][MatchedRuleBits.wordCount(rows)];
+        SlotContext scratch = null;
+        for (int i = 0; i < leafMasks.length; i++) {
+            Leaf leaf = leaves.get(i);
+            switch (leaf.kind) {
+                case LONG_COLUMN:
+                    kernels.compare(batch.longColumn(leaf.column), rows, leaf.op, leaf.longValue, leafMasks[i]);
+                    break;
+                case DOUBLE_COLUMN:
+                    kernels.compare(batch.doubleColumn(leaf.column), rows, leaf.op, leaf.doubleValue, leafMasks[i]);
+                    break;
+                default:
+                    if (scratch == null) {
+                        scratch = ruleSet.getSchema().newContext();
+                    }
+                    for (int r = 0; r < rows; r++) {
+                        if (leaf.predicate.test(batch.loadRow(r, scratch))) {
+                            leafMasks[i][r >>> 6] |= 1L << r;
+                        }
+                    }
+                    break;
+            }
+        }
+        return combine(leafMasks, rows);
+    }
+
+    /**
+     * 执行一个堆外批次：不生成 RiskContext，也不按行生成任何对象（DOUBLE 的 == / != 等需要逐行执行的条件除外）。
+     */
+    public BatchResult evaluate(OffHeapColumnarBatch batch) {
+        checkSchema(batch.getSchema());
+        int rows = batch.size();
+        long[][] leafMasks = new long[leaves.size()][MatchedRuleBits.wordCount(rows)];
+        long[] longWindow = null;
+        double[] doubleWindow = null;
+        int[] codeWindow = null;
+        long[] windowMask = new long[WINDOW >>> 6];
+        long[] nonNullMask = new long[WINDOW >>> 6];
+        SlotContext scratch = null;
+
+        for (int i = 0; i < leafMasks.length; i++) {
+            Leaf leaf = leaves.get(i);
+            long[] mask = leafMasks[i];
+            if (leaf.stringMatcher != null) {
+                long[] codeHits = matchDictionary(batch.getDictionary(), leaf.stringMatcher);
+                if (codeWindow == null) {
+                    codeWindow = new int[WINDOW];
+                }
+                for (int from = 0; from < rows; from += WINDOW) {
+                    int n = Math.min(WINDOW, rows - from);
+                    batch.copyStringCodes(leaf.column, from, codeWindow, n);
+                    for (int r = 0; r < n; r++) {
+                        int code = codeWindow[r];
+                        if (code != StringDictionary.NULL_CODE && (codeHits[code >>> 6] & (1L << code)) != 0) {
+                            mask[(from + r) >>> 6] |= 1L << (from + r);
+                        }
+                    }
+                }
+                continue;
+            }
+            if (leaf.kind == LeafKind.ROW && leaf.stringOp == null) {
+                if (scratch == null) {
+                    scratch = ruleSet.getSchema().newContext();
+                }
+                for (int r = 0; r < rows; r++) {
+                    if (leaf.predicate.test(batch.loadRow(r, scratch))) {
+                        mask[r >>> 6] |= 1L << r;
+                    }
+                }
+                continue;
+            }
+            if (leaf.kind == LeafKind.ROW) {
+                // 字符串 == / !=：常量换成字典编码，按编码比较
+                int code = batch.getDictionary().lookup(leaf.expr.getValue());
+                if (code == StringDictionary.NULL_CODE && leaf.stringOp == CompareOp.EQ) {
+                    continue;
+                }
+                if (codeWindow == null) {
+                    codeWindow = new int[WINDOW];
+                }
+                if (longWindow == null) {
+                    longWindow = new long[WINDOW];
+                }
+                for (int from = 0; from < rows; from += WINDOW) {
+                    int n = Math.min(WINDOW, rows - from);
+                    batch.copyStringCodes(leaf.column, from, codeWindow, n);
+                    for (int r = 0; r < n; r++) {
+                        longWindow[r] = codeWindow[r];
+                    }
+                    kernels.compare(longWindow, n, leaf.stringOp, code, windowMask);
+                    if (leaf.stringOp == CompareOp.NE && code != StringDictionary.NULL_CODE) {
+                        // != 对 null 不成立（与 compareValue 一致）
+                        kernels.compare(longWindow, n, CompareOp.NE, StringDictionary.NULL_CODE, nonNullMask);
+                        for (int w = 0; w < nonNullMask.length; w++) {
+                            windowMask[w] &= nonNullMask[w];
+                        }
+                    }
+                    System.arraycopy(windowMask, 0, mask, from >>> 6, MatchedRuleBits.wordCount(n));
+                }
+                continue;
+            }
+            for (int from = 0; from < rows; from += WINDOW) {
+                int n = Math.min(WINDOW, rows - from);
+                if (leaf.kind == LeafKind.LONG_COLUMN) {
+                    if (longWindow == null) {
+                        longWindow = new long[WINDOW];
+                    }
+                    batch.copyLongs(leaf.column, from, longWindow, n);
+                    kernels.compare(longWindow, n, leaf.op, leaf.longValue, windowMask);
+                } else {
+                    if (doubleWindow == null) {
+                        doubleWindow = new double[WINDOW];
+                    }
+                    batch.copyDoubles(leaf.column, from, doubleWindow, n);
+                    kernels.compare(doubleWindow, n, leaf.op, leaf.doubleValue, windowMask);
+                }
+                System.arraycopy(windowMask, 0, mask, from >>> 6, MatchedRuleBits.wordCount(n));
+            }
+        }
+        return combine(leafMasks, rows);
+    }
+
+    /**
+     * 字典里每个取值是否满足字符串匹配，按编码记到位图里。
+     */
+    private static long[] matchDictionary(StringDictionary dictionary, Predicate<String> matcher) {
+        int size = dictionary.size();
+        long[] hits = new long[MatchedRuleBits.wordCount(size)];
+        for (int code = 0; code < size; code++) {
+            if (matcher.test(dictionary.decode(code))) {
+                hits[code >>> 6] |= 1L << code;
+            }
+        }
+        return hits;
+    }
+
+    private void checkSchema(ContextSchema schema) {
+        if (schema != ruleSet.getSchema()) {
+            throw new IllegalArgumentException("batch 与规则集使用的 schema 不一致");
+        }
+    }
+
+    private BatchResult combine(long[][] leafMasks, int rows) {
+        long[] valid = validMask(rows, MatchedRuleBits.wordCount(rows));
+        long[][] ruleMasks = new long[ruleNodes.length][];
+        for (int i = 0; i < ruleNodes.length; i++) {
+            ruleMasks[i] = ruleNodes[i].evaluate(leafMasks, valid);
+        }
+        return new BatchResult(ruleSet.getRulesInPriorityOrder(), ruleMasks, rows);
+    }
+
+    private static long[] validMask(int rows, int words) {
+        long[] valid = new long[words];
+        Arrays.fill(valid, -1L);
+        if ((rows & 63) != 0) {
+            valid[words - 1] = (1L << rows) - 1;
+        }
+        return valid;
+    }
+
+    // ======== 编译：表达式 -> 位图计算树 ========
+
+    private Node toNode(ConditionExpr expr, Map<ConditionExpr, Node> leafNodes) {
+        switch (expr.getKind()) {
+            case TRUE:
+                return Node.TRUE;
+            case FALSE:
+                return Node.FALSE;
+            case LEAF:
+            case ARITH: {
+                Node node = leafNodes.get(expr);
+                if (node == null) {
+                    node = expr.getKind() == ConditionExpr.Kind.ARITH
+                            ? leafNode(Leaf.arith(expr, ruleSet.getSchema()))
+                            : compileLeaf(expr);
+                    leafNodes.put(expr, node);
+                }
+                return node;
+            }
+            default:
+                break;
+        }
+        List<ConditionExpr> children = expr.getChildren();
+        Node[] parts = new Node[children.size()];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = toNode(children.get(i), leafNodes);
+        }
+        return new Node(expr.getKind(), -1, parts);
+    }
+
+    private Node compileLeaf(ConditionExpr leaf) {
+        ContextSchema schema = ruleSet.getSchema();
+        FieldSlot slot = schema.getSlot(leaf.getField());
+        String op = leaf.getOp();
+        CompareOp cmp = toCompareOp(op);
+
+        switch (slot.getType()) {
+            case LONG: {
+                if (cmp == null) {
+                    return Node.FALSE;
+                }
+                double expectedD = Double.parseDouble(leaf.getValue());
+                long expected = (long) expectedD;
+                if (expected == expectedD) {
+                    return leafNode(Leaf.longColumn(slot.getIndex(), cmp, expected));
+                }
+                // 期望值带小数：整数列上 x > 2.5 等价于 x > 2，x < 2.5 等价于 x <= 2
+                long floor = (long) Math.floor(expectedD);
+                switch (cmp) {
+                    case GT:
+                    case GE:
+                        return leafNode(Leaf.longColumn(slot.getIndex(), CompareOp.GT, floor));
+                    case LT:
+                    case LE:
+                        return leafNode(Leaf.longColumn(slot.getIndex(), CompareOp.LE, floor));
+                    case NE:
+                        return Node.TRUE;
+                    default:
+                        return Node.FALSE;
+                }
+            }
+            case BOOLEAN: {
+                if (cmp != CompareOp.EQ && cmp != CompareOp.NE) {
+                    return Node.FALSE;
+                }
+                // 布尔值按 0 / 1 存在 long 列里：== true 即 != 0
+                boolean wantTrue = Boolean.parseBoolean(leaf.getValue()) == (cmp == CompareOp.EQ);
+                return leafNode(Leaf.longColumn(slot.getIndex(), wantTrue ? CompareOp.NE : CompareOp.EQ, 0L));
+            }
+            case DOUBLE:
+                if (cmp != null && cmp != CompareOp.EQ && cmp != CompareOp.NE) {
+                    return leafNode(Leaf.doubleColumn(slot.getIndex(), cmp, Double.parseDouble(leaf.getValue())));
+                }
+                // == / != 按 Double.compare 语义（NaN、-0.0 与 IEEE 比较不同），逐行执行
+                return leafNode(Leaf.row(leaf, slot, null, schema));
+            default:
+                if (StringOps.isStringOp(op)) {
+                    return leafNode(Leaf.stringMatch(leaf, slot, schema));
+                }
+                // 字符串 == / != 在堆外批次上可以比较字典编码
+                CompareOp stringOp = cmp == CompareOp.EQ || cmp == CompareOp.NE ? cmp : null;
+                return leafNode(Leaf.row(leaf, slot, stringOp, schema));
+        }
+    }
+
+    private Node leafNode(Leaf leaf) {
+        leaves.add(leaf);
+        return new Node(ConditionExpr.Kind.LEAF, leaves.size() - 1, null);
+    }
+
+    private static CompareOp toCompareOp(String op) {
+        if (op == null) {
+            return null;
+        }
+        switch (op) {
+            case ">":
+                return CompareOp.GT;
+            case ">=":
+                return CompareOp.GE;
+            case "<":
+                return CompareOp.LT;
+            case "<=":
+                return CompareOp.LE;
+            case "==":
+                return CompareOp.EQ;
+            case "!=":
+                return CompareOp.NE;
+            default:
+                return null;
+        }
+    }
+
+    private enum LeafKind {
+        /** long 列 op 常量，走 ColumnKernels */
+        LONG_COLUMN,
+        /** double 列 op 常量，走 ColumnKernels */
+        DOUBLE_COLUMN,
+        /** 逐行执行编译好的 SlotPredicate */
+        ROW
+    }
+
+    /**
+     * 一个去重后的叶子条件。
+     */
+    private static final class Leaf {
+
+        private final LeafKind kind;
+        private final int column;
+        private final CompareOp op;
+        private final long longValue;
+        private final double doubleValue;
+
+        /** ROW：原始条件、编译好的谓词，字符串 == / != 时 stringOp 非空，字符串匹配时 stringMatcher 非空 */
+        private final ConditionExpr expr;
+        private final SlotPredicate predicate;
+        private final CompareOp stringOp;
+        private final Predicate<String> stringMatcher;
+
+        private Leaf(LeafKind kind, int column, CompareOp op, long longValue, double doubleValue,
+                     ConditionExpr expr, SlotPredicate predicate, CompareOp stringOp, Predicate<String> stringMatcher) {
+            this.kind = kind;
+            this.column = column;
+            this.op = op;
+            this.longValue = longValue;
+            this.doubleValue = doubleValue;
+            this.expr = expr;
+            this.predicate = predicate;
+            this.stringOp = stringOp;
+            this.stringMatcher = stringMatcher;
+        }
+
+        private static Leaf longColumn(int column, CompareOp op, long value) {
+            return new Leaf(LeafKind.LONG_COLUMN, column, op, value, 0.0, null, null, null, null);
+        }
+
+        private static Leaf doubleColumn(int column, CompareOp op, double value) {
+            return new Leaf(LeafKind.DOUBLE_COLUMN, column, op, 0L, value, null, null, null, null);
+        }
+
+        private static Leaf row(ConditionExpr expr, FieldSlot slot, CompareOp stringOp, ContextSchema schema) {
+            SlotPredicate predicate = ConditionCompiler.compileCondition(
+                    expr.getField(), expr.getOp(), expr.getValue(), schema);
+            return new Leaf(LeafKind.ROW, slot.getIndex(), null, 0L, 0.0, expr, predicate, stringOp, null);
+        }
+
+        /** 算术比较：逐行执行编译好的求值树（没有单独的列） */
+        private static Leaf arith(ConditionExpr expr, ContextSchema schema) {
+            SlotPredicate predicate = ConditionCompiler.compileExpr(expr, schema);
+            return new Leaf(LeafKind.ROW, -1, null, 0L, 0.0, expr, predicate, null, null);
+        }
+
+        private static Leaf stringMatch(ConditionExpr expr, FieldSlot slot, ContextSchema schema) {
+            SlotPredicate predicate = ConditionCompiler.compileCondition(
+                    expr.getField(), expr.getOp(), expr.getValue(), schema);
+            return new Leaf(LeafKind.ROW, slot.getIndex(), null, 0L, 0.0, expr, predicate, null,
+                    StringOps.matcher(expr.getOp(), expr.getValue()));
+        }
+    }
+
+    /**
+     * 位图计算树的节点：常量 / 叶子位图 / AND / OR / NOT。
+     */
+    private static final class Node {
+
+        private static final Node TRUE = new Node(ConditionExpr.Kind.TRUE, -1, null);
+        private static final Node FALSE = new Node(ConditionExpr.Kind.FALSE, -1, null);
+
+        private final ConditionExpr.Kind kind;
+        private final int leafIndex;
+        private final Node[] children;
+
+        private Node(ConditionExpr.Kind kind, int leafIndex, Node[] children) {
+            this.kind = kind;
+            this.leafIndex = leafIndex;
+            this.children = children;
+        }
+
+        /**
+         * 计算本节点的行位图。返回的数组是新分配的，调用方可以直接修改。
+         */
+        private long[] evaluate(long[][] leafMasks, long[] valid) {
+            switch (kind) {
+                case TRUE:
+                    return valid.clone();
+                case FALSE:
+                    return new long[valid.length];
+                case LEAF:
+                    return leafMasks[leafIndex].clone();
+                case NOT: {
+                    long[] mask = children[0].evaluate(leafMasks, valid);
+                    for (int w = 0; w < mask.length; w++) {
+                        mask[w] = ~mask[w] & valid[w];
+                    }
+                    return mask;
+                }
+                case AND: {
+                    long[] mask = children[0].evaluate(leafMasks, valid);
+                    for (int i = 1; i < children.length; i++) {
+                        long[] other = children[i].evaluate(leafMasks, valid);
+                        for (int w = 0; w < mask.length; w++) {
+                            mask[w] &= other[w];
+                        }
+                    }
+                    return mask;
+                }
+                default: {
+                    long[] mask = children[0].evaluate(leafMasks, valid);
+                    for (int i = 1; i < children.length; i++) {
+                        long[] other = children[i].evaluate(leafMasks, valid);
+                        for (int w = 0; w < mask.length; w++) {
+                            mask[w] |= other[w];
+                        }
+                    }
+                    return mask;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.zhangyc.minirisk.batch;
+
+import com.zhangyc.minirisk.schema.ContextSchema;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * 把文件中的事件逐批读入 OffHeapColumnarBatch。
+ */
+public interface BatchReader extends Closeable {
+
+    /**
+     * 从文件继续读取，追加到 batch 中，直到 batch 满或者读完。返回本次读入的行数，0 表示已读完。
+     */
+    int readInto(OffHeapColumnarBatch batch) throws IOException;
+
+    /**
+     * 按扩展名选择读取器：.csv 为 CSV，.ndjson / .jsonl / .json 为每行一个 JSON 对象。
+     * 只读取文件中 [from, to) 这一段（边界需落在行首，见 LineRanges）。
+     */
+    static BatchReader open(Path file, ContextSchema schema, long from, long to) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return new CsvBatchReader(file, schema, from, to, CsvBatchReader.DEFAULT_WINDOW_BYTES);
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json")) {
+            return new NdjsonBatchReader(file, schema, from, to, NdjsonBatchReader.DEFAULT_WINDOW_BYTES);
+        }
+        throw new IllegalArgumentException("不支持的事件文件格式: " + file);
+    }
+}
@@ -0,0 +1,122 @@
+package com.zhangyc.minirisk.batch;
+
+import com.zhangyc.minirisk.model.MatchedRuleBits;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.model.RuleAction;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一批数据的执行结果：每条规则一张行位图（第 r 位 = 第 r 行命中该规则）。
+ * - 最终动作也按位图合成：REJECT 位图 = 所有 REJECT 规则位图的 OR，MANUAL_REVIEW 同理；
+ * - 按行查看命中规则时才生成 MatchedRuleBits。
+ */
+public final class BatchResult {
+
+    /** 规则集中的全部规则，按优先级从高到低，下标与 ruleMasks 一致 */
+    private final List<Rule> rules;
+    private final long[][] ruleMasks;
+    private final int rows;
+
+    private final long[] rejectMask;
+    private final long[] reviewMask;
+
+    BatchResult(List<Rule> rules, long[][] ruleMasks, int rows) {
+        this.rules = rules;
+        this.ruleMasks = ruleMasks;
+        this.rows = rows;
+        int words = MatchedRuleBits.wordCount(rows);
+        this.rejectMask = new long[words];
+        this.reviewMask = new long[words];
+        for (int i = 0; i < ruleMasks.length; i++) {
+            RuleAction action = rules.get(i).getAction();
+            long[] target = action == RuleAction.REJECT ? rejectMask
+                    : action == RuleAction.MANUAL_REVIEW ? reviewMask : null;
+            if (target == null) {
+                continue;
+            }
+            long[] mask = ruleMasks[i];
+            for (int w = 0; w < words; w++) {
+                target[w] |= mask[w];
+            }
+        }
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    public int getRuleCount() {
+        return ruleMasks.length;
+    }
+
+    public boolean isMatched(int ruleIndex, int row) {
+        return (ruleMasks[ruleIndex][row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * 第 row 行的最终动作（REJECT > MANUAL_REVIEW > ALLOW）。
+     */
+    public RuleAction getFinalAction(int row) {
+        long bit = 1L << row;
+        if ((rejectMask[row >>> 6] & bit) != 0) {
+            return RuleAction.REJECT;
+        }
+        if ((reviewMask[row >>> 6] & bit) != 0) {
+            return RuleAction.MANUAL_REVIEW;
+        }
+        return RuleAction.ALLOW;
+    }
+
+    /**
+     * 第 row 行命中的规则（按优先级从高到低）。
+     */
+    public MatchedRuleBits getMatchedBits(int row) {
+        long[] words = new long[MatchedRuleBits.wordCount(ruleMasks.length)];
+        long bit = 1L << row;
+        int w = row >>> 6;
+        for (int i = 0; i < ruleMasks.length; i++) {
+            if ((ruleMasks[i][w] & bit) != 0) {
+                words[i >>> 6] |= 1L << i;
+            }
+        }
+        return new MatchedRuleBits(rules, words);
+    }
+
+    /**
+     * 第 ruleIndex 条规则在这批数据里命中的行数。
+     */
+    public int getHitCount(int ruleIndex) {
+        int count = 0;
+        for (long word : ruleMasks[ruleIndex]) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * 各最终动作的行数。
+     */
+    public Map<RuleAction, Integer> countByAction() {
+        int reject = 0;
+        int review = 0;
+        for (int w = 0; w < rejectMask.length; w++) {
+            reject += Long.bitCount(rejectMask[w]);
+            review += Long.bitCount(reviewMask[w] & ~rejectMask[w]);
+        }
+        Map<RuleAction, Integer> counts = new EnumMap<>(RuleAction.class);
+        counts.put(RuleAction.REJECT, reject);
+        counts.put(RuleAction.MANUAL_REVIEW, review);
+        counts.put(RuleAction.ALLOW, rows - reject - review);
+        return counts;
+    }
+
+    /**
+     * 第 ruleIndex 条规则的行位图（只读，不要修改）。
+     */
+    public long[] getRuleMask(int ruleIndex) {
+        return ruleMasks[ruleIndex];
+    }
+}
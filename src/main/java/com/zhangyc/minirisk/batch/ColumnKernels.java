@@ -0,0 +1,40 @@
+package com.zhangyc.minirisk.batch;
+
+/**
+ * 列比较内核：把「整列 op 常量」的结果写成位图（第 r 位 = 第 r 行是否满足）。
+ * 有 SIMD（Vector API）与标量两种实现，结果完全一致。
+ */
+public interface ColumnKernels {
+
+    /** 支持的比较操作 */
+    enum CompareOp {
+        GT, GE, LT, LE, EQ, NE
+    }
+
+    /**
+     * column[0..rows) op constant -> out 位图（out 长度至少为 (rows + 63) / 64）。
+     */
+    void compare(long[] column, int rows, CompareOp op, long constant, long[] out);
+
+    /**
+     * column[0..rows) op constant -> out 位图。EQ / NE 按 IEEE 语义比较。
+     */
+    void compare(double[] column, int rows, CompareOp op, double constant, long[] out);
+
+    String name();
+
+    /**
+     * 当前 JVM 上最快的实现：加载了 jdk.incubator.vector 模块时用 SIMD，否则退回标量。
+     */
+    static ColumnKernels best() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return new VectorColumnKernels();
+            } catch (Throwable e) {
+                // 模块存在但无法初始化（例如平台不支持），退回标量实现
+                return new ScalarColumnKernels();
+            }
+        }
+        return new ScalarColumnKernels();
+    }
+}
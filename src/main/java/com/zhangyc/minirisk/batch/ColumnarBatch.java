@@ -0,0 +1,104 @@
+package com.zhangyc.minirisk.batch;
+
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.SlotContext;
+
+/**
+ * 列式存放的一批上下文：每个 schema 槽位一列原始数组。
+ * - LONG / BOOLEAN 槽位 -> long[] 列，DOUBLE 槽位 -> double[] 列，STRING 槽位 -> Object[] 列；
+ * - 列下标与 SlotContext 的槽位下标一致，编译期得到的下标可以直接用于列访问；
+ * - 适合离线重跑时把大量请求按列排好后整体执行，数值条件可以用 SIMD 一次比较多行。
+ *
+ * 非线程安全，可以 clear() 后复用。
+ */
+public final class ColumnarBatch {
+
+    private final ContextSchema schema;
+    private final int capacity;
+    private final long[][] longColumns;
+    private final double[][] doubleColumns;
+    private final Object[][] objectColumns;
+    private int size;
+
+    public ColumnarBatch(ContextSchema schema, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.schema = schema.freeze();
+        this.capacity = capacity;
+        this.longColumns = new long[schema.getLongCount()][capacity];
+        this.doubleColumns = new double[schema.getDoubleCount()][capacity];
+        this.objectColumns = new Object[schema.getObjectCount()][capacity];
+    }
+
+    /**
+     * 追加一行，返回行号。
+     */
+    public int add(SlotContext row) {
+        if (size == capacity) {
+            throw new IllegalStateException("batch is full: " + capacity);
+        }
+        int r = size++;
+        for (int i = 0; i < longColumns.length; i++) {
+            longColumns[i][r] = row.getLong(i);
+        }
+        for (int i = 0; i < doubleColumns.length; i++) {
+            doubleColumns[i][r] = row.getDouble(i);
+        }
+        for (int i = 0; i < objectColumns.length; i++) {
+            objectColumns[i][r] = row.getObject(i);
+        }
+        return r;
+    }
+
+    /**
+     * 把第 row 行拷贝到一个 SlotContext 中（给不能按列执行的条件使用）。
+     */
+    public SlotContext loadRow(int row, SlotContext target) {
+        for (int i = 0; i < longColumns.length; i++) {
+            target.setLong(i, longColumns[i][row]);
+        }
+        for (int i = 0; i < doubleColumns.length; i++) {
+            target.setDouble(i, doubleColumns[i][row]);
+        }
+        for (int i = 0; i < objectColumns.length; i++) {
+            target.setObject(i, objectColumns[i][row]);
+        }
+        return target;
+    }
+
+    public ContextSchema getSchema() {
+        return schema;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /** 某个 long 槽位的整列（长度为 capacity，只有前 size 行有效） */
+    public long[] longColumn(int index) {
+        return longColumns[index];
+    }
+
+    /** 某个 double 槽位的整列 */
+    public double[] doubleColumn(int index) {
+        return doubleColumns[index];
+    }
+
+    /** 某个 Object 槽位的整列 */
+    public Object[] objectColumn(int index) {
+        return objectColumns[index];
+    }
+}
@@ -0,0 +1,256 @@
+package com.zhangyc.minirisk.batch;
+
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.FieldSlot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把 CSV 文件通过内存映射直接读进 OffHeapColumnarBatch：
+ * - 第一行是表头，列名为字段路径（例如 order.amount），schema 里没有的列会被忽略；
+ * - 文件按窗口（默认 64MB）分段映射，每段只处理完整的行，超大文件也不需要整个映射；
+ * - 可以只读文件中的一段（LineRanges 切分），多个线程各读一段，表头总是从文件开头读取；
+ * - 数值直接从字节解析，字符串按 UTF-8 字节查字典，已出现过的值不创建 String；
+ * - 空字段按 0 / false / null 处理。不支持带引号的字段（字段里不能有逗号和换行）。
+ *
+ * 非线程安全。
+ */
+public final class CsvBatchReader implements BatchReader {
+
+    /** 默认映射窗口大小 */
+    public static final int DEFAULT_WINDOW_BYTES = 64 << 20;
+
+    private final FileChannel channel;
+    private final ContextSchema schema;
+
+    /** 每一列对应的槽位，schema 里没有的列为 null */
+    private final FieldSlot[] columns;
+
+    private final MappedLineWindow window;
+    private ByteBuffer buf;
+    private long lineNumber;
+
+    public CsvBatchReader(Path file, ContextSchema schema) throws IOException {
+        this(file, schema, 0L, Long.MAX_VALUE, DEFAULT_WINDOW_BYTES);
+    }
+
+    /**
+     * 只读取 [from, to) 这一段的数据行（to 超过文件大小时读到文件末尾）。
+     */
+    public CsvBatchReader(Path file, ContextSchema schema, long from, long to, int windowBytes) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.schema = schema;
+        try {
+            long size = channel.size();
+            MappedLineWindow header = new MappedLineWindow(channel, 0L, size, windowBytes);
+            this.buf = header.buffer();
+            List<FieldSlot> slots = new ArrayList<>();
+            int headerEnd = readHeader(header.limit, slots);
+            this.columns = slots.toArray(new FieldSlot[0]);
+            this.window = new MappedLineWindow(channel, Math.max(from, headerEnd), Math.min(to, size), windowBytes);
+            this.buf = window.buffer();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int readInto(OffHeapColumnarBatch batch) throws IOException {
+        if (batch.getSchema() != schema) {
+            throw new IllegalArgumentException("batch 与 reader 使用的 schema 不一致");
+        }
+        int read = 0;
+        while (!batch.isFull() && window.ensure()) {
+            buf = window.buffer();
+            if (isLineEnd(buf.get(window.pos))) {
+                // 空行
+                window.pos++;
+                lineNumber++;
+                continue;
+            }
+            readRow(batch);
+            read++;
+        }
+        return read;
+    }
+
+    /** 本 reader 已处理的行数（不含表头） */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window.release();
+        buf = null;
+        channel.close();
+    }
+
+    /**
+     * 解析表头（每列对应的槽位写入 slots），返回第一条数据行的文件偏移。
+     */
+    private int readHeader(int limit, List<FieldSlot> slots) {
+        int start = 0;
+        while (true) {
+            int end = fieldEnd(start, limit);
+            String name = new String(bytes(start, end), StandardCharsets.UTF_8).trim();
+            slots.add(schema.contains(name) ? schema.getSlot(name) : null);
+            if (end >= limit || isLineEnd(buf.get(end))) {
+                return skipLineEnd(end, limit);
+            }
+            start = end + 1;
+        }
+    }
+
+    private void readRow(OffHeapColumnarBatch batch) {
+        int row = batch.addRow();
+        lineNumber++;
+        int limit = window.limit;
+        int start = window.pos;
+        for (int c = 0; ; c++) {
+            int end = fieldEnd(start, limit);
+            if (c < columns.length && columns[c] != null && end > start) {
+                writeField(batch, columns[c], row, start, end);
+            }
+            if (end >= limit || isLineEnd(buf.get(end))) {
+                window.pos = skipLineEnd(end, limit);
+                return;
+            }
+            start = end + 1;
+        }
+    }
+
+    private void writeField(OffHeapColumnarBatch batch, FieldSlot slot, int row, int start, int end) {
+        try {
+            writeValue(batch, slot, row, start, end);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("第 " + lineNumber + " 行字段 " + slot.getPath()
+                    + " 不是合法的数值: " + text(start, end), e);
+        }
+    }
+
+    private void writeValue(OffHeapColumnarBatch batch, FieldSlot slot, int row, int start, int end) {
+        int index = slot.getIndex();
+        switch (slot.getType()) {
+            case LONG:
+                batch.setLong(index, row, parseLong(start, end));
+                break;
+            case DOUBLE:
+                batch.setDouble(index, row, parseDouble(start, end));
+                break;
+            case BOOLEAN:
+                // 与 Boolean.parseBoolean 一致：只有 true（忽略大小写）为真
+                batch.setBoolean(index, row, end - start == 4
+                        && (buf.get(start) | 0x20) == 't' && (buf.get(start + 1) | 0x20) == 'r'
+                        && (buf.get(start + 2) | 0x20) == 'u' && (buf.get(start + 3) | 0x20) == 'e');
+                break;
+            default:
+                batch.setStringCode(index, row, batch.getDictionary().encode(buf, start, end));
+                break;
+        }
+    }
+
+    private long parseLong(int start, int end) {
+        int i = start;
+        boolean negative = buf.get(i) == '-';
+        if (negative || buf.get(i) == '+') {
+            i++;
+        }
+        if (i == end || end - i > 18) {
+            return Long.parseLong(text(start, end));
+        }
+        long value = 0L;
+        for (; i < end; i++) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) {
+                return Long.parseLong(text(start, end));
+            }
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    /**
+     * 快速路径：不超过 15 位有效数字、没有指数的十进制数，整数部分和小数部分都能精确表示为 double，
+     * 一次除法的结果与 Double.parseDouble 相同；其他情况退回 Double.parseDouble。
+     */
+    private double parseDouble(int start, int end) {
+        int i = start;
+        boolean negative = buf.get(i) == '-';
+        if (negative || buf.get(i) == '+') {
+            i++;
+        }
+        long mantissa = 0L;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            byte b = buf.get(i);
+            if (b == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            int d = b - '0';
+            if (d < 0 || d > 9 || digits == 15) {
+                return Double.parseDouble(text(start, end));
+            }
+            mantissa = mantissa * 10 + d;
+            digits++;
+            if (scale >= 0) {
+                scale++;
+            }
+        }
+        if (digits == 0) {
+            return Double.parseDouble(text(start, end));
+        }
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private int fieldEnd(int start, int limit) {
+        int i = start;
+        while (i < limit) {
+            byte b = buf.get(i);
+            if (b == ',' || isLineEnd(b)) {
+                return i;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private int skipLineEnd(int i, int limit) {
+        if (i < limit && buf.get(i) == '\r') {
+            i++;
+        }
+        if (i < limit && buf.get(i) == '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isLineEnd(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    private byte[] bytes(int start, int end) {
+        byte[] b = new byte[end - start];
+        buf.get(start, b);
+        return b;
+    }
+
+    private String text(int start, int end) {
+        return new String(bytes(start, end), StandardCharsets.US_ASCII).trim();
+    }
+}
@@ -0,0 +1,65 @@
+package com.zhangyc.minirisk.batch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 把一个按行组织的文件切成若干段，每段的边界都落在换行符之后，可以交给多个线程各自读取。
+ */
+public final class LineRanges {
+
+    private LineRanges() {
+    }
+
+    /**
+     * 切成最多 parts 段，返回边界偏移（长度为 段数 + 1，第一个为 0，最后一个为文件大小）。
+     * 行很长或文件很小时段数可能少于 parts。
+     */
+    public static long[] split(Path file, int parts) throws IOException {
+        if (parts <= 0) {
+            throw new IllegalArgumentException("parts must be positive: " + parts);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = new long[parts + 1];
+            int count = 0;
+            bounds[count++] = 0L;
+            ByteBuffer probe = ByteBuffer.allocate(8192);
+            for (int k = 1; k < parts; k++) {
+                long next = nextLineStart(channel, Math.max(size * k / parts, bounds[count - 1]), size, probe);
+                if (next > bounds[count - 1] && next < size) {
+                    bounds[count++] = next;
+                }
+            }
+            bounds[count++] = size;
+            long[] result = new long[count];
+            System.arraycopy(bounds, 0, result, 0, count);
+            return result;
+        }
+    }
+
+    /**
+     * position 所在行的下一行的起始偏移（position 恰好是行首时也跳到下一行）。
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer probe)
+            throws IOException {
+        long p = position;
+        while (p < size) {
+            probe.clear();
+            int n = channel.read(probe, p);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (probe.get(i) == '\n') {
+                    return p + i + 1;
+                }
+            }
+            p += n;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,68 @@
+package com.zhangyc.minirisk.batch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 按窗口内存映射文件中的 [from, to) 区间，每个窗口只包含完整的行（区间末尾除外）。
+ * 读取方用 buffer() 的绝对下标访问 [pos, limit) 内的字节，处理完一行后推进 pos。
+ */
+final class MappedLineWindow {
+
+    private final FileChannel channel;
+    private final long end;
+    private final int windowBytes;
+
+    private ByteBuffer buffer;
+    private long windowStart;
+    int pos;
+    int limit;
+
+    MappedLineWindow(FileChannel channel, long from, long to, int windowBytes) throws IOException {
+        this.channel = channel;
+        this.end = to;
+        this.windowBytes = windowBytes;
+        remap(from);
+    }
+
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * 当前窗口处理完时映射下一个窗口。返回 false 表示整个区间已读完。
+     */
+    boolean ensure() throws IOException {
+        if (pos < limit) {
+            return true;
+        }
+        long next = windowStart + pos;
+        if (next >= end) {
+            return false;
+        }
+        remap(next);
+        return true;
+    }
+
+    void release() {
+        buffer = null;
+    }
+
+    private void remap(long start) throws IOException {
+        long length = Math.max(0L, Math.min(windowBytes, end - start));
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        windowStart = start;
+        pos = 0;
+        int lim = (int) length;
+        if (start + length < end) {
+            while (lim > 0 && buffer.get(lim - 1) != '\n') {
+                lim--;
+            }
+            if (lim == 0) {
+                throw new IllegalStateException("文件偏移 " + start + " 处的一行超过映射窗口大小: " + windowBytes);
+            }
+        }
+        limit = lim;
+    }
+}
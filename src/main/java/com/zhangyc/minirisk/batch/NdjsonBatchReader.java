@@ -0,0 +1,213 @@
+package com.zhangyc.minirisk.batch;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.FieldSlot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 把 NDJSON（每行一个 JSON 对象）文件通过内存映射读进 OffHeapColumnarBatch：
+ * - 字段既可以写成扁平的路径 {"order.amount": 1200}，也可以写成嵌套对象 {"order": {"amount": 1200}}；
+ * - schema 里没有的字段、数组会被跳过；
+ * - 用 Jackson 的流式解析器逐个 token 读取，不构建 JsonNode / Map，字段名查找不分配对象；
+ * - 与 CsvBatchReader 一样按窗口映射，可以只读文件中的一段。
+ *
+ * 值的类型转换与 SlotContext.set 一致（例如 LONG 字段上的 12.9 截断为 12）。非线程安全。
+ */
+public final class NdjsonBatchReader implements BatchReader {
+
+    /** 默认映射窗口大小 */
+    public static final int DEFAULT_WINDOW_BYTES = 64 << 20;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final FileChannel channel;
+    private final ContextSchema schema;
+    private final MappedLineWindow window;
+
+    /** 字段名前缀树：同时支持扁平路径和嵌套对象 */
+    private final PathNode root = new PathNode();
+
+    /** 当前行的字节（Jackson 需要 byte[] 输入），按需扩容后复用 */
+    private byte[] line = new byte[1024];
+    private long lineNumber;
+
+    public NdjsonBatchReader(Path file, ContextSchema schema) throws IOException {
+        this(file, schema, 0L, Long.MAX_VALUE, DEFAULT_WINDOW_BYTES);
+    }
+
+    /**
+     * 只读取 [from, to) 这一段（to 超过文件大小时读到文件末尾）。
+     */
+    public NdjsonBatchReader(Path file, ContextSchema schema, long from, long to, int windowBytes) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.schema = schema;
+        try {
+            this.window = new MappedLineWindow(channel, from, Math.min(to, channel.size()), windowBytes);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        for (FieldSlot slot : schema.getSlots()) {
+            // 扁平写法 {"order.amount": 1200}：整个路径作为根下的一个 key
+            root.child(slot.getPath()).slot = slot;
+            // 嵌套写法 {"order": {"amount": 1200}}：按 "." 逐级展开
+            PathNode node = root;
+            for (String part : slot.getPath().split("\\.")) {
+                node = node.child(part);
+            }
+            node.slot = slot;
+        }
+    }
+
+    @Override
+    public int readInto(OffHeapColumnarBatch batch) throws IOException {
+        if (batch.getSchema() != schema) {
+            throw new IllegalArgumentException("batch 与 reader 使用的 schema 不一致");
+        }
+        int read = 0;
+        while (!batch.isFull() && window.ensure()) {
+            ByteBuffer buf = window.buffer();
+            int start = window.pos;
+            int end = start;
+            while (end < window.limit && buf.get(end) != '\n') {
+                end++;
+            }
+            window.pos = end < window.limit ? end + 1 : end;
+            lineNumber++;
+
+            int length = end - start;
+            if (length > 0 && buf.get(end - 1) == '\r') {
+                length--;
+            }
+            if (isBlank(buf, start, length)) {
+                continue;
+            }
+            if (length > line.length) {
+                line = new byte[Math.max(length, line.length * 2)];
+            }
+            buf.get(start, line, 0, length);
+            readRow(batch, length);
+            read++;
+        }
+        return read;
+    }
+
+    /** 本 reader 已处理的行数（含空行） */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window.release();
+        channel.close();
+    }
+
+    private void readRow(OffHeapColumnarBatch batch, int length) throws IOException {
+        int row = batch.addRow();
+        try (JsonParser parser = JSON.createParser(line, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("第 " + lineNumber + " 行不是 JSON 对象");
+            }
+            readObject(parser, root, batch, row);
+        } catch (com.fasterxml.jackson.core.JsonProcessingException | NumberFormatException e) {
+            throw new IllegalArgumentException("第 " + lineNumber + " 行解析失败: " + e.getMessage(), e);
+        }
+    }
+
+    private void readObject(JsonParser parser, PathNode node, OffHeapColumnarBatch batch, int row)
+            throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            PathNode child = node.children == null ? null : node.children.get(parser.currentName());
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_OBJECT) {
+                if (child == null) {
+                    parser.skipChildren();
+                } else {
+                    readObject(parser, child, batch, row);
+                }
+            } else if (value == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+            } else if (child != null && child.slot != null) {
+                writeValue(parser, value, child.slot, batch, row);
+            }
+        }
+    }
+
+    private static void writeValue(JsonParser parser, JsonToken token, FieldSlot slot,
+                                   OffHeapColumnarBatch batch, int row) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            // addRow 已经写好默认值
+            return;
+        }
+        int index = slot.getIndex();
+        switch (slot.getType()) {
+            case LONG:
+                if (token == JsonToken.VALUE_NUMBER_INT) {
+                    batch.setLong(index, row, parser.getLongValue());
+                } else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+                    batch.setLong(index, row, (long) parser.getDoubleValue());
+                } else if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+                    batch.setBoolean(index, row, token == JsonToken.VALUE_TRUE);
+                } else {
+                    batch.setLong(index, row, Long.parseLong(parser.getText()));
+                }
+                break;
+            case DOUBLE:
+                if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                    batch.setDouble(index, row, parser.getDoubleValue());
+                } else {
+                    batch.setDouble(index, row, Double.parseDouble(parser.getText()));
+                }
+                break;
+            case BOOLEAN:
+                if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+                    batch.setBoolean(index, row, token == JsonToken.VALUE_TRUE);
+                } else if (token == JsonToken.VALUE_NUMBER_INT) {
+                    batch.setBoolean(index, row, parser.getLongValue() != 0L);
+                } else {
+                    batch.setBoolean(index, row, Boolean.parseBoolean(parser.getText()));
+                }
+                break;
+            default:
+                batch.setString(index, row, parser.getText());
+                break;
+        }
+    }
+
+    private static boolean isBlank(ByteBuffer buf, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            byte b = buf.get(i);
+            if (b != ' ' && b != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 字段名前缀树的节点。
+     */
+    private static final class PathNode {
+
+        private FieldSlot slot;
+        private Map<String, PathNode> children;
+
+        private PathNode child(String name) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            return children.computeIfAbsent(name, k -> new PathNode());
+        }
+    }
+}
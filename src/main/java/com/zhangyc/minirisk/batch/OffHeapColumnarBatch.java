@@ -0,0 +1,224 @@
+package com.zhangyc.minirisk.batch;
+
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.SlotContext;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * 堆外的列式批次：所有列放在一块 direct 内存里，堆上只有少量视图对象和字符串字典。
+ * - LONG / BOOLEAN 槽位 -> 8 字节一行，DOUBLE 槽位 -> 8 字节一行；
+ * - STRING 槽位 -> 4 字节字典编码（StringDictionary），相同的字符串只存一份；
+ * - 列下标与 SlotContext 的槽位下标一致。
+ *
+ * 一次分配、clear() 后反复使用：重跑几百万行数据时堆上不会出现按行分配的对象，GC 压力与行数无关。
+ * 数据可以由 CsvBatchReader 直接从内存映射的文件填充，也可以 add(SlotContext) 逐行追加。
+ * 非线程安全。
+ */
+public final class OffHeapColumnarBatch {
+
+    private final ContextSchema schema;
+    private final int capacity;
+    private final StringDictionary dictionary;
+
+    /** 整块堆外内存，列按 long / double / 编码 的顺序依次排列 */
+    private final ByteBuffer memory;
+
+    private final LongBuffer[] longColumns;
+    private final DoubleBuffer[] doubleColumns;
+    private final IntBuffer[] codeColumns;
+
+    private int size;
+
+    public OffHeapColumnarBatch(ContextSchema schema, int capacity) {
+        this(schema, capacity, new StringDictionary());
+    }
+
+    /**
+     * 多个批次可以共用一个字典（例如同一个文件分批读入），编码在批次之间保持一致。
+     */
+    public OffHeapColumnarBatch(ContextSchema schema, int capacity, StringDictionary dictionary) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.schema = schema.freeze();
+        this.capacity = capacity;
+        this.dictionary = dictionary;
+
+        int longCount = schema.getLongCount();
+        int doubleCount = schema.getDoubleCount();
+        int codeCount = schema.getObjectCount();
+        long bytes = (long) capacity * (8L * longCount + 8L * doubleCount + 4L * codeCount);
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("批次过大，单块堆外内存不能超过 2GB: " + bytes + " bytes");
+        }
+        this.memory = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+
+        int offset = 0;
+        this.longColumns = new LongBuffer[longCount];
+        for (int i = 0; i < longCount; i++, offset += 8 * capacity) {
+            longColumns[i] = region(offset, 8 * capacity).asLongBuffer();
+        }
+        this.doubleColumns = new DoubleBuffer[doubleCount];
+        for (int i = 0; i < doubleCount; i++, offset += 8 * capacity) {
+            doubleColumns[i] = region(offset, 8 * capacity).asDoubleBuffer();
+        }
+        this.codeColumns = new IntBuffer[codeCount];
+        for (int i = 0; i < codeCount; i++, offset += 4 * capacity) {
+            codeColumns[i] = region(offset, 4 * capacity).asIntBuffer();
+        }
+    }
+
+    private ByteBuffer region(int offset, int length) {
+        return memory.slice(offset, length).order(ByteOrder.nativeOrder());
+    }
+
+    // ======== 写入 ========
+
+    /**
+     * 追加一个空行（数值为 0、布尔为 false、字符串为 null），返回行号，随后用 set* 填值。
+     */
+    public int addRow() {
+        if (size == capacity) {
+            throw new IllegalStateException("batch is full: " + capacity);
+        }
+        int row = size++;
+        for (LongBuffer column : longColumns) {
+            column.put(row, 0L);
+        }
+        for (DoubleBuffer column : doubleColumns) {
+            column.put(row, 0.0);
+        }
+        for (IntBuffer column : codeColumns) {
+            column.put(row, StringDictionary.NULL_CODE);
+        }
+        return row;
+    }
+
+    /**
+     * 追加一行，返回行号。
+     */
+    public int add(SlotContext row) {
+        int r = addRow();
+        for (int i = 0; i < longColumns.length; i++) {
+            longColumns[i].put(r, row.getLong(i));
+        }
+        for (int i = 0; i < doubleColumns.length; i++) {
+            doubleColumns[i].put(r, row.getDouble(i));
+        }
+        for (int i = 0; i < codeColumns.length; i++) {
+            Object value = row.getObject(i);
+            codeColumns[i].put(r, dictionary.encode(value == null ? null : String.valueOf(value)));
+        }
+        return r;
+    }
+
+    public void setLong(int slot, int row, long value) {
+        longColumns[slot].put(row, value);
+    }
+
+    public void setBoolean(int slot, int row, boolean value) {
+        longColumns[slot].put(row, value ? 1L : 0L);
+    }
+
+    public void setDouble(int slot, int row, double value) {
+        doubleColumns[slot].put(row, value);
+    }
+
+    public void setString(int slot, int row, String value) {
+        codeColumns[slot].put(row, dictionary.encode(value));
+    }
+
+    /**
+     * 直接写入字典编码（调用方已经用同一个字典编码过）。
+     */
+    public void setStringCode(int slot, int row, int code) {
+        codeColumns[slot].put(row, code);
+    }
+
+    // ======== 读取 ========
+
+    public long getLong(int slot, int row) {
+        return longColumns[slot].get(row);
+    }
+
+    public boolean getBoolean(int slot, int row) {
+        return longColumns[slot].get(row) != 0L;
+    }
+
+    public double getDouble(int slot, int row) {
+        return doubleColumns[slot].get(row);
+    }
+
+    public int getStringCode(int slot, int row) {
+        return codeColumns[slot].get(row);
+    }
+
+    public String getString(int slot, int row) {
+        return dictionary.decode(codeColumns[slot].get(row));
+    }
+
+    /**
+     * 把 [fromRow, fromRow + length) 这段 long 列批量拷到 dst（一次内存拷贝）。
+     */
+    public void copyLongs(int slot, int fromRow, long[] dst, int length) {
+        longColumns[slot].get(fromRow, dst, 0, length);
+    }
+
+    public void copyDoubles(int slot, int fromRow, double[] dst, int length) {
+        doubleColumns[slot].get(fromRow, dst, 0, length);
+    }
+
+    public void copyStringCodes(int slot, int fromRow, int[] dst, int length) {
+        codeColumns[slot].get(fromRow, dst, 0, length);
+    }
+
+    /**
+     * 把第 row 行解码到一个 SlotContext 中（给不能按列执行的条件使用）。
+     */
+    public SlotContext loadRow(int row, SlotContext target) {
+        for (int i = 0; i < longColumns.length; i++) {
+            target.setLong(i, longColumns[i].get(row));
+        }
+        for (int i = 0; i < doubleColumns.length; i++) {
+            target.setDouble(i, doubleColumns[i].get(row));
+        }
+        for (int i = 0; i < codeColumns.length; i++) {
+            target.setObject(i, dictionary.decode(codeColumns[i].get(row)));
+        }
+        return target;
+    }
+
+    public ContextSchema getSchema() {
+        return schema;
+    }
+
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /** 堆外内存占用（字节） */
+    public long getOffHeapBytes() {
+        return memory.capacity();
+    }
+}
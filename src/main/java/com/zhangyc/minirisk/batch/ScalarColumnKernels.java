@@ -0,0 +1,97 @@
+package com.zhangyc.minirisk.batch;
+
+/**
+ * 标量实现：逐行比较，每 64 行拼成一个 long。
+ * 未加载 jdk.incubator.vector 模块时使用；Vector API 实现也用它处理尾部不足 64 行的部分。
+ */
+public final class ScalarColumnKernels implements ColumnKernels {
+
+    @Override
+    public void compare(long[] column, int rows, CompareOp op, long constant, long[] out) {
+        for (int base = 0; base < rows; base += 64) {
+            int n = Math.min(64, rows - base);
+            long word = 0L;
+            // 分支放在循环外，循环体里用无分支的方式拼位
+            switch (op) {
+                case GT:
+                    for (int i = 0; i < n; i++) {
+                        word |= (column[base + i] > constant ? 1L : 0L) << i;
+                    }
+                    break;
+                case GE:
+                    for (int i = 0; i < n; i++) {
+                        word |= (column[base + i] >= constant ? 1L : 0L) << i;
+                    }
+                    break;
+                case LT:
+                    for (int i = 0; i < n; i++) {
+                        word |= (column[base + i] < constant ? 1L : 0L) << i;
+                    }
+                    break;
+                case LE:
+                    for (int i = 0; i < n; i++) {
+                        word |= (column[base + i] <= constant ? 1L : 0L) << i;
+                    }
+                    break;
+                case EQ:
+                    for (int i = 0; i < n; i++) {
+                        word |= (column[base + i] == constant ? 1L : 0L) << i;
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < n; i++) {
+                        word |= (column[base + i] != constant ? 1L : 0L) << i;
+                    }
+                    break;
+            }
+            out[base >>> 6] = word;
+        }
+    }
+
+    @Override
+    public void compare(double[] column, int rows, CompareOp op, double constant, long[] out) {
+        for (int base = 0; base < rows; base += 64) {
+            int n = Math.min(64, rows - base);
+            long word = 0L;
+            // 分支放在循环外，循环体里用无分支的方式拼位
+            switch (op) {
+                case GT:
+                    for (int i = 0; i < n; i++) {
+                        word |= (column[base + i] > constant ? 1L : 0L) << i;
+                    }
+                    break;
+                case GE:
+                    for (int i = 0; i < n; i++) {
+                        word |= (column[base + i] >= constant ? 1L : 0L) << i;
+                    }
+                    break;
+                case LT:
+                    for (int i = 0; i < n; i++) {
+                        word |= (column[base + i] < constant ? 1L : 0L) << i;
+                    }
+                    break;
+                case LE:
+                    for (int i = 0; i < n; i++) {
+                        word |= (column[base + i] <= constant ? 1L : 0L) << i;
+                    }
+                    break;
+                case EQ:
+                    for (int i = 0; i < n; i++) {
+                        word |= (column[base + i] == constant ? 1L : 0L) << i;
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < n; i++) {
+                        word |= (column[base + i] != constant ? 1L : 0L) << i;
+                    }
+                    break;
+            }
+            out[base >>> 6] = word;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
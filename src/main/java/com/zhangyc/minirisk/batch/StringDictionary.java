@@ -0,0 +1,155 @@
+package com.zhangyc.minirisk.batch;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 字符串字典：把字符串编码成从 0 开始的稠密 int，列里只存编码。
+ * - 相同的字符串只保存一份，字符串条件（== / !=）可以在编译期换成编码比较；
+ * - 支持直接用 UTF-8 字节区间查找 / 编码，从文件读入时已出现过的值不会再创建 String；
+ * - null 固定编码为 NULL_CODE。
+ *
+ * 非线程安全：编码（写）只能在一个线程里做；写完以后可以多线程只读。
+ */
+public final class StringDictionary {
+
+    /** null 的编码 */
+    public static final int NULL_CODE = -1;
+
+    private final List<String> values = new ArrayList<>();
+    private final List<byte[]> bytes = new ArrayList<>();
+    private int[] hashes = new int[16];
+
+    /** 开放寻址表：槽位里存 code + 1，0 表示空 */
+    private int[] table = new int[64];
+
+    /**
+     * 编码一个字符串，没见过时新增。
+     */
+    public int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(ByteBuffer.wrap(utf8), 0, utf8.length);
+        int code = find(ByteBuffer.wrap(utf8), 0, utf8.length, hash);
+        return code != NULL_CODE ? code : add(value, utf8, hash);
+    }
+
+    /**
+     * 编码 buf[from, to) 这段 UTF-8 字节（绝对下标，不改变 buf 的 position）。
+     */
+    public int encode(ByteBuffer buf, int from, int to) {
+        int hash = hash(buf, from, to);
+        int code = find(buf, from, to, hash);
+        if (code != NULL_CODE) {
+            return code;
+        }
+        byte[] utf8 = new byte[to - from];
+        buf.get(from, utf8);
+        return add(new String(utf8, StandardCharsets.UTF_8), utf8, hash);
+    }
+
+    /**
+     * 查找已有编码，没有时返回 NULL_CODE（不会新增）。
+     */
+    public int lookup(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        return find(ByteBuffer.wrap(utf8), 0, utf8.length, hash(ByteBuffer.wrap(utf8), 0, utf8.length));
+    }
+
+    public String decode(int code) {
+        return code == NULL_CODE ? null : values.get(code);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * 清空字典（之前的编码全部失效）。按批处理高基数字段（订单号、IP 等）时每批清一次，内存不随数据量增长。
+     */
+    public void clear() {
+        values.clear();
+        bytes.clear();
+        Arrays.fill(table, 0);
+    }
+
+    private int find(ByteBuffer buf, int from, int to, int hash) {
+        int mask = table.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int entry = table[i];
+            if (entry == 0) {
+                return NULL_CODE;
+            }
+            int code = entry - 1;
+            if (hashes[code] == hash && sameBytes(bytes.get(code), buf, from, to)) {
+                return code;
+            }
+        }
+    }
+
+    private int add(String value, byte[] utf8, int hash) {
+        int code = values.size();
+        values.add(value);
+        bytes.add(utf8);
+        if (code == hashes.length) {
+            hashes = Arrays.copyOf(hashes, code * 2);
+        }
+        hashes[code] = hash;
+        if ((code + 1) * 2 > table.length) {
+            rehash(table.length * 2);
+        } else {
+            insert(code, hash);
+        }
+        return code;
+    }
+
+    private void rehash(int newLength) {
+        table = new int[newLength];
+        for (int code = 0; code < values.size(); code++) {
+            insert(code, hashes[code]);
+        }
+    }
+
+    private void insert(int code, int hash) {
+        int mask = table.length - 1;
+        int i = hash & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = code + 1;
+    }
+
+    private static boolean sameBytes(byte[] stored, ByteBuffer buf, int from, int to) {
+        if (stored.length != to - from) {
+            return false;
+        }
+        for (int i = 0; i < stored.length; i++) {
+            if (stored[i] != buf.get(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(ByteBuffer buf, int from, int to) {
+        int h = 0x811C9DC5;
+        for (int i = from; i < to; i++) {
+            h = (h ^ buf.get(i)) * 0x01000193;
+        }
+        // 打散低位，开放寻址只用低位
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return "StringDictionary{size=" + values.size() + '}';
+    }
+}
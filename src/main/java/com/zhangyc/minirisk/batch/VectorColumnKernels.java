@@ -0,0 +1,247 @@
+package com.zhangyc.minirisk.batch;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于 jdk.incubator.vector 的 SIMD 实现：一次比较一整条向量（AVX2 为 4 行，AVX-512 为 8 行），
+ * 比较结果的 lane 掩码直接拼进位图。尾部不足 64 行的部分用标量处理。
+ *
+ * 只有在运行时加载了 jdk.incubator.vector 模块时才会被 ColumnKernels.best() 选中。
+ */
+final class VectorColumnKernels implements ColumnKernels {
+
+    private static final VectorSpecies<Long> LONG_SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Double> DOUBLE_SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private final ScalarColumnKernels tail = new ScalarColumnKernels();
+
+    VectorColumnKernels() {
+        if (64 % LONG_SPECIES.length() != 0 || 64 % DOUBLE_SPECIES.length() != 0) {
+            throw new IllegalStateException("unsupported vector length: " + LONG_SPECIES.length());
+        }
+    }
+
+    @Override
+    public void compare(long[] column, int rows, CompareOp op, long constant, long[] out) {
+        switch (op) {
+            case GT:
+                longsGt(column, rows, constant, out);
+                break;
+            case GE:
+                longsGe(column, rows, constant, out);
+                break;
+            case LT:
+                longsLt(column, rows, constant, out);
+                break;
+            case LE:
+                longsLe(column, rows, constant, out);
+                break;
+            case EQ:
+                longsEq(column, rows, constant, out);
+                break;
+            default:
+                longsNe(column, rows, constant, out);
+                break;
+        }
+        int fullWords = rows >>> 6;
+        if ((rows & 63) != 0) {
+            // 尾部不足 64 行：拷出来用标量补齐
+            int base = fullWords << 6;
+            long[] rest = new long[rows - base];
+            System.arraycopy(column, base, rest, 0, rest.length);
+            long[] word = new long[1];
+            tail.compare(rest, rest.length, op, constant, word);
+            out[fullWords] = word[0];
+        }
+    }
+
+    @Override
+    public void compare(double[] column, int rows, CompareOp op, double constant, long[] out) {
+        switch (op) {
+            case GT:
+                doublesGt(column, rows, constant, out);
+                break;
+            case GE:
+                doublesGe(column, rows, constant, out);
+                break;
+            case LT:
+                doublesLt(column, rows, constant, out);
+                break;
+            case LE:
+                doublesLe(column, rows, constant, out);
+                break;
+            case EQ:
+                doublesEq(column, rows, constant, out);
+                break;
+            default:
+                doublesNe(column, rows, constant, out);
+                break;
+        }
+        int fullWords = rows >>> 6;
+        if ((rows & 63) != 0) {
+            // 尾部不足 64 行：拷出来用标量补齐
+            int base = fullWords << 6;
+            double[] rest = new double[rows - base];
+            System.arraycopy(column, base, rest, 0, rest.length);
+            long[] word = new long[1];
+            tail.compare(rest, rest.length, op, constant, word);
+            out[fullWords] = word[0];
+        }
+    }
+
+    // ======== 每种比较一个方法 ========
+    // 比较操作必须是编译期常量，C2 才会把 compare 编译成向量指令；
+    // 写成参数的话，方法没被内联时会退化成逐 lane 的慢速实现。以下方法只处理完整的 64 行。
+
+    private static void longsGt(long[] column, int rows, long constant, long[] out) {
+        LongVector c = LongVector.broadcast(LONG_SPECIES, constant);
+        for (int w = 0, words = rows >>> 6; w < words; w++) {
+            long word = 0L;
+            for (int shift = 0; shift < 64; shift += LONG_SPECIES.length()) {
+                word |= LongVector.fromArray(LONG_SPECIES, column, (w << 6) + shift)
+                        .compare(VectorOperators.GT, c).toLong() << shift;
+            }
+            out[w] = word;
+        }
+    }
+
+    private static void longsGe(long[] column, int rows, long constant, long[] out) {
+        LongVector c = LongVector.broadcast(LONG_SPECIES, constant);
+        for (int w = 0, words = rows >>> 6; w < words; w++) {
+            long word = 0L;
+            for (int shift = 0; shift < 64; shift += LONG_SPECIES.length()) {
+                word |= LongVector.fromArray(LONG_SPECIES, column, (w << 6) + shift)
+                        .compare(VectorOperators.GE, c).toLong() << shift;
+            }
+            out[w] = word;
+        }
+    }
+
+    private static void longsLt(long[] column, int rows, long constant, long[] out) {
+        LongVector c = LongVector.broadcast(LONG_SPECIES, constant);
+        for (int w = 0, words = rows >>> 6; w < words; w++) {
+            long word = 0L;
+            for (int shift = 0; shift < 64; shift += LONG_SPECIES.length()) {
+                word |= LongVector.fromArray(LONG_SPECIES, column, (w << 6) + shift)
+                        .compare(VectorOperators.LT, c).toLong() << shift;
+            }
+            out[w] = word;
+        }
+    }
+
+    private static void longsLe(long[] column, int rows, long constant, long[] out) {
+        LongVector c = LongVector.broadcast(LONG_SPECIES, constant);
+        for (int w = 0, words = rows >>> 6; w < words; w++) {
+            long word = 0L;
+            for (int shift = 0; shift < 64; shift += LONG_SPECIES.length()) {
+                word |= LongVector.fromArray(LONG_SPECIES, column, (w << 6) + shift)
+                        .compare(VectorOperators.LE, c).toLong() << shift;
+            }
+            out[w] = word;
+        }
+    }
+
+    private static void longsEq(long[] column, int rows, long constant, long[] out) {
+        LongVector c = LongVector.broadcast(LONG_SPECIES, constant);
+        for (int w = 0, words = rows >>> 6; w < words; w++) {
+            long word = 0L;
+            for (int shift = 0; shift < 64; shift += LONG_SPECIES.length()) {
+                word |= LongVector.fromArray(LONG_SPECIES, column, (w << 6) + shift)
+                        .compare(VectorOperators.EQ, c).toLong() << shift;
+            }
+            out[w] = word;
+        }
+    }
+
+    private static void longsNe(long[] column, int rows, long constant, long[] out) {
+        LongVector c = LongVector.broadcast(LONG_SPECIES, constant);
+        for (int w = 0, words = rows >>> 6; w < words; w++) {
+            long word = 0L;
+            for (int shift = 0; shift < 64; shift += LONG_SPECIES.length()) {
+                word |= LongVector.fromArray(LONG_SPECIES, column, (w << 6) + shift)
+                        .compare(VectorOperators.NE, c).toLong() << shift;
+            }
+            out[w] = word;
+        }
+    }
+
+    private static void doublesGt(double[] column, int rows, double constant, long[] out) {
+        DoubleVector c = DoubleVector.broadcast(DOUBLE_SPECIES, constant);
+        for (int w = 0, words = rows >>> 6; w < words; w++) {
+            long word = 0L;
+            for (int shift = 0; shift < 64; shift += DOUBLE_SPECIES.length()) {
+                word |= DoubleVector.fromArray(DOUBLE_SPECIES, column, (w << 6) + shift)
+                        .compare(VectorOperators.GT, c).toLong() << shift;
+            }
+            out[w] = word;
+        }
+    }
+
+    private static void doublesGe(double[] column, int rows, double constant, long[] out) {
+        DoubleVector c = DoubleVector.broadcast(DOUBLE_SPECIES, constant);
+        for (int w = 0, words = rows >>> 6; w < words; w++) {
+            long word = 0L;
+            for (int shift = 0; shift < 64; shift += DOUBLE_SPECIES.length()) {
+                word |= DoubleVector.fromArray(DOUBLE_SPECIES, column, (w << 6) + shift)
+                        .compare(VectorOperators.GE, c).toLong() << shift;
+            }
+            out[w] = word;
+        }
+    }
+
+    private static void doublesLt(double[] column, int rows, double constant, long[] out) {
+        DoubleVector c = DoubleVector.broadcast(DOUBLE_SPECIES, constant);
+        for (int w = 0, words = rows >>> 6; w < words; w++) {
+            long word = 0L;
+            for (int shift = 0; shift < 64; shift += DOUBLE_SPECIES.length()) {
+                word |= DoubleVector.fromArray(DOUBLE_SPECIES, column, (w << 6) + shift)
+                        .compare(VectorOperators.LT, c).toLong() << shift;
+            }
+            out[w] = word;
+        }
+    }
+
+    private static void doublesLe(double[] column, int rows, double constant, long[] out) {
+        DoubleVector c = DoubleVector.broadcast(DOUBLE_SPECIES, constant);
+        for (int w = 0, words = rows >>> 6; w < words; w++) {
+            long word = 0L;
+            for (int shift = 0; shift < 64; shift += DOUBLE_SPECIES.length()) {
+                word |= DoubleVector.fromArray(DOUBLE_SPECIES, column, (w << 6) + shift)
+                        .compare(VectorOperators.LE, c).toLong() << shift;
+            }
+            out[w] = word;
+        }
+    }
+
+    private static void doublesEq(double[] column, int rows, double constant, long[] out) {
+        DoubleVector c = DoubleVector.broadcast(DOUBLE_SPECIES, constant);
+        for (int w = 0, words = rows >>> 6; w < words; w++) {
+            long word = 0L;
+            for (int shift = 0; shift < 64; shift += DOUBLE_SPECIES.length()) {
+                word |= DoubleVector.fromArray(DOUBLE_SPECIES, column, (w << 6) + shift)
+                        .compare(VectorOperators.EQ, c).toLong() << shift;
+            }
+            out[w] = word;
+        }
+    }
+
+    private static void doublesNe(double[] column, int rows, double constant, long[] out) {
+        DoubleVector c = DoubleVector.broadcast(DOUBLE_SPECIES, constant);
+        for (int w = 0, words = rows >>> 6; w < words; w++) {
+            long word = 0L;
+            for (int shift = 0; shift < 64; shift += DOUBLE_SPECIES.length()) {
+                word |= DoubleVector.fromArray(DOUBLE_SPECIES, column, (w << 6) + shift)
+                        .compare(VectorOperators.NE, c).toLong() << shift;
+            }
+            out[w] = word;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector(" + LONG_SPECIES.length() + "x64bit)";
+    }
+}
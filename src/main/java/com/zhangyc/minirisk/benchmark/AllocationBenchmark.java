@@ -0,0 +1,91 @@
+package com.zhangyc.minirisk.benchmark;
+
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.engine.CompiledRuleEngine;
+import com.zhangyc.minirisk.engine.DecisionView;
+import com.zhangyc.minirisk.engine.SimpleRuleEngine;
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.RiskContextAdapter;
+import com.zhangyc.minirisk.schema.SlotContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * 每次决策分配字节数的对比：
+ * - SimpleRuleEngine（RiskContext + Predicate）
+ * - CompiledRuleEngine.evaluate（SlotContext，返回新的 DecisionResult）
+ * - CompiledRuleEngine.evaluateReusing（SlotContext，线程内复用 DecisionView）
+ *
+ * 使用 com.sun.management.ThreadMXBean#getThreadAllocatedBytes 统计当前线程的分配量。
+ * 运行：java -cp ... com.zhangyc.minirisk.benchmark.AllocationBenchmark [iterations]
+ */
+@Slf4j
+public class AllocationBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /** 防止 JIT 把结果优化掉 */
+    private static long sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        String scene = "PAY";
+
+        List<Rule> rules = RuleRegistry.getRulesForScene(scene);
+        CompiledRuleSet ruleSet = RuleRegistry.getCompiledRuleSet(scene);
+        ContextSchema schema = ruleSet.getSchema();
+        RiskContextAdapter adapter = new RiskContextAdapter(schema);
+
+        RiskContext allowCtx = new RiskContext().setUserId("U1").setOrderAmount(99.0).setIp("1.2.3.4");
+        RiskContext rejectCtx = new RiskContext().setUserId("U2").setOrderAmount(99.0).setIpInBlacklist(true);
+        SlotContext allowSlots = adapter.toSlotContext(allowCtx, schema);
+        SlotContext rejectSlots = adapter.toSlotContext(rejectCtx, schema);
+
+        SimpleRuleEngine simple = new SimpleRuleEngine();
+        CompiledRuleEngine compiled = new CompiledRuleEngine();
+
+        // 两轮：第一轮预热，第二轮输出
+        for (int round = 0; round < 2; round++) {
+            boolean print = round == 1;
+            report(print, "simple   ALLOW", iterations, () -> consume(simple.evaluate(allowCtx, rules)));
+            report(print, "simple   REJECT", iterations, () -> consume(simple.evaluate(rejectCtx, rules)));
+            report(print, "compiled ALLOW", iterations, () -> consume(compiled.evaluate(allowSlots, ruleSet)));
+            report(print, "compiled REJECT", iterations, () -> consume(compiled.evaluate(rejectSlots, ruleSet)));
+            report(print, "reusing  ALLOW", iterations, () -> consume(compiled.evaluateReusing(allowSlots, ruleSet)));
+            report(print, "reusing  REJECT", iterations, () -> consume(compiled.evaluateReusing(rejectSlots, ruleSet)));
+        }
+        log.info("sink={}", sink);
+    }
+
+    private static void report(boolean print, String name, int iterations, Runnable op) {
+        long threadId = Thread.currentThread().threadId();
+        long bytesBefore = THREAD_MX.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            op.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = THREAD_MX.getThreadAllocatedBytes(threadId) - bytesBefore;
+        if (print) {
+            log.info("{} | {} ns/op | {} bytes/op",
+                    name,
+                    String.format("%.1f", (double) elapsed / iterations),
+                    String.format("%.3f", (double) bytes / iterations));
+        }
+    }
+
+    private static void consume(DecisionResult result) {
+        sink += result.getFinalAction().ordinal() + result.getMatchedCount();
+    }
+
+    private static void consume(DecisionView view) {
+        sink += view.getFinalAction().ordinal() + view.getMatchedCount();
+    }
+}
@@ -0,0 +1,138 @@
+package com.zhangyc.minirisk.benchmark;
+
+import com.zhangyc.minirisk.compile.ConditionCompiler;
+import com.zhangyc.minirisk.compile.ConditionExpr;
+import com.zhangyc.minirisk.compile.ExpressionOptimizer;
+import com.zhangyc.minirisk.compile.SlotPredicate;
+import com.zhangyc.minirisk.config.ConditionDefinition;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.RiskContextAdapter;
+import com.zhangyc.minirisk.schema.SlotContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * 跨字段算术条件的执行代价：
+ * - precomputed：调用方先算好 order.amount / (user.historyOrderCount + 1) 放进 device.riskScore，条件只比较这个字段（原来的做法）；
+ * - compiled：条件直接写算术表达式，编译成 long / double 求值树；
+ * - 另外两条：整数比较 user.registerMinutes < device.loginUserCountIn10Min * 3，以及带常量子表达式（会被折叠）的写法。
+ *
+ * 每种写法先和手写 Java、基于 RiskContext 的谓词逐个上下文对比结果，再统计 ns/op 和 bytes/op
+ * （com.sun.management.ThreadMXBean#getThreadAllocatedBytes），编译后的谓词应该是 0 分配。
+ *
+ * 运行：java -cp ... com.zhangyc.minirisk.benchmark.ArithmeticBenchmark [iterations]
+ */
+@Slf4j
+public class ArithmeticBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final String RATIO = "order.amount / (user.historyOrderCount + 1) > 800";
+    private static final String VELOCITY = "user.registerMinutes < device.loginUserCountIn10Min * 3";
+    private static final String FOLDED = "order.amount * (2 * 50) / (60 + 40) - (3 - 3) > 800 * 2 / 2";
+
+    /** 防止 JIT 把结果优化掉 */
+    private static long sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        ContextSchema schema = ContextSchema.defaultSchema();
+        RiskContextAdapter adapter = new RiskContextAdapter(schema);
+        Random random = new Random(45);
+
+        RiskContext[] contexts = new RiskContext[1024];
+        SlotContext[] slots = new SlotContext[contexts.length];
+        int riskScore = schema.getSlot("device.riskScore").getIndex();
+        for (int i = 0; i < contexts.length; i++) {
+            contexts[i] = new RiskContext()
+                    .setUserId("U" + i)
+                    .setRegisterMinutes(random.nextInt(60))
+                    .setHistoryOrderCount(random.nextInt(5))
+                    .setOrderAmount(random.nextInt(500_000) / 100.0)
+                    .setDeviceLoginUserCountIn10Min(random.nextInt(30));
+            slots[i] = adapter.toSlotContext(contexts[i], schema);
+            // 原来的做法：调用方把比值算好放进一个字段
+            slots[i].set("device.riskScore", contexts[i].getOrderAmount() / (contexts[i].getHistoryOrderCount() + 1));
+        }
+
+        SlotPredicate precomputed = ctx -> ctx.getDouble(riskScore) > 800;
+        SlotPredicate ratio = compile(RATIO, schema);
+        SlotPredicate velocity = compile(VELOCITY, schema);
+        SlotPredicate folded = compile(FOLDED, schema);
+        log.info("{}  =>  {}", FOLDED, ExpressionOptimizer.optimize(ExpressionOptimizer.fromDefinition(condition(FOLDED))));
+
+        verify(RATIO, contexts, slots, ratio, predicate(RATIO),
+                c -> c.getOrderAmount() / (c.getHistoryOrderCount() + 1) > 800);
+        verify(VELOCITY, contexts, slots, velocity, predicate(VELOCITY),
+                c -> c.getRegisterMinutes() < (long) c.getDeviceLoginUserCountIn10Min() * 3);
+        verify(FOLDED, contexts, slots, folded, predicate(FOLDED),
+                c -> c.getOrderAmount() > 800);
+
+        // 两轮：第一轮预热，第二轮输出
+        for (int round = 0; round < 2; round++) {
+            boolean print = round == 1;
+            report(print, "precomputed field", iterations, slots, precomputed);
+            report(print, "compiled ratio   ", iterations, slots, ratio);
+            report(print, "compiled velocity", iterations, slots, velocity);
+            report(print, "compiled folded  ", iterations, slots, folded);
+        }
+        log.info("sink={}", sink);
+    }
+
+    private static SlotPredicate compile(String expr, ContextSchema schema) {
+        return ConditionCompiler.compileExpr(optimized(expr), schema);
+    }
+
+    private static Predicate<RiskContext> predicate(String expr) {
+        return ConditionCompiler.compilePredicate(optimized(expr));
+    }
+
+    private static ConditionExpr optimized(String expr) {
+        return ExpressionOptimizer.optimize(ExpressionOptimizer.fromDefinition(condition(expr)));
+    }
+
+    private static ConditionDefinition condition(String expr) {
+        ConditionDefinition c = new ConditionDefinition();
+        c.setExpr(expr);
+        return c;
+    }
+
+    private static void verify(String name, RiskContext[] contexts, SlotContext[] slots, SlotPredicate compiled,
+                               Predicate<RiskContext> predicate, Predicate<RiskContext> handWritten) {
+        int matched = 0;
+        for (int i = 0; i < contexts.length; i++) {
+            boolean expected = handWritten.test(contexts[i]);
+            if (compiled.test(slots[i]) != expected || predicate.test(contexts[i]) != expected) {
+                throw new IllegalStateException("结果不一致: " + name + ", " + contexts[i]);
+            }
+            if (expected) {
+                matched++;
+            }
+        }
+        log.info("verified {}: {}/{} matched", name, matched, contexts.length);
+    }
+
+    private static void report(boolean print, String name, int iterations, SlotContext[] slots, SlotPredicate p) {
+        long threadId = Thread.currentThread().threadId();
+        long bytesBefore = THREAD_MX.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            if (p.test(slots[i & (slots.length - 1)])) {
+                sink++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = THREAD_MX.getThreadAllocatedBytes(threadId) - bytesBefore;
+        if (print) {
+            log.info("{} | {} ns/op | {} bytes/op",
+                    name,
+                    String.format("%.2f", (double) elapsed / iterations),
+                    String.format("%.3f", (double) bytes / iterations));
+        }
+    }
+}
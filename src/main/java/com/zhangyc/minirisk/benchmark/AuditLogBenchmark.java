@@ -0,0 +1,101 @@
+package com.zhangyc.minirisk.benchmark;
+
+import com.zhangyc.minirisk.audit.AuditLog;
+import com.zhangyc.minirisk.audit.AuditLogReader;
+import com.zhangyc.minirisk.engine.ExplainableRuleEngine;
+import com.zhangyc.minirisk.engine.SimpleRuleEngine;
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * 审计日志写入吞吐：多个线程并发 append 带解释信息的决策，统计调用方的 append 速率、
+ * 写线程的持续写入速率（记录数 / MB 每秒）和丢弃数，最后把文件读一遍核对条数。
+ *
+ * 运行：java -cp ... com.zhangyc.minirisk.benchmark.AuditLogBenchmark [recordsPerThread] [threads]
+ */
+@Slf4j
+public class AuditLogBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int perThread = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+
+        List<Rule> rules = RuleRegistry.getRulesForScene("PAY");
+        ExplainableRuleEngine engine = new ExplainableRuleEngine(new SimpleRuleEngine());
+        RiskContext[] contexts = new RiskContext[256];
+        DecisionResult[] results = new DecisionResult[contexts.length];
+        Random random = new Random(19);
+        for (int i = 0; i < contexts.length; i++) {
+            contexts[i] = new RiskContext()
+                    .setUserId("U" + i)
+                    .setOrderId("O" + i)
+                    .setNewUser(random.nextBoolean())
+                    .setRegisterMinutes(random.nextInt(60))
+                    .setHistoryOrderCount(random.nextInt(2))
+                    .setOrderAmount(random.nextInt(500_000) / 100.0)
+                    .setIp("10.0.0." + random.nextInt(256))
+                    .setIpInBlacklist(random.nextInt(10) == 0);
+            results[i] = engine.evaluate(contexts[i], rules);
+        }
+
+        Path dir = Files.createTempDirectory("mini-risk-audit");
+        try {
+            AuditLog audit = new AuditLog(dir).setSegmentBytes(64L << 20).setMaxSegments(64).start();
+            long start = System.nanoTime();
+            Thread[] producers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                producers[t] = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        int k = i & (contexts.length - 1);
+                        audit.append("PAY", contexts[k], results[k]);
+                    }
+                });
+                producers[t].start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            long appendNanos = System.nanoTime() - start;
+            audit.close();
+            long totalNanos = System.nanoTime() - start;
+
+            long total = (long) perThread * threads;
+            log.info("append: {} records by {} threads in {} ms, {} records/s at callers",
+                    total, threads, appendNanos / 1_000_000, String.format("%.0f", total * 1e9 / appendNanos));
+            log.info("writer: written={} dropped={} bytes={} MB segments={} | {} records/s, {} MB/s sustained",
+                    audit.getWrittenCount(), audit.getDroppedCount(), audit.getBytesWritten() >> 20,
+                    audit.getSegmentsCreated(),
+                    String.format("%.0f", audit.getWrittenCount() * 1e9 / totalNanos),
+                    String.format("%.1f", audit.getBytesWritten() / 1048576.0 * 1e9 / totalNanos));
+
+            long[] decisions = new long[1];
+            long[] lost = new long[1];
+            long readStart = System.nanoTime();
+            AuditLogReader.read(dir, record -> {
+                if (record.getLostCount() > 0) {
+                    lost[0] += record.getLostCount();
+                } else {
+                    decisions[0]++;
+                }
+                return true;
+            });
+            log.info("read back: decisions={} lost={} in {} ms",
+                    decisions[0], lost[0], (System.nanoTime() - readStart) / 1_000_000);
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+}
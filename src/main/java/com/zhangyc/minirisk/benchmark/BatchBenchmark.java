@@ -0,0 +1,129 @@
+package com.zhangyc.minirisk.benchmark;
+
+import com.zhangyc.minirisk.batch.BatchEvaluator;
+import com.zhangyc.minirisk.batch.BatchResult;
+import com.zhangyc.minirisk.batch.ColumnKernels;
+import com.zhangyc.minirisk.batch.ColumnarBatch;
+import com.zhangyc.minirisk.batch.ScalarColumnKernels;
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.engine.CompiledRuleEngine;
+import com.zhangyc.minirisk.engine.DecisionView;
+import com.zhangyc.minirisk.model.RuleAction;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.SlotContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Random;
+
+/**
+ * 按列批量执行 vs 逐行执行的对比（PAY 场景规则集）：
+ * - vector：BatchEvaluator + Vector API 内核（需要 --add-modules jdk.incubator.vector）；
+ * - scalar：BatchEvaluator + 标量内核；
+ * - row：CompiledRuleEngine.evaluateReusing 逐行执行。
+ *
+ * 运行：java --add-modules jdk.incubator.vector -cp ... com.zhangyc.minirisk.benchmark.BatchBenchmark [rows]
+ * 不加 --add-modules 时 vector 一项会退回标量实现。
+ */
+@Slf4j
+public class BatchBenchmark {
+
+    private static final int BATCH_SIZE = 4096;
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 20;
+        CompiledRuleSet ruleSet = RuleRegistry.getCompiledRuleSet("PAY");
+        ContextSchema schema = ruleSet.getSchema();
+
+        SlotContext[] contexts = randomContexts(schema, rows);
+        ColumnarBatch[] batches = toBatches(schema, contexts);
+
+        BatchEvaluator vector = new BatchEvaluator(ruleSet, ColumnKernels.best());
+        BatchEvaluator scalar = new BatchEvaluator(ruleSet, new ScalarColumnKernels());
+        CompiledRuleEngine engine = new CompiledRuleEngine();
+        log.info("kernels: {}", vector.getKernels().name());
+
+        verify(batches, vector, scalar, engine, contexts);
+
+        for (int round = 0; round < 10; round++) {
+            long vectorNs = timeBatches(batches, vector);
+            long scalarNs = timeBatches(batches, scalar);
+
+            long start = System.nanoTime();
+            for (SlotContext ctx : contexts) {
+                DecisionView view = engine.evaluateReusing(ctx, ruleSet);
+                sink += view.getFinalAction().ordinal();
+            }
+            long rowNs = System.nanoTime() - start;
+
+            if (round >= 7) {
+                log.info("{} rows x {} rules", rows, ruleSet.size());
+                log.info("batch {} : {} ns/row", vector.getKernels().name(), perRow(vectorNs, rows));
+                log.info("batch scalar : {} ns/row", perRow(scalarNs, rows));
+                log.info("row-by-row   : {} ns/row", perRow(rowNs, rows));
+            }
+        }
+        log.info("sink={}", sink);
+    }
+
+    private static long timeBatches(ColumnarBatch[] batches, BatchEvaluator evaluator) {
+        long start = System.nanoTime();
+        for (ColumnarBatch batch : batches) {
+            BatchResult result = evaluator.evaluate(batch);
+            sink += result.getHitCount(0);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * 三种执行方式的最终动作必须逐行一致。
+     */
+    private static void verify(ColumnarBatch[] batches, BatchEvaluator vector, BatchEvaluator scalar,
+                               CompiledRuleEngine engine, SlotContext[] contexts) {
+        int row = 0;
+        for (ColumnarBatch batch : batches) {
+            BatchResult v = vector.evaluate(batch);
+            BatchResult s = scalar.evaluate(batch);
+            for (int r = 0; r < batch.size(); r++, row++) {
+                RuleAction expected = engine.evaluateReusing(contexts[row], vector.getRuleSet()).getFinalAction();
+                if (v.getFinalAction(r) != expected || s.getFinalAction(r) != expected) {
+                    throw new IllegalStateException("第 " + row + " 行结果不一致: expected=" + expected
+                            + ", vector=" + v.getFinalAction(r) + ", scalar=" + s.getFinalAction(r));
+                }
+            }
+        }
+    }
+
+    private static ColumnarBatch[] toBatches(ContextSchema schema, SlotContext[] contexts) {
+        ColumnarBatch[] batches = new ColumnarBatch[(contexts.length + BATCH_SIZE - 1) / BATCH_SIZE];
+        for (int i = 0; i < contexts.length; i++) {
+            int b = i / BATCH_SIZE;
+            if (batches[b] == null) {
+                batches[b] = new ColumnarBatch(schema, BATCH_SIZE);
+            }
+            batches[b].add(contexts[i]);
+        }
+        return batches;
+    }
+
+    private static SlotContext[] randomContexts(ContextSchema schema, int count) {
+        Random random = new Random(42);
+        SlotContext[] contexts = new SlotContext[count];
+        for (int i = 0; i < count; i++) {
+            contexts[i] = schema.newContext()
+                    .set("order.amount", random.nextInt(3000))
+                    .set("user.isNew", random.nextBoolean())
+                    .set("user.historyOrderCount", random.nextInt(10))
+                    .set("user.registerMinutes", random.nextInt(600))
+                    .set("ip.inBlacklist", random.nextInt(50) == 0)
+                    .set("device.loginUserCountIn10Min", random.nextInt(6));
+        }
+        return contexts;
+    }
+
+    private static String perRow(long nanos, int rows) {
+        return String.format("%.2f", (double) nanos / rows);
+    }
+}
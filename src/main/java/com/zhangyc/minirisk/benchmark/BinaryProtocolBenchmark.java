@@ -0,0 +1,127 @@
+package com.zhangyc.minirisk.benchmark;
+
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.engine.CompiledRuleEngine;
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.SlotContext;
+import com.zhangyc.minirisk.server.BinaryDecisionClient;
+import com.zhangyc.minirisk.server.BinaryDecisionServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 二进制协议的本地压测：同一进程里启动 BinaryDecisionServer，用参考客户端在一条连接上发请求。
+ * - 逐个请求：发一个等一个，输出吞吐量和 p50 / p99 / p99.9 往返延迟；
+ * - 流水线：每次连续发 depth 个请求再依次读响应，输出吞吐量。
+ * 开始前先把一部分响应和本地 CompiledRuleEngine 的结果对一遍。
+ *
+ * 运行：java -cp ... com.zhangyc.minirisk.benchmark.BinaryProtocolBenchmark [requests] [depth]
+ */
+@Slf4j
+public class BinaryProtocolBenchmark {
+
+    private static final String SCENE = "PAY";
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 128;
+        SlotContext[] contexts = randomContexts(1024);
+
+        try (BinaryDecisionServer server = new BinaryDecisionServer(0).start();
+             BinaryDecisionClient client = new BinaryDecisionClient("127.0.0.1", server.getPort())) {
+            verify(client, contexts);
+
+            // 两轮：第一轮预热，第二轮输出
+            for (int round = 0; round < 2; round++) {
+                boolean print = round == 1;
+                sequential(print, client, contexts, requests / 4);
+                pipelined(print, client, contexts, requests, depth);
+            }
+        }
+    }
+
+    private static void verify(BinaryDecisionClient client, SlotContext[] contexts) throws Exception {
+        CompiledRuleSet ruleSet = RuleRegistry.getCompiledRuleSet(SCENE);
+        CompiledRuleEngine engine = new CompiledRuleEngine();
+        for (SlotContext ctx : contexts) {
+            BinaryDecisionClient.Response response = client.evaluate(SCENE, ctx);
+            DecisionResult expected = engine.evaluate(ctx, ruleSet);
+            List<String> expectedIds = new ArrayList<>();
+            for (Rule rule : expected.getMatchedRules()) {
+                expectedIds.add(rule.getId());
+            }
+            if (response.getFinalAction() != expected.getFinalAction()
+                    || !response.getMatchedRuleIds().equals(expectedIds)) {
+                throw new IllegalStateException("结果不一致: " + response + " vs " + expected);
+            }
+        }
+        log.info("verified {} responses against CompiledRuleEngine", contexts.length);
+    }
+
+    private static void sequential(boolean print, BinaryDecisionClient client, SlotContext[] contexts, int n)
+            throws Exception {
+        long[] latencies = new long[n];
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            long begin = System.nanoTime();
+            client.evaluate(SCENE, contexts[i & (contexts.length - 1)]);
+            latencies[i] = System.nanoTime() - begin;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (print) {
+            Arrays.sort(latencies);
+            log.info("sequential   | {} req/s | p50={} us | p99={} us | p99.9={} us",
+                    String.format("%.0f", n * 1e9 / elapsed),
+                    micros(latencies, 0.50), micros(latencies, 0.99), micros(latencies, 0.999));
+        }
+    }
+
+    private static void pipelined(boolean print, BinaryDecisionClient client, SlotContext[] contexts,
+                                  int n, int depth) throws Exception {
+        long start = System.nanoTime();
+        int sent = 0;
+        while (sent < n) {
+            int batch = Math.min(depth, n - sent);
+            for (int i = 0; i < batch; i++) {
+                client.send(SCENE, contexts[(sent + i) & (contexts.length - 1)]);
+            }
+            client.flush();
+            for (int i = 0; i < batch; i++) {
+                client.receive();
+            }
+            sent += batch;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (print) {
+            log.info("pipelined {} | {} req/s | {} ns/req", depth,
+                    String.format("%.0f", n * 1e9 / elapsed), String.format("%.0f", (double) elapsed / n));
+        }
+    }
+
+    private static String micros(long[] sorted, double p) {
+        return String.format("%.1f", sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e3);
+    }
+
+    private static SlotContext[] randomContexts(int n) {
+        ContextSchema schema = ContextSchema.defaultSchema();
+        Random random = new Random(17);
+        SlotContext[] contexts = new SlotContext[n];
+        for (int i = 0; i < n; i++) {
+            contexts[i] = schema.newContext()
+                    .set("user.isNew", random.nextBoolean())
+                    .set("user.registerMinutes", random.nextInt(240))
+                    .set("user.historyOrderCount", random.nextInt(4))
+                    .set("order.amount", random.nextInt(500_000) / 100.0)
+                    .set("ip.inBlacklist", random.nextInt(100) == 0)
+                    .set("device.riskScore", random.nextInt(100) / 100.0);
+        }
+        return contexts;
+    }
+}
@@ -0,0 +1,136 @@
+package com.zhangyc.minirisk.benchmark;
+
+import com.zhangyc.minirisk.server.DecisionServer;
+import com.zhangyc.minirisk.server.RequestCoalescer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 决策服务的本地压测：在同一进程里启动 DecisionServer，用 N 个虚拟线程并发调用单条决策接口，
+ * 输出吞吐量和 p50 / p99 / p99.9 延迟，分别测合并开启和关闭两种情况。
+ *
+ * 客户端和服务端共用本机 CPU，数字只用于两种模式之间的对比。
+ * 运行：java -cp ... com.zhangyc.minirisk.benchmark.DecisionServerLoadTest [concurrency] [seconds]
+ */
+@Slf4j
+public class DecisionServerLoadTest {
+
+    /** 每个客户端线程最多记录的延迟样本数 */
+    private static final int MAX_SAMPLES = 1 << 20;
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String[] bodies = randomBodies(1024);
+
+        for (boolean coalesce : new boolean[]{false, true}) {
+            try (DecisionServer server = new DecisionServer(0, coalesce).start()) {
+                URI uri = URI.create("http://127.0.0.1:" + server.getPort() + "/v1/evaluate?scene=PAY");
+                // 预热
+                run(uri, bodies, concurrency, Math.max(1, seconds / 3));
+                long[][] latencies = new long[concurrency][];
+                long elapsed = run(uri, bodies, concurrency, seconds, latencies);
+                report(coalesce ? "coalesce=on " : "coalesce=off", latencies, elapsed, server.getCoalescer());
+            }
+        }
+    }
+
+    private static long run(URI uri, String[] bodies, int concurrency, int seconds) throws Exception {
+        return run(uri, bodies, concurrency, seconds, new long[concurrency][]);
+    }
+
+    /**
+     * 并发压测 seconds 秒，每个客户端线程的延迟样本写入 latencies[i]，返回实际耗时（纳秒）。
+     */
+    private static long run(URI uri, String[] bodies, int concurrency, int seconds, long[][] latencies)
+            throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?>[] futures = new Future<?>[concurrency];
+            for (int t = 0; t < concurrency; t++) {
+                int id = t;
+                futures[t] = clients.submit(() -> {
+                    long[] samples = new long[MAX_SAMPLES];
+                    int n = 0;
+                    int i = id;
+                    while (System.nanoTime() < deadline && n < samples.length) {
+                        HttpRequest request = HttpRequest.newBuilder(uri)
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString(bodies[i++ & (bodies.length - 1)]))
+                                .build();
+                        long begin = System.nanoTime();
+                        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        samples[n++] = System.nanoTime() - begin;
+                        if (response.statusCode() != 200) {
+                            throw new IllegalStateException("unexpected status " + response.statusCode()
+                                    + ": " + response.body());
+                        }
+                    }
+                    latencies[id] = Arrays.copyOf(samples, n);
+                    return null;
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String name, long[][] latencies, long elapsedNanos, RequestCoalescer coalescer) {
+        int total = 0;
+        for (long[] l : latencies) {
+            total += l.length;
+        }
+        long[] all = new long[total];
+        int pos = 0;
+        for (long[] l : latencies) {
+            System.arraycopy(l, 0, all, pos, l.length);
+            pos += l.length;
+        }
+        Arrays.sort(all);
+        log.info("{} | {} req/s | p50={} us | p99={} us | p99.9={} us{}", name,
+                String.format("%.0f", total * 1e9 / elapsedNanos),
+                micros(all, 0.50), micros(all, 0.99), micros(all, 0.999),
+                coalescer == null ? "" : String.format(" | avg batch=%.2f", coalescer.getAverageBatchSize()));
+    }
+
+    private static String micros(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return "-";
+        }
+        return String.format("%.0f", sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e3);
+    }
+
+    private static String[] randomBodies(int n) {
+        Random random = new Random(13);
+        String[] bodies = new String[n];
+        for (int i = 0; i < n; i++) {
+            bodies[i] = "{\"userId\":\"U" + i + "\""
+                    + ",\"newUser\":" + random.nextBoolean()
+                    + ",\"registerMinutes\":" + random.nextInt(240)
+                    + ",\"historyOrderCount\":" + random.nextInt(4)
+                    + ",\"orderId\":\"O" + i + "\""
+                    + ",\"orderAmount\":" + random.nextInt(500_000) / 100.0
+                    + ",\"ip\":\"10.0.0." + random.nextInt(256) + "\""
+                    + ",\"ipInBlacklist\":" + (random.nextInt(100) == 0) + "}";
+        }
+        return bodies;
+    }
+}
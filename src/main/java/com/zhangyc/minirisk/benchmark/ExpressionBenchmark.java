@@ -0,0 +1,126 @@
+package com.zhangyc.minirisk.benchmark;
+
+import com.zhangyc.minirisk.compile.ConditionCompiler;
+import com.zhangyc.minirisk.compile.ConditionExpr;
+import com.zhangyc.minirisk.compile.SlotPredicate;
+import com.zhangyc.minirisk.config.ConditionDefinition;
+import com.zhangyc.minirisk.config.RuleDefinition;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.SlotContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 嵌套条件树 vs 「拆成多条扁平规则」的执行代价对比。
+ *
+ * 策略：amount > 1000 AND (isNew OR historyOrderCount < 3) AND (registerMinutes < 60 OR loginCount > 3)
+ * - 嵌套写法：1 条规则；
+ * - 扁平写法：只能展开成 4 条 AND 规则（amount > 1000 在每条里重复一次）。
+ */
+@Slf4j
+public class ExpressionBenchmark {
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        ContextSchema schema = ContextSchema.defaultSchema();
+
+        // 化简效果示例
+        logOptimized(group("AND", leaf("order.amount", ">", "5"), leaf("order.amount", ">", "10")));
+        logOptimized(group("AND", leaf("order.amount", ">", "1000"), leaf("order.amount", "<", "500")));
+        logOptimized(group("OR", leaf("user.isNew", "==", "true"),
+                group("OR", leaf("user.isNew", "==", "true"), leaf("order.amount", ">", "1000"))));
+
+        ConditionDefinition amount = leaf("order.amount", ">", "1000");
+        ConditionDefinition isNew = leaf("user.isNew", "==", "true");
+        ConditionDefinition fewOrders = leaf("user.historyOrderCount", "<", "3");
+        ConditionDefinition young = leaf("user.registerMinutes", "<", "60");
+        ConditionDefinition busyDevice = leaf("device.loginUserCountIn10Min", ">", "3");
+
+        SlotPredicate nested = ConditionCompiler.compileRule(rule(group("AND", amount,
+                group("OR", isNew, fewOrders),
+                group("OR", young, busyDevice))), schema);
+
+        List<SlotPredicate> flat = new ArrayList<>();
+        for (ConditionDefinition a : Arrays.asList(isNew, fewOrders)) {
+            for (ConditionDefinition b : Arrays.asList(young, busyDevice)) {
+                flat.add(ConditionCompiler.compileRule(rule(group("AND", amount, a, b)), schema));
+            }
+        }
+
+        SlotContext[] contexts = randomContexts(schema, 1024);
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                if (nested.test(contexts[i & 1023])) {
+                    sink++;
+                }
+            }
+            long nestedNs = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                SlotContext ctx = contexts[i & 1023];
+                // 扁平写法必须把 4 条规则都执行一遍（每条规则要单独出现在命中列表里）
+                for (SlotPredicate p : flat) {
+                    if (p.test(ctx)) {
+                        sink++;
+                    }
+                }
+            }
+            long flatNs = System.nanoTime() - start;
+
+            if (round == 1) {
+                log.info("nested 1 rule : {} ns/op", String.format("%.1f", (double) nestedNs / iterations));
+                log.info("flat 4 rules  : {} ns/op", String.format("%.1f", (double) flatNs / iterations));
+            }
+        }
+        log.info("sink={}", sink);
+    }
+
+    private static void logOptimized(ConditionDefinition root) {
+        ConditionExpr optimized = ConditionCompiler.optimizedExpr(rule(root));
+        log.info("optimized: {}", optimized);
+    }
+
+    private static SlotContext[] randomContexts(ContextSchema schema, int count) {
+        Random random = new Random(42);
+        SlotContext[] contexts = new SlotContext[count];
+        for (int i = 0; i < count; i++) {
+            contexts[i] = schema.newContext()
+                    .set("order.amount", random.nextInt(3000))
+                    .set("user.isNew", random.nextBoolean())
+                    .set("user.historyOrderCount", random.nextInt(10))
+                    .set("user.registerMinutes", random.nextInt(600))
+                    .set("device.loginUserCountIn10Min", random.nextInt(6));
+        }
+        return contexts;
+    }
+
+    private static RuleDefinition rule(ConditionDefinition root) {
+        RuleDefinition def = new RuleDefinition();
+        def.setId("BENCH");
+        def.setCondition(root);
+        return def;
+    }
+
+    private static ConditionDefinition group(String op, ConditionDefinition... children) {
+        ConditionDefinition c = new ConditionDefinition();
+        c.setOp(op);
+        c.setChildren(Arrays.asList(children));
+        return c;
+    }
+
+    private static ConditionDefinition leaf(String field, String op, String value) {
+        ConditionDefinition c = new ConditionDefinition();
+        c.setField(field);
+        c.setOp(op);
+        c.setValue(value);
+        return c;
+    }
+}
@@ -0,0 +1,188 @@
+package com.zhangyc.minirisk.benchmark;
+
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.config.ConditionDefinition;
+import com.zhangyc.minirisk.config.RuleDefinition;
+import com.zhangyc.minirisk.engine.CompiledRuleEngine;
+import com.zhangyc.minirisk.graph.EntityGraph;
+import com.zhangyc.minirisk.graph.EntityType;
+import com.zhangyc.minirisk.graph.GraphFields;
+import com.zhangyc.minirisk.model.RuleAction;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.FieldProviders;
+import com.zhangyc.minirisk.schema.SlotContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 实体关联图的内存和查询延迟：
+ * - 节点：用户 edges/25、设备 edges/50、IP edges/50，另有 100 个共享出口 IP（热点节点）；
+ * - 多个线程并发写入事件（用户-设备、用户-IP、设备-IP 两两连边，时间分布在最近 30 天），直到边数达到目标，
+ *   七成事件用用户常用的设备和 IP，重复的关联只更新时间，所以 addEdge 调用次数比边数多；
+ * - 0.1% 的设备被标记；
+ * - 查询：设备 7 天内的账号数（一跳）、IP 7 天内的设备数（一跳，含热点 IP）、用户两跳之内有没有被标记的设备，
+ *   各随机查 10 万次，输出 p50 / p99 / max；最后通过 GraphFields 注册成懒加载字段，用一条规则走一遍 CompiledRuleEngine。
+ * 内存按 GC 之后的堆占用计算，另外输出图本身原始数组的字节数（不含实体 id 字典）。
+ *
+ * 运行：java -Xmx4g -cp ... com.zhangyc.minirisk.benchmark.GraphBenchmark [edges] [threads]
+ * 1 亿条边约需 4 GB 堆（边 1.6 GB，其余主要是 800 万个实体 id 字符串和字典）。
+ */
+@Slf4j
+public class GraphBenchmark {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final int SHARED_IPS = 100;
+    private static final int QUERIES = 100_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int targetEdges = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long heapBefore = usedHeap(memory);
+
+        EntityGraph graph = new EntityGraph();
+        int[] users = nodes(graph, EntityType.USER, "U", Math.max(1, targetEdges / 25));
+        int[] devices = nodes(graph, EntityType.DEVICE, "D", Math.max(1, targetEdges / 50));
+        int[] ips = nodes(graph, EntityType.IP, "10.0.", Math.max(1, targetEdges / 50) + SHARED_IPS);
+        for (int i = 0; i < devices.length; i += 1000) {
+            graph.markFlagged(EntityType.DEVICE, "D" + i);
+        }
+        long heapNodes = usedHeap(memory);
+        log.info("nodes: {} users, {} devices, {} ips, heap +{} MB", users.length, devices.length, ips.length,
+                (heapNodes - heapBefore) >> 20);
+
+        long now = System.currentTimeMillis();
+        LongAdder calls = new LongAdder();
+        long start = System.nanoTime();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = 50 + t;
+            writers.add(Thread.ofPlatform().start(() -> write(graph, users, devices, ips, targetEdges, now, seed, calls)));
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        long heapEdges = usedHeap(memory);
+        log.info("edges: {} in {} s, {} addEdge calls ({} calls/s, {} threads)", graph.getEdgeCount(),
+                String.format("%.1f", elapsed / 1e9), calls.sum(),
+                String.format("%.0f", calls.sum() / (elapsed / 1e9)), threads);
+        log.info("memory: heap +{} MB total ({} bytes/edge), graph arrays {} MB",
+                (heapEdges - heapBefore) >> 20,
+                String.format("%.1f", (double) (heapEdges - heapBefore) / graph.getEdgeCount()),
+                graph.getAllocatedBytes() >> 20);
+
+        SplittableRandom random = new SplittableRandom(50);
+        long since = now - 7 * DAY;
+        // 两轮：第一轮预热，第二轮输出
+        for (int round = 0; round < 2; round++) {
+            boolean print = round == 1;
+            latency(print, "device users (1 hop)  ",
+                    i -> graph.countWithinHops(devices[random.nextInt(devices.length)], EntityType.USER, 1, since));
+            latency(print, "ip devices (1 hop)    ",
+                    i -> graph.countWithinHops(ips[random.nextInt(ips.length)], EntityType.DEVICE, 1, since));
+            latency(print, "user flagged (2 hops) ",
+                    i -> graph.hopsToFlagged(users[random.nextInt(users.length)], EntityType.DEVICE, 2, since));
+        }
+
+        // 作为规则字段使用
+        ContextSchema schema = ContextSchema.defaultSchema();
+        FieldProviders providers = GraphFields.register(new FieldProviders(schema), graph, 7 * DAY, () -> now);
+        CompiledRuleSet ruleSet = CompiledRuleSet.compileDefinitions("LOGIN", 1L, Arrays.asList(
+                rule("SHARED_DEVICE", "MANUAL_REVIEW", leaf(GraphFields.DEVICE_LINKED_USERS, ">", "3")),
+                rule("NEAR_FLAGGED_DEVICE", "REJECT", leaf(GraphFields.USER_NEAR_FLAGGED_DEVICE, "==", "true"))),
+                schema);
+        CompiledRuleEngine engine = new CompiledRuleEngine();
+        Map<RuleAction, Integer> actions = new EnumMap<>(RuleAction.class);
+        long ruleStart = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            SlotContext ctx = providers.newContext()
+                    .set("user.id", "U" + random.nextInt(users.length))
+                    .set("device.id", "D" + random.nextInt(devices.length));
+            actions.merge(engine.evaluate(ctx, ruleSet).getFinalAction(), 1, Integer::sum);
+        }
+        log.info("rule evaluation with graph fields: {} ns/op, actions {}",
+                String.format("%.0f", (double) (System.nanoTime() - ruleStart) / QUERIES), actions);
+    }
+
+    private static int[] nodes(EntityGraph graph, EntityType type, String prefix, int count) {
+        int[] nodes = new int[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = graph.node(type, prefix + i);
+        }
+        return nodes;
+    }
+
+    /**
+     * 一个写线程：每个事件随机一个用户，70% 用常用设备 / IP，1% 走共享出口 IP。
+     */
+    private static void write(EntityGraph graph, int[] users, int[] devices, int[] ips, int targetEdges,
+                              long now, long seed, LongAdder calls) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int privateIps = ips.length - SHARED_IPS;
+        while (graph.getEdgeCount() < targetEdges) {
+            for (int k = 0; k < 1024; k++) {
+                int u = random.nextInt(users.length);
+                int d = random.nextInt(10) < 3 ? random.nextInt(devices.length) : u % devices.length;
+                int p = random.nextInt(100) == 0 ? privateIps + random.nextInt(SHARED_IPS)
+                        : random.nextInt(10) < 3 ? random.nextInt(privateIps) : (u * 7) % privateIps;
+                long time = now - random.nextLong(30 * DAY);
+                graph.addEdge(users[u], devices[d], time);
+                graph.addEdge(users[u], ips[p], time);
+                graph.addEdge(devices[d], ips[p], time);
+            }
+            calls.add(3 * 1024);
+        }
+    }
+
+    private static void latency(boolean print, String name, IntUnaryOperator query) {
+        long[] nanos = new long[QUERIES];
+        long sum = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            long start = System.nanoTime();
+            sum += query.applyAsInt(i);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        if (print) {
+            log.info("{} | p50 {} ns | p99 {} ns | max {} us | avg result {}", name,
+                    nanos[QUERIES / 2], nanos[QUERIES * 99 / 100], nanos[QUERIES - 1] / 1000,
+                    String.format("%.2f", (double) sum / QUERIES));
+        }
+    }
+
+    private static long usedHeap(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static RuleDefinition rule(String id, String action, ConditionDefinition... conditions) {
+        RuleDefinition def = new RuleDefinition();
+        def.setId(id);
+        def.setDescription(id);
+        def.setScene("LOGIN");
+        def.setPriority(1);
+        def.setAction(action);
+        def.setConditions(Arrays.asList(conditions));
+        return def;
+    }
+
+    private static ConditionDefinition leaf(String field, String op, String value) {
+        ConditionDefinition c = new ConditionDefinition();
+        c.setField(field);
+        c.setOp(op);
+        c.setValue(value);
+        return c;
+    }
+}
@@ -0,0 +1,208 @@
+package com.zhangyc.minirisk.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.engine.CompiledRuleEngine;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.JsonContextReader;
+import com.zhangyc.minirisk.schema.RiskContextAdapter;
+import com.zhangyc.minirisk.schema.SlotContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * 从事件 JSON 字节构造上下文：
+ * - databind：整个事件反序列化成 Map（所有字段都生成对象），取出需要的值放进 RiskContext，再拷贝到 SlotContext（原来的做法）；
+ * - stream：JsonContextReader 只读 PAY 场景引用到的字段，其余整体跳过，读到全部字段后停止，直接写入复用的 SlotContext；
+ * - stream-direct：同上，输入是堆外 ByteBuffer。
+ * 事件有 60 多个叶子字段（含嵌套对象和数组）。先逐个事件对比两种方式得到的字段值和决策，
+ * 再统计 ns/op 和 bytes/op（com.sun.management.ThreadMXBean#getThreadAllocatedBytes）。
+ *
+ * 运行：java -cp ... com.zhangyc.minirisk.benchmark.JsonEventBenchmark [iterations]
+ */
+@Slf4j
+public class JsonEventBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final RiskContextAdapter ADAPTER = new RiskContextAdapter(ContextSchema.defaultSchema());
+
+    /** 防止 JIT 把结果优化掉 */
+    private static long sink;
+
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        ContextSchema schema = ContextSchema.defaultSchema();
+        CompiledRuleSet ruleSet = RuleRegistry.getCompiledRuleSet("PAY");
+        JsonContextReader reader = new JsonContextReader(schema, ruleSet.getReferencedFields());
+        log.info("PAY references {}", reader.getFields());
+
+        Random random = new Random(49);
+        byte[][] events = new byte[256][];
+        ByteBuffer[] direct = new ByteBuffer[events.length];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = MAPPER.writeValueAsBytes(randomEvent(i, random));
+            direct[i] = ByteBuffer.allocateDirect(events[i].length).put(events[i]).flip();
+        }
+        log.info("event size: {} bytes", events[0].length);
+
+        CompiledRuleEngine engine = new CompiledRuleEngine();
+        SlotContext bound = schema.newContext();
+        SlotContext streamed = schema.newContext();
+        SlotContext fromDirect = schema.newContext();
+        for (int i = 0; i < events.length; i++) {
+            bound.clear();
+            databind(events[i], bound);
+            streamed.clear();
+            reader.read(events[i], 0, events[i].length, streamed);
+            for (String path : reader.getFields()) {
+                if (!Objects.equals(bound.getValue(path), streamed.getValue(path))) {
+                    throw new IllegalStateException("字段不一致: " + path + ", " + bound + " vs " + streamed);
+                }
+            }
+            if (engine.evaluate(bound, ruleSet).getFinalAction() != engine.evaluate(streamed, ruleSet).getFinalAction()) {
+                throw new IllegalStateException("决策不一致: " + streamed);
+            }
+            fromDirect.clear();
+            reader.read(direct[i], fromDirect);
+            if (!streamed.toString().equals(fromDirect.toString())) {
+                throw new IllegalStateException("堆外读取不一致: " + streamed + " vs " + fromDirect);
+            }
+        }
+        log.info("verified {} events", events.length);
+
+        // 两轮：第一轮预热，第二轮输出
+        for (int round = 0; round < 2; round++) {
+            boolean print = round == 1;
+            for (String mode : new String[]{"databind", "stream", "stream-direct"}) {
+                SlotContext ctx = schema.newContext();
+                long threadId = Thread.currentThread().threadId();
+                long bytesBefore = THREAD_MX.getThreadAllocatedBytes(threadId);
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    int e = i & (events.length - 1);
+                    ctx.clear();
+                    switch (mode) {
+                        case "databind":
+                            databind(events[e], ctx);
+                            break;
+                        case "stream":
+                            reader.read(events[e], 0, events[e].length, ctx);
+                            break;
+                        default:
+                            reader.read(direct[e], ctx);
+                            break;
+                    }
+                    sink += engine.evaluateReusing(ctx, ruleSet).getFinalAction().ordinal();
+                }
+                long elapsed = System.nanoTime() - start;
+                long bytes = THREAD_MX.getThreadAllocatedBytes(threadId) - bytesBefore;
+                if (print) {
+                    log.info("{} | {} ns/op | {} bytes/op", String.format("%-13s", mode),
+                            String.format("%.0f", (double) elapsed / iterations),
+                            String.format("%.0f", (double) bytes / iterations));
+                }
+            }
+        }
+        log.info("sink={}", sink);
+    }
+
+    /**
+     * 原来的做法：整个事件绑定成对象，再挑出 RiskContext 需要的字段。
+     */
+    @SuppressWarnings("unchecked")
+    private static void databind(byte[] json, SlotContext target) throws IOException {
+        Map<String, Object> event = MAPPER.readValue(json, Map.class);
+        Map<String, Object> user = (Map<String, Object>) event.get("user");
+        Map<String, Object> order = (Map<String, Object>) event.get("order");
+        Map<String, Object> device = (Map<String, Object>) event.get("device");
+        Map<String, Object> ip = (Map<String, Object>) event.get("ip");
+        RiskContext ctx = new RiskContext()
+                .setUserId((String) user.get("id"))
+                .setNewUser((Boolean) user.get("isNew"))
+                .setRegisterMinutes(((Number) user.get("registerMinutes")).intValue())
+                .setHistoryOrderCount(((Number) user.get("historyOrderCount")).intValue())
+                .setOrderId((String) order.get("id"))
+                .setOrderAmount(((Number) order.get("amount")).doubleValue())
+                .setDeviceId((String) device.get("id"))
+                .setDeviceLoginUserCountIn10Min(((Number) device.get("loginUserCountIn10Min")).intValue())
+                .setIp((String) ip.get("value"))
+                .setIpInBlacklist((Boolean) ip.get("inBlacklist"));
+        ADAPTER.fill(ctx, target);
+    }
+
+    private static Map<String, Object> randomEvent(int i, Random random) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("eventId", "E" + i);
+        event.put("eventType", "PAY");
+        event.put("timestamp", 1_700_000_000_000L + i);
+        event.put("traceId", Long.toHexString(random.nextLong()));
+        event.put("channel", "app");
+        event.put("appVersion", "5.12." + random.nextInt(10));
+        event.put("locale", "zh_CN");
+        event.put("sdk", obj("name", "risk-sdk", "version", "2.3.1", "build", random.nextInt(1000)));
+
+        Map<String, Object> user = obj(
+                "id", "U" + random.nextInt(1_000_000),
+                "nickname", "user" + random.nextInt(1000),
+                "email", "u" + random.nextInt(100_000) + "@example.com",
+                "phone", "138" + (10_000_000 + random.nextInt(89_999_999)),
+                "level", "L" + random.nextInt(5),
+                "tags", List.of("vip", "coupon", "night"),
+                "isNew", random.nextBoolean(),
+                "registerMinutes", random.nextInt(120),
+                "historyOrderCount", random.nextInt(4),
+                "profile", obj("gender", "F", "birthYear", 1990 + random.nextInt(20), "city", "Hangzhou"));
+        event.put("user", user);
+
+        List<Object> items = new ArrayList<>();
+        for (int k = 0; k < 3; k++) {
+            items.add(obj("sku", "SKU" + random.nextInt(10_000), "qty", 1 + random.nextInt(3),
+                    "price", random.nextInt(100_000) / 100.0, "title", "商品标题 " + k));
+        }
+        event.put("order", obj(
+                "id", "O" + i,
+                "currency", "CNY",
+                "items", items,
+                "address", obj("province", "浙江", "city", "杭州", "district", "西湖区", "detail", "文三路 1 号"),
+                "coupon", obj("id", "C" + random.nextInt(100), "discount", 5.0),
+                "amount", random.nextInt(800_000) / 100.0,
+                "payMethod", "card"));
+        event.put("device", obj(
+                "id", "D" + random.nextInt(100_000),
+                "os", "Android 14",
+                "model", "Pixel 8",
+                "userAgent", "Mozilla/5.0 (Linux; Android 14; Pixel 8) AppleWebKit/537.36",
+                "screen", obj("width", 1080, "height", 2400, "density", 2.625),
+                "fingerprint", Long.toHexString(random.nextLong()),
+                "loginUserCountIn10Min", random.nextInt(10)));
+        event.put("ip", obj(
+                "value", "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256),
+                "inBlacklist", random.nextInt(50) == 0,
+                "geo", obj("country", "CN", "city", "Hangzhou", "lat", 30.27, "lon", 120.15)));
+        event.put("extra", obj("campaign", "double11", "referrer", "https://example.com/landing?id=" + i,
+                "experiments", List.of("exp_a", "exp_b")));
+        return event;
+    }
+
+    private static Map<String, Object> obj(Object... keyValues) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            map.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,129 @@
+package com.zhangyc.minirisk.benchmark;
+
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.config.ConditionDefinition;
+import com.zhangyc.minirisk.config.RuleDefinition;
+import com.zhangyc.minirisk.engine.CompiledRuleEngine;
+import com.zhangyc.minirisk.model.RuleAction;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.FieldProvider;
+import com.zhangyc.minirisk.schema.FieldProviders;
+import com.zhangyc.minirisk.schema.SlotContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 懒加载字段 + 并行预取：用本地的替身 provider（固定延迟 + 由 device.id 算出的确定值）模拟外部特征服务。
+ * - 4 个 provider：账号年龄 15 ms、设备信誉 20 ms（规则会读），用户等级 10 ms、UA 30 ms（规则不读）；
+ * - eager：请求进来先把 4 个字段全部算好（原来的做法），再执行；
+ * - lazy：绑定 FieldProviders，条件读到时才调用 provider（串行，短路时可能不调用）；
+ * - prefetch：CompiledRuleEngine.evaluate(ctx, ruleSet, providers)，规则引用到的 provider 在虚拟线程上并行取。
+ * 三种方式的最终动作必须一致，输出平均延迟和每个请求调用 provider 的次数。
+ *
+ * 运行：java -cp ... com.zhangyc.minirisk.benchmark.LazyFieldBenchmark [requests]
+ */
+@Slf4j
+public class LazyFieldBenchmark {
+
+    private static final String ACCOUNT_AGE = "user.accountAgeDays";
+    private static final String RISK_SCORE = "device.riskScore";
+    private static final String LEVEL = "user.level";
+    private static final String USER_AGENT = "device.userAgent";
+
+    public static void main(String[] args) {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+        ContextSchema schema = ContextSchema.defaultSchema();
+        int deviceId = schema.getSlot("device.id").getIndex();
+
+        FieldProviders providers = new FieldProviders(schema)
+                .register(ACCOUNT_AGE, standIn(15, ctx -> (long) (hash(ctx.getObject(deviceId)) % 365)))
+                .register(RISK_SCORE, standIn(20, ctx -> (hash(ctx.getObject(deviceId)) % 100) / 100.0))
+                .register(LEVEL, standIn(10, ctx -> "L" + hash(ctx.getObject(deviceId)) % 5))
+                .register(USER_AGENT, standIn(30, ctx -> "Mozilla/5.0"));
+
+        CompiledRuleSet ruleSet = CompiledRuleSet.compileDefinitions("PAY", 1L, Arrays.asList(
+                rule("NEW_ACCOUNT_BIG_ORDER", "REJECT",
+                        leaf(ACCOUNT_AGE, "<", "30"), leaf("order.amount", ">", "1000")),
+                rule("BAD_DEVICE", "MANUAL_REVIEW", leaf(RISK_SCORE, ">", "0.8"))), schema);
+        log.info("rule set references {}", ruleSet.getReferencedFields());
+
+        Random random = new Random(46);
+        List<Object[]> inputs = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            inputs.add(new Object[]{"D" + random.nextInt(100_000), random.nextInt(300_000) / 100.0});
+        }
+
+        CompiledRuleEngine engine = new CompiledRuleEngine();
+        RuleAction[] expected = new RuleAction[requests];
+        String[] modes = {"eager", "lazy", "prefetch"};
+        for (String mode : modes) {
+            long invocationsBefore = providers.getInvocationCount();
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                SlotContext ctx = providers.newContext()
+                        .set("device.id", inputs.get(i)[0])
+                        .set("order.amount", inputs.get(i)[1]);
+                RuleAction action;
+                switch (mode) {
+                    case "eager":
+                        for (String path : Arrays.asList(ACCOUNT_AGE, RISK_SCORE, LEVEL, USER_AGENT)) {
+                            ctx.getValue(path);
+                        }
+                        action = engine.evaluate(ctx, ruleSet).getFinalAction();
+                        break;
+                    case "lazy":
+                        action = engine.evaluate(ctx, ruleSet).getFinalAction();
+                        break;
+                    default:
+                        action = engine.evaluate(ctx, ruleSet, providers).getFinalAction();
+                        break;
+                }
+                if (expected[i] == null) {
+                    expected[i] = action;
+                } else if (expected[i] != action) {
+                    throw new IllegalStateException(mode + " 结果不一致: " + expected[i] + " vs " + action);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            log.info("{} | {} ms/request | {} provider calls/request", String.format("%-8s", mode),
+                    String.format("%.1f", elapsed / 1e6 / requests),
+                    String.format("%.2f", (double) (providers.getInvocationCount() - invocationsBefore) / requests));
+        }
+        log.info("prefetched fields: {}", providers.getPrefetchCount());
+    }
+
+    /** 本地替身：固定延迟后返回由上下文算出的确定值 */
+    private static FieldProvider standIn(long latencyMillis, FieldProvider value) {
+        return ctx -> {
+            Thread.sleep(latencyMillis);
+            return value.provide(ctx);
+        };
+    }
+
+    private static int hash(Object deviceId) {
+        return deviceId == null ? 0 : Math.abs(deviceId.hashCode() % 100_000);
+    }
+
+    private static RuleDefinition rule(String id, String action, ConditionDefinition... conditions) {
+        RuleDefinition def = new RuleDefinition();
+        def.setId(id);
+        def.setDescription(id);
+        def.setScene("PAY");
+        def.setPriority(1);
+        def.setAction(action);
+        def.setConditions(Arrays.asList(conditions));
+        return def;
+    }
+
+    private static ConditionDefinition leaf(String field, String op, String value) {
+        ConditionDefinition c = new ConditionDefinition();
+        c.setField(field);
+        c.setOp(op);
+        c.setValue(value);
+        return c;
+    }
+}
@@ -0,0 +1,146 @@
+package com.zhangyc.minirisk.benchmark;
+
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.compile.MultiSceneRuleSet;
+import com.zhangyc.minirisk.config.ConditionDefinition;
+import com.zhangyc.minirisk.config.RuleDefinition;
+import com.zhangyc.minirisk.engine.CompiledRuleEngine;
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.RiskContextAdapter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 一个事件同时过 LOGIN 和 PAY：
+ * - per-scene：分别取两个场景的规则集各执行一次（原来的做法），COMMON 规则执行两遍，RiskContext 也拷贝两遍；
+ * - multi-scene：CompiledRuleEngine.evaluate(context, scenes)，合并规则集执行一次再按场景拆分结果。
+ * 规则集默认 200 条 COMMON + 各 100 条 LOGIN / PAY。先逐个上下文对比两种方式每个场景的最终动作和命中规则，
+ * 再输出每个事件执行的规则条数和 ns/op。
+ *
+ * 运行：java -cp ... com.zhangyc.minirisk.benchmark.MultiSceneBenchmark [commonRules] [iterations]
+ */
+@Slf4j
+public class MultiSceneBenchmark {
+
+    private static final String[] ACTIONS = {"REJECT", "MANUAL_REVIEW", "ALLOW"};
+    private static final int SCENE_RULES = 100;
+    private static final Set<String> SCENES = new LinkedHashSet<>(Arrays.asList("LOGIN", "PAY"));
+
+    private static final RiskContextAdapter ADAPTER = new RiskContextAdapter(ContextSchema.defaultSchema());
+
+    /** 防止 JIT 把结果优化掉 */
+    private static long sink;
+
+    public static void main(String[] args) {
+        int commonRules = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+        Random random = new Random(48);
+        List<RuleDefinition> defs = new ArrayList<>();
+        for (int i = 0; i < commonRules; i++) {
+            defs.add(randomRule("C" + i, "COMMON", random));
+        }
+        for (int i = 0; i < SCENE_RULES; i++) {
+            defs.add(randomRule("L" + i, "LOGIN", random));
+            defs.add(randomRule("P" + i, "PAY", random));
+        }
+        RuleRegistry.reload(defs);
+
+        CompiledRuleSet login = RuleRegistry.getCompiledRuleSet("LOGIN");
+        CompiledRuleSet pay = RuleRegistry.getCompiledRuleSet("PAY");
+        MultiSceneRuleSet both = RuleRegistry.getMultiSceneRuleSet(SCENES);
+        log.info("rules per event: per-scene={} ({} + {}), multi-scene={}",
+                login.size() + pay.size(), login.size(), pay.size(), both.getRuleSet().size());
+
+        RiskContext[] contexts = randomContexts(1024);
+        CompiledRuleEngine engine = new CompiledRuleEngine();
+        for (RiskContext ctx : contexts) {
+            Map<String, DecisionResult> results = engine.evaluate(ctx, SCENES);
+            check(ctx, "LOGIN", engine.evaluate(ctx, login, ADAPTER), results.get("LOGIN"));
+            check(ctx, "PAY", engine.evaluate(ctx, pay, ADAPTER), results.get("PAY"));
+        }
+        log.info("verified {} contexts", contexts.length);
+
+        // 两轮：第一轮预热，第二轮输出
+        for (int round = 0; round < 2; round++) {
+            boolean print = round == 1;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                RiskContext ctx = contexts[i & (contexts.length - 1)];
+                sink += engine.evaluate(ctx, login, ADAPTER).getFinalAction().ordinal();
+                sink += engine.evaluate(ctx, pay, ADAPTER).getFinalAction().ordinal();
+            }
+            long perScene = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                Map<String, DecisionResult> results = engine.evaluate(contexts[i & (contexts.length - 1)], SCENES);
+                sink += results.get("LOGIN").getFinalAction().ordinal() + results.get("PAY").getFinalAction().ordinal();
+            }
+            long multiScene = System.nanoTime() - start;
+            if (print) {
+                log.info("per-scene   | {} ns/op", String.format("%.0f", (double) perScene / iterations));
+                log.info("multi-scene | {} ns/op", String.format("%.0f", (double) multiScene / iterations));
+            }
+        }
+        log.info("sink={}", sink);
+    }
+
+    private static void check(RiskContext ctx, String scene, DecisionResult expected, DecisionResult actual) {
+        if (expected.getFinalAction() != actual.getFinalAction()
+                || !expected.getMatchedRules().equals(actual.getMatchedRules())) {
+            throw new IllegalStateException("结果不一致: " + scene + ", " + ctx + ": " + expected + " vs " + actual);
+        }
+    }
+
+    private static RiskContext[] randomContexts(int n) {
+        Random random = new Random(7);
+        RiskContext[] contexts = new RiskContext[n];
+        for (int i = 0; i < n; i++) {
+            contexts[i] = new RiskContext()
+                    .setUserId("U" + i)
+                    .setNewUser(random.nextBoolean())
+                    .setRegisterMinutes(random.nextInt(120))
+                    .setHistoryOrderCount(random.nextInt(4))
+                    .setOrderAmount(random.nextInt(500_000) / 100.0)
+                    .setDeviceLoginUserCountIn10Min(random.nextInt(10));
+        }
+        return contexts;
+    }
+
+    private static RuleDefinition randomRule(String id, String scene, Random random) {
+        RuleDefinition def = new RuleDefinition();
+        def.setId(id);
+        def.setDescription("generated");
+        def.setScene(scene);
+        def.setPriority(1 + random.nextInt(100));
+        def.setAction(ACTIONS[random.nextInt(ACTIONS.length)]);
+        ConditionDefinition and = new ConditionDefinition();
+        and.setOp("AND");
+        and.setChildren(Arrays.asList(
+                leaf("order.amount", ">", String.valueOf(random.nextInt(5000))),
+                leaf("user.registerMinutes", "<", String.valueOf(random.nextInt(120))),
+                random.nextBoolean()
+                        ? leaf("user.isNew", "==", String.valueOf(random.nextBoolean()))
+                        : leaf("device.loginUserCountIn10Min", ">", String.valueOf(random.nextInt(8)))));
+        def.setCondition(and);
+        return def;
+    }
+
+    private static ConditionDefinition leaf(String field, String op, String value) {
+        ConditionDefinition c = new ConditionDefinition();
+        c.setField(field);
+        c.setOp(op);
+        c.setValue(value);
+        return c;
+    }
+}
@@ -0,0 +1,120 @@
+package com.zhangyc.minirisk.benchmark;
+
+import com.zhangyc.minirisk.batch.BatchEvaluator;
+import com.zhangyc.minirisk.batch.BatchResult;
+import com.zhangyc.minirisk.batch.CsvBatchReader;
+import com.zhangyc.minirisk.batch.OffHeapColumnarBatch;
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.engine.CompiledRuleEngine;
+import com.zhangyc.minirisk.model.RuleAction;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.SlotContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 堆外批次的离线打分：生成一个 CSV 文件，经内存映射读入一个复用的 OffHeapColumnarBatch，按列执行 PAY 场景规则集。
+ * 输出读入 / 执行的 ns/row，以及每行在堆上分配的字节数（批次复用后应接近 0，与行数无关）。
+ *
+ * 运行：java [--add-modules jdk.incubator.vector] -cp ... com.zhangyc.minirisk.benchmark.OffHeapBatchBenchmark [rows]
+ */
+@Slf4j
+public class OffHeapBatchBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final int BATCH_SIZE = 64 * 1024;
+
+    private static final String[] LEVELS = {"NORMAL", "SILVER", "GOLD", "VIP"};
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        CompiledRuleSet ruleSet = RuleRegistry.getCompiledRuleSet("PAY");
+        ContextSchema schema = ruleSet.getSchema();
+
+        Path file = Files.createTempFile("mini-risk-batch", ".csv");
+        try {
+            writeCsv(file, rows);
+            log.info("input: {} rows, {} MB", rows, Files.size(file) >> 20);
+
+            BatchEvaluator evaluator = new BatchEvaluator(ruleSet);
+            OffHeapColumnarBatch batch = new OffHeapColumnarBatch(schema, BATCH_SIZE);
+            log.info("kernels: {}, off-heap batch: {} KB", evaluator.getKernels().name(), batch.getOffHeapBytes() >> 10);
+
+            for (int round = 0; round < 3; round++) {
+                Map<RuleAction, Integer> actions = new EnumMap<>(RuleAction.class);
+                long loadNs = 0;
+                long evalNs = 0;
+                long bytesBefore = THREAD_MX.getThreadAllocatedBytes(Thread.currentThread().threadId());
+                boolean verified = false;
+                try (CsvBatchReader reader = new CsvBatchReader(file, schema)) {
+                    while (true) {
+                        batch.clear();
+                        long start = System.nanoTime();
+                        if (reader.readInto(batch) == 0) {
+                            break;
+                        }
+                        long loaded = System.nanoTime();
+                        BatchResult result = evaluator.evaluate(batch);
+                        evalNs += System.nanoTime() - loaded;
+                        loadNs += loaded - start;
+                        result.countByAction().forEach((action, count) -> actions.merge(action, count, Integer::sum));
+                        if (!verified) {
+                            verify(batch, result, ruleSet);
+                            verified = true;
+                        }
+                    }
+                }
+                long bytes = THREAD_MX.getThreadAllocatedBytes(Thread.currentThread().threadId()) - bytesBefore;
+                if (round == 2) {
+                    log.info("load : {} ns/row", String.format("%.2f", (double) loadNs / rows));
+                    log.info("eval : {} ns/row", String.format("%.2f", (double) evalNs / rows));
+                    log.info("heap allocation: {} bytes/row", String.format("%.3f", (double) bytes / rows));
+                    log.info("actions: {}", actions);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * 第一批数据逐行解码后用 CompiledRuleEngine 执行，结果必须一致。
+     */
+    private static void verify(OffHeapColumnarBatch batch, BatchResult result, CompiledRuleSet ruleSet) {
+        CompiledRuleEngine engine = new CompiledRuleEngine();
+        SlotContext scratch = ruleSet.getSchema().newContext();
+        for (int r = 0; r < batch.size(); r++) {
+            RuleAction expected = engine.evaluateReusing(batch.loadRow(r, scratch), ruleSet).getFinalAction();
+            if (result.getFinalAction(r) != expected) {
+                throw new IllegalStateException("第 " + r + " 行结果不一致: expected=" + expected
+                        + ", batch=" + result.getFinalAction(r));
+            }
+        }
+    }
+
+    private static void writeCsv(Path file, int rows) throws IOException {
+        Random random = new Random(42);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("order.amount,user.isNew,user.historyOrderCount,user.registerMinutes,"
+                    + "ip.inBlacklist,device.loginUserCountIn10Min,user.level\n");
+            for (int i = 0; i < rows; i++) {
+                out.write(random.nextInt(600_000) / 100.0 + "," + random.nextBoolean() + ","
+                        + random.nextInt(10) + "," + random.nextInt(600) + ","
+                        + (random.nextInt(50) == 0) + "," + random.nextInt(6) + ","
+                        + LEVELS[random.nextInt(LEVELS.length)] + "\n");
+            }
+        }
+    }
+}
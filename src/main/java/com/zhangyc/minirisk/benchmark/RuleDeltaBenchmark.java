@@ -0,0 +1,150 @@
+package com.zhangyc.minirisk.benchmark;
+
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.config.ConditionDefinition;
+import com.zhangyc.minirisk.config.RuleDefinition;
+import com.zhangyc.minirisk.engine.CompiledRuleEngine;
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.SlotContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 增量更新 vs 全量 reload：生成一份大规则集（默认 5 万条、20 个场景 + 少量 COMMON 规则），
+ * 分别测全量 reload 和改 1 / 10 条规则、删一条规则、改一条 COMMON 规则的耗时，
+ * 最后把增量得到的编译结果和从头编译的结果在随机上下文上逐个对比。
+ *
+ * 运行：java -cp ... com.zhangyc.minirisk.benchmark.RuleDeltaBenchmark [ruleCount] [rounds]
+ */
+@Slf4j
+public class RuleDeltaBenchmark {
+
+    private static final String[] ACTIONS = {"REJECT", "MANUAL_REVIEW", "ALLOW"};
+    private static final int SCENES = 20;
+    private static final int COMMON_RULES = 20;
+
+    public static void main(String[] args) {
+        int ruleCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        Random random = new Random(41);
+
+        List<RuleDefinition> defs = new ArrayList<>(ruleCount);
+        for (int i = 0; i < ruleCount; i++) {
+            String scene = i < COMMON_RULES ? "COMMON" : "S" + (i % SCENES);
+            defs.add(randomRule("R" + i, scene, random));
+        }
+
+        // 全量：转换 + 编译所有场景（不含 JSON 解析，对全量是偏乐观的）
+        long fullNanos = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            RuleRegistry.reload(defs);
+            fullNanos = Math.min(fullNanos, System.nanoTime() - start);
+        }
+        log.info("full reload of {} rules: {} ms", ruleCount, fullNanos / 1_000_000);
+
+        int nextId = ruleCount;
+        long one = 0L;
+        long ten = 0L;
+        long removeOne = 0L;
+        long common = 0L;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            RuleRegistry.upsert(randomRule("R" + (COMMON_RULES + random.nextInt(ruleCount - COMMON_RULES)),
+                    "S" + random.nextInt(SCENES), random));
+            one += System.nanoTime() - start;
+
+            List<RuleDefinition> batch = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                batch.add(randomRule("R" + (nextId++), "S" + random.nextInt(SCENES), random));
+            }
+            start = System.nanoTime();
+            RuleRegistry.applyChanges(batch, Collections.emptyList());
+            ten += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            RuleRegistry.remove(batch.get(0).getId());
+            removeOne += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            RuleRegistry.upsert(randomRule("R" + random.nextInt(COMMON_RULES), "COMMON", random));
+            common += System.nanoTime() - start;
+        }
+        log.info("upsert 1 rule:        {} us/op ({}x faster than full reload)",
+                one / rounds / 1000, fullNanos / Math.max(1L, one / rounds));
+        log.info("upsert 10 new rules:  {} us/op", ten / rounds / 1000);
+        log.info("remove 1 rule:        {} us/op", removeOne / rounds / 1000);
+        log.info("upsert 1 COMMON rule: {} us/op (touches all {} scenes)", common / rounds / 1000, SCENES);
+
+        verify(random);
+        RuleRegistry.reload("rules-demo.json");
+    }
+
+    /**
+     * 增量得到的编译结果必须和从头编译的一致（最终动作和命中规则都相同）。
+     */
+    private static void verify(Random random) {
+        ContextSchema schema = ContextSchema.defaultSchema();
+        CompiledRuleEngine engine = new CompiledRuleEngine();
+        long checked = 0L;
+        for (int s = 0; s < SCENES; s++) {
+            String scene = "S" + s;
+            CompiledRuleSet incremental = RuleRegistry.getCompiledRuleSet(scene);
+            CompiledRuleSet fresh = CompiledRuleSet.compile(scene, RuleRegistry.getVersion(),
+                    RuleRegistry.getRulesForScene(scene), schema);
+            if (incremental.size() != fresh.size()
+                    || !incremental.getReferencedFields().equals(fresh.getReferencedFields())) {
+                throw new IllegalStateException("场景 " + scene + " 增量结果与全量不一致: size "
+                        + incremental.size() + " vs " + fresh.size());
+            }
+            for (int i = 0; i < 200; i++) {
+                SlotContext ctx = schema.newContext()
+                        .set("order.amount", (double) random.nextInt(5000))
+                        .set("user.registerMinutes", (long) random.nextInt(120))
+                        .set("user.isNew", random.nextBoolean())
+                        .set("device.riskScore", random.nextDouble());
+                DecisionResult a = engine.evaluate(ctx, incremental);
+                DecisionResult b = engine.evaluate(ctx, fresh);
+                if (a.getFinalAction() != b.getFinalAction() || !a.getMatchedRules().equals(b.getMatchedRules())) {
+                    throw new IllegalStateException("场景 " + scene + " 决策不一致: " + a + " vs " + b);
+                }
+                checked++;
+            }
+        }
+        log.info("verified {} decisions: incremental == full compile", checked);
+    }
+
+    private static RuleDefinition randomRule(String id, String scene, Random random) {
+        RuleDefinition def = new RuleDefinition();
+        def.setId(id);
+        def.setDescription("generated");
+        def.setScene(scene);
+        def.setPriority(1 + random.nextInt(100));
+        def.setAction(ACTIONS[random.nextInt(ACTIONS.length)]);
+        ConditionDefinition and = new ConditionDefinition();
+        and.setOp("AND");
+        and.setChildren(Arrays.asList(
+                leaf("order.amount", ">", String.valueOf(random.nextInt(5000))),
+                leaf("user.registerMinutes", "<", String.valueOf(random.nextInt(120))),
+                random.nextBoolean()
+                        ? leaf("user.isNew", "==", String.valueOf(random.nextBoolean()))
+                        : leaf("device.riskScore", ">", String.format("%.2f", random.nextDouble()))));
+        def.setCondition(and);
+        return def;
+    }
+
+    private static ConditionDefinition leaf(String field, String op, String value) {
+        ConditionDefinition c = new ConditionDefinition();
+        c.setField(field);
+        c.setOp(op);
+        c.setValue(value);
+        return c;
+    }
+}
@@ -0,0 +1,92 @@
+package com.zhangyc.minirisk.benchmark;
+
+import com.zhangyc.minirisk.config.RuleConfigLoader;
+import com.zhangyc.minirisk.engine.RuleEngine;
+import com.zhangyc.minirisk.engine.ShadowRuleEngine;
+import com.zhangyc.minirisk.engine.SimpleRuleEngine;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 影子模式对调用方延迟的影响：逐次记录 evaluate 的耗时，对比 p50 / p99 / p99.9。
+ * - plain：只有线上引擎；
+ * - shadow 5%：按 5% 采样交给后台线程；
+ * - shadow 100%：每次都采样，队列很快被打满，验证满了以后是丢弃而不是阻塞。
+ *
+ * 运行：java -cp ... com.zhangyc.minirisk.benchmark.ShadowLatencyBenchmark [iterations]
+ */
+@Slf4j
+public class ShadowLatencyBenchmark {
+
+    private static final String CANDIDATE = "rules-candidate-demo.json";
+
+    /** 防止 JIT 把结果优化掉 */
+    private static long sink;
+
+    public static void main(String[] args) throws InterruptedException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        List<Rule> rules = RuleRegistry.getRulesForScene("PAY");
+        RiskContext[] contexts = randomContexts(4096);
+
+        SimpleRuleEngine plain = new SimpleRuleEngine();
+        try (ShadowRuleEngine sampled = new ShadowRuleEngine(plain, CANDIDATE,
+                RuleConfigLoader.readDefinitionsFromClasspath(CANDIDATE), 0.05, 1024);
+             ShadowRuleEngine saturated = new ShadowRuleEngine(plain, CANDIDATE,
+                     RuleConfigLoader.readDefinitionsFromClasspath(CANDIDATE), 1.0, 1024)) {
+            // 两轮：第一轮预热，第二轮输出
+            for (int round = 0; round < 2; round++) {
+                boolean print = round == 1;
+                run(print, "plain      ", plain, rules, contexts, iterations);
+                run(print, "shadow 5%  ", sampled, rules, contexts, iterations);
+                run(print, "shadow 100%", saturated, rules, contexts, iterations);
+            }
+            sampled.awaitDrained(5_000L);
+            log.info("{}", sampled.getReport());
+            log.info("saturated: sampled={}, dropped={}",
+                    saturated.getReport().getSampled(), saturated.getReport().getDropped());
+        }
+        log.info("sink={}", sink);
+    }
+
+    private static void run(boolean print, String name, RuleEngine engine, List<Rule> rules,
+                            RiskContext[] contexts, int iterations) {
+        long[] latencies = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            RiskContext ctx = contexts[i & (contexts.length - 1)];
+            long start = System.nanoTime();
+            sink += engine.evaluate(ctx, rules).getFinalAction().ordinal();
+            latencies[i] = System.nanoTime() - start;
+        }
+        if (print) {
+            Arrays.sort(latencies);
+            log.info("{} | p50={} ns | p99={} ns | p99.9={} ns", name,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999));
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+
+    private static RiskContext[] randomContexts(int n) {
+        Random random = new Random(11);
+        RiskContext[] contexts = new RiskContext[n];
+        for (int i = 0; i < n; i++) {
+            contexts[i] = new RiskContext()
+                    .setUserId("U" + i)
+                    .setNewUser(random.nextBoolean())
+                    .setRegisterMinutes(random.nextInt(240))
+                    .setHistoryOrderCount(random.nextInt(4))
+                    .setOrderAmount(random.nextInt(500_000) / 100.0)
+                    .setIp("10.0.0." + random.nextInt(256))
+                    .setIpInBlacklist(random.nextInt(100) == 0);
+        }
+        return contexts;
+    }
+}
@@ -0,0 +1,177 @@
+package com.zhangyc.minirisk.benchmark;
+
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.compile.ConditionCompiler;
+import com.zhangyc.minirisk.compile.SlotPredicate;
+import com.zhangyc.minirisk.config.ConditionDefinition;
+import com.zhangyc.minirisk.config.RuleDefinition;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.SlotContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * containsAny 在大量特征串下的执行代价：把 signatures 个 UA 特征串平均分给 rules 条规则
+ * （每条 device.userAgent containsAny 自己的一组），对每个上下文算出所有规则是否命中，对比：
+ * - naive：每条规则逐个特征串 String.contains；
+ * - per-rule：每条规则单独编译（各自一个 Aho-Corasick 自动机，每条规则扫一遍字符串）；
+ * - shared：CompiledRuleSet 编译（同一字段共用一个自动机，每个上下文只扫一遍）。
+ * 三种方式的命中结果必须一致。
+ *
+ * 运行：java -cp ... com.zhangyc.minirisk.benchmark.StringMatchBenchmark [signatures] [rules] [iterations]
+ */
+@Slf4j
+public class StringMatchBenchmark {
+
+    private static final String FIELD = "device.userAgent";
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789/.-_";
+
+    /** 防止 JIT 把结果优化掉 */
+    private static long sink;
+
+    public static void main(String[] args) {
+        int signatures = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int ruleCount = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+        ContextSchema schema = ContextSchema.defaultSchema();
+        Random random = new Random(44);
+
+        List<List<String>> groups = new ArrayList<>();
+        List<String> all = new ArrayList<>();
+        for (int r = 0; r < ruleCount; r++) {
+            List<String> group = new ArrayList<>();
+            for (int i = r; i < signatures; i += ruleCount) {
+                String sig = "bot" + randomWord(random, 5 + random.nextInt(12));
+                group.add(sig);
+                all.add(sig);
+            }
+            groups.add(group);
+        }
+
+        List<RuleDefinition> defs = new ArrayList<>();
+        for (int r = 0; r < ruleCount; r++) {
+            defs.add(rule("UA_" + r, groups.get(r)));
+        }
+
+        long start = System.nanoTime();
+        CompiledRuleSet shared = CompiledRuleSet.compileDefinitions("UA", 1L, defs, schema);
+        long compileNanos = System.nanoTime() - start;
+        SlotPredicate[] perRule = new SlotPredicate[ruleCount];
+        for (int r = 0; r < ruleCount; r++) {
+            perRule[r] = ConditionCompiler.compileRule(defs.get(r), schema);
+        }
+        SlotPredicate[] naive = new SlotPredicate[ruleCount];
+        int index = schema.getSlot(FIELD).getIndex();
+        for (int r = 0; r < ruleCount; r++) {
+            List<String> group = groups.get(r);
+            naive[r] = ctx -> {
+                Object ua = ctx.getObject(index);
+                if (ua == null) {
+                    return false;
+                }
+                for (String sig : group) {
+                    if (((String) ua).contains(sig)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+        SlotPredicate[] sharedRules = new SlotPredicate[ruleCount];
+        for (int r = 0; r < ruleCount; r++) {
+            sharedRules[r] = shared.get(r)::test;
+        }
+
+        SlotContext[] contexts = randomContexts(schema, 1024, all, random);
+        verify(contexts, naive, perRule, sharedRules);
+
+        for (int round = 0; round < 2; round++) {
+            boolean print = round == 1;
+            // 朴素实现慢两个数量级，少跑一些
+            long naiveNs = run(contexts, naive, Math.max(1, iterations / 50));
+            long perRuleNs = run(contexts, perRule, iterations);
+            long sharedNs = run(contexts, sharedRules, iterations);
+            if (print) {
+                log.info("{} signatures in {} containsAny rules, compiled in {} ms",
+                        signatures, ruleCount, compileNanos / 1_000_000);
+                log.info("naive String.contains: {} ns/decision", naiveNs);
+                log.info("per-rule automaton:    {} ns/decision", perRuleNs);
+                log.info("shared automaton:      {} ns/decision ({}x faster than naive)",
+                        sharedNs, naiveNs / Math.max(1L, sharedNs));
+            }
+        }
+        log.info("sink={}", sink);
+    }
+
+    /** 每个上下文把所有规则都执行一遍，返回平均每个上下文的耗时 */
+    private static long run(SlotContext[] contexts, SlotPredicate[] rules, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            SlotContext ctx = contexts[i & (contexts.length - 1)];
+            for (SlotPredicate rule : rules) {
+                if (rule.test(ctx)) {
+                    sink++;
+                }
+            }
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    private static void verify(SlotContext[] contexts, SlotPredicate[] naive, SlotPredicate[] perRule,
+                               SlotPredicate[] shared) {
+        long matched = 0L;
+        for (SlotContext ctx : contexts) {
+            for (int r = 0; r < naive.length; r++) {
+                boolean expected = naive[r].test(ctx);
+                if (perRule[r].test(ctx) != expected || shared[r].test(ctx) != expected) {
+                    throw new IllegalStateException("规则 UA_" + r + " 结果不一致: " + ctx.getValue(FIELD));
+                }
+                if (expected) {
+                    matched++;
+                }
+            }
+        }
+        log.info("verified {} contexts x {} rules, {} matches", contexts.length, naive.length, matched);
+    }
+
+    /** 约 120 个字符的 UA，5% 嵌入一个特征串 */
+    private static SlotContext[] randomContexts(ContextSchema schema, int n, List<String> signatures, Random random) {
+        SlotContext[] contexts = new SlotContext[n];
+        for (int i = 0; i < n; i++) {
+            StringBuilder ua = new StringBuilder("Mozilla/5.0 (");
+            ua.append(randomWord(random, 40)).append(") ");
+            if (random.nextInt(20) == 0) {
+                ua.append(signatures.get(random.nextInt(signatures.size()))).append(' ');
+            }
+            ua.append(randomWord(random, 60));
+            contexts[i] = schema.newContext().set(FIELD, ua.toString());
+        }
+        return contexts;
+    }
+
+    private static String randomWord(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+
+    private static RuleDefinition rule(String id, List<String> patterns) {
+        ConditionDefinition c = new ConditionDefinition();
+        c.setField(FIELD);
+        c.setOp("containsAny");
+        c.setValues(patterns);
+        RuleDefinition def = new RuleDefinition();
+        def.setId(id);
+        def.setDescription("bot signatures");
+        def.setScene("UA");
+        def.setPriority(1);
+        def.setAction("REJECT");
+        def.setCondition(c);
+        return def;
+    }
+}
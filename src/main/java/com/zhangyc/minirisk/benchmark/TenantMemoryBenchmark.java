@@ -0,0 +1,178 @@
+package com.zhangyc.minirisk.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.config.ConditionDefinition;
+import com.zhangyc.minirisk.config.RuleConfigLoader;
+import com.zhangyc.minirisk.config.RuleDefinition;
+import com.zhangyc.minirisk.engine.CompiledRuleEngine;
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.SlotContext;
+import com.zhangyc.minirisk.tenant.TenantMemoryReport;
+import com.zhangyc.minirisk.tenant.TenantRuleRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * 多租户规则集的内存占用：N 个租户，每个租户都是同一模板的副本，只改了少量规则的阈值。
+ * - 不共享：每个租户各自保留 RuleDefinition、Rule 和编译好的规则集（相当于每个租户一个 RuleRegistry）；
+ * - 共享：注册到 TenantRuleRegistry（驻留字符串、条件节点、相同的规则和规则集）。
+ * 分别在 GC 后测量堆占用，并输出 TenantRuleRegistry 的内存估算报告；最后抽查两种方式的决策一致。
+ *
+ * 运行：java -cp ... com.zhangyc.minirisk.benchmark.TenantMemoryBenchmark [tenants] [rulesPerTenant] [changedRulesPerTenant]
+ */
+@Slf4j
+public class TenantMemoryBenchmark {
+
+    /** 模板序列化时会带上 isGroup 之类的派生属性，读回来时忽略 */
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final String[] SCENES = {"PAY", "LOGIN", "REGISTER", "WITHDRAW"};
+    private static final String[] ACTIONS = {"REJECT", "MANUAL_REVIEW", "ALLOW"};
+
+    public static void main(String[] args) throws IOException {
+        int tenants = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int rules = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int changed = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        byte[] template = MAPPER.writeValueAsBytes(templateRules(rules, new Random(42)));
+        ContextSchema schema = ContextSchema.defaultSchema();
+
+        // 不共享：每个租户独立解析、转换、编译
+        long before = usedHeap();
+        List<Map<String, CompiledRuleSet>> unshared = new ArrayList<>(tenants);
+        List<List<RuleDefinition>> unsharedDefs = new ArrayList<>(tenants);
+        long start = System.nanoTime();
+        for (int t = 0; t < tenants; t++) {
+            List<RuleDefinition> defs = tenantRules(template, t, changed);
+            Map<String, CompiledRuleSet> sets = new HashMap<>();
+            for (String scene : SCENES) {
+                List<RuleDefinition> sceneDefs = new ArrayList<>();
+                for (RuleDefinition def : defs) {
+                    if (scene.equals(def.getScene())) {
+                        sceneDefs.add(def);
+                    }
+                }
+                sets.put(scene, CompiledRuleSet.compileDefinitions(scene, 1L, sceneDefs, schema));
+            }
+            unshared.add(sets);
+            unsharedDefs.add(defs);
+        }
+        long unsharedMillis = (System.nanoTime() - start) / 1_000_000;
+        long unsharedBytes = usedHeap() - before;
+        log.info("unshared: {} tenants x {} rules, heap {} MB, build {} ms",
+                tenants, rules, unsharedBytes >> 20, unsharedMillis);
+
+        // 共享：注册到 TenantRuleRegistry，注册完 RuleDefinition 就可以丢掉
+        before = usedHeap();
+        TenantRuleRegistry registry = new TenantRuleRegistry(schema);
+        start = System.nanoTime();
+        for (int t = 0; t < tenants; t++) {
+            registry.register("T" + t, tenantRules(template, t, changed));
+        }
+        long sharedMillis = (System.nanoTime() - start) / 1_000_000;
+        long sharedBytes = usedHeap() - before;
+        log.info("interned: {} tenants x {} rules, heap {} MB, build {} ms",
+                tenants, rules, sharedBytes >> 20, sharedMillis);
+
+        TenantMemoryReport report = registry.memoryReport();
+        log.info("estimate: total={} MB, unshared={} MB, shared={} MB, avg exclusive per tenant={} KB, {}",
+                report.getTotalBytes() >> 20, report.getUnsharedBytes() >> 20, report.getSharedBytes() >> 20,
+                report.getTenants().stream().mapToLong(TenantMemoryReport.TenantUsage::getExclusiveBytes).sum()
+                        / tenants / 1024,
+                report.getInternerStats());
+        report.getTenants().stream().limit(3).forEach(usage -> log.info("  {}", usage));
+
+        verify(registry, unshared, tenants, schema);
+        // 保证两份数据在测量期间都活着
+        log.info("kept {} unshared ({} definition lists) + {} interned tenants",
+                unshared.size(), unsharedDefs.size(), registry.getTenantIds().size());
+    }
+
+    private static void verify(TenantRuleRegistry registry, List<Map<String, CompiledRuleSet>> unshared,
+                               int tenants, ContextSchema schema) {
+        CompiledRuleEngine engine = new CompiledRuleEngine();
+        Random random = new Random(7);
+        int checked = 0;
+        for (int i = 0; i < 2000; i++) {
+            int t = random.nextInt(tenants);
+            String scene = SCENES[random.nextInt(SCENES.length)];
+            SlotContext ctx = schema.newContext()
+                    .set("order.amount", (double) random.nextInt(5000))
+                    .set("user.registerMinutes", (long) random.nextInt(120))
+                    .set("user.isNew", random.nextBoolean());
+            DecisionResult a = engine.evaluate(ctx, registry.getCompiledRuleSet("T" + t, scene));
+            DecisionResult b = engine.evaluate(ctx, unshared.get(t).get(scene));
+            if (a.getFinalAction() != b.getFinalAction() || !ids(a).equals(ids(b))) {
+                throw new IllegalStateException("租户 T" + t + " 场景 " + scene + " 决策不一致: " + a + " vs " + b);
+            }
+            checked++;
+        }
+        log.info("verified {} decisions: interned == unshared", checked);
+    }
+
+    private static List<String> ids(DecisionResult result) {
+        List<String> ids = new ArrayList<>();
+        for (Rule rule : result.getMatchedRules()) {
+            ids.add(rule.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * 模板的一份独立副本（像各自从配置读出来一样），改掉其中 changed 条规则的金额阈值。
+     */
+    private static List<RuleDefinition> tenantRules(byte[] template, int tenant, int changed) throws IOException {
+        List<RuleDefinition> defs = MAPPER.readValue(template, new TypeReference<List<RuleDefinition>>() {});
+        Random random = new Random(tenant);
+        for (int i = 0; i < changed; i++) {
+            RuleDefinition def = defs.get(random.nextInt(defs.size()));
+            ConditionDefinition amount = RuleConfigLoader.getRootCondition(def).getChildren().get(0);
+            amount.setValue(String.valueOf(1000 + tenant * 10 + i));
+        }
+        return defs;
+    }
+
+    private static List<RuleDefinition> templateRules(int count, Random random) {
+        List<RuleDefinition> defs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            RuleDefinition def = new RuleDefinition();
+            def.setId("R_" + i);
+            def.setDescription("模板规则 " + i + "：大额订单且注册时间过短");
+            def.setScene(SCENES[i % SCENES.length]);
+            def.setPriority(1 + random.nextInt(100));
+            def.setAction(ACTIONS[random.nextInt(ACTIONS.length)]);
+            ConditionDefinition and = new ConditionDefinition();
+            and.setOp("AND");
+            and.setChildren(Arrays.asList(
+                    leaf("order.amount", ">", String.valueOf(100 * random.nextInt(50))),
+                    leaf("user.registerMinutes", "<", String.valueOf(10 * random.nextInt(12))),
+                    leaf("user.isNew", "==", String.valueOf(random.nextBoolean()))));
+            def.setCondition(and);
+            defs.add(def);
+        }
+        return defs;
+    }
+
+    private static ConditionDefinition leaf(String field, String op, String value) {
+        ConditionDefinition c = new ConditionDefinition();
+        c.setField(field);
+        c.setOp(op);
+        c.setValue(value);
+        return c;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
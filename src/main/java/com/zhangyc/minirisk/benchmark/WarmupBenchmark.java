@@ -0,0 +1,198 @@
+package com.zhangyc.minirisk.benchmark;
+
+import com.zhangyc.minirisk.config.ConditionDefinition;
+import com.zhangyc.minirisk.config.RuleDefinition;
+import com.zhangyc.minirisk.engine.CompiledRuleEngine;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import com.zhangyc.minirisk.registry.WarmupReport;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.RiskContextAdapter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 懒编译 + 预热：从加载规则开始，到决策延迟进入稳态（time-to-first-fast-decision）要多久。
+ * - 生成一份大规则集（默认 2 万条、20 个场景），模拟一个只服务其中 4 个场景的实例；
+ * - cold：加载后直接接流量，第一次用到的场景当场编译，JIT 在流量上逐步预热；
+ * - warm：加载后先对这 4 个场景调用 RuleRegistry.warmup（用另一批合成上下文），再接流量；
+ * - 逐次记录决策耗时，稳态延迟取最后 1/4 决策的中位数，
+ *   「进入稳态」指第一个中位数不超过稳态 1.5 倍的 1000 次决策窗口。
+ * 最后验证 single-flight：多个线程同时第一次取同一个场景，只编译一次。
+ *
+ * JIT 状态是进程级的，两种模式要分别在新进程里跑：
+ * java -cp ... com.zhangyc.minirisk.benchmark.WarmupBenchmark cold|warm [ruleCount] [decisions]
+ */
+@Slf4j
+public class WarmupBenchmark {
+
+    private static final String[] ACTIONS = {"REJECT", "MANUAL_REVIEW", "ALLOW"};
+    private static final int SCENES = 20;
+    private static final int COMMON_RULES = 20;
+    private static final List<String> SERVED = Arrays.asList("S0", "S1", "S2", "S3");
+    private static final int WINDOW = 1000;
+
+    private static final RiskContextAdapter ADAPTER = new RiskContextAdapter(ContextSchema.defaultSchema());
+
+    /** 防止 JIT 把结果优化掉 */
+    private static long sink;
+
+    public static void main(String[] args) throws InterruptedException {
+        boolean warm = args.length > 0 && "warm".equalsIgnoreCase(args[0]);
+        int ruleCount = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int decisions = args.length > 2 ? Integer.parseInt(args[2]) : 300_000;
+
+        Random random = new Random(43);
+        List<RuleDefinition> defs = new ArrayList<>(ruleCount);
+        for (int i = 0; i < ruleCount; i++) {
+            String scene = i < COMMON_RULES ? "COMMON" : "S" + (i % SCENES);
+            defs.add(randomRule("R" + i, scene, random));
+        }
+
+        long readyStart = System.nanoTime();
+        RuleRegistry.reload(defs);
+        long reloadNanos = System.nanoTime() - readyStart;
+        long compilationsBefore = RuleRegistry.getCompilationCount();
+        if (warm) {
+            WarmupReport report = RuleRegistry.warmup(SERVED, Arrays.asList(randomContexts(256, 7)), 10);
+            log.info("{}", report);
+        }
+        long readyNanos = System.nanoTime() - readyStart;
+
+        RiskContext[] contexts = randomContexts(4096, 11);
+        CompiledRuleEngine engine = new CompiledRuleEngine();
+        long[] latencies = new long[decisions];
+        long[] finishedAt = new long[decisions];
+        long trafficStart = System.nanoTime();
+        for (int i = 0; i < decisions; i++) {
+            RiskContext ctx = contexts[i & (contexts.length - 1)];
+            String scene = SERVED.get(i % SERVED.size());
+            long start = System.nanoTime();
+            sink += engine.evaluate(ctx, RuleRegistry.getCompiledRuleSet(scene), ADAPTER).getFinalAction().ordinal();
+            long end = System.nanoTime();
+            latencies[i] = end - start;
+            finishedAt[i] = end - trafficStart;
+        }
+        long uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+
+        long steady = median(Arrays.copyOfRange(latencies, decisions - decisions / 4, decisions));
+        int fastWindow = -1;
+        for (int from = 0; from + WINDOW <= decisions; from += WINDOW) {
+            if (median(Arrays.copyOfRange(latencies, from, from + WINDOW)) <= steady * 3 / 2) {
+                fastWindow = from;
+                break;
+            }
+        }
+        long[] first = Arrays.copyOf(latencies, Math.min(WINDOW, decisions));
+        Arrays.sort(first);
+
+        log.info("mode={}, rules={}, scenes served={}/{}", warm ? "warm" : "cold", ruleCount, SERVED.size(), SCENES);
+        log.info("reload: {} ms (no scene compiled), ready to serve after {} ms",
+                reloadNanos / 1_000_000, readyNanos / 1_000_000);
+        log.info("scenes compiled since reload: {}", RuleRegistry.getCompilationCount() - compilationsBefore);
+        log.info("first decision: {} us, first {} decisions p50={} us, p99={} us",
+                latencies[0] / 1000, first.length, first[first.length / 2] / 1000,
+                first[Math.min(first.length - 1, (int) (first.length * 0.99))] / 1000);
+        log.info("steady state p50: {} ns", steady);
+        if (fastWindow < 0) {
+            log.info("never reached steady state within {} decisions", decisions);
+        } else {
+            long afterTraffic = fastWindow == 0 ? 0L : finishedAt[fastWindow - 1];
+            log.info("first fast window at decision #{}: {} ms after traffic start, {} ms after reload start",
+                    fastWindow, afterTraffic / 1_000_000, (readyNanos + afterTraffic) / 1_000_000);
+        }
+        log.info("JVM uptime at end: {} ms, sink={}", uptimeMillis, sink);
+
+        verifySingleFlight(defs);
+        RuleRegistry.reload("rules-demo.json");
+    }
+
+    /**
+     * 新版本发布后，多个线程同时第一次取同一个场景，只应该编译一次。
+     */
+    private static void verifySingleFlight(List<RuleDefinition> defs) throws InterruptedException {
+        RuleRegistry.reload(defs);
+        int threads = 8;
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        long before = RuleRegistry.getCompilationCount();
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                RuleRegistry.getCompiledRuleSet("S5");
+            });
+            t.start();
+            workers.add(t);
+        }
+        ready.await();
+        go.countDown();
+        for (Thread t : workers) {
+            t.join();
+        }
+        long compilations = RuleRegistry.getCompilationCount() - before;
+        if (compilations != 1) {
+            throw new IllegalStateException("并发首次访问编译了 " + compilations + " 次");
+        }
+        log.info("single-flight: {} concurrent first callers, {} compilation", threads, compilations);
+    }
+
+    private static long median(long[] values) {
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+
+    private static RiskContext[] randomContexts(int n, long seed) {
+        Random random = new Random(seed);
+        RiskContext[] contexts = new RiskContext[n];
+        for (int i = 0; i < n; i++) {
+            contexts[i] = new RiskContext()
+                    .setUserId("U" + i)
+                    .setNewUser(random.nextBoolean())
+                    .setRegisterMinutes(random.nextInt(120))
+                    .setHistoryOrderCount(random.nextInt(4))
+                    .setOrderAmount(random.nextInt(500_000) / 100.0)
+                    .setIpInBlacklist(random.nextInt(100) == 0);
+        }
+        return contexts;
+    }
+
+    private static RuleDefinition randomRule(String id, String scene, Random random) {
+        RuleDefinition def = new RuleDefinition();
+        def.setId(id);
+        def.setDescription("generated");
+        def.setScene(scene);
+        def.setPriority(1 + random.nextInt(100));
+        def.setAction(ACTIONS[random.nextInt(ACTIONS.length)]);
+        ConditionDefinition and = new ConditionDefinition();
+        and.setOp("AND");
+        and.setChildren(Arrays.asList(
+                leaf("order.amount", ">", String.valueOf(random.nextInt(5000))),
+                leaf("user.registerMinutes", "<", String.valueOf(random.nextInt(120))),
+                random.nextBoolean()
+                        ? leaf("user.isNew", "==", String.valueOf(random.nextBoolean()))
+                        : leaf("user.historyOrderCount", "<", String.valueOf(random.nextInt(4)))));
+        def.setCondition(and);
+        return def;
+    }
+
+    private static ConditionDefinition leaf(String field, String op, String value) {
+        ConditionDefinition c = new ConditionDefinition();
+        c.setField(field);
+        c.setOp(op);
+        c.setValue(value);
+        return c;
+    }
+}
@@ -0,0 +1,207 @@
+package com.zhangyc.minirisk.compile;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 多模式子串匹配（Aho-Corasick 自动机），按 char 匹配、区分大小写：
+ * - 每个模式带一个输出编号（多个模式可以共用同一个编号，表示「这一组里任意一个出现」）；
+ * - scan 扫一遍字符串，把出现过的模式的编号记到位图里，耗时与字符串长度 + 命中次数成正比，与模式个数无关。
+ *
+ * 构建后不可变，可以多线程共享。边按 CSR 存放（每个节点的子节点按字符排好序，二分查找），
+ * 根节点的 ASCII 子节点另外用一张直接寻址表。
+ */
+final class AhoCorasick {
+
+    private static final int ROOT = 0;
+
+    /** 根节点 ASCII 字符 -> 子节点，没有时为 ROOT */
+    private final int[] rootAscii = new int[128];
+
+    /** 节点 i 的边在 edgeChars / edgeTargets 里的范围是 [edgeStart[i], edgeStart[i + 1]) */
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+
+    private final int[] fail;
+
+    /** 自己或最近的带输出的后缀节点，没有时为 -1 */
+    private final int[] report;
+
+    /** 节点 i 自己的输出在 outIds 里的范围是 [outStart[i], outStart[i + 1]) */
+    private final int[] outStart;
+    private final int[] outIds;
+
+    private final int outputCount;
+
+    /**
+     * @param patterns    非空模式
+     * @param ids         与 patterns 一一对应的输出编号，取值 [0, outputCount)
+     * @param outputCount 输出编号个数（位图的位数）
+     */
+    AhoCorasick(List<String> patterns, int[] ids, int outputCount) {
+        this.outputCount = outputCount;
+
+        // 1. 建 trie（构建期用 TreeMap，子节点天然按字符有序）
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<List<Integer>> outputs = new ArrayList<>();
+        children.add(new TreeMap<>());
+        outputs.add(null);
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            if (pattern.isEmpty()) {
+                throw new IllegalArgumentException("pattern must not be empty");
+            }
+            int node = ROOT;
+            for (int i = 0; i < pattern.length(); i++) {
+                Integer next = children.get(node).get(pattern.charAt(i));
+                if (next == null) {
+                    next = children.size();
+                    children.add(new TreeMap<>());
+                    outputs.add(null);
+                    children.get(node).put(pattern.charAt(i), next);
+                }
+                node = next;
+            }
+            List<Integer> out = outputs.get(node);
+            if (out == null) {
+                out = new ArrayList<>(1);
+                outputs.set(node, out);
+            }
+            if (!out.contains(ids[p])) {
+                out.add(ids[p]);
+            }
+        }
+
+        // 2. 冻结成 CSR
+        int nodes = children.size();
+        this.edgeStart = new int[nodes + 1];
+        this.edgeChars = new char[nodes - 1];
+        this.edgeTargets = new int[nodes - 1];
+        this.outStart = new int[nodes + 1];
+        int edges = 0;
+        int outs = 0;
+        for (int i = 0; i < nodes; i++) {
+            edgeStart[i] = edges;
+            for (Map.Entry<Character, Integer> e : children.get(i).entrySet()) {
+                edgeChars[edges] = e.getKey();
+                edgeTargets[edges++] = e.getValue();
+            }
+            outStart[i] = outs;
+            outs += outputs.get(i) == null ? 0 : outputs.get(i).size();
+        }
+        edgeStart[nodes] = edges;
+        outStart[nodes] = outs;
+        this.outIds = new int[outs];
+        for (int i = 0; i < nodes; i++) {
+            List<Integer> out = outputs.get(i);
+            for (int k = 0; out != null && k < out.size(); k++) {
+                outIds[outStart[i] + k] = out.get(k);
+            }
+        }
+        Arrays.fill(rootAscii, ROOT);
+        for (int e = edgeStart[ROOT]; e < edgeStart[ROOT + 1]; e++) {
+            if (edgeChars[e] < 128) {
+                rootAscii[edgeChars[e]] = edgeTargets[e];
+            }
+        }
+
+        // 3. 按层序计算失败指针和输出链
+        this.fail = new int[nodes];
+        this.report = new int[nodes];
+        report[ROOT] = -1;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int e = edgeStart[ROOT]; e < edgeStart[ROOT + 1]; e++) {
+            int child = edgeTargets[e];
+            fail[child] = ROOT;
+            report[child] = hasOutput(child) ? child : -1;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+                int child = edgeTargets[e];
+                fail[child] = next(fail[node], edgeChars[e]);
+                report[child] = hasOutput(child) ? child : report[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    int getOutputCount() {
+        return outputCount;
+    }
+
+    /**
+     * 扫描 text，把出现过的模式的输出编号记到 hits（调用方负责清零，长度至少 (outputCount + 63) / 64）。
+     */
+    void scan(String text, long[] hits) {
+        int node = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            node = next(node, text.charAt(i));
+            for (int n = report[node]; n >= 0; n = report[fail[n]]) {
+                for (int k = outStart[n]; k < outStart[n + 1]; k++) {
+                    int id = outIds[k];
+                    hits[id >>> 6] |= 1L << id;
+                }
+            }
+        }
+    }
+
+    /**
+     * text 里是否出现了任意一个模式（找到第一个就返回）。
+     */
+    boolean containsAny(String text) {
+        int node = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            node = next(node, text.charAt(i));
+            if (report[node] >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasOutput(int node) {
+        return outStart[node] < outStart[node + 1];
+    }
+
+    /** 自动机的状态转移：沿失败指针回退直到有 c 的边，根节点上没有时停在根节点 */
+    private int next(int node, char c) {
+        while (true) {
+            int child = child(node, c);
+            if (child >= 0) {
+                return child;
+            }
+            if (node == ROOT) {
+                return ROOT;
+            }
+            node = fail[node];
+        }
+    }
+
+    private int child(int node, char c) {
+        if (node == ROOT && c < 128) {
+            int child = rootAscii[c];
+            return child == ROOT ? -1 : child;
+        }
+        int lo = edgeStart[node];
+        int hi = edgeStart[node + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char m = edgeChars[mid];
+            if (m < c) {
+                lo = mid + 1;
+            } else if (m > c) {
+                hi = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,432 @@
+package com.zhangyc.minirisk.compile;
+
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.FieldType;
+import com.zhangyc.minirisk.schema.SlotContext;
+import com.zhangyc.minirisk.support.RiskFieldAccessor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 把算术比较（ArithmeticExpr.Comparison）编译成谓词：
+ * - 每个子表达式按类型编译成 ToLongFunction / ToDoubleFunction，返回原始类型，执行时不装箱、不分配对象；
+ * - 操作数是常量时直接内联到 lambda 里（x + 1 编译成一次读取 + 一次加法，而不是两次调用）；
+ * - 两边都是 long 时按 long 比较，否则按 double 比较（== / != 按 Double.compare，与 compareValue 一致，
+ *   > >= < <= 遇到 NaN 不成立）；
+ * - 只能引用 LONG / DOUBLE 字段，引用布尔 / 字符串字段时编译期抛 IllegalArgumentException。
+ *
+ * 基于 SlotContext 的谓词直接读槽位；基于 RiskContext 的谓词通过 RiskFieldAccessor 反射取值，
+ * 与普通叶子条件一样有装箱（字段为 null 时按 0 计算，与 RiskContextAdapter 填充的槽位一致）。
+ */
+public final class ArithmeticCompiler {
+
+    /** RiskContext 上字段的类型 */
+    private static final ContextSchema RISK_SCHEMA = ContextSchema.defaultSchema();
+
+    /** 解释执行用：比较文本 -> 编译好的比较 */
+    private static final Map<String, RiskComparison> RISK_CACHE = new ConcurrentHashMap<>();
+
+    private ArithmeticCompiler() {
+    }
+
+    /**
+     * 编译成基于槽位的谓词：left op right，两边是规范化的算术表达式文本（见 ArithmeticExpr.toString）。
+     */
+    public static SlotPredicate compile(String left, String op, String right, ContextSchema schema) {
+        Function<String, FieldType> types = path -> schema.getSlot(path).getType();
+        Operand<SlotContext> l = operand(ArithmeticExpr.parse(left).fold(), types, SLOT_READER_FOR.apply(schema));
+        Operand<SlotContext> r = operand(ArithmeticExpr.parse(right).fold(), types, SLOT_READER_FOR.apply(schema));
+        if (l.isLong && r.isLong) {
+            return compareLongs(l, op, r)::test;
+        }
+        return compareDoubles(l, op, r)::test;
+    }
+
+    /**
+     * 编译成基于 RiskContext 的谓词（字段类型按默认 schema）。
+     */
+    public static Predicate<RiskContext> compilePredicate(String left, String op, String right) {
+        Function<String, FieldType> types = path -> RISK_SCHEMA.getSlot(path).getType();
+        Operand<RiskContext> l = operand(ArithmeticExpr.parse(left).fold(), types, RISK_READER);
+        Operand<RiskContext> r = operand(ArithmeticExpr.parse(right).fold(), types, RISK_READER);
+        if (l.isLong && r.isLong) {
+            return compareLongs(l, op, r);
+        }
+        return compareDoubles(l, op, r);
+    }
+
+    /**
+     * 解释执行用：按 RiskContext 编译一个比较（例如 "order.amount / (user.historyOrderCount + 1) > 800"），按文本缓存。
+     */
+    public static RiskComparison forRiskContext(String comparison) {
+        return RISK_CACHE.computeIfAbsent(comparison, text -> new RiskComparison(ArithmeticExpr.parseComparison(text).fold()));
+    }
+
+    /**
+     * 两个常量的比较结果，语义与编译后的谓词一致（用于化简时折叠两边都是常量的比较）。
+     */
+    public static boolean compareConstants(ArithmeticExpr left, String op, ArithmeticExpr right) {
+        if (left.isIntegral() && right.isIntegral()) {
+            return compare(Long.compare(left.getLongValue(), right.getLongValue()), op);
+        }
+        return compare(left.getDoubleValue(), op, right.getDoubleValue());
+    }
+
+    private static boolean compare(int cmp, String op) {
+        switch (op) {
+            case ">":
+                return cmp > 0;
+            case ">=":
+                return cmp >= 0;
+            case "<":
+                return cmp < 0;
+            case "<=":
+                return cmp <= 0;
+            case "==":
+                return cmp == 0;
+            default:
+                return cmp != 0;
+        }
+    }
+
+    private static boolean compare(double a, String op, double b) {
+        switch (op) {
+            case ">":
+                return a > b;
+            case ">=":
+                return a >= b;
+            case "<":
+                return a < b;
+            case "<=":
+                return a <= b;
+            case "==":
+                return Double.compare(a, b) == 0;
+            default:
+                return Double.compare(a, b) != 0;
+        }
+    }
+
+    // ======== 比较 ========
+
+    private static <C> Predicate<C> compareLongs(Operand<C> l, String op, Operand<C> r) {
+        ToLongFunction<C> a = l.asLong;
+        if (r.constant) {
+            long k = r.longValue;
+            switch (op) {
+                case ">":
+                    return ctx -> a.applyAsLong(ctx) > k;
+                case ">=":
+                    return ctx -> a.applyAsLong(ctx) >= k;
+                case "<":
+                    return ctx -> a.applyAsLong(ctx) < k;
+                case "<=":
+                    return ctx -> a.applyAsLong(ctx) <= k;
+                case "==":
+                    return ctx -> a.applyAsLong(ctx) == k;
+                default:
+                    return ctx -> a.applyAsLong(ctx) != k;
+            }
+        }
+        ToLongFunction<C> b = r.asLong;
+        switch (op) {
+            case ">":
+                return ctx -> a.applyAsLong(ctx) > b.applyAsLong(ctx);
+            case ">=":
+                return ctx -> a.applyAsLong(ctx) >= b.applyAsLong(ctx);
+            case "<":
+                return ctx -> a.applyAsLong(ctx) < b.applyAsLong(ctx);
+            case "<=":
+                return ctx -> a.applyAsLong(ctx) <= b.applyAsLong(ctx);
+            case "==":
+                return ctx -> a.applyAsLong(ctx) == b.applyAsLong(ctx);
+            default:
+                return ctx -> a.applyAsLong(ctx) != b.applyAsLong(ctx);
+        }
+    }
+
+    private static <C> Predicate<C> compareDoubles(Operand<C> l, String op, Operand<C> r) {
+        ToDoubleFunction<C> a = l.asDouble;
+        if (r.constant) {
+            double k = r.doubleValue;
+            switch (op) {
+                case ">":
+                    return ctx -> a.applyAsDouble(ctx) > k;
+                case ">=":
+                    return ctx -> a.applyAsDouble(ctx) >= k;
+                case "<":
+                    return ctx -> a.applyAsDouble(ctx) < k;
+                case "<=":
+                    return ctx -> a.applyAsDouble(ctx) <= k;
+                case "==":
+                    return ctx -> Double.compare(a.applyAsDouble(ctx), k) == 0;
+                default:
+                    return ctx -> Double.compare(a.applyAsDouble(ctx), k) != 0;
+            }
+        }
+        ToDoubleFunction<C> b = r.asDouble;
+        switch (op) {
+            case ">":
+                return ctx -> a.applyAsDouble(ctx) > b.applyAsDouble(ctx);
+            case ">=":
+                return ctx -> a.applyAsDouble(ctx) >= b.applyAsDouble(ctx);
+            case "<":
+                return ctx -> a.applyAsDouble(ctx) < b.applyAsDouble(ctx);
+            case "<=":
+                return ctx -> a.applyAsDouble(ctx) <= b.applyAsDouble(ctx);
+            case "==":
+                return ctx -> Double.compare(a.applyAsDouble(ctx), b.applyAsDouble(ctx)) == 0;
+            default:
+                return ctx -> Double.compare(a.applyAsDouble(ctx), b.applyAsDouble(ctx)) != 0;
+        }
+    }
+
+    // ======== 算术 ========
+
+    private static <C> Operand<C> operand(ArithmeticExpr expr, Function<String, FieldType> types, Reader<C> reader) {
+        switch (expr.getKind()) {
+            case CONST:
+                return expr.isIntegral()
+                        ? Operand.ofLong(expr.getLongValue())
+                        : Operand.ofDouble(expr.getDoubleValue());
+            case FIELD: {
+                String path = expr.getField();
+                FieldType type = types.apply(path);
+                if (type == FieldType.LONG) {
+                    return Operand.longs(reader.longField(path));
+                }
+                if (type == FieldType.DOUBLE) {
+                    return Operand.doubles(reader.doubleField(path));
+                }
+                throw new IllegalArgumentException("算术表达式只能引用数值字段: " + path + " 的类型是 " + type);
+            }
+            case NEG: {
+                Operand<C> x = operand(expr.getLeft(), types, reader);
+                if (x.isLong) {
+                    ToLongFunction<C> a = x.asLong;
+                    return Operand.longs(ctx -> -a.applyAsLong(ctx));
+                }
+                ToDoubleFunction<C> a = x.asDouble;
+                return Operand.doubles(ctx -> -a.applyAsDouble(ctx));
+            }
+            default:
+                break;
+        }
+        ArithmeticExpr.Kind kind = expr.getKind();
+        Operand<C> l = operand(expr.getLeft(), types, reader);
+        Operand<C> r = operand(expr.getRight(), types, reader);
+        if (l.isLong && r.isLong && kind != ArithmeticExpr.Kind.DIV && kind != ArithmeticExpr.Kind.MOD) {
+            return Operand.longs(longOp(kind, l, r));
+        }
+        return Operand.doubles(doubleOp(kind, l, r));
+    }
+
+    private static <C> ToLongFunction<C> longOp(ArithmeticExpr.Kind kind, Operand<C> l, Operand<C> r) {
+        ToLongFunction<C> a = l.asLong;
+        if (r.constant) {
+            long k = r.longValue;
+            switch (kind) {
+                case ADD:
+                    return ctx -> a.applyAsLong(ctx) + k;
+                case SUB:
+                    return ctx -> a.applyAsLong(ctx) - k;
+                default:
+                    return ctx -> a.applyAsLong(ctx) * k;
+            }
+        }
+        ToLongFunction<C> b = r.asLong;
+        if (l.constant) {
+            long k = l.longValue;
+            switch (kind) {
+                case ADD:
+                    return ctx -> k + b.applyAsLong(ctx);
+                case SUB:
+                    return ctx -> k - b.applyAsLong(ctx);
+                default:
+                    return ctx -> k * b.applyAsLong(ctx);
+            }
+        }
+        switch (kind) {
+            case ADD:
+                return ctx -> a.applyAsLong(ctx) + b.applyAsLong(ctx);
+            case SUB:
+                return ctx -> a.applyAsLong(ctx) - b.applyAsLong(ctx);
+            default:
+                return ctx -> a.applyAsLong(ctx) * b.applyAsLong(ctx);
+        }
+    }
+
+    private static <C> ToDoubleFunction<C> doubleOp(ArithmeticExpr.Kind kind, Operand<C> l, Operand<C> r) {
+        ToDoubleFunction<C> a = l.asDouble;
+        if (r.constant) {
+            double k = r.doubleValue;
+            switch (kind) {
+                case ADD:
+                    return ctx -> a.applyAsDouble(ctx) + k;
+                case SUB:
+                    return ctx -> a.applyAsDouble(ctx) - k;
+                case MUL:
+                    return ctx -> a.applyAsDouble(ctx) * k;
+                case DIV:
+                    return ctx -> a.applyAsDouble(ctx) / k;
+                default:
+                    return ctx -> a.applyAsDouble(ctx) % k;
+            }
+        }
+        ToDoubleFunction<C> b = r.asDouble;
+        if (l.constant) {
+            double k = l.doubleValue;
+            switch (kind) {
+                case ADD:
+                    return ctx -> k + b.applyAsDouble(ctx);
+                case SUB:
+                    return ctx -> k - b.applyAsDouble(ctx);
+                case MUL:
+                    return ctx -> k * b.applyAsDouble(ctx);
+                case DIV:
+                    return ctx -> k / b.applyAsDouble(ctx);
+                default:
+                    return ctx -> k % b.applyAsDouble(ctx);
+            }
+        }
+        switch (kind) {
+            case ADD:
+                return ctx -> a.applyAsDouble(ctx) + b.applyAsDouble(ctx);
+            case SUB:
+                return ctx -> a.applyAsDouble(ctx) - b.applyAsDouble(ctx);
+            case MUL:
+                return ctx -> a.applyAsDouble(ctx) * b.applyAsDouble(ctx);
+            case DIV:
+                return ctx -> a.applyAsDouble(ctx) / b.applyAsDouble(ctx);
+            default:
+                return ctx -> a.applyAsDouble(ctx) % b.applyAsDouble(ctx);
+        }
+    }
+
+    /**
+     * 编译好的子表达式：long 类型时 asLong 非空，asDouble 总是非空；常量另外记下取值，供外层内联。
+     */
+    private static final class Operand<C> {
+
+        private final boolean isLong;
+        private final ToLongFunction<C> asLong;
+        private final ToDoubleFunction<C> asDouble;
+        private final boolean constant;
+        private final long longValue;
+        private final double doubleValue;
+
+        private Operand(boolean isLong, ToLongFunction<C> asLong, ToDoubleFunction<C> asDouble,
+                        boolean constant, long longValue, double doubleValue) {
+            this.isLong = isLong;
+            this.asLong = asLong;
+            this.asDouble = asDouble;
+            this.constant = constant;
+            this.longValue = longValue;
+            this.doubleValue = doubleValue;
+        }
+
+        private static <C> Operand<C> longs(ToLongFunction<C> f) {
+            return new Operand<>(true, f, ctx -> f.applyAsLong(ctx), false, 0L, 0.0);
+        }
+
+        private static <C> Operand<C> doubles(ToDoubleFunction<C> f) {
+            return new Operand<>(false, null, f, false, 0L, 0.0);
+        }
+
+        private static <C> Operand<C> ofLong(long v) {
+            return new Operand<>(true, ctx -> v, ctx -> v, true, v, v);
+        }
+
+        private static <C> Operand<C> ofDouble(double v) {
+            return new Operand<>(false, null, ctx -> v, true, 0L, v);
+        }
+    }
+
+    /**
+     * 按字段路径生成读取函数。
+     */
+    private interface Reader<C> {
+
+        ToLongFunction<C> longField(String path);
+
+        ToDoubleFunction<C> doubleField(String path);
+    }
+
+    private static final Function<ContextSchema, Reader<SlotContext>> SLOT_READER_FOR = schema -> new Reader<SlotContext>() {
+        @Override
+        public ToLongFunction<SlotContext> longField(String path) {
+            int index = schema.getSlot(path).getIndex();
+            return ctx -> ctx.getLong(index);
+        }
+
+        @Override
+        public ToDoubleFunction<SlotContext> doubleField(String path) {
+            int index = schema.getSlot(path).getIndex();
+            return ctx -> ctx.getDouble(index);
+        }
+    };
+
+    private static final Reader<RiskContext> RISK_READER = new Reader<RiskContext>() {
+        @Override
+        public ToLongFunction<RiskContext> longField(String path) {
+            return ctx -> {
+                Object v = RiskFieldAccessor.getFieldValue(ctx, path);
+                return v == null ? 0L : ((Number) v).longValue();
+            };
+        }
+
+        @Override
+        public ToDoubleFunction<RiskContext> doubleField(String path) {
+            return ctx -> {
+                Object v = RiskFieldAccessor.getFieldValue(ctx, path);
+                return v == null ? 0.0 : ((Number) v).doubleValue();
+            };
+        }
+    };
+
+    /**
+     * 按 RiskContext 编译好的比较，解释执行时除了结果还要给出左边的实际值。
+     */
+    public static final class RiskComparison {
+
+        private final ArithmeticExpr.Comparison comparison;
+        private final Operand<RiskContext> left;
+        private final Predicate<RiskContext> predicate;
+
+        private RiskComparison(ArithmeticExpr.Comparison comparison) {
+            Function<String, FieldType> types = path -> RISK_SCHEMA.getSlot(path).getType();
+            this.comparison = comparison;
+            this.left = operand(comparison.getLeft(), types, RISK_READER);
+            this.predicate = compilePredicate(comparison.getLeft().toString(), comparison.getOp(),
+                    comparison.getRight().toString());
+        }
+
+        /** 规范化（常量折叠后）的左边表达式 */
+        public String getLeftText() {
+            return comparison.getLeft().toString();
+        }
+
+        public String getOp() {
+            return comparison.getOp();
+        }
+
+        /** 规范化（常量折叠后）的右边表达式 */
+        public String getRightText() {
+            return comparison.getRight().toString();
+        }
+
+        public boolean test(RiskContext ctx) {
+            return predicate.test(ctx);
+        }
+
+        /** 左边表达式在 ctx 上的取值（long 或 double） */
+        public String leftValue(RiskContext ctx) {
+            return left.isLong ? String.valueOf(left.asLong.applyAsLong(ctx)) : String.valueOf(left.asDouble.applyAsDouble(ctx));
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package com.zhangyc.minirisk.compile;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 条件里的跨字段算术表达式（编译期使用），例如 order.amount / (user.historyOrderCount + 1)：
+ * - 数字常量（整数常量是 long，带小数点或指数的是 double）、字段路径、一元负号、+ - * / %、括号；
+ * - 整数之间的 + - * 结果是 long，/ 和 % 的结果总是 double（除数为 0 时得到 Infinity / NaN，不抛异常）；
+ * - 常量子表达式在 fold 里折叠，折叠语义与执行时完全一致。
+ *
+ * 不可变。toString 是规范文本（嵌套的二元运算都加括号），重新 parse 得到同一棵树，用作 ConditionExpr 里的存储形式。
+ */
+public final class ArithmeticExpr {
+
+    public enum Kind {
+        CONST, FIELD, NEG, ADD, SUB, MUL, DIV, MOD
+    }
+
+    private final Kind kind;
+    /** CONST：是否是整数常量（long），否则是 double */
+    private final boolean integral;
+    private final long longValue;
+    private final double doubleValue;
+    /** FIELD：字段路径 */
+    private final String field;
+    private final ArithmeticExpr left;
+    private final ArithmeticExpr right;
+
+    private ArithmeticExpr(Kind kind, boolean integral, long longValue, double doubleValue, String field,
+                           ArithmeticExpr left, ArithmeticExpr right) {
+        this.kind = kind;
+        this.integral = integral;
+        this.longValue = longValue;
+        this.doubleValue = doubleValue;
+        this.field = field;
+        this.left = left;
+        this.right = right;
+    }
+
+    public static ArithmeticExpr ofLong(long value) {
+        return new ArithmeticExpr(Kind.CONST, true, value, value, null, null, null);
+    }
+
+    public static ArithmeticExpr ofDouble(double value) {
+        return new ArithmeticExpr(Kind.CONST, false, 0L, value, null, null, null);
+    }
+
+    public static ArithmeticExpr field(String path) {
+        return new ArithmeticExpr(Kind.FIELD, false, 0L, 0.0, path, null, null);
+    }
+
+    public static ArithmeticExpr neg(ArithmeticExpr operand) {
+        return new ArithmeticExpr(Kind.NEG, false, 0L, 0.0, null, operand, null);
+    }
+
+    public static ArithmeticExpr binary(Kind kind, ArithmeticExpr left, ArithmeticExpr right) {
+        return new ArithmeticExpr(kind, false, 0L, 0.0, null, left, right);
+    }
+
+    /**
+     * 解析一个算术表达式，语法错误时抛 IllegalArgumentException。
+     */
+    public static ArithmeticExpr parse(String text) {
+        Parser parser = new Parser(text);
+        ArithmeticExpr expr = parser.expression();
+        parser.expectEnd();
+        return expr;
+    }
+
+    /**
+     * 解析一个比较：左边 op 右边，op 为 > >= < <= == != 之一（恰好一个）。
+     */
+    public static Comparison parseComparison(String text) {
+        Parser parser = new Parser(text);
+        ArithmeticExpr left = parser.expression();
+        String op = parser.comparisonOp();
+        ArithmeticExpr right = parser.expression();
+        parser.expectEnd();
+        return new Comparison(left, op, right);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public boolean isIntegral() {
+        return integral;
+    }
+
+    public long getLongValue() {
+        return longValue;
+    }
+
+    public double getDoubleValue() {
+        return doubleValue;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public ArithmeticExpr getLeft() {
+        return left;
+    }
+
+    public ArithmeticExpr getRight() {
+        return right;
+    }
+
+    public boolean isConstant() {
+        return kind == Kind.CONST;
+    }
+
+    /**
+     * 常量折叠：所有操作数都是常量的子表达式算成一个常量，x * 1、x - 0 这类不改变结果（包括类型和 -0.0）的单位元也去掉。
+     */
+    public ArithmeticExpr fold() {
+        switch (kind) {
+            case CONST:
+            case FIELD:
+                return this;
+            case NEG: {
+                ArithmeticExpr operand = left.fold();
+                if (operand.kind == Kind.CONST) {
+                    return operand.integral ? ofLong(-operand.longValue) : ofDouble(-operand.doubleValue);
+                }
+                return operand.kind == Kind.NEG ? operand.left : neg(operand);
+            }
+            default:
+                break;
+        }
+        ArithmeticExpr l = left.fold();
+        ArithmeticExpr r = right.fold();
+        if (l.kind == Kind.CONST && r.kind == Kind.CONST) {
+            return foldConstants(kind, l, r);
+        }
+        // 整数单位元：去掉后结果不变（x + 0 不去掉：double 的 -0.0 + 0 是 0.0）
+        if (r.isLong(0) && kind == Kind.SUB) {
+            return l;
+        }
+        if (r.isLong(1) && kind == Kind.MUL) {
+            return l;
+        }
+        if (l.isLong(1) && kind == Kind.MUL) {
+            return r;
+        }
+        return binary(kind, l, r);
+    }
+
+    private boolean isLong(long v) {
+        return kind == Kind.CONST && integral && longValue == v;
+    }
+
+    private static ArithmeticExpr foldConstants(Kind kind, ArithmeticExpr l, ArithmeticExpr r) {
+        if (l.integral && r.integral && kind != Kind.DIV && kind != Kind.MOD) {
+            switch (kind) {
+                case ADD:
+                    return ofLong(l.longValue + r.longValue);
+                case SUB:
+                    return ofLong(l.longValue - r.longValue);
+                default:
+                    return ofLong(l.longValue * r.longValue);
+            }
+        }
+        double a = l.doubleValue;
+        double b = r.doubleValue;
+        switch (kind) {
+            case ADD:
+                return ofDouble(a + b);
+            case SUB:
+                return ofDouble(a - b);
+            case MUL:
+                return ofDouble(a * b);
+            case DIV:
+                return ofDouble(a / b);
+            default:
+                return ofDouble(a % b);
+        }
+    }
+
+    /**
+     * 引用到的字段路径，按出现顺序去重。
+     */
+    public List<String> fields() {
+        Set<String> fields = new LinkedHashSet<>();
+        collectFields(fields);
+        return new ArrayList<>(fields);
+    }
+
+    private void collectFields(Set<String> fields) {
+        if (kind == Kind.FIELD) {
+            fields.add(field);
+            return;
+        }
+        if (left != null) {
+            left.collectFields(fields);
+        }
+        if (right != null) {
+            right.collectFields(fields);
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case CONST:
+                if (integral) {
+                    return String.valueOf(longValue);
+                }
+                if (Double.isNaN(doubleValue)) {
+                    return "(0.0 / 0.0)";
+                }
+                if (Double.isInfinite(doubleValue)) {
+                    return doubleValue > 0 ? "(1.0 / 0.0)" : "(-1.0 / 0.0)";
+                }
+                return String.valueOf(doubleValue);
+            case FIELD:
+                return field;
+            case NEG:
+                return "-" + operandText(left);
+            default:
+                return operandText(left) + " " + symbol(kind) + " " + operandText(right);
+        }
+    }
+
+    private static String operandText(ArithmeticExpr operand) {
+        String text = operand.toString();
+        boolean simple = operand.kind == Kind.FIELD || operand.kind == Kind.NEG
+                || (operand.kind == Kind.CONST && !text.startsWith("-"));
+        return simple ? text : "(" + text + ")";
+    }
+
+    private static String symbol(Kind kind) {
+        switch (kind) {
+            case ADD:
+                return "+";
+            case SUB:
+                return "-";
+            case MUL:
+                return "*";
+            case DIV:
+                return "/";
+            default:
+                return "%";
+        }
+    }
+
+    /**
+     * 一个比较：left op right。
+     */
+    public static final class Comparison {
+
+        private final ArithmeticExpr left;
+        private final String op;
+        private final ArithmeticExpr right;
+
+        public Comparison(ArithmeticExpr left, String op, ArithmeticExpr right) {
+            this.left = left;
+            this.op = op;
+            this.right = right;
+        }
+
+        public ArithmeticExpr getLeft() {
+            return left;
+        }
+
+        public String getOp() {
+            return op;
+        }
+
+        public ArithmeticExpr getRight() {
+            return right;
+        }
+
+        public Comparison fold() {
+            return new Comparison(left.fold(), op, right.fold());
+        }
+
+        /** 两边引用到的字段路径，按出现顺序去重 */
+        public List<String> fields() {
+            Set<String> fields = new LinkedHashSet<>(left.fields());
+            fields.addAll(right.fields());
+            return new ArrayList<>(fields);
+        }
+
+        @Override
+        public String toString() {
+            return left + " " + op + " " + right;
+        }
+    }
+
+    /**
+     * 递归下降解析：
+     * expression := term (('+' | '-') term)*
+     * term       := unary (('*' | '/' | '%') unary)*
+     * unary      := '-' unary | primary
+     * primary    := number | path | '(' expression ')'
+     */
+    private static final class Parser {
+
+        private final String text;
+        private int pos;
+
+        private Parser(String text) {
+            if (text == null || text.trim().isEmpty()) {
+                throw new IllegalArgumentException("算术表达式不能为空");
+            }
+            this.text = text;
+        }
+
+        private ArithmeticExpr expression() {
+            ArithmeticExpr expr = term();
+            while (true) {
+                if (accept('+')) {
+                    expr = binary(Kind.ADD, expr, term());
+                } else if (accept('-')) {
+                    expr = binary(Kind.SUB, expr, term());
+                } else {
+                    return expr;
+                }
+            }
+        }
+
+        private ArithmeticExpr term() {
+            ArithmeticExpr expr = unary();
+            while (true) {
+                if (accept('*')) {
+                    expr = binary(Kind.MUL, expr, unary());
+                } else if (accept('/')) {
+                    expr = binary(Kind.DIV, expr, unary());
+                } else if (accept('%')) {
+                    expr = binary(Kind.MOD, expr, unary());
+                } else {
+                    return expr;
+                }
+            }
+        }
+
+        private ArithmeticExpr unary() {
+            if (accept('-')) {
+                return neg(unary());
+            }
+            return primary();
+        }
+
+        private ArithmeticExpr primary() {
+            skipSpaces();
+            if (pos >= text.length()) {
+                throw error("表达式不完整");
+            }
+            char c = text.charAt(pos);
+            if (c == '(') {
+                pos++;
+                ArithmeticExpr expr = expression();
+                if (!accept(')')) {
+                    throw error("缺少 )");
+                }
+                return expr;
+            }
+            if (Character.isDigit(c) || c == '.') {
+                return number();
+            }
+            if (Character.isLetter(c) || c == '_') {
+                int start = pos;
+                while (pos < text.length()
+                        && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_' || text.charAt(pos) == '.')) {
+                    pos++;
+                }
+                return field(text.substring(start, pos));
+            }
+            throw error("无法识别的字符 '" + c + "'");
+        }
+
+        private ArithmeticExpr number() {
+            int start = pos;
+            boolean integral = true;
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+            if (pos < text.length() && text.charAt(pos) == '.') {
+                integral = false;
+                pos++;
+                while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                    pos++;
+                }
+            }
+            if (pos < text.length() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+                integral = false;
+                pos++;
+                if (pos < text.length() && (text.charAt(pos) == '+' || text.charAt(pos) == '-')) {
+                    pos++;
+                }
+                while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                    pos++;
+                }
+            }
+            String literal = text.substring(start, pos);
+            try {
+                if (integral) {
+                    return ofLong(Long.parseLong(literal));
+                }
+                return ofDouble(Double.parseDouble(literal));
+            } catch (NumberFormatException e) {
+                throw error("非法数字 " + literal);
+            }
+        }
+
+        private String comparisonOp() {
+            skipSpaces();
+            for (String op : new String[]{">=", "<=", "==", "!=", ">", "<"}) {
+                if (text.startsWith(op, pos)) {
+                    pos += op.length();
+                    return op;
+                }
+            }
+            throw error("缺少比较操作符（> >= < <= == !=）");
+        }
+
+        private boolean accept(char c) {
+            skipSpaces();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expectEnd() {
+            skipSpaces();
+            if (pos < text.length()) {
+                throw error("多余的内容 '" + text.substring(pos) + "'");
+            }
+        }
+
+        private void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("算术表达式语法错误（位置 " + pos + "）: " + message + ", 表达式: " + text);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.zhangyc.minirisk.compile;
+
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.schema.SlotContext;
+
+import java.util.List;
+
+/**
+ * 编译后的规则：原始 Rule + 化简后的条件表达式 + 基于槽位的条件 + 在规则集中的稠密下标。
+ */
+public final class CompiledRule {
+
+    /** 在所属 CompiledRuleSet 中的下标（按优先级从高到低编号） */
+    private final int index;
+
+    private final Rule rule;
+
+    /** 化简后的条件表达式（按列执行等其他执行方式从这里重新编译） */
+    private final ConditionExpr condition;
+
+    private final SlotPredicate predicate;
+
+    /** 条件里引用到的字段路径（按配置的条件树，化简之前），增量更新时维护规则集的字段引用计数 */
+    private final List<String> fields;
+
+    /** 分阶段执行时所属的阶段名，没有配置时为 null */
+    private final String stage;
+
+    CompiledRule(int index, Rule rule, ConditionExpr condition, SlotPredicate predicate, List<String> fields,
+                 String stage) {
+        this.index = index;
+        this.rule = rule;
+        this.condition = condition;
+        this.predicate = predicate;
+        this.fields = fields;
+        this.stage = stage;
+    }
+
+    /**
+     * 同一条已编译规则换一个下标，条件和谓词直接复用。
+     */
+    CompiledRule withIndex(int newIndex) {
+        return newIndex == index ? this : new CompiledRule(newIndex, rule, condition, predicate, fields, stage);
+    }
+
+    public boolean test(SlotContext ctx) {
+        return predicate.test(ctx);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Rule getRule() {
+        return rule;
+    }
+
+    public ConditionExpr getCondition() {
+        return condition;
+    }
+
+    public SlotPredicate getPredicate() {
+        return predicate;
+    }
+
+    /** 条件里引用到的字段路径 */
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledRule{" +
+                "index=" + index +
+                ", rule=" + rule.getId() +
+                '}';
+    }
+}
@@ -0,0 +1,289 @@
+package com.zhangyc.minirisk.compile;
+
+import com.zhangyc.minirisk.config.ConditionDefinition;
+import com.zhangyc.minirisk.config.RuleConfigLoader;
+import com.zhangyc.minirisk.config.RuleDefinition;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.schema.ContextSchema;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 某个场景下编译好的规则集：
+ * - 规则按优先级从高到低排好序，并按这个顺序分配稠密下标 0..n-1；
+ * - 每条规则的条件都已编译成 SlotPredicate；
+ * - 记录编译时使用的 schema 和规则集版本号；
+ * - 同一字段上的 contains / containsAny 条件共用规则集自己的 StringMatchIndex（增量更新的规则也注册到这里）。
+ *
+ * 不可变，可以在多线程间共享。
+ */
+public final class CompiledRuleSet {
+
+    private final String scene;
+    private final long version;
+    private final ContextSchema schema;
+    private final CompiledRule[] rules;
+
+    /** 与 rules 同序的 Rule 列表，给命中位图按下标取规则 */
+    private final List<Rule> rulesInPriorityOrder;
+
+    /** 这批规则引用到的全部字段路径 */
+    private final Set<String> referencedFields;
+
+    /** 字段路径 -> 引用它的规则条数，增量更新时按变化的规则加减 */
+    private final Map<String, Integer> fieldRefCounts;
+
+    private final StringMatchIndex matchIndex;
+
+    private CompiledRuleSet(String scene,
+                            long version,
+                            ContextSchema schema,
+                            CompiledRule[] rules,
+                            Map<String, Integer> fieldRefCounts,
+                            StringMatchIndex matchIndex) {
+        this.scene = scene;
+        this.version = version;
+        this.schema = schema;
+        this.rules = rules;
+        this.fieldRefCounts = fieldRefCounts;
+        this.matchIndex = matchIndex;
+        this.referencedFields = Collections.unmodifiableSet(new LinkedHashSet<>(fieldRefCounts.keySet()));
+        List<Rule> ordered = new ArrayList<>(rules.length);
+        for (CompiledRule rule : rules) {
+            ordered.add(rule.getRule());
+        }
+        this.rulesInPriorityOrder = Collections.unmodifiableList(ordered);
+    }
+
+    /**
+     * 只换版本号，其余结构全部共享。
+     */
+    private CompiledRuleSet(CompiledRuleSet base, long version) {
+        this.scene = base.scene;
+        this.version = version;
+        this.schema = base.schema;
+        this.rules = base.rules;
+        this.fieldRefCounts = base.fieldRefCounts;
+        this.referencedFields = base.referencedFields;
+        this.rulesInPriorityOrder = base.rulesInPriorityOrder;
+        this.matchIndex = base.matchIndex;
+    }
+
+    /**
+     * 编译一组规则。规则必须是由 RuleConfigLoader 从配置加载的（需要 RuleDefinition 才能编译）。
+     */
+    public static CompiledRuleSet compile(String scene, long version, List<Rule> rules, ContextSchema schema) {
+        return compile(scene, version, rules, RuleConfigLoader::getRuleDefinitionById, schema);
+    }
+
+    /**
+     * 编译一组规则，规则定义按 id 从 definitions 里取（例如 RuleRegistry 用每个版本自己的定义，
+     * 不受全局定义缓存后来的修改影响）。
+     */
+    public static CompiledRuleSet compile(String scene, long version, List<Rule> rules,
+                                          Function<String, RuleDefinition> definitions, ContextSchema schema) {
+        Objects.requireNonNull(rules, "rules must not be null");
+        Objects.requireNonNull(definitions, "definitions must not be null");
+        List<RuleDefinition> defs = new ArrayList<>(rules.size());
+        for (Rule rule : rules) {
+            defs.add(definitionOf(rule, definitions));
+        }
+        return compile(scene, version, rules, defs, schema);
+    }
+
+    /**
+     * 直接从规则定义编译，不依赖 RuleConfigLoader 的全局定义缓存
+     * （例如离线回放时同时加载两份规则 id 相同的规则文件）。调用方负责按场景筛选。
+     */
+    public static CompiledRuleSet compileDefinitions(String scene, long version,
+                                                     List<RuleDefinition> defs, ContextSchema schema) {
+        Objects.requireNonNull(defs, "defs must not be null");
+        List<Rule> rules = new ArrayList<>(defs.size());
+        for (RuleDefinition def : defs) {
+            rules.add(RuleConfigLoader.convertToRule(def));
+        }
+        return compile(scene, version, rules, defs, schema);
+    }
+
+    /**
+     * rules 与 defs 一一对应。
+     */
+    private static CompiledRuleSet compile(String scene, long version, List<Rule> rules,
+                                           List<RuleDefinition> defs, ContextSchema schema) {
+        Objects.requireNonNull(schema, "schema must not be null");
+
+        Integer[] order = new Integer[rules.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> rules.get(i).getPriority()).reversed());
+
+        CompiledRule[] compiled = new CompiledRule[order.length];
+        Map<String, Integer> fieldRefCounts = new LinkedHashMap<>();
+        StringMatchIndex matchIndex = new StringMatchIndex();
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = compileRule(i, rules.get(order[i]), defs.get(order[i]), schema, matchIndex);
+            addFieldRefs(fieldRefCounts, compiled[i], 1);
+        }
+        return new CompiledRuleSet(scene, version, schema, compiled, fieldRefCounts, matchIndex);
+    }
+
+    /**
+     * 在当前规则集上应用一批增量，生成新版本（当前对象不变）：
+     * - removedIds 里的规则删除；
+     * - upserts 里的规则重新编译：同 id 且优先级不变的原地替换，其余按优先级插入（同优先级排在已有规则之后）；
+     * - 其他规则直接复用已编译的条件和谓词，只重新分配下标，字段引用计数只按变化的规则加减。
+     *
+     * upserts 的规则必须已经有配置定义（RuleConfigLoader.getRuleDefinitionById），
+     * 同一个 id 不能同时出现在 upserts 和 removedIds 里。
+     */
+    public CompiledRuleSet withChanges(long version, List<Rule> upserts, Set<String> removedIds) {
+        return withChanges(version, upserts, removedIds, RuleConfigLoader::getRuleDefinitionById);
+    }
+
+    /**
+     * 同上，upserts 的规则定义按 id 从 definitions 里取。
+     */
+    public CompiledRuleSet withChanges(long version, List<Rule> upserts, Set<String> removedIds,
+                                       Function<String, RuleDefinition> definitions) {
+        Objects.requireNonNull(upserts, "upserts must not be null");
+        Objects.requireNonNull(removedIds, "removedIds must not be null");
+        Objects.requireNonNull(definitions, "definitions must not be null");
+
+        Map<String, CompiledRule> changed = new LinkedHashMap<>();
+        for (Rule rule : upserts) {
+            changed.put(rule.getId(), compileRule(-1, rule, definitionOf(rule, definitions), schema, matchIndex));
+        }
+
+        Map<String, Integer> refs = new LinkedHashMap<>(fieldRefCounts);
+        List<CompiledRule> kept = new ArrayList<>(rules.length + changed.size());
+        for (CompiledRule old : rules) {
+            String id = old.getRule().getId();
+            CompiledRule replacement = changed.get(id);
+            if (replacement == null && !removedIds.contains(id)) {
+                kept.add(old);
+                continue;
+            }
+            addFieldRefs(refs, old, -1);
+            if (replacement != null && replacement.getRule().getPriority() == old.getRule().getPriority()) {
+                kept.add(replacement);
+                addFieldRefs(refs, replacement, 1);
+                changed.remove(id);
+            }
+        }
+
+        // 剩下的是新增规则和改了优先级的规则，按优先级插入
+        List<CompiledRule> inserted = new ArrayList<>(changed.values());
+        inserted.sort(Comparator.comparingInt((CompiledRule r) -> r.getRule().getPriority()).reversed());
+        CompiledRule[] merged = new CompiledRule[kept.size() + inserted.size()];
+        int k = 0;
+        int n = 0;
+        for (int i = 0; i < merged.length; i++) {
+            CompiledRule next;
+            if (n == inserted.size()
+                    || (k < kept.size() && kept.get(k).getRule().getPriority() >= inserted.get(n).getRule().getPriority())) {
+                next = kept.get(k++);
+            } else {
+                next = inserted.get(n++);
+                addFieldRefs(refs, next, 1);
+            }
+            merged[i] = next.withIndex(i);
+        }
+        return new CompiledRuleSet(scene, version, schema, merged, refs, matchIndex);
+    }
+
+    /**
+     * 用已经编好下标（按优先级从高到低）的规则组装规则集，给 RuleInterner 用。
+     */
+    static CompiledRuleSet assemble(String scene, long version, ContextSchema schema, CompiledRule[] prioritized,
+                                    StringMatchIndex matchIndex) {
+        Map<String, Integer> fieldRefCounts = new LinkedHashMap<>();
+        for (CompiledRule rule : prioritized) {
+            addFieldRefs(fieldRefCounts, rule, 1);
+        }
+        return new CompiledRuleSet(scene, version, schema, prioritized, fieldRefCounts, matchIndex);
+    }
+
+    /**
+     * 规则没变、只有版本号变了的规则集（例如其他场景的规则有增量），结构全部共享。
+     */
+    public CompiledRuleSet withVersion(long version) {
+        return version == this.version ? this : new CompiledRuleSet(this, version);
+    }
+
+    private static RuleDefinition definitionOf(Rule rule, Function<String, RuleDefinition> definitions) {
+        RuleDefinition def = definitions.apply(rule.getId());
+        if (def == null) {
+            throw new IllegalArgumentException("规则没有配置定义，无法编译: " + rule.getId());
+        }
+        return def;
+    }
+
+    private static CompiledRule compileRule(int index, Rule rule, RuleDefinition def, ContextSchema schema,
+                                            StringMatchIndex matchIndex) {
+        ConditionExpr condition = ConditionCompiler.optimizedExpr(def);
+        List<String> fields = new ArrayList<>();
+        ConditionDefinition root = RuleConfigLoader.getRootCondition(def);
+        if (root != null) {
+            for (ConditionDefinition c : RuleConfigLoader.collectLeafConditions(root)) {
+                for (String field : RuleConfigLoader.referencedFields(c)) {
+                    if (!fields.contains(field)) {
+                        fields.add(field);
+                    }
+                }
+            }
+        }
+        return new CompiledRule(index, rule, condition,
+                ConditionCompiler.compileExpr(condition, schema, null, matchIndex), fields, def.getStage());
+    }
+
+    private static void addFieldRefs(Map<String, Integer> refs, CompiledRule rule, int delta) {
+        for (String field : rule.getFields()) {
+            refs.merge(field, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    public String getScene() {
+        return scene;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public ContextSchema getSchema() {
+        return schema;
+    }
+
+    public int size() {
+        return rules.length;
+    }
+
+    /**
+     * 第 index 条规则（按优先级从高到低）。
+     */
+    public CompiledRule get(int index) {
+        return rules[index];
+    }
+
+    /**
+     * 全部规则，按优先级从高到低，下标与 CompiledRule#getIndex 一致。
+     */
+    public List<Rule> getRulesInPriorityOrder() {
+        return rulesInPriorityOrder;
+    }
+
+    public Set<String> getReferencedFields() {
+        return referencedFields;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledRuleSet{" +
+                "scene='" + scene + '\'' +
+                ", version=" + version +
+                ", rules=" + Arrays.toString(rules) +
+                '}';
+    }
+}
@@ -0,0 +1,377 @@
+package com.zhangyc.minirisk.compile;
+
+import com.zhangyc.minirisk.config.ConditionDefinition;
+import com.zhangyc.minirisk.config.RuleConfigLoader;
+import com.zhangyc.minirisk.config.RuleDefinition;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.FieldSlot;
+import com.zhangyc.minirisk.schema.FieldType;
+import com.zhangyc.minirisk.support.RiskFieldAccessor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 把配置层的条件（经 ExpressionOptimizer 化简后）编译成可执行的谓词：
+ * - 字段路径在编译期翻译成槽位下标；
+ * - 期望值在编译期解析成 long / double / boolean，执行时不再 parse；
+ * - 比较语义与 RuleConfigLoader.compareValue 保持一致；
+ * - 字符串操作符（StringOps）的正则 / 模式列表在编译期编译好，传入 StringMatchIndex 时
+ *   同一字段上的 contains / containsAny 共用一个自动机；
+ * - 算术比较（ARITH）交给 ArithmeticCompiler，编译成不装箱的 long / double 求值树；
+ * - 也可以编译成基于 RiskContext 的 Predicate，供 RuleConfigLoader 生成 Rule 使用。
+ */
+public final class ConditionCompiler {
+
+    private ConditionCompiler() {
+    }
+
+    /**
+     * 编译一条规则定义的条件（嵌套条件树，或 conditions + logicalOp），先化简再编译。
+     */
+    public static SlotPredicate compileRule(RuleDefinition def, ContextSchema schema) {
+        return compileExpr(optimizedExpr(def), schema);
+    }
+
+    /**
+     * 规则定义化简后的条件表达式；没配置条件时为 FALSE（与 RuleConfigLoader 保持一致：永远不命中）。
+     */
+    public static ConditionExpr optimizedExpr(RuleDefinition def) {
+        ConditionDefinition root = RuleConfigLoader.getRootCondition(def);
+        if (root == null) {
+            return ConditionExpr.FALSE;
+        }
+        return ExpressionOptimizer.optimize(ExpressionOptimizer.fromDefinition(root));
+    }
+
+    /**
+     * 把化简后的表达式编译成基于槽位的短路求值器：AND / OR 展开成数组顺序执行，遇到确定结果立即返回。
+     */
+    public static SlotPredicate compileExpr(ConditionExpr expr, ContextSchema schema) {
+        return compileExpr(expr, schema, null);
+    }
+
+    /**
+     * 同 compileExpr(expr, schema)，cache 不为 null 时按表达式结构复用已编译的节点：
+     * 结构相同的子表达式（包括整条规则的条件）只编译一次，共享同一个谓词对象。
+     * cache 只能用于同一个 schema，调用方负责同步。
+     */
+    public static SlotPredicate compileExpr(ConditionExpr expr, ContextSchema schema,
+                                            Map<ConditionExpr, SlotPredicate> cache) {
+        return compileExpr(expr, schema, cache, null);
+    }
+
+    /**
+     * 同 compileExpr(expr, schema, cache)，matchIndex 不为 null 时 contains / containsAny 条件注册到这个索引，
+     * 与同一索引上编译的其他条件共用自动机。
+     */
+    public static SlotPredicate compileExpr(ConditionExpr expr, ContextSchema schema,
+                                            Map<ConditionExpr, SlotPredicate> cache, StringMatchIndex matchIndex) {
+        if (cache == null) {
+            return compileNode(expr, schema, null, matchIndex);
+        }
+        SlotPredicate compiled = cache.get(expr);
+        if (compiled == null) {
+            compiled = compileNode(expr, schema, cache, matchIndex);
+            cache.put(expr, compiled);
+        }
+        return compiled;
+    }
+
+    private static SlotPredicate compileNode(ConditionExpr expr, ContextSchema schema,
+                                             Map<ConditionExpr, SlotPredicate> cache, StringMatchIndex matchIndex) {
+        switch (expr.getKind()) {
+            case TRUE:
+                return SlotPredicate.ALWAYS_TRUE;
+            case FALSE:
+                return SlotPredicate.ALWAYS_FALSE;
+            case LEAF:
+                return compileCondition(expr.getField(), expr.getOp(), expr.getValue(), schema, matchIndex);
+            case ARITH:
+                return ArithmeticCompiler.compile(expr.getField(), expr.getOp(), expr.getValue(), schema);
+            case NOT: {
+                SlotPredicate child = compileExpr(expr.getChildren().get(0), schema, cache, matchIndex);
+                return ctx -> !child.test(ctx);
+            }
+            default:
+                break;
+        }
+
+        List<ConditionExpr> children = expr.getChildren();
+        SlotPredicate[] parts = new SlotPredicate[children.size()];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = compileExpr(children.get(i), schema, cache, matchIndex);
+        }
+        boolean isAnd = expr.getKind() == ConditionExpr.Kind.AND;
+        if (parts.length == 2) {
+            SlotPredicate a = parts[0];
+            SlotPredicate b = parts[1];
+            return isAnd ? ctx -> a.test(ctx) && b.test(ctx) : ctx -> a.test(ctx) || b.test(ctx);
+        }
+        if (isAnd) {
+            return ctx -> {
+                for (SlotPredicate p : parts) {
+                    if (!p.test(ctx)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        }
+        return ctx -> {
+            for (SlotPredicate p : parts) {
+                if (p.test(ctx)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    /**
+     * 把化简后的表达式编译成基于 RiskContext 的谓词（字段通过 RiskFieldAccessor 读取）。
+     */
+    public static Predicate<RiskContext> compilePredicate(ConditionExpr expr) {
+        return compilePredicate(expr, null);
+    }
+
+    /**
+     * 同 compilePredicate(expr)，cache 不为 null 时按表达式结构复用已编译的节点，调用方负责同步。
+     */
+    public static Predicate<RiskContext> compilePredicate(ConditionExpr expr,
+                                                          Map<ConditionExpr, Predicate<RiskContext>> cache) {
+        return compilePredicate(expr, cache, null);
+    }
+
+    /**
+     * 同 compilePredicate(expr, cache)，matchIndex 不为 null 时 contains / containsAny 条件共用这个索引里的自动机。
+     */
+    public static Predicate<RiskContext> compilePredicate(ConditionExpr expr,
+                                                          Map<ConditionExpr, Predicate<RiskContext>> cache,
+                                                          StringMatchIndex matchIndex) {
+        if (cache == null) {
+            return compilePredicateNode(expr, null, matchIndex);
+        }
+        Predicate<RiskContext> compiled = cache.get(expr);
+        if (compiled == null) {
+            compiled = compilePredicateNode(expr, cache, matchIndex);
+            cache.put(expr, compiled);
+        }
+        return compiled;
+    }
+
+    private static Predicate<RiskContext> compilePredicateNode(ConditionExpr expr,
+                                                               Map<ConditionExpr, Predicate<RiskContext>> cache,
+                                                               StringMatchIndex matchIndex) {
+        switch (expr.getKind()) {
+            case TRUE:
+                return ctx -> true;
+            case FALSE:
+                return ctx -> false;
+            case LEAF: {
+                String field = expr.getField();
+                String op = expr.getOp();
+                String value = expr.getValue();
+                if (StringOps.isStringOp(op)) {
+                    Predicate<String> matcher = stringMatcher(field, op, value, matchIndex);
+                    return ctx -> {
+                        Object actual = RiskFieldAccessor.getFieldValue(ctx, field);
+                        return actual != null && !(actual instanceof Number) && !(actual instanceof Boolean)
+                                && matcher.test(actual.toString());
+                    };
+                }
+                return ctx -> RuleConfigLoader.compareValue(RiskFieldAccessor.getFieldValue(ctx, field), op, value);
+            }
+            case ARITH:
+                return ArithmeticCompiler.compilePredicate(expr.getField(), expr.getOp(), expr.getValue());
+            case NOT:
+                return compilePredicate(expr.getChildren().get(0), cache, matchIndex).negate();
+            default:
+                break;
+        }
+
+        List<ConditionExpr> children = expr.getChildren();
+        List<Predicate<RiskContext>> compiled = new ArrayList<>(children.size());
+        for (ConditionExpr child : children) {
+            compiled.add(compilePredicate(child, cache, matchIndex));
+        }
+        List<Predicate<RiskContext>> parts = List.copyOf(compiled);
+        int n = parts.size();
+        if (expr.getKind() == ConditionExpr.Kind.AND) {
+            return ctx -> {
+                for (int i = 0; i < n; i++) {
+                    if (!parts.get(i).test(ctx)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        }
+        return ctx -> {
+            for (int i = 0; i < n; i++) {
+                if (parts.get(i).test(ctx)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    /**
+     * 编译单个条件。
+     */
+    public static SlotPredicate compileCondition(ConditionDefinition c, ContextSchema schema) {
+        if (c.getExpr() != null) {
+            return compileExpr(ExpressionOptimizer.optimize(ExpressionOptimizer.fromDefinition(c)), schema);
+        }
+        return compileCondition(c.getField(), c.getOp(), c.expectedValue(), schema);
+    }
+
+    /**
+     * 编译单个字段比较：field op expected。
+     */
+    public static SlotPredicate compileCondition(String field, String op, String expected, ContextSchema schema) {
+        return compileCondition(field, op, expected, schema, null);
+    }
+
+    /**
+     * 同 compileCondition(field, op, expected, schema)，contains / containsAny 注册到 matchIndex（可以为 null）。
+     */
+    public static SlotPredicate compileCondition(String field, String op, String expected, ContextSchema schema,
+                                                 StringMatchIndex matchIndex) {
+        FieldSlot slot = schema.getSlot(field);
+        int index = slot.getIndex();
+
+        if (StringOps.isStringOp(op)) {
+            // 字符串操作符在数值 / 布尔字段上永远不命中（期望值也不按数字解析）
+            if (slot.getType() != FieldType.STRING) {
+                return SlotPredicate.ALWAYS_FALSE;
+            }
+            Predicate<String> matcher = stringMatcher(field, op, expected, matchIndex);
+            return ctx -> {
+                Object actual = ctx.getObject(index);
+                return actual != null && matcher.test(actual.toString());
+            };
+        }
+
+        switch (slot.getType()) {
+            case LONG:
+                return compileLong(index, op, expected);
+            case DOUBLE:
+                return compileDouble(index, op, Double.parseDouble(expected));
+            case BOOLEAN:
+                return compileBoolean(index, op, Boolean.parseBoolean(expected));
+            default:
+                return compileString(index, op, expected);
+        }
+    }
+
+    /**
+     * 字符串操作符的匹配器：有索引时 contains / containsAny 注册到索引，其余（以及没有索引时）单独编译。
+     */
+    private static Predicate<String> stringMatcher(String field, String op, String expected,
+                                                   StringMatchIndex matchIndex) {
+        if (matchIndex != null && expected != null) {
+            if (StringOps.CONTAINS.equals(op)) {
+                return matchIndex.register(field, Collections.singletonList(expected));
+            }
+            if (StringOps.CONTAINS_ANY.equals(op)) {
+                return matchIndex.register(field, StringOps.splitPatterns(expected));
+            }
+        }
+        return StringOps.matcher(op, expected);
+    }
+
+    private static SlotPredicate compileLong(int index, String op, String expectedStr) {
+        double expectedD = Double.parseDouble(expectedStr);
+        long expected = (long) expectedD;
+        if (expected != expectedD) {
+            // 期望值带小数：按 double 比较，语义与 compareValue 一致
+            return compileLongAsDouble(index, op, expectedD);
+        }
+        switch (op) {
+            case ">":
+                return ctx -> ctx.getLong(index) > expected;
+            case ">=":
+                return ctx -> ctx.getLong(index) >= expected;
+            case "<":
+                return ctx -> ctx.getLong(index) < expected;
+            case "<=":
+                return ctx -> ctx.getLong(index) <= expected;
+            case "==":
+                return ctx -> ctx.getLong(index) == expected;
+            case "!=":
+                return ctx -> ctx.getLong(index) != expected;
+            default:
+                return SlotPredicate.ALWAYS_FALSE;
+        }
+    }
+
+    private static SlotPredicate compileLongAsDouble(int index, String op, double expected) {
+        switch (op) {
+            case ">":
+                return ctx -> ctx.getLong(index) > expected;
+            case ">=":
+                return ctx -> ctx.getLong(index) >= expected;
+            case "<":
+                return ctx -> ctx.getLong(index) < expected;
+            case "<=":
+                return ctx -> ctx.getLong(index) <= expected;
+            case "!=":
+                return SlotPredicate.ALWAYS_TRUE;
+            default:
+                return SlotPredicate.ALWAYS_FALSE;
+        }
+    }
+
+    private static SlotPredicate compileDouble(int index, String op, double expected) {
+        switch (op) {
+            case ">":
+                return ctx -> ctx.getDouble(index) > expected;
+            case ">=":
+                return ctx -> ctx.getDouble(index) >= expected;
+            case "<":
+                return ctx -> ctx.getDouble(index) < expected;
+            case "<=":
+                return ctx -> ctx.getDouble(index) <= expected;
+            case "==":
+                return ctx -> Double.compare(ctx.getDouble(index), expected) == 0;
+            case "!=":
+                return ctx -> Double.compare(ctx.getDouble(index), expected) != 0;
+            default:
+                return SlotPredicate.ALWAYS_FALSE;
+        }
+    }
+
+    private static SlotPredicate compileBoolean(int index, String op, boolean expected) {
+        switch (op) {
+            case "==":
+                return expected ? ctx -> ctx.getBoolean(index) : ctx -> !ctx.getBoolean(index);
+            case "!=":
+                return expected ? ctx -> !ctx.getBoolean(index) : ctx -> ctx.getBoolean(index);
+            default:
+                return SlotPredicate.ALWAYS_FALSE;
+        }
+    }
+
+    private static SlotPredicate compileString(int index, String op, String expected) {
+        switch (op) {
+            case "==":
+                return ctx -> {
+                    Object actual = ctx.getObject(index);
+                    return actual != null && actual.equals(expected);
+                };
+            case "!=":
+                return ctx -> {
+                    Object actual = ctx.getObject(index);
+                    return actual != null && !actual.equals(expected);
+                };
+            default:
+                return SlotPredicate.ALWAYS_FALSE;
+        }
+    }
+}
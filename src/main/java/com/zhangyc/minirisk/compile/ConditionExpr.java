@@ -0,0 +1,141 @@
+package com.zhangyc.minirisk.compile;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 条件表达式的中间表示（编译期使用）：
+ * - TRUE / FALSE：常量；
+ * - LEAF：单个字段比较 field op value；
+ * - ARITH：算术比较 left op right，field / value 存两边规范化的算术表达式文本（见 ArithmeticExpr）；
+ * - AND / OR：n 元组合（已展开嵌套的同类节点）；
+ * - NOT：一元取反。
+ *
+ * 不可变，equals / hashCode 按结构比较，用于去重和共享相同的子表达式。
+ */
+public final class ConditionExpr {
+
+    public enum Kind {
+        TRUE, FALSE, LEAF, ARITH, AND, OR, NOT
+    }
+
+    public static final ConditionExpr TRUE = new ConditionExpr(Kind.TRUE, null, null, null, Collections.emptyList());
+
+    public static final ConditionExpr FALSE = new ConditionExpr(Kind.FALSE, null, null, null, Collections.emptyList());
+
+    private final Kind kind;
+    private final String field;
+    private final String op;
+    private final String value;
+    private final List<ConditionExpr> children;
+    private final int hash;
+
+    private ConditionExpr(Kind kind, String field, String op, String value, List<ConditionExpr> children) {
+        this.kind = kind;
+        this.field = field;
+        this.op = op;
+        this.value = value;
+        this.children = children;
+        this.hash = Objects.hash(kind, field, op, value, children);
+    }
+
+    public static ConditionExpr leaf(String field, String op, String value) {
+        return new ConditionExpr(Kind.LEAF, field, op, value, Collections.emptyList());
+    }
+
+    public static ConditionExpr arith(String left, String op, String right) {
+        return new ConditionExpr(Kind.ARITH, left, op, right, Collections.emptyList());
+    }
+
+    public static ConditionExpr and(List<ConditionExpr> children) {
+        return new ConditionExpr(Kind.AND, null, null, null, Collections.unmodifiableList(children));
+    }
+
+    public static ConditionExpr or(List<ConditionExpr> children) {
+        return new ConditionExpr(Kind.OR, null, null, null, Collections.unmodifiableList(children));
+    }
+
+    public static ConditionExpr not(ConditionExpr child) {
+        return new ConditionExpr(Kind.NOT, null, null, null, Collections.singletonList(child));
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public String getOp() {
+        return op;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public List<ConditionExpr> getChildren() {
+        return children;
+    }
+
+    public boolean isConstant() {
+        return kind == Kind.TRUE || kind == Kind.FALSE;
+    }
+
+    /**
+     * 表达式中叶子条件的个数，用作执行代价的粗略估计。
+     */
+    public int leafCount() {
+        if (kind == Kind.LEAF || kind == Kind.ARITH) {
+            return 1;
+        }
+        int count = 0;
+        for (ConditionExpr child : children) {
+            count += child.leafCount();
+        }
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ConditionExpr)) return false;
+        ConditionExpr that = (ConditionExpr) o;
+        return hash == that.hash &&
+                kind == that.kind &&
+                Objects.equals(field, that.field) &&
+                Objects.equals(op, that.op) &&
+                Objects.equals(value, that.value) &&
+                children.equals(that.children);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case TRUE:
+            case FALSE:
+                return kind.name();
+            case LEAF:
+            case ARITH:
+                return field + " " + op + " " + value;
+            case NOT:
+                return "NOT(" + children.get(0) + ")";
+            default:
+                StringBuilder sb = new StringBuilder("(");
+                for (int i = 0; i < children.size(); i++) {
+                    if (i > 0) {
+                        sb.append(' ').append(kind.name()).append(' ');
+                    }
+                    sb.append(children.get(i));
+                }
+                return sb.append(')').toString();
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.zhangyc.minirisk.compile;
+
+import com.zhangyc.minirisk.config.ConditionDefinition;
+
+import java.util.*;
+
+/**
+ * 条件表达式的构建与化简：
+ * - 把配置中的嵌套条件树（AND / OR / NOT）转换成 ConditionExpr；
+ * - 算术比较两边做常量折叠，两边都是常量时整个比较折叠成 TRUE / FALSE；
+ * - 常量折叠：AND 中的 FALSE、OR 中的 TRUE 直接决定结果，NOT(NOT x) = x；
+ * - 展开嵌套的同类节点：(a AND (b AND c)) -> (a AND b AND c)；
+ * - 去掉重复分支，识别 x AND NOT x / x OR NOT x；
+ * - 同一字段的数值区间合并：x > 5 AND x > 10 -> x > 10，x > 1000 AND x < 500 -> FALSE；
+ * - 子节点按代价排序，便宜的叶子条件先执行，短路更早发生（正则、子串匹配比普通比较贵）。
+ *
+ * 化简只做与 RuleConfigLoader.compareValue 语义严格等价的变换
+ * （例如区间比较对非数值的实际值总是 false，所以合并区间是安全的）。
+ */
+public final class ExpressionOptimizer {
+
+    /** compareValue 支持的操作符，其他操作符永远不命中 */
+    private static final Set<String> KNOWN_OPS = new HashSet<>(Arrays.asList(">", ">=", "<", "<=", "==", "!=",
+            StringOps.STARTS_WITH, StringOps.CONTAINS, StringOps.REGEX, StringOps.CONTAINS_ANY));
+
+    private ExpressionOptimizer() {
+    }
+
+    /**
+     * 把配置中的条件（单个条件或条件组）转换成表达式，不做化简。
+     */
+    public static ConditionExpr fromDefinition(ConditionDefinition c) {
+        Objects.requireNonNull(c, "condition must not be null");
+        if (!c.isGroup()) {
+            if (c.getExpr() != null) {
+                ArithmeticExpr.Comparison comparison = ArithmeticExpr.parseComparison(c.getExpr());
+                return ConditionExpr.arith(comparison.getLeft().toString(), comparison.getOp(),
+                        comparison.getRight().toString());
+            }
+            if (c.getField() == null) {
+                throw new IllegalArgumentException("条件缺少 field: op=" + c.getOp());
+            }
+            return ConditionExpr.leaf(c.getField(), c.getOp(), c.expectedValue());
+        }
+
+        String op = c.getOp() == null ? "" : c.getOp().toUpperCase(Locale.ROOT);
+        List<ConditionExpr> children = new ArrayList<>();
+        for (ConditionDefinition child : c.getChildren()) {
+            children.add(fromDefinition(child));
+        }
+        switch (op) {
+            case "AND":
+                return ConditionExpr.and(children);
+            case "OR":
+                return ConditionExpr.or(children);
+            case "NOT":
+                if (children.size() != 1) {
+                    throw new IllegalArgumentException("NOT 条件组必须恰好有一个子条件，实际: " + children.size());
+                }
+                return ConditionExpr.not(children.get(0));
+            default:
+                throw new IllegalArgumentException("未知逻辑操作符: " + c.getOp());
+        }
+    }
+
+    /**
+     * 化简表达式。
+     */
+    public static ConditionExpr optimize(ConditionExpr expr) {
+        switch (expr.getKind()) {
+            case TRUE:
+            case FALSE:
+                return expr;
+            case LEAF:
+                return KNOWN_OPS.contains(expr.getOp()) ? expr : ConditionExpr.FALSE;
+            case ARITH:
+                return optimizeArith(expr);
+            case NOT:
+                return optimizeNot(optimize(expr.getChildren().get(0)));
+            default:
+                return optimizeGroup(expr.getKind(), expr.getChildren());
+        }
+    }
+
+    private static ConditionExpr optimizeArith(ConditionExpr expr) {
+        ArithmeticExpr left = ArithmeticExpr.parse(expr.getField()).fold();
+        ArithmeticExpr right = ArithmeticExpr.parse(expr.getValue()).fold();
+        if (left.isConstant() && right.isConstant()) {
+            return ArithmeticCompiler.compareConstants(left, expr.getOp(), right) ? ConditionExpr.TRUE : ConditionExpr.FALSE;
+        }
+        return ConditionExpr.arith(left.toString(), expr.getOp(), right.toString());
+    }
+
+    private static ConditionExpr optimizeNot(ConditionExpr child) {
+        switch (child.getKind()) {
+            case TRUE:
+                return ConditionExpr.FALSE;
+            case FALSE:
+                return ConditionExpr.TRUE;
+            case NOT:
+                return child.getChildren().get(0);
+            default:
+                return ConditionExpr.not(child);
+        }
+    }
+
+    private static ConditionExpr optimizeGroup(ConditionExpr.Kind kind, List<ConditionExpr> rawChildren) {
+        boolean isAnd = kind == ConditionExpr.Kind.AND;
+        ConditionExpr identity = isAnd ? ConditionExpr.TRUE : ConditionExpr.FALSE;
+        ConditionExpr absorbing = isAnd ? ConditionExpr.FALSE : ConditionExpr.TRUE;
+
+        // 1. 化简子节点、展开同类嵌套、常量折叠、去重
+        Set<ConditionExpr> children = new LinkedHashSet<>();
+        for (ConditionExpr raw : rawChildren) {
+            ConditionExpr child = optimize(raw);
+            if (child.equals(absorbing)) {
+                return absorbing;
+            }
+            if (child.equals(identity)) {
+                continue;
+            }
+            if (child.getKind() == kind) {
+                children.addAll(child.getChildren());
+            } else {
+                children.add(child);
+            }
+        }
+
+        // 2. x AND NOT x -> FALSE；x OR NOT x -> TRUE
+        for (ConditionExpr child : children) {
+            if (child.getKind() == ConditionExpr.Kind.NOT && children.contains(child.getChildren().get(0))) {
+                return absorbing;
+            }
+        }
+
+        // 3. 同字段数值区间合并
+        List<ConditionExpr> merged = isAnd ? mergeRangesForAnd(children) : mergeRangesForOr(children);
+        if (merged == null) {
+            return absorbing;
+        }
+
+        if (merged.isEmpty()) {
+            return identity;
+        }
+        if (merged.size() == 1) {
+            return merged.get(0);
+        }
+
+        // 4. 便宜的子节点先执行（稳定排序，代价相同则保持配置顺序）
+        merged.sort(Comparator.comparingInt(ExpressionOptimizer::cost));
+        return isAnd ? ConditionExpr.and(merged) : ConditionExpr.or(merged);
+    }
+
+    /**
+     * 执行代价的粗略估计：普通比较算 1，算术比较和子串匹配算 2，正则算 4。
+     */
+    private static int cost(ConditionExpr expr) {
+        if (expr.getKind() == ConditionExpr.Kind.ARITH) {
+            return 2;
+        }
+        if (expr.getKind() != ConditionExpr.Kind.LEAF) {
+            int cost = 0;
+            for (ConditionExpr child : expr.getChildren()) {
+                cost += cost(child);
+            }
+            return cost;
+        }
+        if (StringOps.REGEX.equals(expr.getOp())) {
+            return 4;
+        }
+        return StringOps.isStringOp(expr.getOp()) ? 2 : 1;
+    }
+
+    /**
+     * AND 中同一字段的区间条件求交集。返回 null 表示交集为空（整个 AND 恒为 FALSE）。
+     */
+    private static List<ConditionExpr> mergeRangesForAnd(Collection<ConditionExpr> children) {
+        Map<String, Range> ranges = collectRanges(children);
+        if (ranges.isEmpty()) {
+            return new ArrayList<>(children);
+        }
+
+        for (Range range : ranges.values()) {
+            for (ConditionExpr leaf : range.leaves) {
+                range.intersect(leaf.getOp(), Double.parseDouble(leaf.getValue()));
+            }
+            if (range.isEmpty()) {
+                return null;
+            }
+        }
+
+        // == 常量落在区间外，或者两个 == 数值不同：恒为 FALSE
+        Map<String, Double> equalsByField = new HashMap<>();
+        for (ConditionExpr child : children) {
+            Double v = numericEqualsValue(child);
+            if (v == null) {
+                continue;
+            }
+            Range range = ranges.get(child.getField());
+            if (range != null && !range.contains(v)) {
+                return null;
+            }
+            Double previous = equalsByField.putIfAbsent(child.getField(), v);
+            if (previous != null && Double.compare(previous, v) != 0) {
+                return null;
+            }
+        }
+
+        return replaceRangeLeaves(children, ranges);
+    }
+
+    /**
+     * OR 中同一字段、同一方向的边界只保留最宽的那个：x > 5 OR x > 10 -> x > 5。
+     */
+    private static List<ConditionExpr> mergeRangesForOr(Collection<ConditionExpr> children) {
+        Map<String, Range> ranges = collectRanges(children);
+        if (ranges.isEmpty()) {
+            return new ArrayList<>(children);
+        }
+        for (Range range : ranges.values()) {
+            for (ConditionExpr leaf : range.leaves) {
+                range.union(leaf.getOp(), Double.parseDouble(leaf.getValue()));
+            }
+        }
+        return replaceRangeLeaves(children, ranges);
+    }
+
+    /**
+     * 把每个字段的区间叶子替换成合并后的（最多两个）叶子，放在该字段第一次出现的位置。
+     */
+    private static List<ConditionExpr> replaceRangeLeaves(Collection<ConditionExpr> children,
+                                                          Map<String, Range> ranges) {
+        List<ConditionExpr> result = new ArrayList<>();
+        Set<String> emitted = new HashSet<>();
+        for (ConditionExpr child : children) {
+            Range range = isRangeLeaf(child) ? ranges.get(child.getField()) : null;
+            if (range == null || range.leaves.size() == 1) {
+                // 只有一个叶子的字段没有可合并的，保留原样
+                result.add(child);
+                continue;
+            }
+            if (emitted.add(child.getField())) {
+                result.addAll(range.toLeaves());
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, Range> collectRanges(Collection<ConditionExpr> children) {
+        Map<String, Range> ranges = new LinkedHashMap<>();
+        for (ConditionExpr child : children) {
+            if (isRangeLeaf(child)) {
+                ranges.computeIfAbsent(child.getField(), Range::new).leaves.add(child);
+            }
+        }
+        return ranges;
+    }
+
+    private static boolean isRangeLeaf(ConditionExpr expr) {
+        if (expr.getKind() != ConditionExpr.Kind.LEAF) {
+            return false;
+        }
+        String op = expr.getOp();
+        return (">".equals(op) || ">=".equals(op) || "<".equals(op) || "<=".equals(op))
+                && parseNumber(expr.getValue()) != null;
+    }
+
+    private static Double numericEqualsValue(ConditionExpr expr) {
+        if (expr.getKind() != ConditionExpr.Kind.LEAF || !"==".equals(expr.getOp())) {
+            return null;
+        }
+        return parseNumber(expr.getValue());
+    }
+
+    private static Double parseNumber(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            double d = Double.parseDouble(value);
+            return Double.isNaN(d) ? null : d;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 某字段上的数值区间（下界 / 上界，可开可闭）。
+     */
+    private static final class Range {
+
+        private final String field;
+        private final List<ConditionExpr> leaves = new ArrayList<>();
+
+        private Double lower;
+        private boolean lowerInclusive;
+        private Double upper;
+        private boolean upperInclusive;
+
+        private Range(String field) {
+            this.field = field;
+        }
+
+        /** AND：收紧边界 */
+        private void intersect(String op, double v) {
+            boolean inclusive = op.length() == 2;
+            if (op.charAt(0) == '>') {
+                if (lower == null || v > lower || (v == lower && !inclusive)) {
+                    lower = v;
+                    lowerInclusive = inclusive;
+                }
+            } else {
+                if (upper == null || v < upper || (v == upper && !inclusive)) {
+                    upper = v;
+                    upperInclusive = inclusive;
+                }
+            }
+        }
+
+        /** OR：放宽同方向的边界 */
+        private void union(String op, double v) {
+            boolean inclusive = op.length() == 2;
+            if (op.charAt(0) == '>') {
+                if (lower == null || v < lower || (v == lower && inclusive)) {
+                    lower = v;
+                    lowerInclusive = inclusive;
+                }
+            } else {
+                if (upper == null || v > upper || (v == upper && inclusive)) {
+                    upper = v;
+                    upperInclusive = inclusive;
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            if (lower == null || upper == null) {
+                return false;
+            }
+            return lower > upper || (lower.equals(upper) && !(lowerInclusive && upperInclusive));
+        }
+
+        private boolean contains(double v) {
+            if (lower != null && (v < lower || (v == lower && !lowerInclusive))) {
+                return false;
+            }
+            return upper == null || !(v > upper || (v == upper && !upperInclusive));
+        }
+
+        private List<ConditionExpr> toLeaves() {
+            List<ConditionExpr> result = new ArrayList<>(2);
+            if (lower != null) {
+                result.add(ConditionExpr.leaf(field, lowerInclusive ? ">=" : ">", format(lower)));
+            }
+            if (upper != null) {
+                result.add(ConditionExpr.leaf(field, upperInclusive ? "<=" : "<", format(upper)));
+            }
+            return result;
+        }
+
+        private static String format(double v) {
+            return v == Math.rint(v) && Math.abs(v) < 1e15 ? String.valueOf((long) v) : String.valueOf(v);
+        }
+    }
+}
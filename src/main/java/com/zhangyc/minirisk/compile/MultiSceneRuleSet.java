@@ -0,0 +1,111 @@
+package com.zhangyc.minirisk.compile;
+
+import com.zhangyc.minirisk.config.RuleConfigLoader;
+import com.zhangyc.minirisk.config.RuleDefinition;
+import com.zhangyc.minirisk.model.MatchedRuleBits;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.schema.ContextSchema;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 多个场景合并后的规则集：一个事件同时要过 LOGIN 和 PAY 时，两个场景的规则（COMMON 规则只算一份）
+ * 编译成一个 CompiledRuleSet 执行一次，再按每个场景的位掩码从同一份命中位图里拆出各场景的结果。
+ * - 合并规则集的场景名是排好序的大写场景名用 "+" 连接，例如 "LOGIN+PAY"；
+ * - 第 i 个场景的掩码里，属于这个场景或 COMMON 的规则对应的位为 1；
+ * - 规则集按优先级稳定排序，所以掩码拆出来的命中规则顺序与单独执行这个场景时一致。
+ *
+ * 不可变，可以在多线程间共享。
+ */
+public final class MultiSceneRuleSet {
+
+    private static final String COMMON_SCENE = "COMMON";
+
+    private final List<String> scenes;
+    private final CompiledRuleSet ruleSet;
+    private final long[][] masks;
+
+    private MultiSceneRuleSet(List<String> scenes, CompiledRuleSet ruleSet, long[][] masks) {
+        this.scenes = scenes;
+        this.ruleSet = ruleSet;
+        this.masks = masks;
+    }
+
+    /**
+     * 合并规则集的 key（也是它的场景名）：场景名转大写、去重、排序后用 "+" 连接。
+     */
+    public static String key(Collection<String> scenes) {
+        return String.join("+", normalize(scenes));
+    }
+
+    /**
+     * 编译多个场景的规则。rules 是这些场景和 COMMON 规则的并集（每条规则只出现一次），
+     * 要求与 CompiledRuleSet.compile 相同（由 RuleConfigLoader 从配置加载）。
+     */
+    public static MultiSceneRuleSet compile(Collection<String> scenes, long version, List<Rule> rules,
+                                            ContextSchema schema) {
+        return compile(scenes, version, rules, RuleConfigLoader::getRuleDefinitionById, schema);
+    }
+
+    /**
+     * 同上，规则定义按 id 从 definitions 里取。
+     */
+    public static MultiSceneRuleSet compile(Collection<String> scenes, long version, List<Rule> rules,
+                                            Function<String, RuleDefinition> definitions, ContextSchema schema) {
+        List<String> names = normalize(scenes);
+        CompiledRuleSet ruleSet = CompiledRuleSet.compile(String.join("+", names), version, rules, definitions, schema);
+        return new MultiSceneRuleSet(names, ruleSet, masks(names, ruleSet));
+    }
+
+    private static List<String> normalize(Collection<String> scenes) {
+        Objects.requireNonNull(scenes, "scenes must not be null");
+        if (scenes.isEmpty()) {
+            throw new IllegalArgumentException("scenes must not be empty");
+        }
+        Set<String> names = new TreeSet<>();
+        for (String scene : scenes) {
+            names.add(Objects.requireNonNull(scene, "scene must not be null").toUpperCase(Locale.ROOT));
+        }
+        return Collections.unmodifiableList(new ArrayList<>(names));
+    }
+
+    private static long[][] masks(List<String> scenes, CompiledRuleSet ruleSet) {
+        long[][] masks = new long[scenes.size()][MatchedRuleBits.wordCount(ruleSet.size())];
+        for (int i = 0; i < ruleSet.size(); i++) {
+            String ruleScene = ruleSet.get(i).getRule().getScene();
+            for (int s = 0; s < scenes.size(); s++) {
+                if (COMMON_SCENE.equalsIgnoreCase(ruleScene) || scenes.get(s).equalsIgnoreCase(ruleScene)) {
+                    masks[s][i >>> 6] |= 1L << i;
+                }
+            }
+        }
+        return masks;
+    }
+
+    /** 场景名（大写、排好序），下标与 getMask 一致 */
+    public List<String> getScenes() {
+        return scenes;
+    }
+
+    /** 合并后的规则集 */
+    public CompiledRuleSet getRuleSet() {
+        return ruleSet;
+    }
+
+    /**
+     * 第 sceneIndex 个场景的规则位掩码，长度与命中位图相同。返回内部数组，不要修改。
+     */
+    public long[] getMask(int sceneIndex) {
+        return masks[sceneIndex];
+    }
+
+    @Override
+    public String toString() {
+        return "MultiSceneRuleSet{" +
+                "scenes=" + scenes +
+                ", rules=" + ruleSet.size() +
+                ", version=" + ruleSet.getVersion() +
+                '}';
+    }
+}
@@ -0,0 +1,286 @@
+package com.zhangyc.minirisk.compile;
+
+import com.zhangyc.minirisk.config.ConditionDefinition;
+import com.zhangyc.minirisk.config.RuleConfigLoader;
+import com.zhangyc.minirisk.config.RuleDefinition;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.model.RuleAction;
+import com.zhangyc.minirisk.schema.ContextSchema;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * 规则驻留池：多份内容大量重复的规则集（例如按模板复制出来的多租户规则）共用同一份对象。
+ * - 字符串（规则 id、描述、场景、字段路径、运算符、常量）按内容驻留；
+ * - 化简后的条件表达式按结构驻留，结构相同的子表达式只编译一次，共享同一个 SlotPredicate / Predicate；
+ * - 定义完全相同（id、描述、场景、优先级、动作、化简后的条件）的规则共享同一个 Rule 和 CompiledRule；
+ * - 排序后规则完全相同的场景规则集共享同一个 CompiledRuleSet（不同版本号只多一个很小的包装对象）。
+ *
+ * 不依赖 RuleConfigLoader 的全局定义缓存（不同租户里 id 相同、内容不同的规则互不影响），
+ * 也不保留 RuleDefinition。池只增不减，大量规则下线后可以换一个新的驻留池重新编译。
+ * 所有方法在 this 上同步，只在编译期使用，执行期不经过这里。
+ */
+public final class RuleInterner {
+
+    private final ContextSchema schema;
+
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<List<String>, List<String>> fieldLists = new HashMap<>();
+    private final Map<ConditionExpr, ConditionExpr> exprs = new HashMap<>();
+    private final Map<ConditionExpr, SlotPredicate> slotPredicates = new HashMap<>();
+    private final Map<ConditionExpr, Predicate<RiskContext>> predicates = new HashMap<>();
+
+    /** 所有租户的子串条件共用，和上面两个谓词缓存一致（同一个条件只编译一次） */
+    private final StringMatchIndex matchIndex = new StringMatchIndex();
+    private final Map<RuleKey, CompiledRule> rules = new HashMap<>();
+    private final Map<List<Rule>, List<Rule>> ruleLists = new HashMap<>();
+
+    /** 场景 -> 按优先级排好序的规则列表 -> 规则集 */
+    private final Map<String, Map<List<Rule>, CompiledRuleSet>> ruleSets = new HashMap<>();
+
+    public RuleInterner(ContextSchema schema) {
+        this.schema = Objects.requireNonNull(schema, "schema must not be null");
+    }
+
+    public ContextSchema getSchema() {
+        return schema;
+    }
+
+    public synchronized String intern(String s) {
+        if (s == null) {
+            return null;
+        }
+        String pooled = strings.putIfAbsent(s, s);
+        return pooled == null ? s : pooled;
+    }
+
+    /**
+     * 驻留一条规则：定义相同的规则返回同一个 Rule 对象。
+     */
+    public synchronized Rule internRule(RuleDefinition def) {
+        return internCompiledRule(def).getRule();
+    }
+
+    /**
+     * 驻留一个规则列表（例如某个场景按配置顺序排列的规则）：元素相同（同一批 Rule 对象、同样顺序）的列表共享。
+     */
+    public synchronized List<Rule> internRules(List<Rule> list) {
+        List<Rule> pooled = ruleLists.get(list);
+        if (pooled == null) {
+            pooled = Collections.unmodifiableList(new ArrayList<>(list));
+            ruleLists.put(pooled, pooled);
+        }
+        return pooled;
+    }
+
+    /**
+     * 编译一个场景的规则集（调用方负责按场景筛选，规则顺序同 CompiledRuleSet.compile：按优先级从高到低，同优先级保持原顺序）。
+     */
+    public synchronized CompiledRuleSet compile(String scene, long version, List<RuleDefinition> defs) {
+        Objects.requireNonNull(defs, "defs must not be null");
+        List<CompiledRule> compiled = new ArrayList<>(defs.size());
+        for (RuleDefinition def : defs) {
+            compiled.add(internCompiledRule(def));
+        }
+        // List.sort 是稳定排序
+        compiled.sort(Comparator.comparingInt((CompiledRule r) -> r.getRule().getPriority()).reversed());
+
+        List<Rule> ordered = new ArrayList<>(compiled.size());
+        for (CompiledRule rule : compiled) {
+            ordered.add(rule.getRule());
+        }
+        String sceneKey = intern(scene);
+        Map<List<Rule>, CompiledRuleSet> byRules = ruleSets.computeIfAbsent(sceneKey, k -> new HashMap<>());
+        CompiledRuleSet shared = byRules.get(ordered);
+        if (shared == null) {
+            CompiledRule[] prioritized = new CompiledRule[compiled.size()];
+            for (int i = 0; i < prioritized.length; i++) {
+                prioritized[i] = compiled.get(i).withIndex(i);
+            }
+            shared = CompiledRuleSet.assemble(sceneKey, version, schema, prioritized, matchIndex);
+            byRules.put(shared.getRulesInPriorityOrder(), shared);
+        }
+        return shared.withVersion(version);
+    }
+
+    /**
+     * 驻留池当前的条目数：字符串 / 表达式节点 / 规则 / 规则集。
+     */
+    public synchronized Stats getStats() {
+        int ruleSetCount = 0;
+        for (Map<List<Rule>, CompiledRuleSet> byRules : ruleSets.values()) {
+            ruleSetCount += byRules.size();
+        }
+        return new Stats(strings.size(), exprs.size(), rules.size(), ruleLists.size(), ruleSetCount);
+    }
+
+    private CompiledRule internCompiledRule(RuleDefinition def) {
+        ConditionExpr condition = internExpr(ConditionCompiler.optimizedExpr(def));
+        RuleAction action = RuleAction.valueOf(def.getAction().toUpperCase(Locale.ROOT));
+        RuleKey key = new RuleKey(intern(def.getId()), intern(def.getDescription()), intern(def.getScene()),
+                def.getPriority(), action, condition, intern(def.getStage()));
+        CompiledRule compiled = rules.get(key);
+        if (compiled == null) {
+            List<String> fields = fieldsOf(def);
+            Rule rule = new Rule(key.id, key.description, key.scene, key.priority,
+                    ConditionCompiler.compilePredicate(condition, predicates, matchIndex), action,
+                    fields, condition.leafCount());
+            compiled = new CompiledRule(0, rule, condition,
+                    ConditionCompiler.compileExpr(condition, schema, slotPredicates, matchIndex), fields, key.stage);
+            rules.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    private ConditionExpr internExpr(ConditionExpr expr) {
+        ConditionExpr pooled = exprs.get(expr);
+        if (pooled != null) {
+            return pooled;
+        }
+        switch (expr.getKind()) {
+            case LEAF:
+                pooled = ConditionExpr.leaf(intern(expr.getField()), intern(expr.getOp()), intern(expr.getValue()));
+                break;
+            case ARITH:
+                pooled = ConditionExpr.arith(intern(expr.getField()), intern(expr.getOp()), intern(expr.getValue()));
+                break;
+            case NOT:
+                pooled = ConditionExpr.not(internExpr(expr.getChildren().get(0)));
+                break;
+            case AND:
+            case OR: {
+                List<ConditionExpr> children = new ArrayList<>(expr.getChildren().size());
+                for (ConditionExpr child : expr.getChildren()) {
+                    children.add(internExpr(child));
+                }
+                pooled = expr.getKind() == ConditionExpr.Kind.AND ? ConditionExpr.and(children) : ConditionExpr.or(children);
+                break;
+            }
+            default:
+                // TRUE / FALSE 本身就是单例
+                pooled = expr;
+                break;
+        }
+        exprs.put(pooled, pooled);
+        return pooled;
+    }
+
+    private List<String> fieldsOf(RuleDefinition def) {
+        List<String> fields = new ArrayList<>();
+        ConditionDefinition root = RuleConfigLoader.getRootCondition(def);
+        if (root != null) {
+            for (ConditionDefinition c : RuleConfigLoader.collectLeafConditions(root)) {
+                for (String path : RuleConfigLoader.referencedFields(c)) {
+                    String field = intern(path);
+                    if (!fields.contains(field)) {
+                        fields.add(field);
+                    }
+                }
+            }
+        }
+        List<String> pooled = fieldLists.get(fields);
+        if (pooled == null) {
+            pooled = Collections.unmodifiableList(fields);
+            fieldLists.put(pooled, pooled);
+        }
+        return pooled;
+    }
+
+    /**
+     * 驻留池条目数。
+     */
+    public static final class Stats {
+
+        private final int strings;
+        private final int exprNodes;
+        private final int rules;
+        private final int ruleLists;
+        private final int ruleSets;
+
+        Stats(int strings, int exprNodes, int rules, int ruleLists, int ruleSets) {
+            this.strings = strings;
+            this.exprNodes = exprNodes;
+            this.rules = rules;
+            this.ruleLists = ruleLists;
+            this.ruleSets = ruleSets;
+        }
+
+        public int getStrings() {
+            return strings;
+        }
+
+        public int getExprNodes() {
+            return exprNodes;
+        }
+
+        public int getRules() {
+            return rules;
+        }
+
+        public int getRuleLists() {
+            return ruleLists;
+        }
+
+        public int getRuleSets() {
+            return ruleSets;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{strings=" + strings +
+                    ", exprNodes=" + exprNodes +
+                    ", rules=" + rules +
+                    ", ruleLists=" + ruleLists +
+                    ", ruleSets=" + ruleSets +
+                    '}';
+        }
+    }
+
+    /**
+     * 规则的驻留 key：字符串和条件都已驻留。
+     */
+    private static final class RuleKey {
+
+        private final String id;
+        private final String description;
+        private final String scene;
+        private final int priority;
+        private final RuleAction action;
+        private final ConditionExpr condition;
+        private final String stage;
+        private final int hash;
+
+        private RuleKey(String id, String description, String scene, int priority,
+                        RuleAction action, ConditionExpr condition, String stage) {
+            this.id = id;
+            this.description = description;
+            this.scene = scene;
+            this.priority = priority;
+            this.action = action;
+            this.condition = condition;
+            this.stage = stage;
+            this.hash = Objects.hash(id, description, scene, priority, action, condition, stage);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RuleKey)) return false;
+            RuleKey that = (RuleKey) o;
+            return priority == that.priority &&
+                    action == that.action &&
+                    Objects.equals(id, that.id) &&
+                    Objects.equals(description, that.description) &&
+                    Objects.equals(scene, that.scene) &&
+                    Objects.equals(stage, that.stage) &&
+                    condition == that.condition;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
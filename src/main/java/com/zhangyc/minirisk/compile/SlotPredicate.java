@@ -0,0 +1,16 @@
+package com.zhangyc.minirisk.compile;
+
+import com.zhangyc.minirisk.schema.SlotContext;
+
+/**
+ * 编译后的条件：直接按槽位下标读取 SlotContext，返回是否满足。
+ */
+@FunctionalInterface
+public interface SlotPredicate {
+
+    SlotPredicate ALWAYS_FALSE = ctx -> false;
+
+    SlotPredicate ALWAYS_TRUE = ctx -> true;
+
+    boolean test(SlotContext ctx);
+}
@@ -0,0 +1,143 @@
+package com.zhangyc.minirisk.compile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * 按字段共享的子串匹配索引：同一字段上所有 contains / containsAny 条件注册到同一个 Aho-Corasick 自动机，
+ * 每个条件（模式集合）对应自动机的一个输出编号。
+ * - 执行时对一个字段值扫描一遍，就得到所有模式集合是否命中的位图；
+ * - 位图按「线程 + 字符串实例」缓存，同一次决策里同一字段上的其他条件直接查位，不再扫描；
+ * - 自动机在注册后第一次用到时才构建，之后有新的模式集合注册时在下一次用到新集合时重建，
+ *   已有集合的编号不变，所以之前编译好的谓词继续有效。
+ *
+ * 模式集合按内容去重，索引只增不减：作用域应该和一批编译结果一致（CompiledRuleSet、RuleInterner、一次 loadRules），
+ * 不要做成全局的。线程安全。
+ */
+public final class StringMatchIndex {
+
+    private final Map<String, FieldIndex> fields = new ConcurrentHashMap<>();
+
+    /**
+     * 注册一个模式集合，返回「字段值包含其中任意一个模式」的谓词。
+     * 集合为空时永远不命中，包含空串时总是命中（与 String.contains("") 一致）。
+     */
+    public Predicate<String> register(String field, List<String> patterns) {
+        if (patterns.isEmpty()) {
+            return s -> false;
+        }
+        if (patterns.contains("")) {
+            return s -> true;
+        }
+        FieldIndex index = fields.computeIfAbsent(field, f -> new FieldIndex());
+        int id = index.register(patterns);
+        return s -> index.test(id, s);
+    }
+
+    /** 已注册的字段数 */
+    public int fieldCount() {
+        return fields.size();
+    }
+
+    /** 所有字段上已注册的模式集合总数 */
+    public int setCount() {
+        int count = 0;
+        for (FieldIndex index : fields.values()) {
+            count += index.size();
+        }
+        return count;
+    }
+
+    /**
+     * 一个字段上的全部模式集合和当前的自动机。
+     */
+    private static final class FieldIndex {
+
+        /** 模式集合 -> 输出编号，在 this 上同步 */
+        private final Map<List<String>, Integer> setIds = new HashMap<>();
+        private final List<List<String>> sets = new ArrayList<>();
+
+        /** 包含编号 [0, getOutputCount()) 的所有集合 */
+        private volatile AhoCorasick automaton;
+
+        /** 每个线程最近一次扫描的结果 */
+        private final ThreadLocal<Scan> scans = ThreadLocal.withInitial(Scan::new);
+
+        private synchronized int register(List<String> patterns) {
+            List<String> key = new ArrayList<>(patterns);
+            Integer id = setIds.get(key);
+            if (id == null) {
+                id = sets.size();
+                sets.add(key);
+                setIds.put(key, id);
+            }
+            return id;
+        }
+
+        private synchronized int size() {
+            return sets.size();
+        }
+
+        private boolean test(int id, String text) {
+            AhoCorasick current = automaton;
+            if (current == null || id >= current.getOutputCount()) {
+                current = rebuild(id);
+            }
+            Scan scan = scans.get();
+            if (scan.text != text || scan.automaton != current) {
+                scan.reset(current);
+                current.scan(text, scan.hits);
+                scan.text = text;
+            }
+            return (scan.hits[id >>> 6] & (1L << id)) != 0;
+        }
+
+        private synchronized AhoCorasick rebuild(int id) {
+            AhoCorasick current = automaton;
+            if (current != null && id < current.getOutputCount()) {
+                return current;
+            }
+            List<String> patterns = new ArrayList<>();
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < sets.size(); i++) {
+                for (String p : sets.get(i)) {
+                    patterns.add(p);
+                    ids.add(i);
+                }
+            }
+            int[] idArray = new int[ids.size()];
+            for (int i = 0; i < idArray.length; i++) {
+                idArray[i] = ids.get(i);
+            }
+            current = new AhoCorasick(patterns, idArray, sets.size());
+            automaton = current;
+            return current;
+        }
+    }
+
+    /**
+     * 一次扫描的结果：扫描的字符串实例、使用的自动机、命中位图。
+     * 结果只取决于字符串内容和自动机，所以按实例缓存总是正确的。
+     */
+    private static final class Scan {
+
+        private String text;
+        private AhoCorasick automaton;
+        private long[] hits = new long[1];
+
+        private void reset(AhoCorasick next) {
+            int words = Math.max(1, (next.getOutputCount() + 63) >>> 6);
+            if (hits.length < words) {
+                hits = new long[words];
+            } else {
+                Arrays.fill(hits, 0L);
+            }
+            automaton = next;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.zhangyc.minirisk.compile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 字符串匹配操作符（只对字符串类型的实际值生效，数值 / 布尔值上永远不命中）：
+ * - startsWith：以期望值开头；
+ * - contains：包含期望值；
+ * - regex：期望值是正则表达式，在字符串中查找（find），需要整串匹配时写 ^...$；
+ * - containsAny：期望值是一组模式（配置里用 values 数组，或 value 里按换行分隔，空行忽略），包含任意一个即命中。
+ *
+ * 正则和模式列表在加载时编译并按期望值缓存；规则集编译时 contains / containsAny 交给 StringMatchIndex，
+ * 同一字段上的所有这类条件共用一个 Aho-Corasick 自动机。
+ */
+public final class StringOps {
+
+    public static final String STARTS_WITH = "startsWith";
+    public static final String CONTAINS = "contains";
+    public static final String REGEX = "regex";
+    public static final String CONTAINS_ANY = "containsAny";
+
+    private static final Set<String> OPS = new HashSet<>(Arrays.asList(STARTS_WITH, CONTAINS, REGEX, CONTAINS_ANY));
+
+    /** 正则 -> 编译好的匹配器 */
+    private static final Map<String, Predicate<String>> REGEX_CACHE = new ConcurrentHashMap<>();
+
+    /** containsAny 的期望值 -> 单独的自动机（解释 / 逐条执行时使用） */
+    private static final Map<String, Predicate<String>> CONTAINS_ANY_CACHE = new ConcurrentHashMap<>();
+
+    private StringOps() {
+    }
+
+    public static boolean isStringOp(String op) {
+        return op != null && OPS.contains(op);
+    }
+
+    /**
+     * containsAny 的模式列表：按换行分隔，忽略空行。
+     */
+    public static List<String> splitPatterns(String value) {
+        if (value == null || value.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> patterns = new ArrayList<>();
+        for (String p : value.split("\n")) {
+            if (!p.isEmpty()) {
+                patterns.add(p);
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * 单个字符串条件的匹配器（不与其他条件共享自动机），期望值为 null 时永远不命中。
+     * 正则不合法时抛 IllegalArgumentException（PatternSyntaxException）。
+     */
+    public static Predicate<String> matcher(String op, String expected) {
+        if (expected == null) {
+            return s -> false;
+        }
+        switch (op) {
+            case STARTS_WITH:
+                return s -> s.startsWith(expected);
+            case CONTAINS:
+                return s -> s.contains(expected);
+            case REGEX:
+                return REGEX_CACHE.computeIfAbsent(expected, StringOps::compileRegex);
+            case CONTAINS_ANY:
+                return CONTAINS_ANY_CACHE.computeIfAbsent(expected, StringOps::compileContainsAny);
+            default:
+                throw new IllegalArgumentException("不是字符串操作符: " + op);
+        }
+    }
+
+    /**
+     * 解释执行：actual op expected，语义与编译后的谓词一致。
+     */
+    public static boolean matches(String actual, String op, String expected) {
+        return matcher(op, expected).test(actual);
+    }
+
+    private static Predicate<String> compileRegex(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        // Matcher 不是线程安全的，每个线程一个，reset 复用
+        ThreadLocal<Matcher> matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+        return s -> matchers.get().reset(s).find();
+    }
+
+    private static Predicate<String> compileContainsAny(String value) {
+        List<String> patterns = splitPatterns(value);
+        if (patterns.isEmpty()) {
+            return s -> false;
+        }
+        AhoCorasick automaton = new AhoCorasick(patterns, new int[patterns.size()], 1);
+        return automaton::containsAny;
+    }
+}
@@ -1,14 +1,28 @@
 package com.zhangyc.minirisk.config;
 
+import java.util.List;
+
 /**
  * 单个条件的配置定义，对应 JSON 里的一个条件：
  * 例如 field = "order.amount", op = ">", value = "1000"
+ *
+ * 也可以是一个条件组（嵌套布尔表达式）：op = "AND" / "OR" / "NOT"，children 为子条件，
+ * 此时 field / value 不填。例如：
+ * { "op": "OR", "children": [ { "field": "user.isNew", "op": "==", "value": "true" }, ... ] }
+ *
+ * containsAny 的模式列表可以写成 values 数组：{ "field": "ip.value", "op": "containsAny", "values": ["10.", "192.168."] }
+ *
+ * 跨字段的算术比较写成 expr，此时 field / op / value 不填：
+ * { "expr": "order.amount / (user.historyOrderCount + 1) > 800" }
  */
 public class ConditionDefinition {
 
     private String field;
     private String op;
     private String value;
+    private List<String> values;
+    private List<ConditionDefinition> children;
+    private String expr;
 
     public String getField() {
         return field;
@@ -33,5 +47,46 @@ public class ConditionDefinition {
     public void setValue(String value) {
         this.value = value;
     }
+
+    public List<String> getValues() {
+        return values;
+    }
+
+    public void setValues(List<String> values) {
+        this.values = values;
+    }
+
+    /**
+     * 条件的期望值：配置了 value 时就是 value，否则把 values 按换行拼成一个字符串（containsAny 的模式列表）。
+     */
+    public String expectedValue() {
+        if (value != null || values == null) {
+            return value;
+        }
+        return String.join("\n", values);
+    }
+
+    public List<ConditionDefinition> getChildren() {
+        return children;
+    }
+
+    public void setChildren(List<ConditionDefinition> children) {
+        this.children = children;
+    }
+
+    public String getExpr() {
+        return expr;
+    }
+
+    public void setExpr(String expr) {
+        this.expr = expr;
+    }
+
+    /**
+     * 是否是条件组（AND / OR / NOT + children），而不是单个字段比较。
+     */
+    public boolean isGroup() {
+        return field == null && children != null;
+    }
 }
 
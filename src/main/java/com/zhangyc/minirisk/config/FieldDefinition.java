@@ -0,0 +1,27 @@
+package com.zhangyc.minirisk.config;
+
+/**
+ * 上下文字段的配置定义，对应 context-schema.json 里的一项：
+ * 例如 field = "device.riskScore", type = "DOUBLE"
+ */
+public class FieldDefinition {
+
+    private String field;
+    private String type;    // "LONG" / "DOUBLE" / "BOOLEAN" / "STRING"
+
+    public String getField() {
+        return field;
+    }
+
+    public void setField(String field) {
+        this.field = field;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+}
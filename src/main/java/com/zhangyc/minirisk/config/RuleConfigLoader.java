@@ -2,6 +2,12 @@ package com.zhangyc.minirisk.config;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zhangyc.minirisk.compile.ArithmeticCompiler;
+import com.zhangyc.minirisk.compile.ArithmeticExpr;
+import com.zhangyc.minirisk.compile.ConditionCompiler;
+import com.zhangyc.minirisk.compile.ConditionExpr;
+import com.zhangyc.minirisk.compile.StringMatchIndex;
+import com.zhangyc.minirisk.compile.StringOps;
 import com.zhangyc.minirisk.model.RiskContext;
 import com.zhangyc.minirisk.model.Rule;
 import com.zhangyc.minirisk.model.RuleAction;
@@ -9,7 +15,10 @@ import com.zhangyc.minirisk.support.RiskFieldAccessor;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 
 /**
@@ -20,8 +29,11 @@ public class RuleConfigLoader {
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
-    /** ruleId -> RuleDefinition 的映射，用于解释层 */
-    private static final Map<String, RuleDefinition> RULE_DEFINITION_MAP = new HashMap<>();
+    /** ruleId -> RuleDefinition 的映射，用于解释层；增量更新时会被单独修改，读的一方不加锁 */
+    private static final Map<String, RuleDefinition> RULE_DEFINITION_MAP = new ConcurrentHashMap<>();
+
+    /** 最近一次带分析器加载时的静态分析报告 */
+    private static volatile RuleSetAnalysisReport lastAnalysisReport;
 
     /**
      * 从 classpath（resources） 下加载 JSON 配置，并转换为 Rule 列表。
@@ -29,6 +41,16 @@ public class RuleConfigLoader {
      * @param resourceName 例如 "rules-demo.json"
      */
     public static List<Rule> loadRulesFromClasspath(String resourceName) {
+        return loadRulesFromClasspath(resourceName, null);
+    }
+
+    /**
+     * 加载规则，并先用 analyzer 做静态分析：报告可通过 getLastAnalysisReport() 获取，
+     * analyzer 配置了剪枝时，被判定为无效的规则不会出现在返回的 Rule 列表中。
+     *
+     * @param analyzer 为 null 时不做分析
+     */
+    public static List<Rule> loadRulesFromClasspath(String resourceName, RuleSetAnalyzer analyzer) {
         try (InputStream in = RuleConfigLoader.class.getClassLoader().getResourceAsStream(resourceName)) {
             if (in == null) {
                 throw new IllegalArgumentException("规则配置文件未找到: " + resourceName);
@@ -41,25 +63,92 @@ public class RuleConfigLoader {
                     in,
                     new TypeReference<List<RuleDefinition>>() {}
             );
+            return loadRules(defs, analyzer);
+        } catch (IOException e) {
+            throw new RuntimeException("加载规则配置失败: " + resourceName, e);
+        }
+    }
 
-            // 2. 缓存 RuleDefinition，方便后续解释使用
-            RULE_DEFINITION_MAP.clear();
-            for (RuleDefinition def : defs) {
-                RULE_DEFINITION_MAP.put(def.getId(), def);
+    /**
+     * 用一份完整的规则定义替换全局定义缓存，并转换为 Rule 列表（例如规则定义来自配置中心而不是 classpath）。
+     *
+     * @param analyzer 为 null 时不做分析
+     */
+    public static List<Rule> loadRules(List<RuleDefinition> defs, RuleSetAnalyzer analyzer) {
+        // 1. 缓存 RuleDefinition，方便后续解释使用
+        RULE_DEFINITION_MAP.clear();
+        for (RuleDefinition def : defs) {
+            RULE_DEFINITION_MAP.put(def.getId(), def);
+        }
+
+        // 2. 可选的静态分析：找出恒不命中 / 被覆盖 / 场景不可达的规则
+        Set<String> pruned = Collections.emptySet();
+        if (analyzer != null) {
+            RuleSetAnalysisReport report = analyzer.analyze(defs);
+            lastAnalysisReport = report;
+            pruned = report.getPrunedRuleIds();
+        }
+
+        // 3. 再把每个 RuleDefinition 转为真正的 Rule（带 Predicate<RiskContext>），
+        //    同一字段上的 contains / containsAny 条件共用一个自动机
+        StringMatchIndex matchIndex = new StringMatchIndex();
+        List<Rule> rules = new ArrayList<>();
+        for (RuleDefinition def : defs) {
+            if (pruned.contains(def.getId())) {
+                continue;
             }
+            Rule rule = convertToRule(def, matchIndex);
+            rules.add(rule);
+        }
+        return rules;
+    }
+
+    /**
+     * 新增或替换一条规则定义（增量更新用），返回被替换的旧定义，没有时返回 null。
+     */
+    public static RuleDefinition putRuleDefinition(RuleDefinition def) {
+        return RULE_DEFINITION_MAP.put(def.getId(), def);
+    }
+
+    /**
+     * 删除一条规则定义（增量更新用），返回被删除的定义，没有时返回 null。
+     */
+    public static RuleDefinition removeRuleDefinition(String ruleId) {
+        return RULE_DEFINITION_MAP.remove(ruleId);
+    }
+
+    /**
+     * 只解析规则定义，不转换、不写入全局缓存（例如离线回放时同时读两份规则文件）。
+     */
+    public static List<RuleDefinition> readDefinitions(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            return MAPPER.readValue(in, new TypeReference<List<RuleDefinition>>() {});
+        } catch (IOException e) {
+            throw new RuntimeException("加载规则配置失败: " + file, e);
+        }
+    }
 
-            // 3. 再把每个 RuleDefinition 转为真正的 Rule（带 Predicate<RiskContext>）
-            List<Rule> rules = new ArrayList<>();
-            for (RuleDefinition def : defs) {
-                Rule rule = convertToRule(def);
-                rules.add(rule);
+    /**
+     * 同 readDefinitions(Path)，从 classpath 读取。
+     */
+    public static List<RuleDefinition> readDefinitionsFromClasspath(String resourceName) {
+        try (InputStream in = RuleConfigLoader.class.getClassLoader().getResourceAsStream(resourceName)) {
+            if (in == null) {
+                throw new IllegalArgumentException("规则配置文件未找到: " + resourceName);
             }
-            return rules;
+            return MAPPER.readValue(in, new TypeReference<List<RuleDefinition>>() {});
         } catch (IOException e) {
             throw new RuntimeException("加载规则配置失败: " + resourceName, e);
         }
     }
 
+    /**
+     * 最近一次带分析器加载的分析报告，没有做过分析时返回 null。
+     */
+    public static RuleSetAnalysisReport getLastAnalysisReport() {
+        return lastAnalysisReport;
+    }
+
     /**
      * 提供按 ruleId 获取 RuleDefinition 的方法，给解释引擎用。
      */
@@ -67,66 +156,119 @@ public class RuleConfigLoader {
         return RULE_DEFINITION_MAP.get(ruleId);
     }
 
-    private static Rule convertToRule(RuleDefinition def) {
+    /**
+     * 某条规则的条件里引用到的全部字段路径（例如 "order.amount"），取自规则自身（Rule.getReferencedFields），
+     * 不按 id 查全局定义。如果规则不是由配置构造的，返回 null，表示无法确定它会读哪些字段。
+     */
+    public static Set<String> getReferencedFields(Rule rule) {
+        List<String> fields = rule.getReferencedFields();
+        return fields == null ? null : new LinkedHashSet<>(fields);
+    }
+
+    /**
+     * 规则定义的条件里引用到的全部字段路径（不可变），按第一次出现的顺序去重；没有条件时返回空列表。
+     */
+    public static List<String> collectReferencedFields(RuleDefinition def) {
+        ConditionDefinition root = getRootCondition(def);
+        if (root == null) {
+            return Collections.emptyList();
+        }
+        Set<String> fields = new LinkedHashSet<>();
+        for (ConditionDefinition c : collectLeafConditions(root)) {
+            fields.addAll(referencedFields(c));
+        }
+        return Collections.unmodifiableList(new ArrayList<>(fields));
+    }
+
+    /**
+     * 单个叶子条件读取的字段：字段比较就是 field，算术比较是表达式里引用到的全部字段。
+     */
+    public static List<String> referencedFields(ConditionDefinition leaf) {
+        if (leaf.getExpr() != null) {
+            return ArithmeticExpr.parseComparison(leaf.getExpr()).fields();
+        }
+        return Collections.singletonList(leaf.getField());
+    }
+
+    /**
+     * 把一条规则定义转换成可执行的 Rule（不会写入全局的 RuleDefinition 缓存）。
+     */
+    public static Rule convertToRule(RuleDefinition def) {
+        return convertToRule(def, null);
+    }
+
+    /**
+     * 同 convertToRule(def)，matchIndex 不为 null 时字符串子串条件注册到这个索引，与其他规则共用自动机。
+     */
+    public static Rule convertToRule(RuleDefinition def, StringMatchIndex matchIndex) {
         RuleAction action = RuleAction.valueOf(def.getAction().toUpperCase(Locale.ROOT));
-        Predicate<RiskContext> condition = buildConditionPredicate(def);
+        // 先转成表达式并化简（常量折叠、去重、区间合并），再编译成短路求值的谓词
+        ConditionExpr expr = ConditionCompiler.optimizedExpr(def);
+        Predicate<RiskContext> condition = ConditionCompiler.compilePredicate(expr, null, matchIndex);
         return new Rule(
                 def.getId(),
                 def.getDescription(),
                 def.getScene(),
                 def.getPriority(),
                 condition,
-                action
+                action,
+                collectReferencedFields(def),
+                expr.leafCount()
         );
     }
 
     /**
-     * 根据 RuleDefinition 中的 conditions + logicalOp 构造一个 Predicate<RiskContext>。
+     * 规则条件树的根节点：
+     * - 配置了 condition（嵌套条件树）时直接使用；
+     * - 否则把 logicalOp + conditions 视为一个 AND / OR 条件组；
+     * - 两者都没配置时返回 null（规则永远不命中）。
+     * 未知的 logicalOp 直接报错，不再悄悄当作 AND。
      */
-    private static Predicate<RiskContext> buildConditionPredicate(RuleDefinition def) {
+    public static ConditionDefinition getRootCondition(RuleDefinition def) {
+        if (def.getCondition() != null) {
+            if (def.getConditions() != null && !def.getConditions().isEmpty()) {
+                throw new IllegalArgumentException("规则不能同时配置 condition 和 conditions: " + def.getId());
+            }
+            return def.getCondition();
+        }
+
         List<ConditionDefinition> conds = def.getConditions();
         if (conds == null || conds.isEmpty()) {
             // 没配置条件，则永远不命中（也可以设计成永远命中，看你需求）
-            return ctx -> false;
-        }
-
-        List<Predicate<RiskContext>> predicateList = new ArrayList<>();
-        for (ConditionDefinition c : conds) {
-            predicateList.add(buildSinglePredicate(c));
+            return null;
         }
 
-        // 目前只支持 AND / OR
         String op = def.getLogicalOp();
-        if (op == null || op.isEmpty() || "AND".equalsIgnoreCase(op)) {
-            // AND：所有条件都满足才为 true
-            Predicate<RiskContext> result = predicateList.get(0);
-            for (int i = 1; i < predicateList.size(); i++) {
-                result = result.and(predicateList.get(i));
-            }
-            return result;
-        } else if ("OR".equalsIgnoreCase(op)) {
-            // OR：任意一个满足为 true
-            Predicate<RiskContext> result = predicateList.get(0);
-            for (int i = 1; i < predicateList.size(); i++) {
-                result = result.or(predicateList.get(i));
-            }
-            return result;
-        } else {
-            // 未知逻辑操作符，简单处理：当作 AND
-            Predicate<RiskContext> result = predicateList.get(0);
-            for (int i = 1; i < predicateList.size(); i++) {
-                result = result.and(predicateList.get(i));
-            }
-            return result;
+        if (op == null || op.isEmpty()) {
+            op = "AND";
+        } else if (!"AND".equalsIgnoreCase(op) && !"OR".equalsIgnoreCase(op)) {
+            throw new IllegalArgumentException("未知逻辑操作符: " + op + ", 规则: " + def.getId());
         }
+        ConditionDefinition group = new ConditionDefinition();
+        group.setOp(op.toUpperCase(Locale.ROOT));
+        group.setChildren(conds);
+        return group;
     }
 
     /**
-     * 单个条件：根据 field / op / value 构造一个基于 RiskContext 的谓词。
-     * 统一走 evaluateCondition + RiskFieldAccessor，不再写死字段映射。
+     * 收集条件树中所有叶子条件（单个字段比较），按配置顺序。
      */
-    private static Predicate<RiskContext> buildSinglePredicate(ConditionDefinition c) {
-        return ctx -> evaluateCondition(ctx, c);
+    public static List<ConditionDefinition> collectLeafConditions(ConditionDefinition root) {
+        List<ConditionDefinition> leaves = new ArrayList<>();
+        if (root != null) {
+            collectLeaves(root, leaves);
+        }
+        return leaves;
+    }
+
+    private static void collectLeaves(ConditionDefinition node, List<ConditionDefinition> leaves) {
+        if (!node.isGroup()) {
+            leaves.add(node);
+            return;
+        }
+        for (ConditionDefinition child : node.getChildren()) {
+            collectLeaves(child, leaves);
+        }
     }
 
     /**
@@ -134,9 +276,12 @@ public class RuleConfigLoader {
      * 使用 RiskFieldAccessor 动态读取字段值，并做类型感知的比较。
      */
     public static boolean evaluateCondition(RiskContext ctx, ConditionDefinition c) {
+        if (c.getExpr() != null) {
+            return ArithmeticCompiler.forRiskContext(c.getExpr()).test(ctx);
+        }
         Object actual = RiskFieldAccessor.getFieldValue(ctx, c.getField());
         String op = c.getOp();
-        String expectedStr = c.getValue();
+        String expectedStr = c.expectedValue();
 
         return compareValue(actual, op, expectedStr);
     }
@@ -145,12 +290,17 @@ public class RuleConfigLoader {
      * 通用比较逻辑：
      * - 如果 actual 是 Number，按 double 比较
      * - 如果 actual 是 Boolean，按 boolean 比较
-     * - 其他类型当作字符串比较（只支持 == / !=）
+     * - 其他类型当作字符串比较（== / != 以及 StringOps 里的字符串操作符）
      */
     public static boolean compareValue(Object actual, String op, String expectedStr) {
         if (actual == null) {
             return false;
         }
+        if (StringOps.isStringOp(op)) {
+            // 字符串操作符只对字符串生效，数值 / 布尔值上永远不命中
+            return !(actual instanceof Number) && !(actual instanceof Boolean)
+                    && StringOps.matches(String.valueOf(actual), op, expectedStr);
+        }
 
         if (actual instanceof Number) {
             double actualD = ((Number) actual).doubleValue();
@@ -13,8 +13,10 @@ public class RuleDefinition {
     private String scene;
     private int priority;
     private String action;       // "ALLOW" / "REJECT" / "MANUAL_REVIEW"
-    private String logicalOp;    // "AND" / "OR"（目前只用 AND）
+    private String logicalOp;    // "AND" / "OR"，只作用于 conditions
     private List<ConditionDefinition> conditions;
+    private ConditionDefinition condition;  // 嵌套条件树，与 logicalOp + conditions 二选一
+    private String stage;        // 分阶段执行时所属的阶段名（StagedRuleEngine），不填归入第一个阶段
 
     public String getId() {
         return id;
@@ -71,4 +73,20 @@ public class RuleDefinition {
     public void setConditions(List<ConditionDefinition> conditions) {
         this.conditions = conditions;
     }
+
+    public ConditionDefinition getCondition() {
+        return condition;
+    }
+
+    public void setCondition(ConditionDefinition condition) {
+        this.condition = condition;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
 }
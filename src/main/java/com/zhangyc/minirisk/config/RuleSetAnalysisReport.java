@@ -0,0 +1,118 @@
+package com.zhangyc.minirisk.config;
+
+import java.util.*;
+
+/**
+ * 规则集静态分析报告：
+ * - 每条有问题的规则一条 Finding（恒不命中 / 被更高优先级规则覆盖 / 场景无人调用）；
+ * - 每个场景每次请求的预估工作量，以及剪掉这些规则后能省下的工作量。
+ *
+ * 工作量按「规则数 + 化简后叶子条件数」估算，即每次请求要执行的谓词个数。
+ */
+public class RuleSetAnalysisReport {
+
+    public enum FindingType {
+        /** 条件自相矛盾或没有配置条件，永远不会命中 */
+        DEAD,
+        /** 命中时一定同时命中一条更高优先级、动作不弱于它的规则，对最终动作没有影响 */
+        SUBSUMED,
+        /** 所属场景没有任何调用方 */
+        UNREACHABLE_SCENE
+    }
+
+    /**
+     * 单条分析结论。
+     */
+    public static class Finding {
+
+        private final String ruleId;
+        private final FindingType type;
+        private final String reason;
+        private final boolean pruned;
+
+        public Finding(String ruleId, FindingType type, String reason, boolean pruned) {
+            this.ruleId = ruleId;
+            this.type = type;
+            this.reason = reason;
+            this.pruned = pruned;
+        }
+
+        public String getRuleId() {
+            return ruleId;
+        }
+
+        public FindingType getType() {
+            return type;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        /** 是否已从运行时规则集中剔除 */
+        public boolean isPruned() {
+            return pruned;
+        }
+
+        @Override
+        public String toString() {
+            return ruleId + " [" + type + (pruned ? ", pruned" : "") + "] " + reason;
+        }
+    }
+
+    private final List<Finding> findings;
+
+    /** 场景 -> 每次请求预估执行的谓词个数 */
+    private final Map<String, Integer> workPerScene;
+
+    /** 场景 -> 剪枝后每次请求省下的谓词个数 */
+    private final Map<String, Integer> savedWorkPerScene;
+
+    public RuleSetAnalysisReport(List<Finding> findings,
+                                 Map<String, Integer> workPerScene,
+                                 Map<String, Integer> savedWorkPerScene) {
+        this.findings = Collections.unmodifiableList(findings);
+        this.workPerScene = Collections.unmodifiableMap(workPerScene);
+        this.savedWorkPerScene = Collections.unmodifiableMap(savedWorkPerScene);
+    }
+
+    public List<Finding> getFindings() {
+        return findings;
+    }
+
+    public Set<String> getPrunedRuleIds() {
+        Set<String> ids = new LinkedHashSet<>();
+        for (Finding finding : findings) {
+            if (finding.isPruned()) {
+                ids.add(finding.getRuleId());
+            }
+        }
+        return ids;
+    }
+
+    public Map<String, Integer> getWorkPerScene() {
+        return workPerScene;
+    }
+
+    public Map<String, Integer> getSavedWorkPerScene() {
+        return savedWorkPerScene;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("RuleSetAnalysisReport{\n");
+        for (Finding finding : findings) {
+            sb.append("  ").append(finding).append('\n');
+        }
+        for (Map.Entry<String, Integer> e : workPerScene.entrySet()) {
+            int total = e.getValue();
+            int saved = savedWorkPerScene.getOrDefault(e.getKey(), 0);
+            sb.append("  scene ").append(e.getKey())
+                    .append(": work/request=").append(total)
+                    .append(", saved=").append(saved)
+                    .append(String.format(" (%.1f%%)", total == 0 ? 0.0 : 100.0 * saved / total))
+                    .append('\n');
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,284 @@
+package com.zhangyc.minirisk.config;
+
+import com.zhangyc.minirisk.compile.ConditionCompiler;
+import com.zhangyc.minirisk.compile.ConditionExpr;
+import com.zhangyc.minirisk.config.RuleSetAnalysisReport.Finding;
+import com.zhangyc.minirisk.config.RuleSetAnalysisReport.FindingType;
+import com.zhangyc.minirisk.model.RuleAction;
+
+import java.util.*;
+
+/**
+ * 加载期的规则集静态分析：
+ * - DEAD：条件化简后恒为 FALSE（例如 order.amount > 1000 AND order.amount < 500），或没有配置条件；
+ * - SUBSUMED：同场景（或 COMMON）中存在一条优先级更高、动作不弱于它的规则，且本规则命中时那条规则必然命中，
+ *   因此本规则不会改变最终动作（只会多出现在命中列表里）；
+ * - UNREACHABLE_SCENE：规则所属场景不在调用方声明的场景集合内（COMMON 除外）。
+ *
+ * 可以选择把这几类规则从运行时规则集中剔除，报告里给出每个场景每次请求预估省下的工作量。
+ * 包含关系只对「叶子条件的合取 / 合取的析取」做判断，判断不了的一律视为不包含（保守）。
+ */
+public class RuleSetAnalyzer {
+
+    private Set<String> servedScenes;
+    private boolean pruneDead;
+    private boolean pruneSubsumed;
+    private boolean pruneUnreachable;
+
+    // ======== 链式 set 方法 ========
+
+    /**
+     * 实际有调用方的场景；不设置时不做场景可达性检查。
+     */
+    public RuleSetAnalyzer setServedScenes(Collection<String> scenes) {
+        this.servedScenes = new HashSet<>();
+        for (String scene : scenes) {
+            servedScenes.add(scene.toUpperCase(Locale.ROOT));
+        }
+        return this;
+    }
+
+    public RuleSetAnalyzer setPruneDead(boolean pruneDead) {
+        this.pruneDead = pruneDead;
+        return this;
+    }
+
+    public RuleSetAnalyzer setPruneSubsumed(boolean pruneSubsumed) {
+        this.pruneSubsumed = pruneSubsumed;
+        return this;
+    }
+
+    public RuleSetAnalyzer setPruneUnreachable(boolean pruneUnreachable) {
+        this.pruneUnreachable = pruneUnreachable;
+        return this;
+    }
+
+    /**
+     * 分析一组规则定义。
+     */
+    public RuleSetAnalysisReport analyze(List<RuleDefinition> defs) {
+        List<Analyzed> rules = new ArrayList<>();
+        for (RuleDefinition def : defs) {
+            rules.add(new Analyzed(def));
+        }
+
+        List<Finding> findings = new ArrayList<>();
+        Set<String> pruned = new HashSet<>();
+
+        for (Analyzed rule : rules) {
+            if (servedScenes != null && !rule.isCommon() && !servedScenes.contains(rule.scene)) {
+                findings.add(new Finding(rule.def.getId(), FindingType.UNREACHABLE_SCENE,
+                        "场景 " + rule.def.getScene() + " 没有调用方", pruneUnreachable));
+                if (pruneUnreachable) {
+                    pruned.add(rule.def.getId());
+                }
+                continue;
+            }
+            if (rule.expr.getKind() == ConditionExpr.Kind.FALSE) {
+                findings.add(new Finding(rule.def.getId(), FindingType.DEAD,
+                        "条件恒不成立", pruneDead));
+                if (pruneDead) {
+                    pruned.add(rule.def.getId());
+                }
+                continue;
+            }
+            Analyzed by = findSubsumer(rule, rules);
+            if (by != null) {
+                findings.add(new Finding(rule.def.getId(), FindingType.SUBSUMED,
+                        "命中时必然命中 " + by.def.getId() + "（priority=" + by.def.getPriority()
+                                + ", action=" + by.action + "）", pruneSubsumed));
+                if (pruneSubsumed) {
+                    pruned.add(rule.def.getId());
+                }
+            }
+        }
+
+        // 预估每个场景每次请求的工作量
+        Set<String> scenes = new TreeSet<>();
+        if (servedScenes != null) {
+            scenes.addAll(servedScenes);
+        } else {
+            for (Analyzed rule : rules) {
+                if (!rule.isCommon()) {
+                    scenes.add(rule.scene);
+                }
+            }
+        }
+        Map<String, Integer> work = new LinkedHashMap<>();
+        Map<String, Integer> saved = new LinkedHashMap<>();
+        for (String scene : scenes) {
+            int total = 0;
+            int savedWork = 0;
+            for (Analyzed rule : rules) {
+                if (rule.isCommon() || rule.scene.equals(scene)) {
+                    total += rule.cost;
+                    if (pruned.contains(rule.def.getId())) {
+                        savedWork += rule.cost;
+                    }
+                }
+            }
+            work.put(scene, total);
+            saved.put(scene, savedWork);
+        }
+        return new RuleSetAnalysisReport(findings, work, saved);
+    }
+
+    private static Analyzed findSubsumer(Analyzed rule, List<Analyzed> rules) {
+        for (Analyzed other : rules) {
+            if (other == rule
+                    || other.expr.getKind() == ConditionExpr.Kind.FALSE
+                    || other.def.getPriority() <= rule.def.getPriority()
+                    || severity(other.action) < severity(rule.action)
+                    || !(other.isCommon() || other.scene.equals(rule.scene))) {
+                continue;
+            }
+            if (implies(rule.expr, other.expr)) {
+                return other;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * b 成立时 a 是否一定成立（保守判断）。
+     */
+    static boolean implies(ConditionExpr b, ConditionExpr a) {
+        if (a.getKind() == ConditionExpr.Kind.TRUE || b.equals(a)) {
+            return true;
+        }
+        if (a.getKind() == ConditionExpr.Kind.OR) {
+            for (ConditionExpr disjunct : a.getChildren()) {
+                if (implies(b, disjunct)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (b.getKind() == ConditionExpr.Kind.OR) {
+            // b 的每个分支都要能推出 a
+            for (ConditionExpr branch : b.getChildren()) {
+                if (!implies(branch, a)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        List<ConditionExpr> bAtoms = conjuncts(b);
+        List<ConditionExpr> aAtoms = conjuncts(a);
+        if (bAtoms == null || aAtoms == null) {
+            return false;
+        }
+        for (ConditionExpr atom : aAtoms) {
+            if (!atomImplied(bAtoms, atom)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 把叶子或「叶子的 AND」拆成原子条件列表（算术比较也是原子条件，左边表达式当作字段），其他形状返回 null。
+     */
+    private static List<ConditionExpr> conjuncts(ConditionExpr expr) {
+        if (isAtom(expr)) {
+            return Collections.singletonList(expr);
+        }
+        if (expr.getKind() != ConditionExpr.Kind.AND) {
+            return null;
+        }
+        for (ConditionExpr child : expr.getChildren()) {
+            if (!isAtom(child)) {
+                return null;
+            }
+        }
+        return expr.getChildren();
+    }
+
+    private static boolean isAtom(ConditionExpr expr) {
+        return expr.getKind() == ConditionExpr.Kind.LEAF || expr.getKind() == ConditionExpr.Kind.ARITH;
+    }
+
+    /**
+     * 原子条件 atom 能否由 bAtoms 的合取推出：
+     * - bAtoms 中有完全相同的条件；
+     * - 或者 atom 是数值区间条件，而 bAtoms 在同一字段上的区间落在 atom 的范围内。
+     */
+    private static boolean atomImplied(List<ConditionExpr> bAtoms, ConditionExpr atom) {
+        if (bAtoms.contains(atom)) {
+            return true;
+        }
+        Double bound = rangeValue(atom);
+        if (bound == null) {
+            return false;
+        }
+        String op = atom.getOp();
+        for (ConditionExpr b : bAtoms) {
+            Double v = rangeValue(b);
+            if (v == null || !b.getField().equals(atom.getField())) {
+                continue;
+            }
+            String bOp = b.getOp();
+            if (op.charAt(0) == '>' && bOp.charAt(0) == '>') {
+                // b: x > v / x >= v，atom: x > bound / x >= bound
+                if (v > bound || (v.equals(bound) && (">".equals(bOp) || ">=".equals(op)))) {
+                    return true;
+                }
+            } else if (op.charAt(0) == '<' && bOp.charAt(0) == '<') {
+                if (v < bound || (v.equals(bound) && ("<".equals(bOp) || "<=".equals(op)))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Double rangeValue(ConditionExpr leaf) {
+        String op = leaf.getOp();
+        if (!(">".equals(op) || ">=".equals(op) || "<".equals(op) || "<=".equals(op))) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(leaf.getValue());
+        } catch (NumberFormatException | NullPointerException e) {
+            return null;
+        }
+    }
+
+    private static int severity(RuleAction action) {
+        switch (action) {
+            case REJECT:
+                return 2;
+            case MANUAL_REVIEW:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * 单条规则的分析用信息。
+     */
+    private static final class Analyzed {
+
+        private final RuleDefinition def;
+        private final String scene;
+        private final RuleAction action;
+        private final ConditionExpr expr;
+
+        /** 每次请求的预估代价：规则本身 1 + 化简后的叶子条件数 */
+        private final int cost;
+
+        private Analyzed(RuleDefinition def) {
+            this.def = def;
+            this.scene = String.valueOf(def.getScene()).toUpperCase(Locale.ROOT);
+            this.action = RuleAction.valueOf(def.getAction().toUpperCase(Locale.ROOT));
+            this.expr = ConditionCompiler.optimizedExpr(def);
+            this.cost = 1 + expr.leafCount();
+        }
+
+        private boolean isCommon() {
+            return "COMMON".equals(scene);
+        }
+    }
+}
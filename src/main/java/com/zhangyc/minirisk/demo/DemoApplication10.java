@@ -0,0 +1,64 @@
+package com.zhangyc.minirisk.demo;
+
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.engine.ProfilingRuleEngine;
+import com.zhangyc.minirisk.engine.SimpleRuleEngine;
+import com.zhangyc.minirisk.engine.SlowDecision;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.model.RuleAction;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * v0.10 Demo：慢决策捕获。PAY 场景额外挂一条手写规则模拟外部查询，大额订单会慢 2ms；
+ * 超过 1ms 的决策被捕获（上下文、规则集版本、逐条规则耗时、解释），最后按 NDJSON 导出到临时文件。
+ */
+@Slf4j
+public class DemoApplication10 {
+    public static void main(String[] args) throws Exception {
+        CompiledRuleSet pay = RuleRegistry.getCompiledRuleSet("PAY");
+        List<Rule> rules = new ArrayList<>(pay.getRulesInPriorityOrder());
+        rules.add(new Rule("R_SLOW_DEMO", "大额订单查询外部名单（模拟）", "PAY", 10, ctx -> {
+            if (ctx.getOrderAmount() > 9000) {
+                LockSupport.parkNanos(2_000_000L);
+            }
+            return false;
+        }, RuleAction.MANUAL_REVIEW));
+
+        ProfilingRuleEngine engine = new ProfilingRuleEngine(new SimpleRuleEngine(), 1000L, 16);
+        for (int i = 0; i < 10_000; i++) {
+            RiskContext ctx = new RiskContext()
+                    .setUserId("U" + i)
+                    .setNewUser(i % 3 == 0)
+                    .setRegisterMinutes(i % 60)
+                    .setOrderAmount(i % 2000 == 0 ? 9999.0 : 100.0 + i % 500)
+                    .setIpInBlacklist(i % 4000 == 0);
+            engine.evaluate(ctx, rules, pay.getVersion());
+        }
+        log.info("evaluations={} slow={} captured={} skipped={}",
+                engine.getEvaluationCount(), engine.getSlowCount(),
+                engine.getCapturedCount(), engine.getSkippedCount());
+        // 最慢规则的耗时接近总耗时说明是规则本身慢，否则是环境（JIT 预热、GC 等）导致的
+        for (SlowDecision decision : engine.snapshot()) {
+            SlowDecision.RuleTiming slowest = decision.getRuleTimings().stream()
+                    .max(Comparator.comparingLong(SlowDecision.RuleTiming::getNanos))
+                    .orElse(null);
+            log.info("version={} elapsed={}us action={} slowestRule={} amount={}",
+                    decision.getRuleSetVersion(), decision.getElapsedNanos() / 1000, decision.getFinalAction(), slowest,
+                    decision.getContext().get("order.amount"));
+        }
+
+        Path file = Files.createTempFile("slow-decisions", ".ndjson");
+        log.info("dumped {} slow decisions to {}", engine.dump(file), file);
+        Files.readAllLines(file).stream().limit(1).forEach(line -> log.info("{}", line));
+        Files.delete(file);
+    }
+}
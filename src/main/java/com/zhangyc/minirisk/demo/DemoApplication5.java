@@ -0,0 +1,46 @@
+package com.zhangyc.minirisk.demo;
+
+import com.zhangyc.minirisk.engine.CachingRuleEngine;
+import com.zhangyc.minirisk.engine.SimpleRuleEngine;
+import com.zhangyc.minirisk.model.*;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * v0.5 Demo：决策缓存，重复提交（只有 orderId 不同）直接命中缓存。
+ */
+@Slf4j
+public class DemoApplication5 {
+    public static void main(String[] args) {
+        String scene = "PAY";
+        List<Rule> rules = RuleRegistry.getRulesForScene(scene);
+
+        CachingRuleEngine engine = CachingRuleEngine.create(new SimpleRuleEngine(), 10_000, 60_000);
+
+        for (int i = 0; i < 3; i++) {
+            // 模拟重试：orderId 每次不同，但规则不读 orderId，所以 key 相同
+            RiskContext ctx = new RiskContext()
+                    .setUserId("U123")
+                    .setNewUser(true)
+                    .setRegisterMinutes(30)
+                    .setHistoryOrderCount(0)
+                    .setOrderId("O2025010" + i)
+                    .setOrderAmount(1500.0)
+                    .setDeviceId("D001")
+                    .setDeviceLoginUserCountIn10Min(1)
+                    .setIp("1.2.3.4")
+                    .setIpInBlacklist(false);
+
+            DecisionResult result = engine.evaluate(ctx, rules);
+            log.info("Round {} -> {} | hits={} misses={}",
+                    i, result.getFinalAction(), engine.getHitCount(), engine.getMissCount());
+        }
+
+        // 重新加载规则后，缓存自动失效
+        RuleRegistry.reload("rules-demo.json");
+        log.info("After reload: version={} cacheSize={}", RuleRegistry.getVersion(), engine.size());
+        engine.close();
+    }
+}
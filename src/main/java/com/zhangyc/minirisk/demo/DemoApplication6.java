@@ -0,0 +1,45 @@
+package com.zhangyc.minirisk.demo;
+
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.engine.CompiledRuleEngine;
+import com.zhangyc.minirisk.model.*;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.RiskContextAdapter;
+import com.zhangyc.minirisk.schema.SlotContext;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * v0.6 Demo：基于 schema 槽位的上下文 + 编译后的规则集。
+ */
+@Slf4j
+public class DemoApplication6 {
+    public static void main(String[] args) {
+        String scene = "PAY";
+        ContextSchema schema = ContextSchema.defaultSchema();
+        CompiledRuleSet ruleSet = RuleRegistry.getCompiledRuleSet(scene);
+        CompiledRuleEngine engine = new CompiledRuleEngine();
+
+        // 1. 直接按字段路径构造上下文（context-schema.json 里配置的字段也可以用）
+        SlotContext slotCtx = schema.newContext()
+                .set("user.isNew", true)
+                .set("user.registerMinutes", 30)
+                .set("user.historyOrderCount", 0)
+                .set("order.amount", 1500.0)
+                .set("ip.inBlacklist", false)
+                .set("device.riskScore", 0.87);
+        DecisionResult r1 = engine.evaluate(slotCtx, ruleSet);
+        log.info("SlotContext: {}", slotCtx);
+        log.info("Decision (slot): {} matched={}", r1.getFinalAction(), r1.getMatchedRules());
+
+        // 2. 原有的 RiskContext POJO 通过适配器继续可用
+        RiskContext ctx = new RiskContext()
+                .setUserId("U123")
+                .setNewUser(false)
+                .setOrderAmount(200.0)
+                .setIp("1.2.3.4")
+                .setIpInBlacklist(true);
+        DecisionResult r2 = engine.evaluate(ctx, ruleSet, new RiskContextAdapter(schema));
+        log.info("Decision (pojo): {} matched={}", r2.getFinalAction(), r2.getMatchedRules());
+    }
+}
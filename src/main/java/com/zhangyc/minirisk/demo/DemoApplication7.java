@@ -0,0 +1,31 @@
+package com.zhangyc.minirisk.demo;
+
+import com.zhangyc.minirisk.config.RuleConfigLoader;
+import com.zhangyc.minirisk.config.RuleSetAnalyzer;
+import com.zhangyc.minirisk.model.Rule;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * v0.7 Demo：加载规则时做静态分析，剔除恒不命中 / 被覆盖 / 场景无人调用的规则。
+ */
+@Slf4j
+public class DemoApplication7 {
+    public static void main(String[] args) {
+        RuleSetAnalyzer analyzer = new RuleSetAnalyzer()
+                .setServedScenes(Arrays.asList("LOGIN", "PAY"))
+                .setPruneDead(true)
+                .setPruneSubsumed(true)
+                .setPruneUnreachable(true);
+
+        List<Rule> rules = RuleConfigLoader.loadRulesFromClasspath("rules-analysis-demo.json", analyzer);
+
+        log.info("Analysis: {}", RuleConfigLoader.getLastAnalysisReport());
+        log.info("Runtime rules after pruning:");
+        for (Rule rule : rules) {
+            log.info("  - {} | {} | scene={}", rule.getId(), rule.getDescription(), rule.getScene());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.zhangyc.minirisk.demo;
+
+import com.zhangyc.minirisk.config.RuleConfigLoader;
+import com.zhangyc.minirisk.replay.ReplayReport;
+import com.zhangyc.minirisk.replay.ReplayRunner;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * v0.8 Demo：离线回放。生成一份 NDJSON 历史事件，
+ * 用线上规则（rules-demo.json）和候选规则（rules-candidate-demo.json）各跑一遍，输出命中与决策差异。
+ */
+@Slf4j
+public class DemoApplication8 {
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        Path events = Files.createTempFile("mini-risk-events", ".ndjson");
+        try {
+            writeEvents(events, rows);
+            log.info("events: {} rows, {} KB", rows, Files.size(events) >> 10);
+
+            ReplayReport report = new ReplayRunner()
+                    .setScene("PAY")
+                    .setBaseline("rules-demo.json", RuleConfigLoader.readDefinitionsFromClasspath("rules-demo.json"))
+                    .setCandidate("rules-candidate-demo.json",
+                            RuleConfigLoader.readDefinitionsFromClasspath("rules-candidate-demo.json"))
+                    .run(events);
+            log.info("{}", report);
+        } finally {
+            Files.deleteIfExists(events);
+        }
+    }
+
+    private static void writeEvents(Path file, int rows) throws IOException {
+        Random random = new Random(7);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < rows; i++) {
+                // 嵌套对象和扁平路径两种写法都支持
+                out.write("{\"user\":{\"isNew\":" + random.nextBoolean()
+                        + ",\"historyOrderCount\":" + random.nextInt(4)
+                        + ",\"registerMinutes\":" + random.nextInt(240) + "}"
+                        + ",\"order.id\":\"O" + i + "\""
+                        + ",\"order.amount\":" + random.nextInt(500_000) / 100.0
+                        + ",\"ip\":{\"inBlacklist\":" + (random.nextInt(100) == 0) + "}"
+                        + ",\"device.riskScore\":" + random.nextInt(100) / 100.0
+                        + ",\"tags\":[\"a\",\"b\"]}\n");
+            }
+        }
+    }
+}
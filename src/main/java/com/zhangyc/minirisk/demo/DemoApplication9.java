@@ -0,0 +1,45 @@
+package com.zhangyc.minirisk.demo;
+
+import com.zhangyc.minirisk.engine.BudgetedRuleEngine;
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * v0.9 Demo：带预算的降级执行。PAY 场景的代价预算只够执行高优先级规则，
+ * 低优先级规则被跳过，结果标记为部分结果；高优先级的 REJECT 规则（R_IP_001）总是执行。
+ */
+@Slf4j
+public class DemoApplication9 {
+    public static void main(String[] args) {
+        List<Rule> rules = RuleRegistry.getRulesForScene("PAY");
+        BudgetedRuleEngine engine = new BudgetedRuleEngine()
+                .setSceneBudget("PAY", 0L, 8)
+                .setProtectedPriority(100);
+
+        RiskContext risky = new RiskContext()
+                .setUserId("U1")
+                .setNewUser(true)
+                .setRegisterMinutes(10)
+                .setHistoryOrderCount(0)
+                .setOrderAmount(5000.0)
+                .setIpInBlacklist(true);
+        DecisionResult result = engine.evaluate(risky, rules, "PAY");
+        log.info("partial={} action={} matched={} skipped={}",
+                result.isPartial(), result.getFinalAction(), result.getMatchedRules(), result.getSkippedRules());
+
+        // 时间预算：2 微秒，观察降级比例
+        engine.setSceneBudget("PAY", 2L, 0);
+        for (int i = 0; i < 100_000; i++) {
+            engine.evaluate(risky, rules, "PAY");
+        }
+        log.info("evaluations={} degraded={} ({}) skippedRules={} byScene={}",
+                engine.getEvaluationCount(), engine.getDegradedCount(),
+                String.format("%.2f%%", 100 * engine.getDegradationRate()),
+                engine.getSkippedRuleCount(), engine.getDegradedCountByScene());
+    }
+}
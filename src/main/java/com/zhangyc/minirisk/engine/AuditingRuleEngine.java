@@ -0,0 +1,32 @@
+package com.zhangyc.minirisk.engine;
+
+import com.zhangyc.minirisk.audit.AuditLog;
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.model.Rule;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 把每次决策写入审计日志的引擎（装饰器）：
+ * - 决策由 delegate 给出；要记录解释信息时，delegate 用 ExplainableRuleEngine 即可；
+ * - 审计写入是异步的，调用线程只做编码和一次入队，队列满时丢弃（见 AuditLog 的有界丢失策略），不影响决策结果。
+ */
+public class AuditingRuleEngine implements RuleEngine {
+
+    private final RuleEngine delegate;
+    private final AuditLog auditLog;
+
+    public AuditingRuleEngine(RuleEngine delegate, AuditLog auditLog) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate engine must not be null");
+        this.auditLog = Objects.requireNonNull(auditLog, "auditLog must not be null");
+    }
+
+    @Override
+    public DecisionResult evaluate(RiskContext context, List<Rule> rules) {
+        DecisionResult result = delegate.evaluate(context, rules);
+        auditLog.append(ShadowRuleEngine.sceneOf(rules), context, result);
+        return result;
+    }
+}
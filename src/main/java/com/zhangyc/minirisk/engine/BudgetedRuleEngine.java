@@ -0,0 +1,292 @@
+package com.zhangyc.minirisk.engine;
+
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.model.RuleAction;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * 带执行预算的规则引擎：过载或个别规则变慢时，宁可跳过低优先级规则也不超时。
+ * - 每个场景可以配置时间预算和代价预算（代价 = 1 + 化简后的叶子条件数，与 RuleSetAnalyzer 的估算一致，
+ *   取自每条规则自身的 Rule.getLeafCount，不按 id 查全局定义）；
+ * - 场景由调用方通过 evaluate(context, rules, scene) 指定；只传规则列表时按列表推断：取唯一的非 COMMON 场景，
+ *   全是 COMMON 规则时用 COMMON 的预算，含多个场景（例如多场景合并的列表）时用默认预算，降级按 DEFAULT 计数；
+ * - 规则按优先级从高到低执行，预算耗尽后不再执行后面的规则，结果标记为部分结果（DecisionResult.isPartial），
+ *   并列出被跳过的规则；
+ * - 优先级不低于 protectedPriority 的 REJECT 规则不受预算限制，总是执行；
+ * - 统计降级次数和跳过的规则数，按场景分别计数。
+ *
+ * 预算耗尽的判断在执行每条规则之前做，所以实际耗时最多超出一条规则的执行时间。
+ * 执行计划按规则列表的对象身份缓存（写时复制，请求路径上查计划不加锁）；用 create 创建的引擎在规则 reload 后
+ * 清空计划，不用时调用 close 注销监听。
+ */
+public class BudgetedRuleEngine implements RuleEngine, AutoCloseable {
+
+    /** 默认受保护的优先级：不低于它的 REJECT 规则总是执行 */
+    public static final int DEFAULT_PROTECTED_PRIORITY = 100;
+
+    /** 不限预算 */
+    private static final Budget UNLIMITED = new Budget(0L, 0);
+
+    private static final String COMMON_SCENE = "COMMON";
+
+    /** 无法从规则列表推断出唯一场景时，降级统计使用的场景名 */
+    private static final String DEFAULT_SCENE = "DEFAULT";
+
+    /** 规则列表 -> 执行计划 的映射上限，防止调用方每次传新列表导致无限增长 */
+    private static final int MAX_PLANS = 1024;
+
+    /** 没有命中任何规则时的结果，不可变，可以共享 */
+    private static final DecisionResult ALLOW_NO_MATCH = new DecisionResult(RuleAction.ALLOW, Collections.<Rule>emptyList());
+
+    private final Map<String, Budget> sceneBudgets = new ConcurrentHashMap<>();
+    private volatile Budget defaultBudget = UNLIMITED;
+    private volatile int protectedPriority = DEFAULT_PROTECTED_PRIORITY;
+
+    /** 规则列表（按对象身份）-> 排好序的执行计划；写时复制，读不加锁，替换在 planLock 上同步 */
+    private volatile Map<List<Rule>, Plan> plans = new IdentityHashMap<>();
+    private final Object planLock = new Object();
+
+    /** 规则重新加载后旧版本的列表不会再传进来，清空计划释放它们；create 时注册、close 时注销 */
+    private final LongConsumer reloadListener = version -> clearPlans();
+
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder degraded = new LongAdder();
+    private final LongAdder skippedRules = new LongAdder();
+    private final Map<String, LongAdder> degradedByScene = new ConcurrentHashMap<>();
+
+    /**
+     * 创建引擎并注册到 RuleRegistry：规则重新加载后清空执行计划。不用时调用 close。
+     */
+    public static BudgetedRuleEngine create() {
+        BudgetedRuleEngine engine = new BudgetedRuleEngine();
+        RuleRegistry.addReloadListener(engine.reloadListener);
+        return engine;
+    }
+
+    /**
+     * 注销 reload 监听（没有注册过时什么都不做），引擎本身仍然可用。
+     */
+    @Override
+    public void close() {
+        RuleRegistry.removeReloadListener(reloadListener);
+    }
+
+    // ======== 链式 set 方法 ========
+
+    /**
+     * 没有单独配置的场景使用的预算。
+     *
+     * @param timeMicros 时间预算（微秒），<= 0 表示不限
+     * @param maxCost    代价预算，<= 0 表示不限
+     */
+    public BudgetedRuleEngine setDefaultBudget(long timeMicros, int maxCost) {
+        this.defaultBudget = new Budget(timeMicros, maxCost);
+        return this;
+    }
+
+    /**
+     * 单个场景的预算，参数含义同 setDefaultBudget。
+     */
+    public BudgetedRuleEngine setSceneBudget(String scene, long timeMicros, int maxCost) {
+        Objects.requireNonNull(scene, "scene must not be null");
+        sceneBudgets.put(scene.toUpperCase(Locale.ROOT), new Budget(timeMicros, maxCost));
+        return this;
+    }
+
+    public BudgetedRuleEngine setProtectedPriority(int protectedPriority) {
+        this.protectedPriority = protectedPriority;
+        clearPlans();
+        return this;
+    }
+
+    /**
+     * 按规则列表推断场景（规则见类注释），多场景合并的列表请用 evaluate(context, rules, scene)。
+     */
+    @Override
+    public DecisionResult evaluate(RiskContext context, List<Rule> rules) {
+        Objects.requireNonNull(context, "context must not be null");
+        Objects.requireNonNull(rules, "rules must not be null");
+        Plan plan = planFor(rules);
+        return evaluate(context, plan, plan.scene);
+    }
+
+    /**
+     * 按调用方指定的场景取预算。
+     *
+     * @param scene 例如 "PAY"，不区分大小写；没有单独配置预算时用默认预算
+     */
+    public DecisionResult evaluate(RiskContext context, List<Rule> rules, String scene) {
+        Objects.requireNonNull(context, "context must not be null");
+        Objects.requireNonNull(rules, "rules must not be null");
+        Objects.requireNonNull(scene, "scene must not be null");
+        return evaluate(context, planFor(rules), scene.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * @param scene 已转成大写；null 表示无法确定场景，使用默认预算
+     */
+    private DecisionResult evaluate(RiskContext context, Plan plan, String scene) {
+        Budget budget = scene == null ? defaultBudget : sceneBudgets.getOrDefault(scene, defaultBudget);
+        evaluations.increment();
+
+        long deadline = budget.timeNanos > 0 ? System.nanoTime() + budget.timeNanos : 0L;
+        int spent = 0;
+        boolean exhausted = false;
+        List<Rule> matched = null;
+        List<Rule> skipped = null;
+        RuleAction finalAction = RuleAction.ALLOW;
+
+        for (int i = 0; i < plan.rules.length; i++) {
+            Rule rule = plan.rules[i];
+            if (!plan.mandatory[i]) {
+                if (!exhausted) {
+                    exhausted = (budget.maxCost > 0 && spent + plan.costs[i] > budget.maxCost)
+                            || (deadline != 0L && System.nanoTime() - deadline >= 0);
+                }
+                if (exhausted) {
+                    if (skipped == null) {
+                        skipped = new ArrayList<>();
+                    }
+                    skipped.add(rule);
+                    continue;
+                }
+            }
+            spent += plan.costs[i];
+            if (rule.getCondition().test(context)) {
+                if (matched == null) {
+                    matched = new ArrayList<>();
+                }
+                matched.add(rule);
+                finalAction = CompiledRuleEngine.stronger(finalAction, rule.getAction());
+            }
+        }
+
+        if (skipped != null) {
+            degraded.increment();
+            skippedRules.add(skipped.size());
+            degradedByScene.computeIfAbsent(scene == null ? DEFAULT_SCENE : scene, s -> new LongAdder()).increment();
+            return new DecisionResult(finalAction, matched, null, skipped);
+        }
+        return matched == null ? ALLOW_NO_MATCH : new DecisionResult(finalAction, matched);
+    }
+
+    public long getEvaluationCount() {
+        return evaluations.sum();
+    }
+
+    /** 因预算耗尽而返回部分结果的次数 */
+    public long getDegradedCount() {
+        return degraded.sum();
+    }
+
+    /** 累计跳过的规则条数 */
+    public long getSkippedRuleCount() {
+        return skippedRules.sum();
+    }
+
+    public double getDegradationRate() {
+        long total = evaluations.sum();
+        return total == 0 ? 0.0 : (double) degraded.sum() / total;
+    }
+
+    /** 场景 -> 降级次数，无法确定场景的决策计在 DEFAULT 下 */
+    public Map<String, Long> getDegradedCountByScene() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> e : degradedByScene.entrySet()) {
+            counts.put(e.getKey(), e.getValue().sum());
+        }
+        return counts;
+    }
+
+    private Plan planFor(List<Rule> rules) {
+        Plan plan = plans.get(rules);
+        if (plan != null) {
+            return plan;
+        }
+        synchronized (planLock) {
+            Map<List<Rule>, Plan> current = plans;
+            plan = current.get(rules);
+            if (plan == null) {
+                Map<List<Rule>, Plan> copy = current.size() >= MAX_PLANS
+                        ? new IdentityHashMap<>() : new IdentityHashMap<>(current);
+                plan = Plan.build(rules, protectedPriority);
+                copy.put(rules, plan);
+                plans = copy;
+            }
+            return plan;
+        }
+    }
+
+    private void clearPlans() {
+        synchronized (planLock) {
+            plans = new IdentityHashMap<>();
+        }
+    }
+
+    /**
+     * 一个场景的预算。
+     */
+    private static final class Budget {
+
+        private final long timeNanos;
+        private final int maxCost;
+
+        private Budget(long timeMicros, int maxCost) {
+            this.timeNanos = timeMicros <= 0 ? 0L : TimeUnit.MICROSECONDS.toNanos(timeMicros);
+            this.maxCost = Math.max(0, maxCost);
+        }
+    }
+
+    /**
+     * 一组规则的执行计划：按优先级从高到低排好序，附带每条规则的代价和是否受保护，以及推断出的场景
+     * （含多个非 COMMON 场景时为 null）。
+     */
+    private static final class Plan {
+
+        private final String scene;
+        private final Rule[] rules;
+        private final int[] costs;
+        private final boolean[] mandatory;
+
+        private Plan(String scene, Rule[] rules, int[] costs, boolean[] mandatory) {
+            this.scene = scene;
+            this.rules = rules;
+            this.costs = costs;
+            this.mandatory = mandatory;
+        }
+
+        private static Plan build(List<Rule> rules, int protectedPriority) {
+            Rule[] sorted = rules.toArray(new Rule[0]);
+            // 稳定排序，同优先级保持原有顺序
+            Arrays.sort(sorted, Comparator.comparingInt(Rule::getPriority).reversed());
+
+            String scene = COMMON_SCENE;
+            boolean mixed = false;
+            int[] costs = new int[sorted.length];
+            boolean[] mandatory = new boolean[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                Rule rule = sorted[i];
+                String ruleScene = String.valueOf(rule.getScene()).toUpperCase(Locale.ROOT);
+                if (!COMMON_SCENE.equals(ruleScene)) {
+                    if (COMMON_SCENE.equals(scene)) {
+                        scene = ruleScene;
+                    } else if (!scene.equals(ruleScene)) {
+                        mixed = true;
+                    }
+                }
+                // 代价 = 1 + 化简后的叶子条件数，手写的规则按 1 计
+                costs[i] = 1 + rule.getLeafCount();
+                mandatory[i] = rule.getAction() == RuleAction.REJECT && rule.getPriority() >= protectedPriority;
+            }
+            return new Plan(mixed ? null : scene, sorted, costs, mandatory);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.zhangyc.minirisk.engine;
+
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import com.zhangyc.minirisk.support.RiskFieldAccessor;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * 带「决策缓存」的规则引擎（装饰器）：
+ * - 缓存 key = 规则列表（按对象身份，每个版本、租户、剪枝后的列表各算各的）+ 这批规则实际引用到的 @RiskField 字段值，
+ *   引用字段取自每条规则自身（Rule.getReferencedFields），id 相同、条件不同的规则不会漏掉字段；
+ * - 上下文里其他没被规则读到的字段（例如 orderId）不影响 key，所以重试 / 重复提交可以直接命中；
+ * - 分段 LRU + TTL 淘汰，总条目数不超过 maxEntries（容量小于 16 时相应减少分段数）；
+ * - 规则列表 -> 计划 的映射写时复制，请求路径上查计划不加锁；
+ * - reload 之后新请求拿到的是新的规则列表，不会读到旧列表的结果；用 create 创建的引擎还会在 reload 后清空缓存，
+ *   不用时调用 close 注销监听；
+ * - 统计命中 / 未命中 / 淘汰次数。
+ *
+ * 命中缓存时直接返回之前的 DecisionResult（不可变对象），不执行任何规则。
+ * 如果规则列表里有不是由配置构造的规则（无法确定它读了哪些字段），则这一批规则不走缓存。
+ */
+public class CachingRuleEngine implements RuleEngine, AutoCloseable {
+
+    /** 最大分段数（2 的幂），降低锁竞争 */
+    private static final int MAX_SEGMENTS = 16;
+
+    /** 规则列表 -> 缓存计划 的映射上限，防止调用方每次传新列表导致无限增长 */
+    private static final int MAX_PLANS = 1024;
+
+    private final RuleEngine delegate;
+    private final long ttlNanos;
+    private final Segment[] segments;
+    private final int segmentMask;
+
+    /** 规则列表（按对象身份）-> 该列表的计划；写时复制，读不加锁，替换在 planLock 上同步 */
+    private volatile Map<List<Rule>, ScenePlan> plans = new IdentityHashMap<>();
+    private final Object planLock = new Object();
+
+    /** 计划编号，缓存 key 用它区分规则列表；plans 清空后同一个列表拿到新编号，旧条目自然淘汰 */
+    private final AtomicLong planIds = new AtomicLong();
+
+    /** 规则重新加载后清空缓存，create 时注册、close 时注销 */
+    private final LongConsumer reloadListener = version -> invalidateAll();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder bypasses = new LongAdder();
+
+    /**
+     * @param delegate   真正执行规则的引擎
+     * @param maxEntries 缓存最大条目数
+     * @param ttlMillis  缓存有效期（毫秒），<= 0 表示不过期
+     */
+    public CachingRuleEngine(RuleEngine delegate, int maxEntries, long ttlMillis) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate engine must not be null");
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.ttlNanos = ttlMillis <= 0 ? 0L : ttlMillis * 1_000_000L;
+
+        // 分段数取不超过 maxEntries 的 2 的幂，保证每段至少一条且各段容量之和不超过 maxEntries
+        int segmentCount = Math.min(MAX_SEGMENTS, Integer.highestOneBit(maxEntries));
+        int perSegment = maxEntries / segmentCount;
+        this.segments = new Segment[segmentCount];
+        this.segmentMask = segmentCount - 1;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * 创建引擎并注册到 RuleRegistry：规则重新加载后，旧版本的缓存全部作废。不用时调用 close。
+     */
+    public static CachingRuleEngine create(RuleEngine delegate, int maxEntries, long ttlMillis) {
+        CachingRuleEngine engine = new CachingRuleEngine(delegate, maxEntries, ttlMillis);
+        RuleRegistry.addReloadListener(engine.reloadListener);
+        return engine;
+    }
+
+    /**
+     * 注销 reload 监听（没有注册过时什么都不做），缓存本身仍然可用。
+     */
+    @Override
+    public void close() {
+        RuleRegistry.removeReloadListener(reloadListener);
+    }
+
+    @Override
+    public DecisionResult evaluate(RiskContext context, List<Rule> rules) {
+        Objects.requireNonNull(context, "context must not be null");
+        Objects.requireNonNull(rules, "rules must not be null");
+
+        ScenePlan plan = planFor(rules);
+        if (!plan.cacheable) {
+            bypasses.increment();
+            return delegate.evaluate(context, rules);
+        }
+
+        CacheKey key = plan.keyFor(context);
+        Segment segment = segments[(key.hash ^ (key.hash >>> 16)) & segmentMask];
+        long now = System.nanoTime();
+
+        DecisionResult cached = segment.get(key, now);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        DecisionResult result = delegate.evaluate(context, rules);
+        segment.put(key, result, now + ttlNanos);
+        return result;
+    }
+
+    /**
+     * 清空全部缓存。
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+        synchronized (planLock) {
+            plans = new IdentityHashMap<>();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /** 因为规则无法确定引用字段而没有走缓存的次数 */
+    public long getBypassCount() {
+        return bypasses.sum();
+    }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private ScenePlan planFor(List<Rule> rules) {
+        ScenePlan plan = plans.get(rules);
+        if (plan != null) {
+            return plan;
+        }
+        synchronized (planLock) {
+            Map<List<Rule>, ScenePlan> current = plans;
+            plan = current.get(rules);
+            if (plan == null) {
+                Map<List<Rule>, ScenePlan> copy = current.size() >= MAX_PLANS
+                        ? new IdentityHashMap<>() : new IdentityHashMap<>(current);
+                plan = ScenePlan.build(planIds.incrementAndGet(), rules);
+                copy.put(rules, plan);
+                plans = copy;
+            }
+            return plan;
+        }
+    }
+
+    /**
+     * 一组规则对应的缓存计划：计划编号 + 需要参与 key 的字段路径。
+     */
+    private static final class ScenePlan {
+
+        private final long id;
+        private final boolean cacheable;
+        private final String[] fields;
+
+        private ScenePlan(long id, boolean cacheable, String[] fields) {
+            this.id = id;
+            this.cacheable = cacheable;
+            this.fields = fields;
+        }
+
+        private static ScenePlan build(long id, List<Rule> rules) {
+            Set<String> fields = new TreeSet<>();
+            for (Rule rule : rules) {
+                List<String> ruleFields = rule.getReferencedFields();
+                if (ruleFields == null) {
+                    return new ScenePlan(id, false, null);
+                }
+                fields.addAll(ruleFields);
+            }
+            return new ScenePlan(id, true, fields.toArray(new String[0]));
+        }
+
+        private CacheKey keyFor(RiskContext context) {
+            Object[] values = new Object[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                values[i] = RiskFieldAccessor.getFieldValue(context, fields[i]);
+            }
+            return new CacheKey(id, values);
+        }
+    }
+
+    /**
+     * 缓存 key：计划编号（代表一个规则列表）+ 被引用字段的取值。
+     */
+    private static final class CacheKey {
+
+        private final long planId;
+        private final Object[] values;
+        private final int hash;
+
+        private CacheKey(long planId, Object[] values) {
+            this.planId = planId;
+            this.values = values;
+            this.hash = 31 * Long.hashCode(planId) + Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheKey)) return false;
+            CacheKey that = (CacheKey) o;
+            return hash == that.hash &&
+                    planId == that.planId &&
+                    Arrays.equals(values, that.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class CacheEntry {
+
+        private final DecisionResult result;
+        private final long expireAtNanos;
+
+        private CacheEntry(DecisionResult result, long expireAtNanos) {
+            this.result = result;
+            this.expireAtNanos = expireAtNanos;
+        }
+    }
+
+    /**
+     * 一个缓存分段：按访问顺序排列的 LinkedHashMap，超出容量时淘汰最久未访问的条目。
+     */
+    private final class Segment {
+
+        private final LinkedHashMap<CacheKey, CacheEntry> map;
+
+        private Segment(int capacity) {
+            this.map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        private synchronized DecisionResult get(CacheKey key, long now) {
+            CacheEntry entry = map.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (ttlNanos > 0 && now - entry.expireAtNanos > 0) {
+                map.remove(key);
+                evictions.increment();
+                return null;
+            }
+            return entry.result;
+        }
+
+        private synchronized void put(CacheKey key, DecisionResult result, long expireAtNanos) {
+            map.put(key, new CacheEntry(result, expireAtNanos));
+        }
+
+        private synchronized void clear() {
+            map.clear();
+        }
+
+        private synchronized int size() {
+            return map.size();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.zhangyc.minirisk.engine;
+
+import com.zhangyc.minirisk.compile.CompiledRule;
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.compile.MultiSceneRuleSet;
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.MatchedRuleBits;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.model.RuleAction;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.FieldProviders;
+import com.zhangyc.minirisk.schema.RiskContextAdapter;
+import com.zhangyc.minirisk.schema.SlotContext;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 基于编译规则集的引擎：
+ * - 输入是按 schema 槽位存放的 SlotContext；
+ * - 规则集已经按优先级排好序，命中结果用位图记录，执行时不需要再排序；
+ * - 最终动作的合成规则与 SimpleRuleEngine 相同（REJECT > MANUAL_REVIEW > ALLOW）；
+ * - evaluateReusing 使用线程内复用的 DecisionView，稳定运行后每次决策不分配对象；
+ * - 上下文绑定了 FieldProviders 时，可以先在虚拟线程上并行预取规则集引用到的懒加载字段再执行；
+ * - 一个事件要过多个场景时，合并规则集执行一次（COMMON 规则只执行一次），再按场景拆分结果。
+ */
+public class CompiledRuleEngine {
+
+    /** 没有命中任何规则时的结果，不可变，可以共享 */
+    private static final DecisionResult ALLOW_NO_MATCH = new DecisionResult(RuleAction.ALLOW, Collections.<Rule>emptyList());
+
+    /** 多场景执行时把 RiskContext 拷贝到 SlotContext 用，创建后不可变 */
+    private static final RiskContextAdapter ADAPTER = new RiskContextAdapter(ContextSchema.defaultSchema());
+
+    /** 每个线程一份可复用的结果视图 */
+    private static final ThreadLocal<DecisionView> SCRATCH = ThreadLocal.withInitial(DecisionView::new);
+
+    public DecisionResult evaluate(SlotContext context, CompiledRuleSet ruleSet) {
+        return evaluateTopK(context, ruleSet, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 带懒加载字段的执行：context 已经通过 providers.bind 绑定，执行前先并行预取规则集引用到、
+     * 还没取值的 provider 字段（规则集不引用的 provider 不会调用）；预取失败的字段在条件读到时再取。
+     */
+    public DecisionResult evaluate(SlotContext context, CompiledRuleSet ruleSet, FieldProviders providers) {
+        Objects.requireNonNull(ruleSet, "ruleSet must not be null");
+        providers.prefetch(context, ruleSet.getReferencedFields());
+        return evaluate(context, ruleSet);
+    }
+
+    /**
+     * Top-K 模式：只保证结果里包含优先级最高的 k 条命中规则。
+     * 已经命中 k 条且最终动作已是 REJECT 时，剩下的规则既不会改变最终动作、也进不了前 k 条，直接停止执行。
+     * 命中规则以位图记录，只有调用 getMatchedRules() 时才生成列表。
+     */
+    public DecisionResult evaluateTopK(SlotContext context, CompiledRuleSet ruleSet, int k) {
+        Objects.requireNonNull(context, "context must not be null");
+        Objects.requireNonNull(ruleSet, "ruleSet must not be null");
+
+        long[] words = null;
+        int matchedCount = 0;
+        RuleAction finalAction = RuleAction.ALLOW;
+
+        for (int i = 0; i < ruleSet.size(); i++) {
+            CompiledRule compiled = ruleSet.get(i);
+            if (!compiled.test(context)) {
+                continue;
+            }
+            if (words == null) {
+                words = new long[MatchedRuleBits.wordCount(ruleSet.size())];
+            }
+            words[i >>> 6] |= 1L << i;
+            finalAction = stronger(finalAction, compiled.getRule().getAction());
+            if (++matchedCount >= k && finalAction == RuleAction.REJECT) {
+                break;
+            }
+        }
+        if (words == null) {
+            return ALLOW_NO_MATCH;
+        }
+        return new DecisionResult(finalAction, new MatchedRuleBits(ruleSet.getRulesInPriorityOrder(), words));
+    }
+
+    /**
+     * 零分配的执行模式：结果写入当前线程复用的 DecisionView。
+     * 返回的视图在当前线程下一次调用前有效，跨线程传递或长期保存请先 toDecisionResult()。
+     */
+    public DecisionView evaluateReusing(SlotContext context, CompiledRuleSet ruleSet) {
+        DecisionView view = SCRATCH.get();
+        view.reset(ruleSet);
+        for (int i = 0; i < ruleSet.size(); i++) {
+            CompiledRule compiled = ruleSet.get(i);
+            if (compiled.test(context)) {
+                view.setMatched(i, compiled.getRule().getAction());
+            }
+        }
+        return view;
+    }
+
+    /**
+     * 兼容原有的 POJO 上下文：先通过适配器拷贝到 SlotContext 再执行。
+     */
+    public DecisionResult evaluate(RiskContext context, CompiledRuleSet ruleSet, RiskContextAdapter adapter) {
+        Objects.requireNonNull(context, "context must not be null");
+        SlotContext slotContext = adapter.toSlotContext(context, ruleSet.getSchema());
+        return evaluate(slotContext, ruleSet);
+    }
+
+    /**
+     * 一个事件同时执行多个场景：这些场景和 COMMON 的规则合并成一个规则集（见 RuleRegistry.getMultiSceneRuleSet），
+     * 每条规则只执行一次、每个字段只读一次，返回 场景（大写）-> 该场景的决策结果，
+     * 每个场景的结果与单独用 getCompiledRuleSet(scene) 执行相同。
+     */
+    public Map<String, DecisionResult> evaluate(SlotContext context, Set<String> scenes) {
+        return evaluate(context, RuleRegistry.getMultiSceneRuleSet(scenes));
+    }
+
+    /**
+     * 兼容原有的 POJO 上下文：拷贝一次到 SlotContext，再按多场景执行。
+     */
+    public Map<String, DecisionResult> evaluate(RiskContext context, Set<String> scenes) {
+        Objects.requireNonNull(context, "context must not be null");
+        MultiSceneRuleSet ruleSet = RuleRegistry.getMultiSceneRuleSet(scenes);
+        return evaluate(ADAPTER.toSlotContext(context, ruleSet.getRuleSet().getSchema()), ruleSet);
+    }
+
+    /**
+     * 执行合并规则集一次，再用每个场景的位掩码从命中位图里拆出各场景的命中规则和最终动作。
+     */
+    public Map<String, DecisionResult> evaluate(SlotContext context, MultiSceneRuleSet multiScene) {
+        Objects.requireNonNull(context, "context must not be null");
+        Objects.requireNonNull(multiScene, "multiScene must not be null");
+        CompiledRuleSet ruleSet = multiScene.getRuleSet();
+        List<String> scenes = multiScene.getScenes();
+
+        long[] words = null;
+        for (int i = 0; i < ruleSet.size(); i++) {
+            if (ruleSet.get(i).test(context)) {
+                if (words == null) {
+                    words = new long[MatchedRuleBits.wordCount(ruleSet.size())];
+                }
+                words[i >>> 6] |= 1L << i;
+            }
+        }
+
+        Map<String, DecisionResult> results = new LinkedHashMap<>();
+        for (int s = 0; s < scenes.size(); s++) {
+            results.put(scenes.get(s), words == null ? ALLOW_NO_MATCH : sceneResult(ruleSet, words, multiScene.getMask(s)));
+        }
+        return results;
+    }
+
+    private static DecisionResult sceneResult(CompiledRuleSet ruleSet, long[] words, long[] mask) {
+        long[] sceneWords = null;
+        RuleAction finalAction = RuleAction.ALLOW;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w] & mask[w];
+            if (word == 0) {
+                continue;
+            }
+            if (sceneWords == null) {
+                sceneWords = new long[words.length];
+            }
+            sceneWords[w] = word;
+            for (long rest = word; rest != 0; rest &= rest - 1) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(rest);
+                finalAction = stronger(finalAction, ruleSet.get(i).getRule().getAction());
+            }
+        }
+        if (sceneWords == null) {
+            return ALLOW_NO_MATCH;
+        }
+        return new DecisionResult(finalAction, new MatchedRuleBits(ruleSet.getRulesInPriorityOrder(), sceneWords));
+    }
+
+    /**
+     * 两个动作中更「严格」的那个：REJECT > MANUAL_REVIEW > ALLOW。
+     */
+    static RuleAction stronger(RuleAction current, RuleAction candidate) {
+        if (current == RuleAction.REJECT || candidate == RuleAction.REJECT) {
+            return RuleAction.REJECT;
+        }
+        if (current == RuleAction.MANUAL_REVIEW || candidate == RuleAction.MANUAL_REVIEW) {
+            return RuleAction.MANUAL_REVIEW;
+        }
+        return RuleAction.ALLOW;
+    }
+}
@@ -0,0 +1,104 @@
+package com.zhangyc.minirisk.engine;
+
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.MatchedRuleBits;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.model.RuleAction;
+
+import java.util.Arrays;
+
+/**
+ * 可复用的决策结果视图（flyweight）：
+ * - 由 CompiledRuleEngine.evaluateReusing 返回，每个线程只有一个实例；
+ * - 只在同一线程下一次 evaluateReusing 之前有效，需要长期保存时请调用 toDecisionResult()；
+ * - 命中规则以位图记录，按位从低到高即优先级从高到低，读取时不分配对象。
+ */
+public final class DecisionView {
+
+    private CompiledRuleSet ruleSet;
+    private RuleAction finalAction = RuleAction.ALLOW;
+    private long[] words = new long[1];
+    private int wordCount;
+    private int matchedCount;
+
+    DecisionView() {
+    }
+
+    void reset(CompiledRuleSet ruleSet) {
+        this.ruleSet = ruleSet;
+        this.finalAction = RuleAction.ALLOW;
+        this.matchedCount = 0;
+        this.wordCount = MatchedRuleBits.wordCount(ruleSet.size());
+        if (words.length < wordCount) {
+            words = new long[wordCount];
+        } else {
+            Arrays.fill(words, 0, wordCount, 0L);
+        }
+    }
+
+    void setMatched(int index, RuleAction action) {
+        words[index >>> 6] |= 1L << index;
+        matchedCount++;
+        finalAction = CompiledRuleEngine.stronger(finalAction, action);
+    }
+
+    public RuleAction getFinalAction() {
+        return finalAction;
+    }
+
+    public int getMatchedCount() {
+        return matchedCount;
+    }
+
+    /**
+     * 规则集中下标为 index 的规则是否命中。
+     */
+    public boolean isMatched(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * 从 fromIndex（含）开始的下一条命中规则下标，没有时返回 -1。
+     * 用法：for (int i = view.nextMatched(0); i >= 0; i = view.nextMatched(i + 1)) { ... }
+     */
+    public int nextMatched(int fromIndex) {
+        int w = fromIndex >>> 6;
+        if (w >= wordCount) {
+            return -1;
+        }
+        long word = words[w] & (-1L << fromIndex);
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == wordCount) {
+                return -1;
+            }
+            word = words[w];
+        }
+    }
+
+    /**
+     * 规则集中下标为 index 的规则。
+     */
+    public Rule getRule(int index) {
+        return ruleSet.get(index).getRule();
+    }
+
+    /**
+     * 拷贝出一个独立的、不可变的 DecisionResult（命中规则仍以位图保存，按需生成列表）。
+     */
+    public DecisionResult toDecisionResult() {
+        return new DecisionResult(finalAction,
+                new MatchedRuleBits(ruleSet.getRulesInPriorityOrder(), Arrays.copyOf(words, wordCount)));
+    }
+
+    @Override
+    public String toString() {
+        return "DecisionView{" +
+                "finalAction=" + finalAction +
+                ", matchedCount=" + matchedCount +
+                '}';
+    }
+}
@@ -1,11 +1,11 @@
 package com.zhangyc.minirisk.engine;
 
+import com.zhangyc.minirisk.compile.ArithmeticCompiler;
 import com.zhangyc.minirisk.config.ConditionDefinition;
 import com.zhangyc.minirisk.config.RuleConfigLoader;
 import com.zhangyc.minirisk.config.RuleDefinition;
 import com.zhangyc.minirisk.model.*;
 import com.zhangyc.minirisk.support.RiskFieldAccessor;
-import com.zhangyc.minirisk.config.ConditionDefinition;
 
 import static com.zhangyc.minirisk.config.RuleConfigLoader.compareValue;
 
@@ -41,7 +41,8 @@ public class ExplainableRuleEngine implements RuleEngine {
         for (Rule rule : baseResult.getMatchedRules()) {
             // 根据规则ID从配置加载器中获取规则的定义详情
             RuleDefinition def = RuleConfigLoader.getRuleDefinitionById(rule.getId());
-            if (def == null || def.getConditions() == null || def.getConditions().isEmpty()) {
+            ConditionDefinition root = def == null ? null : RuleConfigLoader.getRootCondition(def);
+            if (root == null) {
                 // 没有配置层定义，就简单记录一下命中
                 details.add(new RuleMatchDetail(rule, true, new ArrayList<>()));
                 continue;
@@ -49,33 +50,8 @@ public class ExplainableRuleEngine implements RuleEngine {
 
             // 创建一个空的ArrayList用于存储条件匹配详情
             List<ConditionMatch> conditionMatches = new ArrayList<>();
-            // allTrue用于AND逻辑，代表所有条件都需满足；anyTrue用于OR逻辑，代表任意一个条件需满足
-            boolean allTrue = true;
-            boolean anyTrue = false;
-
-            // 遍历规则定义中的所有条件
-            for (ConditionDefinition c : def.getConditions()) {
-                // 调用evaluateSingleCondition评估条件
-                ConditionMatch cm = evaluateSingleCondition(context, c);
-                // 将条件匹配结果添加到条件匹配详情列表中
-                conditionMatches.add(cm);
-                // 更新 allTrue 和 anyTrue 的值
-                allTrue = allTrue && cm.isMatched();
-                anyTrue = anyTrue || cm.isMatched();
-            }
-
-            // 声明变量ruleMatched存储规则是否匹配
-            boolean ruleMatched;
-            // 根据规则定义中的逻辑操作符进行逻辑判断
-            String logicalOp = def.getLogicalOp();
-            if (logicalOp == null || logicalOp.isEmpty() || "AND".equalsIgnoreCase(logicalOp)) {
-                ruleMatched = allTrue;
-            } else if ("OR".equalsIgnoreCase(logicalOp)) {
-                ruleMatched = anyTrue;
-            } else {
-                // 未知逻辑操作符，按 AND 处理
-                ruleMatched = allTrue;
-            }
+            // 按配置的条件树求值（不短路，保证每个叶子条件都有解释）
+            boolean ruleMatched = evaluateTree(context, root, conditionMatches);
 
             // 一般来说 ruleMatched 应该和 baseResult 里的命中情况一致
             details.add(new RuleMatchDetail(rule, ruleMatched, conditionMatches));
@@ -89,15 +65,43 @@ public class ExplainableRuleEngine implements RuleEngine {
         );
     }
 
+    /**
+     * 递归评估条件树：叶子条件生成 ConditionMatch，条件组按 AND / OR / NOT 组合子结果。
+     */
+    private boolean evaluateTree(RiskContext ctx, ConditionDefinition node, List<ConditionMatch> matches) {
+        if (!node.isGroup()) {
+            ConditionMatch cm = evaluateSingleCondition(ctx, node);
+            matches.add(cm);
+            return cm.isMatched();
+        }
+
+        String op = node.getOp().toUpperCase(Locale.ROOT);
+        if ("NOT".equals(op)) {
+            return !evaluateTree(ctx, node.getChildren().get(0), matches);
+        }
+        // allTrue用于AND逻辑，代表所有条件都需满足；anyTrue用于OR逻辑，代表任意一个条件需满足
+        boolean allTrue = true;
+        boolean anyTrue = false;
+        for (ConditionDefinition child : node.getChildren()) {
+            boolean matched = evaluateTree(ctx, child, matches);
+            allTrue = allTrue && matched;
+            anyTrue = anyTrue || matched;
+        }
+        return "OR".equals(op) ? anyTrue : allTrue;
+    }
+
     /**
      * 对单个 Condition 做评估，生成 ConditionMatch：
      * - 通过 RiskFieldAccessor 取出实际值 actualValue
      * - 使用 RuleConfigLoader.compareValue 做比较
      */
     private ConditionMatch evaluateSingleCondition(RiskContext ctx, ConditionDefinition c) {
+        if (c.getExpr() != null) {
+            return evaluateArithmetic(ctx, c.getExpr());
+        }
         String field = c.getField();
         String op = c.getOp();
-        String expected = c.getValue();
+        String expected = c.expectedValue();
 
         Object actualObj;
         String actualStr;
@@ -118,5 +122,19 @@ public class ExplainableRuleEngine implements RuleEngine {
 
         return new ConditionMatch(field, op, expected, actualStr, matched);
     }
+
+    /**
+     * 算术比较：field 是左边的表达式，expected 是右边的表达式，actual 是左边算出来的值。
+     */
+    private ConditionMatch evaluateArithmetic(RiskContext ctx, String expr) {
+        ArithmeticCompiler.RiskComparison comparison = ArithmeticCompiler.forRiskContext(expr);
+        try {
+            return new ConditionMatch(comparison.getLeftText(), comparison.getOp(), comparison.getRightText(),
+                    comparison.leftValue(ctx), comparison.test(ctx));
+        } catch (Exception e) {
+            return new ConditionMatch(comparison.getLeftText(), comparison.getOp(), comparison.getRightText(),
+                    "<error: " + e.getClass().getSimpleName() + ">", false);
+        }
+    }
 }
 
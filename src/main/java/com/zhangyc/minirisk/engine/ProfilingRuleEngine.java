@@ -0,0 +1,209 @@
+package com.zhangyc.minirisk.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.zhangyc.minirisk.model.ConditionMatch;
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.model.RuleMatchDetail;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.FieldSlot;
+import com.zhangyc.minirisk.schema.RiskContextAdapter;
+import com.zhangyc.minirisk.schema.SlotContext;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 慢决策捕获引擎（装饰器）：
+ * - 每次决策前后各读一次 System.nanoTime()，正常请求只多这两次时钟读取；
+ * - 耗时超过阈值时，在调用线程上捕获现场：上下文快照、规则集版本（调用方随规则列表一起传入）、逐条规则重放耗时，
+ *   以及 ExplainableRuleEngine 给出的完整解释，放进有界的内存环形缓冲区（满了覆盖最旧的）；
+ * - 同一时刻只有一个线程在捕获，其他慢请求只计数不捕获，避免 GC 停顿等全局抖动时捕获本身放大延迟；
+ * - snapshot() 取出当前缓冲区，dump(file) 按 NDJSON 写盘。
+ *
+ * 逐条规则耗时是捕获时重放测得的，能看出哪条规则贵，但不一定复现原始请求的那次抖动（例如 GC、锁等待）；
+ * 对比 elapsedNanos 和各规则耗时之和就能区分「规则本身慢」和「环境导致的慢」。
+ */
+public class ProfilingRuleEngine implements RuleEngine {
+
+    private static final ObjectWriter NDJSON_WRITER = new ObjectMapper().writer();
+
+    /** 调用方没有提供规则列表的版本号时记录的值 */
+    public static final long UNKNOWN_VERSION = -1L;
+
+    /** 适配器创建后不可变，所有实例共用 */
+    private static final RiskContextAdapter ADAPTER = new RiskContextAdapter(ContextSchema.defaultSchema());
+
+    private final RuleEngine delegate;
+    private final ExplainableRuleEngine explainer;
+    private final long thresholdNanos;
+
+    /** 环形缓冲区，next 指向下一个写入位置，读写都在 this 上同步（只有慢路径会进来） */
+    private final SlowDecision[] buffer;
+    private int next;
+    private long capturedTotal;
+
+    private final AtomicBoolean capturing = new AtomicBoolean();
+
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder slow = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    /**
+     * @param delegate        实际执行决策的引擎
+     * @param thresholdMicros 慢决策阈值（微秒），耗时 >= 阈值的决策会被捕获
+     * @param capacity        内存里最多保留的慢决策条数
+     */
+    public ProfilingRuleEngine(RuleEngine delegate, long thresholdMicros, int capacity) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate engine must not be null");
+        if (thresholdMicros < 0) {
+            throw new IllegalArgumentException("thresholdMicros must not be negative: " + thresholdMicros);
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.explainer = new ExplainableRuleEngine(delegate);
+        this.thresholdNanos = TimeUnit.MICROSECONDS.toNanos(thresholdMicros);
+        this.buffer = new SlowDecision[capacity];
+    }
+
+    /**
+     * 不知道规则列表来自哪个版本时使用，慢决策的版本号记为 UNKNOWN_VERSION。
+     */
+    @Override
+    public DecisionResult evaluate(RiskContext context, List<Rule> rules) {
+        return evaluate(context, rules, UNKNOWN_VERSION);
+    }
+
+    /**
+     * @param ruleSetVersion rules 所属的规则集版本，应当和 rules 同时取得（例如同一个快照里的
+     *                       CompiledRuleSet.getVersion()），捕获时不再读取 RuleRegistry 的当前版本，
+     *                       避免决策和捕获之间发生 reload 时记错版本
+     */
+    public DecisionResult evaluate(RiskContext context, List<Rule> rules, long ruleSetVersion) {
+        long start = System.nanoTime();
+        DecisionResult result = delegate.evaluate(context, rules);
+        long elapsed = System.nanoTime() - start;
+        evaluations.increment();
+        if (elapsed >= thresholdNanos) {
+            onSlow(context, rules, ruleSetVersion, elapsed);
+        }
+        return result;
+    }
+
+    private void onSlow(RiskContext context, List<Rule> rules, long ruleSetVersion, long elapsed) {
+        slow.increment();
+        if (!capturing.compareAndSet(false, true)) {
+            skipped.increment();
+            return;
+        }
+        try {
+            SlowDecision decision = capture(context, rules, ruleSetVersion, elapsed);
+            synchronized (this) {
+                buffer[next] = decision;
+                next = (next + 1) % buffer.length;
+                capturedTotal++;
+            }
+        } catch (RuntimeException e) {
+            // 捕获失败不能影响决策结果
+            skipped.increment();
+        } finally {
+            capturing.set(false);
+        }
+    }
+
+    private SlowDecision capture(RiskContext context, List<Rule> rules, long ruleSetVersion, long elapsed) {
+        SlotContext slotContext = ADAPTER.fill(context, ContextSchema.defaultSchema().newContext());
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        for (FieldSlot slot : ContextSchema.defaultSchema().getSlots()) {
+            snapshot.put(slot.getPath(), slotContext.getValue(slot.getPath()));
+        }
+
+        List<SlowDecision.RuleTiming> timings = new ArrayList<>(rules.size());
+        for (Rule rule : rules) {
+            long t = System.nanoTime();
+            boolean matched = rule.getCondition().test(context);
+            timings.add(new SlowDecision.RuleTiming(rule.getId(), System.nanoTime() - t, matched));
+        }
+
+        DecisionResult explained = explainer.evaluate(context, rules);
+        List<String> matchedIds = new ArrayList<>(explained.getMatchedRules().size());
+        for (Rule rule : explained.getMatchedRules()) {
+            matchedIds.add(rule.getId());
+        }
+        Map<String, List<ConditionMatch>> explanations = new LinkedHashMap<>();
+        for (RuleMatchDetail detail : explained.getRuleMatchDetails()) {
+            explanations.put(detail.getRule().getId(), detail.getConditionMatches());
+        }
+
+        return new SlowDecision(System.currentTimeMillis(), ShadowRuleEngine.sceneOf(rules), ruleSetVersion,
+                elapsed, explained.getFinalAction(), matchedIds, snapshot, timings, explanations);
+    }
+
+    /**
+     * 当前缓冲区里的慢决策，按捕获顺序从旧到新。
+     */
+    public synchronized List<SlowDecision> snapshot() {
+        int size = (int) Math.min(capturedTotal, buffer.length);
+        List<SlowDecision> list = new ArrayList<>(size);
+        int first = (next - size + buffer.length) % buffer.length;
+        for (int i = 0; i < size; i++) {
+            list.add(buffer[(first + i) % buffer.length]);
+        }
+        return list;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(buffer, null);
+        next = 0;
+        capturedTotal = 0L;
+    }
+
+    /**
+     * 把当前缓冲区按 NDJSON（每行一个 SlowDecision）写到文件，覆盖已有内容，返回写入条数。
+     */
+    public int dump(Path file) throws IOException {
+        List<SlowDecision> decisions = snapshot();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (SlowDecision decision : decisions) {
+                writer.write(NDJSON_WRITER.writeValueAsString(decision));
+                writer.newLine();
+            }
+        }
+        return decisions.size();
+    }
+
+    public long getEvaluationCount() {
+        return evaluations.sum();
+    }
+
+    /** 超过阈值的决策数 */
+    public long getSlowCount() {
+        return slow.sum();
+    }
+
+    /** 已捕获的慢决策总数（包括已经被覆盖的） */
+    public synchronized long getCapturedCount() {
+        return capturedTotal;
+    }
+
+    /** 慢但没有捕获的次数（其他线程正在捕获，或捕获出错） */
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+}
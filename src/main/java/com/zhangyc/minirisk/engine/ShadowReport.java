@@ -0,0 +1,169 @@
+package com.zhangyc.minirisk.engine;
+
+import com.zhangyc.minirisk.model.RuleAction;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 影子模式的统计快照：
+ * - 采样 / 丢弃 / 已比较 / 出错的样本数；
+ * - 线上动作 -> 候选动作的迁移矩阵；
+ * - 按规则 id 的命中次数和分歧次数（只有线上命中 / 只有候选命中）。
+ */
+public final class ShadowReport {
+
+    /**
+     * 单条规则在两份规则集下的命中对比。
+     */
+    public static final class RuleDiff {
+
+        private final String ruleId;
+        private final long productionHits;
+        private final long challengerHits;
+        private final long productionOnly;
+        private final long challengerOnly;
+
+        RuleDiff(String ruleId, long productionHits, long challengerHits, long productionOnly, long challengerOnly) {
+            this.ruleId = ruleId;
+            this.productionHits = productionHits;
+            this.challengerHits = challengerHits;
+            this.productionOnly = productionOnly;
+            this.challengerOnly = challengerOnly;
+        }
+
+        public String getRuleId() {
+            return ruleId;
+        }
+
+        public long getProductionHits() {
+            return productionHits;
+        }
+
+        public long getChallengerHits() {
+            return challengerHits;
+        }
+
+        /** 线上命中、候选没命中的样本数 */
+        public long getProductionOnly() {
+            return productionOnly;
+        }
+
+        /** 候选命中、线上没命中的样本数 */
+        public long getChallengerOnly() {
+            return challengerOnly;
+        }
+
+        public long getDisagreements() {
+            return productionOnly + challengerOnly;
+        }
+
+        @Override
+        public String toString() {
+            return ruleId + ": hits " + productionHits + " -> " + challengerHits
+                    + ", productionOnly=" + productionOnly + ", challengerOnly=" + challengerOnly;
+        }
+    }
+
+    private final String challengerName;
+    private final long sampled;
+    private final long dropped;
+    private final long evaluated;
+    private final long failed;
+    private final int pending;
+
+    /** [线上动作][候选动作] -> 样本数 */
+    private final long[][] transitions;
+
+    private final Map<String, RuleDiff> ruleDiffs;
+
+    ShadowReport(String challengerName, long sampled, long dropped, long evaluated, long failed, int pending,
+                 long[][] transitions, Map<String, RuleDiff> ruleDiffs) {
+        this.challengerName = challengerName;
+        this.sampled = sampled;
+        this.dropped = dropped;
+        this.evaluated = evaluated;
+        this.failed = failed;
+        this.pending = pending;
+        this.transitions = transitions;
+        this.ruleDiffs = Collections.unmodifiableMap(ruleDiffs);
+    }
+
+    public String getChallengerName() {
+        return challengerName;
+    }
+
+    public long getSampled() {
+        return sampled;
+    }
+
+    /** 因队列已满被丢弃的样本数 */
+    public long getDropped() {
+        return dropped;
+    }
+
+    public long getEvaluated() {
+        return evaluated;
+    }
+
+    /** 候选规则编译或执行出错的样本数 */
+    public long getFailed() {
+        return failed;
+    }
+
+    /** 拍快照时还在队列里的样本数 */
+    public int getPending() {
+        return pending;
+    }
+
+    public long getTransitionCount(RuleAction production, RuleAction challenger) {
+        return transitions[production.ordinal()][challenger.ordinal()];
+    }
+
+    /**
+     * 最终动作不一致的样本数。
+     */
+    public long getDecisionMismatches() {
+        long mismatches = 0;
+        for (int i = 0; i < transitions.length; i++) {
+            for (int j = 0; j < transitions[i].length; j++) {
+                if (i != j) {
+                    mismatches += transitions[i][j];
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    /** 规则 id -> 命中对比，按 id 排序 */
+    public Map<String, RuleDiff> getRuleDiffs() {
+        return ruleDiffs;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ShadowReport{challenger=").append(challengerName)
+                .append(", sampled=").append(sampled)
+                .append(", dropped=").append(dropped)
+                .append(", evaluated=").append(evaluated)
+                .append(", failed=").append(failed)
+                .append(", pending=").append(pending)
+                .append(", decisionMismatches=").append(getDecisionMismatches())
+                .append(String.format(" (%.2f%%)", evaluated == 0 ? 0.0 : 100.0 * getDecisionMismatches() / evaluated))
+                .append('\n');
+        for (RuleAction from : RuleAction.values()) {
+            for (RuleAction to : RuleAction.values()) {
+                long count = getTransitionCount(from, to);
+                if (from != to && count > 0) {
+                    sb.append("  ").append(from).append(" -> ").append(to).append(": ").append(count).append('\n');
+                }
+            }
+        }
+        for (RuleDiff diff : ruleDiffs.values()) {
+            if (diff.getDisagreements() > 0) {
+                sb.append("  ").append(diff).append('\n');
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,266 @@
+package com.zhangyc.minirisk.engine;
+
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.config.RuleDefinition;
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.model.RuleAction;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.RiskContextAdapter;
+import com.zhangyc.minirisk.schema.SlotContext;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 影子模式（champion / challenger）的规则引擎（装饰器）：
+ * - 线上决策完全由 delegate 给出，返回值不受影响；
+ * - 按采样率把上下文快照 + 线上结果放进有界队列，由后台线程用候选规则集再跑一遍；
+ * - 队列满时直接丢弃样本并计数，调用线程永远不会阻塞；
+ * - 按规则 id 统计「只有线上命中 / 只有候选命中」的次数，以及最终动作的迁移矩阵。
+ *
+ * 调用线程上额外的开销只有一次随机数判断；被采中时再加一次字段拷贝（SlotContext）和一次 offer。
+ * 后台线程不在队列上阻塞，而是空闲时短暂休眠、批量取出样本，所以 offer 不会触发线程唤醒。
+ * 候选规则按场景懒编译，只在后台线程使用。
+ */
+public class ShadowRuleEngine implements RuleEngine, AutoCloseable {
+
+    private static final String COMMON_SCENE = "COMMON";
+
+    private static final int ACTIONS = RuleAction.values().length;
+
+    /** 队列为空时后台线程的休眠时间 */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    /** 后台线程每次从队列取出的最大样本数 */
+    private static final int DRAIN_BATCH = 256;
+
+    private final RuleEngine delegate;
+    private final String challengerName;
+    private final List<RuleDefinition> challengerDefs;
+    private final double sampleRate;
+    private final ContextSchema schema;
+    private final RiskContextAdapter adapter;
+    private final BlockingQueue<Sample> queue;
+    private final Thread worker;
+
+    /** 场景 -> 候选规则集，只由后台线程读写 */
+    private final Map<String, CompiledRuleSet> challengerSets = new HashMap<>();
+    private final CompiledRuleEngine challengerEngine = new CompiledRuleEngine();
+
+    /** 规则 id -> 分歧计数 */
+    private final Map<String, RuleCounters> ruleCounters = new ConcurrentHashMap<>();
+
+    /** [线上动作][候选动作] -> 样本数 */
+    private final AtomicLongArray transitions;
+
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * @param delegate       线上引擎
+     * @param challengerName 候选规则集名字（只用于报告）
+     * @param challengerDefs 候选规则定义，例如 RuleConfigLoader.readDefinitions 的结果
+     * @param sampleRate     采样率，取值 [0, 1]
+     * @param queueCapacity  后台队列容量，满了就丢弃样本
+     */
+    public ShadowRuleEngine(RuleEngine delegate, String challengerName, List<RuleDefinition> challengerDefs,
+                            double sampleRate, int queueCapacity) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate engine must not be null");
+        this.challengerName = Objects.requireNonNull(challengerName, "challengerName must not be null");
+        this.challengerDefs = new ArrayList<>(Objects.requireNonNull(challengerDefs, "challengerDefs must not be null"));
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sampleRate must be in [0, 1]: " + sampleRate);
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+        }
+        this.sampleRate = sampleRate;
+        this.schema = ContextSchema.defaultSchema();
+        this.adapter = new RiskContextAdapter(schema);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.transitions = new AtomicLongArray(ACTIONS * ACTIONS);
+
+        this.worker = new Thread(this::drain, "shadow-" + challengerName);
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MIN_PRIORITY);
+        worker.start();
+    }
+
+    @Override
+    public DecisionResult evaluate(RiskContext context, List<Rule> rules) {
+        DecisionResult result = delegate.evaluate(context, rules);
+        if (closed || context == null || rules == null
+                || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return result;
+        }
+        sampled.increment();
+        // 先看一眼剩余容量，队列满时连字段拷贝都省掉
+        if (queue.remainingCapacity() == 0
+                || !queue.offer(new Sample(adapter.toSlotContext(context, schema), rules, result))) {
+            dropped.increment();
+        }
+        return result;
+    }
+
+    /**
+     * 当前统计的快照（后台线程仍在运行时数据会继续增长）。
+     */
+    public ShadowReport getReport() {
+        long[][] matrix = new long[ACTIONS][ACTIONS];
+        for (int i = 0; i < ACTIONS; i++) {
+            for (int j = 0; j < ACTIONS; j++) {
+                matrix[i][j] = transitions.get(i * ACTIONS + j);
+            }
+        }
+        Map<String, ShadowReport.RuleDiff> diffs = new TreeMap<>();
+        for (Map.Entry<String, RuleCounters> e : ruleCounters.entrySet()) {
+            RuleCounters c = e.getValue();
+            diffs.put(e.getKey(), new ShadowReport.RuleDiff(e.getKey(),
+                    c.productionHits.sum(), c.challengerHits.sum(),
+                    c.productionOnly.sum(), c.challengerOnly.sum()));
+        }
+        return new ShadowReport(challengerName, sampled.sum(), dropped.sum(), evaluated.sum(), failed.sum(),
+                queue.size(), matrix, diffs);
+    }
+
+    /**
+     * 等待队列里已有的样本处理完（最多 timeoutMillis），返回是否已处理完。
+     */
+    public boolean awaitDrained(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (evaluated.sum() + failed.sum() < sampled.sum() - dropped.sum()) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            Thread.sleep(1L);
+        }
+        return true;
+    }
+
+    /**
+     * 停止采样和后台线程，队列里还没处理的样本直接丢弃。
+     */
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+    }
+
+    private void drain() {
+        List<Sample> batch = new ArrayList<>();
+        while (!closed) {
+            if (queue.drainTo(batch, DRAIN_BATCH) == 0) {
+                // 不在队列上阻塞等待：否则每次 offer 都要唤醒后台线程，这次系统调用会算在调用方头上
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                if (Thread.interrupted()) {
+                    return;
+                }
+                continue;
+            }
+            for (Sample sample : batch) {
+                try {
+                    compare(sample);
+                    evaluated.increment();
+                } catch (RuntimeException e) {
+                    // 候选规则出错只记数，不影响线上
+                    failed.increment();
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void compare(Sample sample) {
+        CompiledRuleSet ruleSet = challengerSets.computeIfAbsent(sceneOf(sample.rules), this::compileChallenger);
+        DecisionResult challenger = challengerEngine.evaluate(sample.context, ruleSet);
+        DecisionResult production = sample.production;
+
+        transitions.incrementAndGet(production.getFinalAction().ordinal() * ACTIONS
+                + challenger.getFinalAction().ordinal());
+
+        Set<String> productionIds = new HashSet<>();
+        for (Rule rule : production.getMatchedRules()) {
+            productionIds.add(rule.getId());
+            counters(rule.getId()).productionHits.increment();
+        }
+        Set<String> challengerIds = new HashSet<>();
+        for (Rule rule : challenger.getMatchedRules()) {
+            challengerIds.add(rule.getId());
+            RuleCounters c = counters(rule.getId());
+            c.challengerHits.increment();
+            if (!productionIds.contains(rule.getId())) {
+                c.challengerOnly.increment();
+            }
+        }
+        for (String id : productionIds) {
+            if (!challengerIds.contains(id)) {
+                counters(id).productionOnly.increment();
+            }
+        }
+    }
+
+    private RuleCounters counters(String ruleId) {
+        return ruleCounters.computeIfAbsent(ruleId, id -> new RuleCounters());
+    }
+
+    private CompiledRuleSet compileChallenger(String scene) {
+        List<RuleDefinition> selected = new ArrayList<>();
+        for (RuleDefinition def : challengerDefs) {
+            String ruleScene = String.valueOf(def.getScene()).toUpperCase(Locale.ROOT);
+            if (ruleScene.equals(scene) || COMMON_SCENE.equals(ruleScene)) {
+                selected.add(def);
+            }
+        }
+        return CompiledRuleSet.compileDefinitions(scene, 0L, selected, schema);
+    }
+
+    /**
+     * 线上规则列表对应的场景：第一条非 COMMON 规则的场景，全是 COMMON 时为 COMMON。
+     */
+    static String sceneOf(List<Rule> rules) {
+        for (Rule rule : rules) {
+            String scene = String.valueOf(rule.getScene()).toUpperCase(Locale.ROOT);
+            if (!COMMON_SCENE.equals(scene)) {
+                return scene;
+            }
+        }
+        return COMMON_SCENE;
+    }
+
+    /**
+     * 一个待比较的样本：上下文快照 + 线上规则列表 + 线上结果。
+     */
+    private static final class Sample {
+
+        private final SlotContext context;
+        private final List<Rule> rules;
+        private final DecisionResult production;
+
+        private Sample(SlotContext context, List<Rule> rules, DecisionResult production) {
+            this.context = context;
+            this.rules = rules;
+            this.production = production;
+        }
+    }
+
+    private static final class RuleCounters {
+
+        private final LongAdder productionHits = new LongAdder();
+        private final LongAdder challengerHits = new LongAdder();
+        private final LongAdder productionOnly = new LongAdder();
+        private final LongAdder challengerOnly = new LongAdder();
+    }
+}
@@ -6,6 +6,7 @@ import com.zhangyc.minirisk.model.Rule;
 import com.zhangyc.minirisk.model.RuleAction;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
@@ -18,26 +19,39 @@ import java.util.Objects;
  */
 public class SimpleRuleEngine implements RuleEngine {
 
+    /** 没有命中任何规则时的结果，不可变，可以共享 */
+    private static final DecisionResult ALLOW_NO_MATCH = new DecisionResult(RuleAction.ALLOW, Collections.<Rule>emptyList());
+
+    /** 按优先级从高到低，所有请求共用一个比较器 */
+    private static final Comparator<Rule> BY_PRIORITY_DESC =
+            Comparator.comparingInt(Rule::getPriority).reversed();
+
     @Override
     public DecisionResult evaluate(RiskContext context, List<Rule> rules) {
         Objects.requireNonNull(context, "context must not be null");
         Objects.requireNonNull(rules, "rules must not be null");
 
-        List<Rule> matched = new ArrayList<>();
+        // 大部分请求一条规则都不命中，命中时才创建列表
+        List<Rule> matched = null;
 
         for (Rule rule : rules) {
             if (rule.getCondition().test(context)) {
+                if (matched == null) {
+                    matched = new ArrayList<>();
+                }
                 matched.add(rule);
             }
         }
 
-        if (matched.isEmpty()) {
+        if (matched == null) {
             // 没有命中任何规则，默认放行
-            return new DecisionResult(RuleAction.ALLOW, matched);
+            return ALLOW_NO_MATCH;
         }
 
         // 按优先级从高到低排序
-        matched.sort(Comparator.comparingInt(Rule::getPriority).reversed());
+        if (matched.size() > 1) {
+            matched.sort(BY_PRIORITY_DESC);
+        }
 
         // 计算最终动作
         RuleAction finalAction = calculateFinalAction(matched);
@@ -45,18 +59,17 @@ public class SimpleRuleEngine implements RuleEngine {
     }
 
     private RuleAction calculateFinalAction(List<Rule> matched) {
-        boolean hasReject = matched.stream()
-                .anyMatch(rule -> rule.getAction() == RuleAction.REJECT);
-        if (hasReject) {
-            return RuleAction.REJECT;
-        }
-
-        boolean hasManual = matched.stream()
-                .anyMatch(rule -> rule.getAction() == RuleAction.MANUAL_REVIEW);
-        if (hasManual) {
-            return RuleAction.MANUAL_REVIEW;
+        // 一次遍历：遇到 REJECT 直接返回，否则记录是否有 MANUAL_REVIEW
+        boolean hasManual = false;
+        for (int i = 0; i < matched.size(); i++) {
+            RuleAction action = matched.get(i).getAction();
+            if (action == RuleAction.REJECT) {
+                return RuleAction.REJECT;
+            }
+            if (action == RuleAction.MANUAL_REVIEW) {
+                hasManual = true;
+            }
         }
-
-        return RuleAction.ALLOW;
+        return hasManual ? RuleAction.MANUAL_REVIEW : RuleAction.ALLOW;
     }
 }
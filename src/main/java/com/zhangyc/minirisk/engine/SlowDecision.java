@@ -0,0 +1,126 @@
+package com.zhangyc.minirisk.engine;
+
+import com.zhangyc.minirisk.model.ConditionMatch;
+import com.zhangyc.minirisk.model.RuleAction;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次慢决策的现场：耗时、规则集版本、上下文、逐条规则的耗时和完整解释。
+ * 所有字段都是普通值，可以直接用 Jackson 序列化（ProfilingRuleEngine.dump 按 NDJSON 写盘）。
+ */
+public final class SlowDecision {
+
+    /**
+     * 单条规则在重放时的耗时。
+     */
+    public static final class RuleTiming {
+
+        private final String ruleId;
+        private final long nanos;
+        private final boolean matched;
+
+        RuleTiming(String ruleId, long nanos, boolean matched) {
+            this.ruleId = ruleId;
+            this.nanos = nanos;
+            this.matched = matched;
+        }
+
+        public String getRuleId() {
+            return ruleId;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public boolean isMatched() {
+            return matched;
+        }
+
+        @Override
+        public String toString() {
+            return ruleId + (matched ? "(matched)" : "") + "=" + nanos + "ns";
+        }
+    }
+
+    private final long timestamp;
+    private final String scene;
+    private final long ruleSetVersion;
+    private final long elapsedNanos;
+    private final RuleAction finalAction;
+    private final List<String> matchedRuleIds;
+    private final Map<String, Object> context;
+    private final List<RuleTiming> ruleTimings;
+    private final Map<String, List<ConditionMatch>> explanations;
+
+    SlowDecision(long timestamp, String scene, long ruleSetVersion, long elapsedNanos, RuleAction finalAction,
+                 List<String> matchedRuleIds, Map<String, Object> context, List<RuleTiming> ruleTimings,
+                 Map<String, List<ConditionMatch>> explanations) {
+        this.timestamp = timestamp;
+        this.scene = scene;
+        this.ruleSetVersion = ruleSetVersion;
+        this.elapsedNanos = elapsedNanos;
+        this.finalAction = finalAction;
+        this.matchedRuleIds = matchedRuleIds;
+        this.context = context;
+        this.ruleTimings = ruleTimings;
+        this.explanations = explanations;
+    }
+
+    /** 捕获时间（毫秒时间戳） */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getScene() {
+        return scene;
+    }
+
+    /** 这次决策所用规则列表的版本号，调用方没有提供时为 ProfilingRuleEngine.UNKNOWN_VERSION */
+    public long getRuleSetVersion() {
+        return ruleSetVersion;
+    }
+
+    /** 原始请求的耗时（纳秒） */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public RuleAction getFinalAction() {
+        return finalAction;
+    }
+
+    public List<String> getMatchedRuleIds() {
+        return matchedRuleIds;
+    }
+
+    /** 字段路径（与 @RiskField / context-schema.json 一致）-> 值 */
+    public Map<String, Object> getContext() {
+        return context;
+    }
+
+    /** 按规则顺序排列，捕获时逐条重放测得，不是原始请求里的耗时 */
+    public List<RuleTiming> getRuleTimings() {
+        return ruleTimings;
+    }
+
+    /** 命中规则 id -> 各条件的命中情况（ExplainableRuleEngine 的解释） */
+    public Map<String, List<ConditionMatch>> getExplanations() {
+        return explanations;
+    }
+
+    @Override
+    public String toString() {
+        return "SlowDecision{scene=" + scene +
+                ", version=" + ruleSetVersion +
+                ", elapsed=" + elapsedNanos / 1000 + "us" +
+                ", finalAction=" + finalAction +
+                ", matchedRules=" + matchedRuleIds +
+                ", context=" + context +
+                ", ruleTimings=" + ruleTimings +
+                ", explanations=" + explanations +
+                '}';
+    }
+}
@@ -0,0 +1,354 @@
+package com.zhangyc.minirisk.engine;
+
+import com.zhangyc.minirisk.compile.CompiledRule;
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.MatchedRuleBits;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.model.RuleAction;
+import com.zhangyc.minirisk.schema.FieldProviders;
+import com.zhangyc.minirisk.schema.SlotContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分阶段执行的规则引擎：便宜的规则先跑，贵的阶段只在需要时才跑。
+ * - 每个场景配置一组有序的阶段（例如 名单/标记 -> 频次特征 -> 外部查询），规则通过 RuleDefinition.stage 归入阶段，
+ *   没有写阶段的规则归入第一个阶段，写了但场景里没有配置这个阶段时报错（拼错的阶段名不能悄悄改变执行顺序）；
+ *   没有配置阶段的场景整体作为一个阶段执行，规则上的阶段名不起作用；
+ * - 每个阶段执行完后检查它的停止条件（已经 REJECT、只命中了 ALLOW 规则、目前为止没有命中），满足就不再执行后面的阶段；
+ * - 上下文绑定了 FieldProviders 时，每个阶段开始前只预取这个阶段的规则引用到的懒加载字段，
+ *   后面的阶段没有执行，它们的字段就不会取；
+ * - 阶段内规则按优先级从高到低执行，命中结果用整个规则集的位图记录，最终动作的合成规则与 CompiledRuleEngine 相同；
+ * - 按场景、阶段统计进入次数、在该阶段停止的次数和耗时，可以算出每个阶段的放行率（继续往下走的比例）。
+ *
+ * 提前停止是配置出来的行为而不是降级，结果不标记为部分结果。
+ */
+public class StagedRuleEngine {
+
+    /** 没有配置阶段的场景使用的唯一阶段 */
+    public static final String DEFAULT_STAGE = "ALL";
+
+    /** 规则集 -> 执行计划 的映射上限，防止调用方不断传入新规则集导致无限增长 */
+    private static final int MAX_PLANS = 1024;
+
+    /** 没有命中任何规则时的结果，不可变，可以共享 */
+    private static final DecisionResult ALLOW_NO_MATCH = new DecisionResult(RuleAction.ALLOW, Collections.<Rule>emptyList());
+
+    /**
+     * 阶段执行完后的停止条件。
+     */
+    public enum StopCondition {
+        /** 最终动作已经是 REJECT，后面的规则不会再改变结果 */
+        REJECTED,
+        /** 有命中且只命中了 ALLOW 规则（例如白名单），认为可以高置信度放行 */
+        ALLOW_MATCHED,
+        /** 目前为止没有命中任何规则 */
+        CLEAN
+    }
+
+    /**
+     * 一个阶段：名字 + 停止条件（满足任意一个就停止）。
+     */
+    public static final class PipelineStage {
+
+        private final String name;
+        private final Set<StopCondition> stopWhen;
+
+        public PipelineStage(String name, Set<StopCondition> stopWhen) {
+            this.name = Objects.requireNonNull(name, "name must not be null");
+            this.stopWhen = stopWhen == null || stopWhen.isEmpty()
+                    ? Collections.unmodifiableSet(EnumSet.noneOf(StopCondition.class))
+                    : Collections.unmodifiableSet(EnumSet.copyOf(stopWhen));
+        }
+
+        public static PipelineStage of(String name, StopCondition... stopWhen) {
+            return new PipelineStage(name, stopWhen.length == 0
+                    ? EnumSet.noneOf(StopCondition.class) : EnumSet.copyOf(Arrays.asList(stopWhen)));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Set<StopCondition> getStopWhen() {
+            return stopWhen;
+        }
+
+        @Override
+        public String toString() {
+            return name + stopWhen;
+        }
+    }
+
+    /**
+     * 一个阶段的统计快照。
+     */
+    public static final class StageStats {
+
+        private final String name;
+        private final long entered;
+        private final long stopped;
+        private final long totalNanos;
+
+        private StageStats(String name, long entered, long stopped, long totalNanos) {
+            this.name = name;
+            this.entered = entered;
+            this.stopped = stopped;
+            this.totalNanos = totalNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** 执行到这个阶段的次数 */
+        public long getEntered() {
+            return entered;
+        }
+
+        /** 在这个阶段满足停止条件的次数 */
+        public long getStopped() {
+            return stopped;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /** 放行率：进入这个阶段后继续往下走的比例 */
+        public double getPassThroughRate() {
+            return entered == 0 ? 0.0 : (double) (entered - stopped) / entered;
+        }
+
+        /** 这个阶段平均每次的耗时（微秒），包括预取 */
+        public double getAverageMicros() {
+            return entered == 0 ? 0.0 : totalNanos / 1000.0 / entered;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: entered=%d, stopped=%d, passThrough=%.1f%%, avg=%.1f us",
+                    name, entered, stopped, getPassThroughRate() * 100, getAverageMicros());
+        }
+    }
+
+    /** 场景 -> 阶段配置（连同统计计数） */
+    private final Map<String, Pipeline> pipelines = new ConcurrentHashMap<>();
+
+    /** 规则集（按实例） -> 执行计划 */
+    private final Map<CompiledRuleSet, Plan> plans = new ConcurrentHashMap<>();
+
+    // ======== 链式 set 方法 ========
+
+    /**
+     * 配置一个场景的阶段，按执行顺序排列。重新配置会清空这个场景之前的统计。
+     */
+    public StagedRuleEngine setStages(String scene, List<PipelineStage> stages) {
+        Objects.requireNonNull(scene, "scene must not be null");
+        if (stages == null || stages.isEmpty()) {
+            throw new IllegalArgumentException("stages must not be empty");
+        }
+        Set<String> names = new LinkedHashSet<>();
+        for (PipelineStage stage : stages) {
+            if (!names.add(stage.getName())) {
+                throw new IllegalArgumentException("duplicate stage: " + stage.getName());
+            }
+        }
+        pipelines.put(scene.toUpperCase(Locale.ROOT), new Pipeline(stages, true));
+        plans.clear();
+        return this;
+    }
+
+    public StagedRuleEngine setStages(String scene, PipelineStage... stages) {
+        return setStages(scene, Arrays.asList(stages));
+    }
+
+    public DecisionResult evaluate(SlotContext context, CompiledRuleSet ruleSet) {
+        return evaluate(context, ruleSet, null);
+    }
+
+    /**
+     * 带懒加载字段的分阶段执行：context 已经通过 providers.bind 绑定，每个阶段开始前并行预取这个阶段引用到的字段。
+     * providers 为 null 时不预取（绑定了 provider 的字段仍然在条件读到时懒加载）。
+     */
+    public DecisionResult evaluate(SlotContext context, CompiledRuleSet ruleSet, FieldProviders providers) {
+        Objects.requireNonNull(context, "context must not be null");
+        Objects.requireNonNull(ruleSet, "ruleSet must not be null");
+
+        Plan plan = planFor(ruleSet);
+        Pipeline pipeline = plan.pipeline;
+        long[] words = null;
+        RuleAction finalAction = RuleAction.ALLOW;
+
+        for (int s = 0; s < plan.stageRules.length; s++) {
+            long start = System.nanoTime();
+            List<String> stageFields = plan.stageFields.get(s);
+            if (providers != null && !stageFields.isEmpty()) {
+                providers.prefetch(context, stageFields);
+            }
+            for (int i : plan.stageRules[s]) {
+                CompiledRule compiled = ruleSet.get(i);
+                if (!compiled.test(context)) {
+                    continue;
+                }
+                if (words == null) {
+                    words = new long[MatchedRuleBits.wordCount(ruleSet.size())];
+                }
+                words[i >>> 6] |= 1L << i;
+                finalAction = CompiledRuleEngine.stronger(finalAction, compiled.getRule().getAction());
+            }
+            pipeline.entered[s].increment();
+            pipeline.nanos[s].add(System.nanoTime() - start);
+            if (s < plan.stageRules.length - 1 && shouldStop(pipeline.stages.get(s), words != null, finalAction)) {
+                pipeline.stopped[s].increment();
+                break;
+            }
+        }
+        if (words == null) {
+            return ALLOW_NO_MATCH;
+        }
+        return new DecisionResult(finalAction, new MatchedRuleBits(ruleSet.getRulesInPriorityOrder(), words));
+    }
+
+    /**
+     * 场景每个阶段的统计，按执行顺序排列；场景还没有执行过时返回空列表。
+     */
+    public List<StageStats> getStageStats(String scene) {
+        Objects.requireNonNull(scene, "scene must not be null");
+        Pipeline pipeline = pipelines.get(scene.toUpperCase(Locale.ROOT));
+        if (pipeline == null) {
+            return Collections.emptyList();
+        }
+        List<StageStats> stats = new ArrayList<>(pipeline.stages.size());
+        for (int s = 0; s < pipeline.stages.size(); s++) {
+            stats.add(new StageStats(pipeline.stages.get(s).getName(), pipeline.entered[s].sum(),
+                    pipeline.stopped[s].sum(), pipeline.nanos[s].sum()));
+        }
+        return stats;
+    }
+
+    private static boolean shouldStop(PipelineStage stage, boolean anyMatched, RuleAction finalAction) {
+        Set<StopCondition> stopWhen = stage.getStopWhen();
+        return (stopWhen.contains(StopCondition.REJECTED) && finalAction == RuleAction.REJECT)
+                || (stopWhen.contains(StopCondition.ALLOW_MATCHED) && anyMatched && finalAction == RuleAction.ALLOW)
+                || (stopWhen.contains(StopCondition.CLEAN) && !anyMatched);
+    }
+
+    private Plan planFor(CompiledRuleSet ruleSet) {
+        Plan plan = plans.get(ruleSet);
+        if (plan != null) {
+            return plan;
+        }
+        if (plans.size() >= MAX_PLANS) {
+            plans.clear();
+        }
+        String scene = String.valueOf(ruleSet.getScene()).toUpperCase(Locale.ROOT);
+        // 没有配置阶段的场景也记一份统计
+        Pipeline pipeline = pipelines.computeIfAbsent(scene,
+                s -> new Pipeline(Collections.singletonList(PipelineStage.of(DEFAULT_STAGE)), false));
+        plan = Plan.build(ruleSet, pipeline);
+        plans.put(ruleSet, plan);
+        return plan;
+    }
+
+    /**
+     * 一个场景的阶段配置和每个阶段的计数。
+     */
+    private static final class Pipeline {
+
+        private final List<PipelineStage> stages;
+
+        /** 是否由 setStages 配置；没有配置的场景只有 DEFAULT_STAGE，不检查规则上的阶段名 */
+        private final boolean configured;
+
+        private final LongAdder[] entered;
+        private final LongAdder[] stopped;
+        private final LongAdder[] nanos;
+
+        private Pipeline(List<PipelineStage> stages, boolean configured) {
+            this.stages = Collections.unmodifiableList(new ArrayList<>(stages));
+            this.configured = configured;
+            this.entered = adders(stages.size());
+            this.stopped = adders(stages.size());
+            this.nanos = adders(stages.size());
+        }
+
+        private static LongAdder[] adders(int n) {
+            LongAdder[] adders = new LongAdder[n];
+            for (int i = 0; i < n; i++) {
+                adders[i] = new LongAdder();
+            }
+            return adders;
+        }
+    }
+
+    /**
+     * 一个规则集的执行计划：每个阶段的规则下标（按优先级从高到低）和这些规则引用到的字段。
+     */
+    private static final class Plan {
+
+        private final Pipeline pipeline;
+        private final int[][] stageRules;
+        private final List<List<String>> stageFields;
+
+        private Plan(Pipeline pipeline, int[][] stageRules, List<List<String>> stageFields) {
+            this.pipeline = pipeline;
+            this.stageRules = stageRules;
+            this.stageFields = stageFields;
+        }
+
+        private static Plan build(CompiledRuleSet ruleSet, Pipeline pipeline) {
+            int stageCount = pipeline.stages.size();
+            List<List<Integer>> indices = new ArrayList<>(stageCount);
+            List<Set<String>> fields = new ArrayList<>(stageCount);
+            for (int s = 0; s < stageCount; s++) {
+                indices.add(new ArrayList<>());
+                fields.add(new LinkedHashSet<>());
+            }
+            for (int i = 0; i < ruleSet.size(); i++) {
+                CompiledRule compiled = ruleSet.get(i);
+                int s = stageOf(pipeline, ruleSet.getScene(), compiled);
+                indices.get(s).add(i);
+                fields.get(s).addAll(compiled.getFields());
+            }
+
+            int[][] stageRules = new int[stageCount][];
+            List<List<String>> stageFields = new ArrayList<>(stageCount);
+            for (int s = 0; s < stageCount; s++) {
+                stageRules[s] = indices.get(s).stream().mapToInt(Integer::intValue).toArray();
+                stageFields.add(new ArrayList<>(fields.get(s)));
+            }
+            return new Plan(pipeline, stageRules, stageFields);
+        }
+
+        /**
+         * 规则所属阶段的下标：没有写阶段的规则、没有配置阶段的场景都归入第一个阶段；
+         * 写了场景里没有配置的阶段名时报错。
+         */
+        private static int stageOf(Pipeline pipeline, String scene, CompiledRule compiled) {
+            String stage = compiled.getStage();
+            if (stage == null || !pipeline.configured) {
+                return 0;
+            }
+            for (int s = 0; s < pipeline.stages.size(); s++) {
+                if (pipeline.stages.get(s).getName().equals(stage)) {
+                    return s;
+                }
+            }
+            throw new IllegalArgumentException("规则 " + compiled.getRule().getId() + " 的阶段 " + stage
+                    + " 没有在场景 " + scene + " 中配置");
+        }
+    }
+}
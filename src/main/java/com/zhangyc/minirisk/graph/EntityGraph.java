@@ -0,0 +1,482 @@
+package com.zhangyc.minirisk.graph;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 进程内的用户 / 设备 / IP 关联图，边带最近一次出现的时间，用来算关联类特征
+ * （一台设备登录过多少账号、一个 IP 上出现过多少设备、用户两跳之内有没有被标记的设备）。
+ *
+ * 存储：
+ * - 节点是 int：低 2 位是类型，其余是该类型内的稠密下标，实体 id -> 节点 按类型各一个 ConcurrentHashMap，
+ *   遍历时判断邻居类型不需要访问内存；
+ * - 节点属性（邻接链表头、度数、标记）按类型、边都存放在按块分配的原始数组里，没有每条边一个对象；
+ * - 每条边 16 字节，连续存放在同一个 int 数组里（一次缓存行读取）：两个端点的异或、时间（从 2020-01-01 起的秒数）、
+ *   两个端点各自的下一条边。从端点 x 遍历时 另一端 = ends ^ x，x 是较小的端点时走 nextLo，否则走 nextHi；
+ * - 边只追加不删除，同一对节点再次出现时只把时间改成较新的那个（从度数较小的一端查找）。
+ *
+ * 并发：addEdge 可以多线程同时调用，边先写好再用 CAS 挂到两个端点的链表头上，查询不加锁。
+ * 两个线程同时第一次加入同一对节点时可能留下两条重复的边，查询按节点去重，不影响结果。
+ *
+ * 查询按跳数限制的广度优先遍历，只走时间不早于 since 的边；单次查询最多访问 maxVisited 个节点，
+ * 超出后停止扩展，此时计数是下界（防止热点 IP 拖慢决策）。
+ */
+public final class EntityGraph {
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** 边下标是 int，块目录覆盖 0..Integer.MAX_VALUE */
+    private static final int MAX_EDGE_CHUNKS = 1 << (31 - CHUNK_BITS);
+
+    /** 节点的低 TYPE_BITS 位是类型 */
+    private static final int TYPE_BITS = 2;
+    private static final int TYPE_MASK = (1 << TYPE_BITS) - 1;
+    private static final int MAX_NODE_CHUNKS = 1 << (31 - TYPE_BITS - CHUNK_BITS);
+
+    /** 每条边在 int 数组里占 4 个位置：ends、time、nextLo、nextHi */
+    private static final int ENDS = 0;
+    private static final int TIME = 1;
+    private static final int NEXT_LO = 2;
+    private static final int NEXT_HI = 3;
+
+    /** 时间的起点：2020-01-01T00:00:00Z，int 秒数可以用到 2088 年 */
+    private static final long EPOCH_SECONDS = 1_577_836_800L;
+
+    /** 链表结尾；边下标从 1 开始 */
+    private static final int NIL = 0;
+
+    /** 节点标记位：例如被拉黑的设备 */
+    private static final byte FLAGGED = 1;
+
+    public static final int DEFAULT_MAX_VISITED = 100_000;
+
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private static final EntityType[] TYPES = EntityType.values();
+
+    /** 下标是 EntityType.ordinal() */
+    private final TypeNodes[] types;
+    private final AtomicInteger nextEdge = new AtomicInteger(1);
+    private final AtomicReferenceArray<int[]> edgeChunks = new AtomicReferenceArray<>(MAX_EDGE_CHUNKS);
+
+    private volatile int maxVisited = DEFAULT_MAX_VISITED;
+
+    /** 每个线程一份遍历用的临时结构 */
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public EntityGraph() {
+        types = new TypeNodes[TYPES.length];
+        for (int i = 0; i < TYPES.length; i++) {
+            types[i] = new TypeNodes();
+        }
+    }
+
+    // ======== 链式 set 方法 ========
+
+    /**
+     * 单次查询最多访问的节点数，<= 0 表示不限。
+     */
+    public EntityGraph setMaxVisited(int maxVisited) {
+        this.maxVisited = maxVisited <= 0 ? Integer.MAX_VALUE : maxVisited;
+        return this;
+    }
+
+    // ======== 写入 ========
+
+    /**
+     * 实体对应的节点下标，第一次出现时创建。
+     */
+    public int node(EntityType type, String id) {
+        Objects.requireNonNull(type, "type must not be null");
+        Objects.requireNonNull(id, "id must not be null");
+        Map<String, Integer> ids = types[type.ordinal()].ids;
+        Integer node = ids.get(id);
+        return node != null ? node : ids.computeIfAbsent(id, k -> newNode(type));
+    }
+
+    /**
+     * 实体对应的节点下标，没有出现过时返回 -1。
+     */
+    public int findNode(EntityType type, String id) {
+        if (id == null) {
+            return -1;
+        }
+        Integer node = types[type.ordinal()].ids.get(id);
+        return node == null ? -1 : node;
+    }
+
+    /**
+     * 记录一次事件里同时出现的用户、设备、IP（两两连边），为 null 的实体跳过。
+     */
+    public void recordEvent(String userId, String deviceId, String ip, long timestampMillis) {
+        int user = userId == null ? -1 : node(EntityType.USER, userId);
+        int device = deviceId == null ? -1 : node(EntityType.DEVICE, deviceId);
+        int address = ip == null ? -1 : node(EntityType.IP, ip);
+        if (user >= 0 && device >= 0) {
+            addEdge(user, device, timestampMillis);
+        }
+        if (user >= 0 && address >= 0) {
+            addEdge(user, address, timestampMillis);
+        }
+        if (device >= 0 && address >= 0) {
+            addEdge(device, address, timestampMillis);
+        }
+    }
+
+    /**
+     * 加一条边；已经有这条边时只把时间更新为较新的那个。
+     *
+     * @return 是否新增了边
+     */
+    public boolean addEdge(int a, int b, long timestampMillis) {
+        checkNode(a);
+        checkNode(b);
+        if (a == b) {
+            return false;
+        }
+        int time = toSeconds(timestampMillis);
+        int lo = Math.min(a, b);
+        int hi = Math.max(a, b);
+        int existing = findEdge(lo, hi);
+        if (existing != NIL) {
+            int[] chunk = edgeChunks.get(existing >>> CHUNK_BITS);
+            int t = ((existing & CHUNK_MASK) << 2) + TIME;
+            int old;
+            while ((old = (int) INTS.getVolatile(chunk, t)) < time && !INTS.compareAndSet(chunk, t, old, time)) {
+                // 重试
+            }
+            return false;
+        }
+
+        int edge = nextEdge.getAndIncrement();
+        if (edge < 0) {
+            throw new IllegalStateException("too many edges");
+        }
+        int[] chunk = edgeChunk(edge >>> CHUNK_BITS);
+        int e = (edge & CHUNK_MASK) << 2;
+        chunk[e + ENDS] = lo ^ hi;
+        chunk[e + TIME] = time;
+        link(lo, edge, chunk, e + NEXT_LO);
+        link(hi, edge, chunk, e + NEXT_HI);
+        return true;
+    }
+
+    /**
+     * 标记一个实体（例如拉黑的设备），实体不存在时创建。
+     */
+    public void markFlagged(EntityType type, String id) {
+        int node = node(type, id);
+        NodeChunk chunk = nodeChunk(node);
+        synchronized (chunk) {
+            chunk.flags[slot(node)] |= FLAGGED;
+        }
+    }
+
+    public boolean isFlagged(int node) {
+        checkNode(node);
+        return (nodeChunk(node).flags[slot(node)] & FLAGGED) != 0;
+    }
+
+    public static EntityType typeOf(int node) {
+        return TYPES[node & TYPE_MASK];
+    }
+
+    /** 节点的边数（包括并发写入留下的重复边） */
+    public int degree(int node) {
+        checkNode(node);
+        return (int) INTS.getVolatile(nodeChunk(node).degree, slot(node));
+    }
+
+    // ======== 查询 ========
+
+    /**
+     * 一跳之内 type 类型的不同邻居数，只算时间不早于 sinceMillis 的边；实体不存在时为 0。
+     * 例如 countNeighbors(DEVICE, deviceId, USER, now - 1 天) = 一天内在这台设备上出现过的账号数。
+     */
+    public int countNeighbors(EntityType nodeType, String id, EntityType type, long sinceMillis) {
+        int node = findNode(nodeType, id);
+        return node < 0 ? 0 : countWithinHops(node, type, 1, sinceMillis);
+    }
+
+    /**
+     * maxHops 跳之内 type 类型的不同节点数（不含起点）。
+     */
+    public int countWithinHops(int node, EntityType type, int maxHops, long sinceMillis) {
+        checkNode(node);
+        Scratch s = scratch.get();
+        s.reset();
+        bfs(node, maxHops, toSeconds(sinceMillis), s, type, false);
+        return s.matched;
+    }
+
+    /**
+     * 从 node 出发到最近的被标记的 type 类型节点的跳数，maxHops 跳之内没有时返回 -1。
+     */
+    public int hopsToFlagged(int node, EntityType type, int maxHops, long sinceMillis) {
+        checkNode(node);
+        Scratch s = scratch.get();
+        s.reset();
+        return bfs(node, maxHops, toSeconds(sinceMillis), s, type, true);
+    }
+
+    public int getNodeCount() {
+        int count = 0;
+        for (TypeNodes nodes : types) {
+            count += nodes.count.get();
+        }
+        return count;
+    }
+
+    public int getEdgeCount() {
+        return Math.min(nextEdge.get(), Integer.MAX_VALUE) - 1;
+    }
+
+    /**
+     * 已分配的原始数组占用的字节数（按块计算，不含实体 id 字典）。
+     */
+    public long getAllocatedBytes() {
+        long bytes = 0;
+        for (TypeNodes nodes : types) {
+            for (int c = 0; c < MAX_NODE_CHUNKS && nodes.chunks.get(c) != null; c++) {
+                bytes += (long) CHUNK_SIZE * NodeChunk.BYTES_PER_NODE;
+            }
+        }
+        for (int c = 0; c < MAX_EDGE_CHUNKS && edgeChunks.get(c) != null; c++) {
+            bytes += (long) CHUNK_SIZE * 4 * Integer.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * 按层广度优先遍历。findFlagged 为 true 时返回第一个被标记的 type 节点的跳数（没有为 -1），
+     * 否则把 type 类型节点的个数记到 s.matched，返回 -1。
+     */
+    private int bfs(int start, int maxHops, int since, Scratch s, EntityType type, boolean findFlagged) {
+        int limit = maxVisited;
+        s.visit(start);
+        s.push(start);
+        int levelStart = 0;
+        for (int hop = 1; hop <= maxHops && levelStart < s.queueSize; hop++) {
+            int levelEnd = s.queueSize;
+            for (int q = levelStart; q < levelEnd; q++) {
+                int x = s.queue[q];
+                int edge = head(x);
+                while (edge != NIL) {
+                    int[] chunk = edgeChunks.get(edge >>> CHUNK_BITS);
+                    int e = (edge & CHUNK_MASK) << 2;
+                    int other = chunk[e + ENDS] ^ x;
+                    int next = x < other ? chunk[e + NEXT_LO] : chunk[e + NEXT_HI];
+                    if (chunk[e + TIME] >= since && s.visit(other)) {
+                        if ((other & TYPE_MASK) == type.ordinal()) {
+                            if (findFlagged) {
+                                if ((nodeChunk(other).flags[slot(other)] & FLAGGED) != 0) {
+                                    return hop;
+                                }
+                            } else {
+                                s.matched++;
+                            }
+                        }
+                        if (hop < maxHops) {
+                            s.push(other);
+                        }
+                        if (s.visited >= limit) {
+                            return -1;
+                        }
+                    }
+                    edge = next;
+                }
+            }
+            levelStart = levelEnd;
+        }
+        return -1;
+    }
+
+    /**
+     * 从度数较小的一端找 lo-hi 这条边。
+     */
+    private int findEdge(int lo, int hi) {
+        int from = degree(lo) <= degree(hi) ? lo : hi;
+        int target = from == lo ? hi : lo;
+        int edge = head(from);
+        while (edge != NIL) {
+            int[] chunk = edgeChunks.get(edge >>> CHUNK_BITS);
+            int e = (edge & CHUNK_MASK) << 2;
+            int other = chunk[e + ENDS] ^ from;
+            if (other == target) {
+                return edge;
+            }
+            edge = from < other ? chunk[e + NEXT_LO] : chunk[e + NEXT_HI];
+        }
+        return NIL;
+    }
+
+    private int head(int node) {
+        return (int) INTS.getVolatile(nodeChunk(node).head, slot(node));
+    }
+
+    /**
+     * 把边挂到节点链表头上：next 先写好，CAS 成功后其他线程才能从这个节点看到这条边。
+     */
+    private void link(int node, int edge, int[] edges, int next) {
+        NodeChunk chunk = nodeChunk(node);
+        int j = slot(node);
+        int head;
+        do {
+            head = (int) INTS.getVolatile(chunk.head, j);
+            edges[next] = head;
+        } while (!INTS.compareAndSet(chunk.head, j, head, edge));
+        INTS.getAndAdd(chunk.degree, j, 1);
+    }
+
+    private int newNode(EntityType type) {
+        TypeNodes nodes = types[type.ordinal()];
+        int index = nodes.count.getAndIncrement();
+        if (index >= MAX_NODE_CHUNKS << CHUNK_BITS) {
+            throw new IllegalStateException("too many nodes: " + type);
+        }
+        AtomicReferenceArray<NodeChunk> chunks = nodes.chunks;
+        int c = index >>> CHUNK_BITS;
+        if (chunks.get(c) == null) {
+            chunks.compareAndSet(c, null, new NodeChunk());
+        }
+        return (index << TYPE_BITS) | type.ordinal();
+    }
+
+    private void checkNode(int node) {
+        int type = node & TYPE_MASK;
+        if (node < 0 || type >= TYPES.length || (node >>> TYPE_BITS) >= types[type].count.get()) {
+            throw new IllegalArgumentException("节点不存在: " + node);
+        }
+    }
+
+    private NodeChunk nodeChunk(int node) {
+        return types[node & TYPE_MASK].chunks.get(node >>> (TYPE_BITS + CHUNK_BITS));
+    }
+
+    private static int slot(int node) {
+        return (node >>> TYPE_BITS) & CHUNK_MASK;
+    }
+
+    private int[] edgeChunk(int c) {
+        int[] chunk = edgeChunks.get(c);
+        if (chunk == null) {
+            edgeChunks.compareAndSet(c, null, new int[CHUNK_SIZE << 2]);
+            chunk = edgeChunks.get(c);
+        }
+        return chunk;
+    }
+
+    private static int toSeconds(long millis) {
+        long seconds = Math.floorDiv(millis, 1000L) - EPOCH_SECONDS;
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, seconds));
+    }
+
+    /**
+     * 某一类型的全部节点：实体 id 字典、节点数、节点属性块。
+     */
+    private static final class TypeNodes {
+
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicReferenceArray<NodeChunk> chunks = new AtomicReferenceArray<>(MAX_NODE_CHUNKS);
+    }
+
+    /**
+     * 某一类型 CHUNK_SIZE 个节点的属性。
+     */
+    private static final class NodeChunk {
+
+        private static final int BYTES_PER_NODE = 4 + 4 + 1;
+
+        private final int[] head = new int[CHUNK_SIZE];
+        private final int[] degree = new int[CHUNK_SIZE];
+        private final byte[] flags = new byte[CHUNK_SIZE];
+    }
+
+    /**
+     * 遍历用的队列和访问过的节点集合（开放寻址的 int 集合），复用时只清理用到的部分。
+     */
+    private static final class Scratch {
+
+        private static final int INITIAL_CAPACITY = 1 << 10;
+
+        private int[] queue = new int[INITIAL_CAPACITY];
+        private int queueSize;
+
+        private int[] table = newTable(INITIAL_CAPACITY);
+        private int visited;
+        private int matched;
+
+        private void reset() {
+            if (visited > 0) {
+                // 上一次遍历很大时换回小表，避免之后每次都清理一张大表
+                table = table.length > INITIAL_CAPACITY * 16 ? newTable(INITIAL_CAPACITY) : fill(table);
+            }
+            queueSize = 0;
+            visited = 0;
+            matched = 0;
+        }
+
+        private void push(int node) {
+            if (queueSize == queue.length) {
+                queue = Arrays.copyOf(queue, queue.length * 2);
+            }
+            queue[queueSize++] = node;
+        }
+
+        /** 第一次访问时返回 true */
+        private boolean visit(int node) {
+            if ((visited + 1) * 2 > table.length) {
+                grow();
+            }
+            int mask = table.length - 1;
+            int i = mix(node) & mask;
+            while (table[i] != -1) {
+                if (table[i] == node) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            table[i] = node;
+            visited++;
+            return true;
+        }
+
+        private void grow() {
+            int[] old = table;
+            table = newTable(old.length * 2);
+            int mask = table.length - 1;
+            for (int node : old) {
+                if (node != -1) {
+                    int i = mix(node) & mask;
+                    while (table[i] != -1) {
+                        i = (i + 1) & mask;
+                    }
+                    table[i] = node;
+                }
+            }
+        }
+
+        private static int mix(int x) {
+            x *= 0x9E3779B9;
+            return x ^ (x >>> 16);
+        }
+
+        private static int[] newTable(int capacity) {
+            return fill(new int[capacity]);
+        }
+
+        private static int[] fill(int[] table) {
+            Arrays.fill(table, -1);
+            return table;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.zhangyc.minirisk.graph;
+
+/**
+ * 关联图里的实体类型。
+ */
+public enum EntityType {
+
+    USER,
+
+    DEVICE,
+
+    IP
+}
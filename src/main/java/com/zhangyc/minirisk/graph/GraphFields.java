@@ -0,0 +1,69 @@
+package com.zhangyc.minirisk.graph;
+
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.FieldProviders;
+
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * 把 EntityGraph 的关联查询注册成懒加载字段（字段在 context-schema.json 里声明），规则直接引用即可：
+ * - device.linkedUserCount：时间窗口内在这台设备（device.id）上出现过的账号数；
+ * - ip.linkedDeviceCount：时间窗口内这个 IP（ip.value）上出现过的设备数；
+ * - user.nearFlaggedDevice：用户（user.id）两跳之内（用户-设备，或 用户-IP-设备）有没有被标记的设备。
+ * 上下文里没有对应的实体 id，或者实体还没有出现在图里时，字段取 0 / false。
+ */
+public final class GraphFields {
+
+    public static final String DEVICE_LINKED_USERS = "device.linkedUserCount";
+    public static final String IP_LINKED_DEVICES = "ip.linkedDeviceCount";
+    public static final String USER_NEAR_FLAGGED_DEVICE = "user.nearFlaggedDevice";
+
+    /** user.nearFlaggedDevice 的跳数上限 */
+    public static final int FLAGGED_DEVICE_HOPS = 2;
+
+    private GraphFields() {
+        // 工具类，不允许实例化
+    }
+
+    /**
+     * 注册三个关联字段，时间窗口以当前系统时间为终点。
+     *
+     * @param windowMillis 只看最近 windowMillis 内出现过的关联，<= 0 表示不限
+     */
+    public static FieldProviders register(FieldProviders providers, EntityGraph graph, long windowMillis) {
+        return register(providers, graph, windowMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * 同上，时间窗口的终点由 clock 给出（例如离线回放时用事件时间）。
+     */
+    public static FieldProviders register(FieldProviders providers, EntityGraph graph, long windowMillis,
+                                          LongSupplier clock) {
+        Objects.requireNonNull(graph, "graph must not be null");
+        Objects.requireNonNull(clock, "clock must not be null");
+        ContextSchema schema = providers.getSchema();
+        int userId = schema.getSlot("user.id").getIndex();
+        int deviceId = schema.getSlot("device.id").getIndex();
+        int ip = schema.getSlot("ip.value").getIndex();
+
+        return providers
+                .register(DEVICE_LINKED_USERS, ctx -> graph.countNeighbors(EntityType.DEVICE,
+                        id(ctx.getObject(deviceId)), EntityType.USER, since(clock, windowMillis)))
+                .register(IP_LINKED_DEVICES, ctx -> graph.countNeighbors(EntityType.IP,
+                        id(ctx.getObject(ip)), EntityType.DEVICE, since(clock, windowMillis)))
+                .register(USER_NEAR_FLAGGED_DEVICE, ctx -> {
+                    int user = graph.findNode(EntityType.USER, id(ctx.getObject(userId)));
+                    return user >= 0 && graph.hopsToFlagged(user, EntityType.DEVICE, FLAGGED_DEVICE_HOPS,
+                            since(clock, windowMillis)) >= 0;
+                });
+    }
+
+    private static long since(LongSupplier clock, long windowMillis) {
+        return windowMillis <= 0 ? Long.MIN_VALUE : clock.getAsLong() - windowMillis;
+    }
+
+    private static String id(Object value) {
+        return value == null ? null : value.toString();
+    }
+}
@@ -5,15 +5,26 @@ import java.util.List;
 
 /**
  * 一次风控决策的最终结果 + 命中规则列表 +（可选）命中细节。
+ * 命中规则既可以直接以列表给出，也可以以位图（MatchedRuleBits）给出，
+ * 后者只有在调用 getMatchedRules() 时才会生成列表。
+ * 在预算内降级执行时，结果是「部分的」：getSkippedRules() 给出因预算耗尽而没有执行的规则。
  */
 public class DecisionResult {
 
     private final RuleAction finalAction;
-    private final List<Rule> matchedRules;
+
+    /** 命中规则列表；位图模式下首次访问时才生成 */
+    private volatile List<Rule> matchedRules;
+
+    /** 位图模式下的命中规则，列表模式下为 null */
+    private final MatchedRuleBits matchedBits;
 
     /** 新增：每条规则的命中解释信息（可选） */
     private final List<RuleMatchDetail> ruleMatchDetails;
 
+    /** 因预算耗尽没有执行的规则，按优先级从高到低；完整执行时为空列表 */
+    private final List<Rule> skippedRules;
+
     /**
      * 兼容之前的构造方法：只有 finalAction 和 matchedRules。
      * 这种情况下，ruleMatchDetails 默认为空列表。
@@ -28,33 +39,104 @@ public class DecisionResult {
     public DecisionResult(RuleAction finalAction,
                           List<Rule> matchedRules,
                           List<RuleMatchDetail> ruleMatchDetails) {
+        this(finalAction, matchedRules, ruleMatchDetails, null);
+    }
+
+    /**
+     * 降级执行的结果：skippedRules 非空时 isPartial() 为 true。
+     */
+    public DecisionResult(RuleAction finalAction,
+                          List<Rule> matchedRules,
+                          List<RuleMatchDetail> ruleMatchDetails,
+                          List<Rule> skippedRules) {
         this.finalAction = finalAction;
+        this.matchedBits = null;
         this.matchedRules = matchedRules == null
                 ? Collections.emptyList()
                 : Collections.unmodifiableList(matchedRules);
         this.ruleMatchDetails = ruleMatchDetails == null
                 ? Collections.emptyList()
                 : Collections.unmodifiableList(ruleMatchDetails);
+        this.skippedRules = skippedRules == null
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(skippedRules);
+    }
+
+    /**
+     * 位图模式：命中规则以位图形式保存，按需生成列表。
+     */
+    public DecisionResult(RuleAction finalAction, MatchedRuleBits matchedBits) {
+        this.finalAction = finalAction;
+        this.matchedBits = matchedBits;
+        this.matchedRules = matchedBits == null ? Collections.emptyList() : null;
+        this.ruleMatchDetails = Collections.emptyList();
+        this.skippedRules = Collections.emptyList();
     }
 
     public RuleAction getFinalAction() {
         return finalAction;
     }
 
+    /**
+     * 全部命中规则，按优先级从高到低。
+     */
     public List<Rule> getMatchedRules() {
-        return matchedRules;
+        List<Rule> rules = matchedRules;
+        if (rules == null) {
+            rules = Collections.unmodifiableList(matchedBits.toList());
+            matchedRules = rules;
+        }
+        return rules;
+    }
+
+    /**
+     * 优先级最高的 k 条命中规则；位图模式下只生成这 k 条。
+     */
+    public List<Rule> getTopMatchedRules(int k) {
+        List<Rule> rules = matchedRules;
+        if (rules == null) {
+            return Collections.unmodifiableList(matchedBits.topK(k));
+        }
+        return rules.size() <= k ? rules : rules.subList(0, Math.max(k, 0));
+    }
+
+    /**
+     * 命中规则条数，位图模式下不生成列表。
+     */
+    public int getMatchedCount() {
+        List<Rule> rules = matchedRules;
+        return rules != null ? rules.size() : matchedBits.cardinality();
+    }
+
+    /**
+     * 位图模式下的命中位图，列表模式返回 null。
+     */
+    public MatchedRuleBits getMatchedBits() {
+        return matchedBits;
     }
 
     public List<RuleMatchDetail> getRuleMatchDetails() {
         return ruleMatchDetails;
     }
 
+    /**
+     * 是否有规则因预算耗尽被跳过（此时最终动作只基于已执行的规则）。
+     */
+    public boolean isPartial() {
+        return !skippedRules.isEmpty();
+    }
+
+    public List<Rule> getSkippedRules() {
+        return skippedRules;
+    }
+
     @Override
     public String toString() {
         return "DecisionResult{" +
                 "finalAction=" + finalAction +
-                ", matchedRules=" + matchedRules +
+                ", matchedRules=" + getMatchedRules() +
                 ", ruleMatchDetails=" + ruleMatchDetails +
+                (skippedRules.isEmpty() ? "" : ", skippedRules=" + skippedRules) +
                 '}';
     }
 }
@@ -0,0 +1,96 @@
+package com.zhangyc.minirisk.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 用 long[] 位图记录命中的规则：
+ * - 第 i 位对应规则集中下标为 i 的规则，规则集已按优先级从高到低编号；
+ * - 因此按位从低到高遍历就是按优先级从高到低，执行时不需要排序；
+ * - 只有真正需要时才把位图转换成 List<Rule>。
+ */
+public final class MatchedRuleBits {
+
+    /** 规则集中的全部规则，按优先级从高到低排列，下标与位一一对应 */
+    private final List<Rule> indexedRules;
+
+    private final long[] words;
+
+    public MatchedRuleBits(List<Rule> indexedRules, long[] words) {
+        this.indexedRules = indexedRules;
+        this.words = words;
+    }
+
+    /**
+     * 存放 ruleCount 条规则需要的 long 个数。
+     */
+    public static int wordCount(int ruleCount) {
+        return (ruleCount + 63) >>> 6;
+    }
+
+    public boolean isMatched(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * 从 fromIndex（含）开始的下一条命中规则的下标，没有时返回 -1。
+     */
+    public int nextMatched(int fromIndex) {
+        int w = fromIndex >>> 6;
+        if (w >= words.length) {
+            return -1;
+        }
+        long word = words[w] & (-1L << fromIndex);
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == words.length) {
+                return -1;
+            }
+            word = words[w];
+        }
+    }
+
+    /**
+     * 命中规则条数。
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 只取优先级最高的 k 条命中规则。
+     */
+    public List<Rule> topK(int k) {
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+        List<Rule> result = new ArrayList<>(Math.min(k, 8));
+        for (int i = nextMatched(0); i >= 0 && result.size() < k; i = nextMatched(i + 1)) {
+            result.add(indexedRules.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * 全部命中规则，按优先级从高到低。
+     */
+    public List<Rule> toList() {
+        return topK(Integer.MAX_VALUE);
+    }
+}
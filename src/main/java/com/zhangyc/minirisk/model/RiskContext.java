@@ -27,6 +27,7 @@ public class RiskContext {
 
     // ======== 链式 set 方法，使用起来更方便 ========
 
+    @RiskField("user.id")
     public String getUserId() {
         return userId;
     }
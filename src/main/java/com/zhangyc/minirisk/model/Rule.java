@@ -1,5 +1,6 @@
 package com.zhangyc.minirisk.model;
 
+import java.util.List;
 import java.util.function.Predicate;
 
 /**
@@ -13,6 +14,8 @@ public class Rule {
     private final int priority; // 数字越大优先级越高
     private final Predicate<RiskContext> condition;
     private final RuleAction action;
+    private final List<String> referencedFields; // null 表示无法确定条件会读哪些字段
+    private final int leafCount;
 
     public Rule(String id,
                 String description,
@@ -20,12 +23,31 @@ public class Rule {
                 int priority,
                 Predicate<RiskContext> condition,
                 RuleAction action) {
+        this(id, description, scene, priority, condition, action, null, 0);
+    }
+
+    /**
+     * 由配置构造的规则：额外带上条件引用到的字段路径和化简后的叶子条件数，
+     * 使用方直接读规则自身的元数据，不按 id 去查全局的 RuleDefinition（不同租户、候选版本里 id 可能相同）。
+     *
+     * @param referencedFields 不可变列表（驻留池里内容相同的列表共享同一个实例，这里不再复制），null 表示未知
+     */
+    public Rule(String id,
+                String description,
+                String scene,
+                int priority,
+                Predicate<RiskContext> condition,
+                RuleAction action,
+                List<String> referencedFields,
+                int leafCount) {
         this.id = id;
         this.description = description;
         this.scene = scene;
         this.priority = priority;
         this.condition = condition;
         this.action = action;
+        this.referencedFields = referencedFields;
+        this.leafCount = leafCount;
     }
 
     public String getId() {
@@ -52,6 +74,16 @@ public class Rule {
         return action;
     }
 
+    /** 条件里引用到的字段路径（不可变）；手写的规则无法确定会读哪些字段，返回 null */
+    public List<String> getReferencedFields() {
+        return referencedFields;
+    }
+
+    /** 化简后条件的叶子条件数；手写的规则为 0 */
+    public int getLeafCount() {
+        return leafCount;
+    }
+
     @Override
     public String toString() {
         return "Rule{" +
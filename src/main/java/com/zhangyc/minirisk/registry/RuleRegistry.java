@@ -1,56 +1,589 @@
 package com.zhangyc.minirisk.registry;
 
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.compile.MultiSceneRuleSet;
 import com.zhangyc.minirisk.config.RuleConfigLoader;
+import com.zhangyc.minirisk.config.RuleDefinition;
+import com.zhangyc.minirisk.config.RuleSetAnalyzer;
+import com.zhangyc.minirisk.engine.CompiledRuleEngine;
+import com.zhangyc.minirisk.engine.SimpleRuleEngine;
+import com.zhangyc.minirisk.model.RiskContext;
 import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.RiskContextAdapter;
+import com.zhangyc.minirisk.schema.SlotContext;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * 规则注册中心 / 规则仓库：
  * - 启动时从配置文件加载所有规则；
- * - 提供按场景获取规则的方法。
+ * - 提供按场景获取规则的方法；
+ * - 支持重新加载规则，每次加载都会生成一个新的规则集版本号；
+ * - 支持按规则增量更新（upsert / remove / applyChanges）：只编译变化的规则，
+ *   没受影响的场景直接复用上一版本的规则列表和编译结果；
+ * - 场景在第一次用到时才编译（并发的首次调用只编译一次），接流量之前可以用 warmup 提前编译并预热 JIT。
  */
 public class RuleRegistry {
 
-    // 全部规则缓存（不可变列表）
-    private static final List<Rule> ALL_RULES;
+    /** 默认的规则配置文件 */
+    private static final String DEFAULT_RESOURCE = "rules-demo.json";
+
+    /** 当前生效的规则快照（规则 + 版本号 + 场景缓存），整体替换保证读到的是一致的一份 */
+    private static volatile Snapshot snapshot;
+
+    /** 最多连续多少个增量版本不计算全部规则列表（摊薄复制全部规则的开销，同时限制引用链长度） */
+    private static final int MAX_PENDING_DELTAS = 32;
+
+    /** 场景规则集（含多场景合并规则集）的编译次数（所有版本累计），用来观察懒编译和 single-flight 是否生效 */
+    private static final LongAdder COMPILATIONS = new LongAdder();
+
+    /** 预热用的适配器，创建后不可变 */
+    private static final RiskContextAdapter ADAPTER = new RiskContextAdapter(ContextSchema.defaultSchema());
+
+    /** 规则重新加载后的回调，参数为新版本号（例如用来失效决策缓存） */
+    private static final List<LongConsumer> RELOAD_LISTENERS = new CopyOnWriteArrayList<>();
 
     static {
         // 这里写死从哪个配置文件加载；后面也可以改成可配置的
-        ALL_RULES = Collections.unmodifiableList(
-                RuleConfigLoader.loadRulesFromClasspath("rules-demo.json")
-        );
+        reload(DEFAULT_RESOURCE);
     }
 
     private RuleRegistry() {
         // 工具类，不允许实例化
     }
 
+    /**
+     * 重新从 classpath 加载规则，发布一个新的规则集版本，并通知所有监听者。
+     *
+     * @param resourceName 例如 "rules-demo.json"
+     */
+    public static synchronized void reload(String resourceName) {
+        reload(resourceName, null);
+    }
+
+    /**
+     * 重新加载规则，并用 analyzer 做静态分析（可选剔除无效规则），
+     * 分析报告见 RuleConfigLoader.getLastAnalysisReport()。
+     */
+    public static synchronized void reload(String resourceName, RuleSetAnalyzer analyzer) {
+        List<RuleDefinition> defs = RuleConfigLoader.readDefinitionsFromClasspath(resourceName);
+        publish(defs, RuleConfigLoader.loadRules(defs, analyzer));
+    }
+
+    /**
+     * 用一份完整的规则定义全量替换当前规则（例如规则来自配置中心），发布新版本。
+     */
+    public static synchronized void reload(List<RuleDefinition> defs) {
+        Objects.requireNonNull(defs, "defs must not be null");
+        publish(defs, RuleConfigLoader.loadRules(defs, null));
+    }
+
+    private static void publish(List<RuleDefinition> defs, List<Rule> loaded) {
+        List<Rule> rules = Collections.unmodifiableList(loaded);
+        // 快照保留自己的一份定义，之后编译只看这一份，不读会被改动的 RuleConfigLoader 全局定义
+        Map<String, RuleDefinition> definitions = new HashMap<>();
+        for (RuleDefinition def : defs) {
+            definitions.put(def.getId(), def);
+        }
+        long newVersion = snapshot == null ? 1L : snapshot.version + 1;
+        // 场景在第一次用到时才编译，需要提前编译的用 warmup
+        snapshot = new Snapshot(newVersion, rules, Collections.unmodifiableMap(definitions));
+        notifyListeners(newVersion);
+    }
+
+    /**
+     * 新增或替换一条规则，返回新版本号。
+     */
+    public static long upsert(RuleDefinition def) {
+        return applyChanges(Collections.singletonList(def), Collections.emptyList());
+    }
+
+    /**
+     * 删除一条规则，返回新版本号；规则不存在时也会发布新版本（内容不变）。
+     */
+    public static long remove(String ruleId) {
+        return applyChanges(Collections.emptyList(), Collections.singletonList(ruleId));
+    }
+
+    /**
+     * 一次性应用一批增量，发布一个新版本并通知监听者，返回新版本号：
+     * - 只转换 / 编译 upserts 里的规则，其他规则的 Predicate 和已编译谓词全部复用；
+     * - 只有涉及到的场景（规则变化前后所在的场景；COMMON 规则变化时是所有场景）会生成新的规则列表和编译结果，
+     *   其余场景直接沿用上一版本的列表，编译结果只换版本号；
+     * - 任何一条规则定义不合法时抛异常，当前版本保持不变。
+     *
+     * 不做静态分析（RuleSetAnalyzer），需要剪枝时用 reload。
+     */
+    public static synchronized long applyChanges(List<RuleDefinition> upserts, Collection<String> removedIds) {
+        Objects.requireNonNull(upserts, "upserts must not be null");
+        Objects.requireNonNull(removedIds, "removedIds must not be null");
+
+        // 先全部转换，有不合法的定义时直接失败，不改任何状态
+        Map<String, Rule> changed = new LinkedHashMap<>();
+        Map<String, RuleDefinition> changedDefinitions = new HashMap<>();
+        for (RuleDefinition def : upserts) {
+            Objects.requireNonNull(def.getId(), "rule id must not be null");
+            changed.put(def.getId(), RuleConfigLoader.convertToRule(def));
+            changedDefinitions.put(def.getId(), def);
+        }
+        Set<String> removed = new HashSet<>(removedIds);
+        for (String id : removed) {
+            if (changed.containsKey(id)) {
+                throw new IllegalArgumentException("同一条规则不能同时更新和删除: " + id);
+            }
+        }
+
+        // 受影响的场景：变化前后的场景都算
+        Snapshot current = snapshot;
+        Set<String> affectedScenes = new HashSet<>();
+        for (String id : removed) {
+            RuleDefinition old = current.definition(id);
+            if (old != null) {
+                affectedScenes.add(sceneKey(old.getScene()));
+            }
+        }
+        for (RuleDefinition def : upserts) {
+            RuleDefinition old = current.definition(def.getId());
+            if (old != null) {
+                affectedScenes.add(sceneKey(old.getScene()));
+            }
+            affectedScenes.add(sceneKey(def.getScene()));
+        }
+
+        // 新快照（含受影响场景的增量编译）全部建好之后，才改全局定义并发布；中间抛异常时什么都不变
+        Snapshot next = current.withChanges(current.version + 1, changed, changedDefinitions, removed, affectedScenes);
+        for (RuleDefinition def : upserts) {
+            RuleConfigLoader.putRuleDefinition(def);
+        }
+        for (String id : removed) {
+            RuleConfigLoader.removeRuleDefinition(id);
+        }
+        snapshot = next;
+        notifyListeners(next.version);
+        return next.version;
+    }
+
+    private static void notifyListeners(long version) {
+        for (LongConsumer listener : RELOAD_LISTENERS) {
+            listener.accept(version);
+        }
+    }
+
+    /**
+     * 预热：编译给定场景，再用一批合成上下文把每个场景的执行路径跑 iterations 轮，
+     * 让 JIT 在接流量之前把热点路径编译好。每轮对每条上下文走三条路径：
+     * - CompiledRuleEngine.evaluate(RiskContext, ..., adapter)：适配 + 编译谓词；
+     * - CompiledRuleEngine.evaluateReusing：复用上下文和结果视图的零分配路径；
+     * - SimpleRuleEngine：按 getRulesForScene 的 Predicate 执行。
+     *
+     * 不加锁，预热期间可以正常 reload；预热的是调用时的版本，之后发布的新版本场景仍然在第一次用到时编译。
+     *
+     * @param scenes            要预热的场景
+     * @param syntheticContexts 合成上下文，应尽量覆盖线上常见的取值分布（命中 / 不命中都要有）
+     * @param iterations        轮数，0 表示只编译不执行
+     */
+    public static WarmupReport warmup(Collection<String> scenes, List<RiskContext> syntheticContexts, int iterations) {
+        Objects.requireNonNull(scenes, "scenes must not be null");
+        Objects.requireNonNull(syntheticContexts, "syntheticContexts must not be null");
+        if (iterations < 0) {
+            throw new IllegalArgumentException("iterations 不能为负数: " + iterations);
+        }
+        long start = System.nanoTime();
+        Snapshot current = snapshot;
+
+        List<String> keys = new ArrayList<>();
+        Map<String, Long> compileNanos = new LinkedHashMap<>();
+        for (String scene : scenes) {
+            String key = sceneKey(Objects.requireNonNull(scene, "scene must not be null"));
+            if (compileNanos.containsKey(key)) {
+                continue;
+            }
+            long compileStart = System.nanoTime();
+            boolean compiled = current.compiledIfDone(key) != null;
+            current.compiledRuleSetForScene(key);
+            compileNanos.put(key, compiled ? 0L : System.nanoTime() - compileStart);
+            keys.add(key);
+        }
+
+        CompiledRuleEngine compiledEngine = new CompiledRuleEngine();
+        SimpleRuleEngine simpleEngine = new SimpleRuleEngine();
+        SlotContext scratch = ContextSchema.defaultSchema().newContext();
+        long evaluations = 0L;
+        long matched = 0L;
+        long lastRoundNanos = 0L;
+        long lastRoundEvaluations = 0L;
+        for (int round = 0; round < iterations; round++) {
+            long roundStart = System.nanoTime();
+            long roundEvaluations = 0L;
+            for (String key : keys) {
+                CompiledRuleSet ruleSet = current.compiledRuleSetForScene(key);
+                List<Rule> rules = current.rulesForScene(key);
+                for (RiskContext context : syntheticContexts) {
+                    matched += compiledEngine.evaluate(context, ruleSet, ADAPTER).getMatchedRules().size();
+                    matched += compiledEngine.evaluateReusing(ADAPTER.fill(context, scratch), ruleSet).getMatchedCount();
+                    matched += simpleEngine.evaluate(context, rules).getMatchedRules().size();
+                    roundEvaluations += 3;
+                }
+            }
+            evaluations += roundEvaluations;
+            lastRoundNanos = System.nanoTime() - roundStart;
+            lastRoundEvaluations = roundEvaluations;
+        }
+        return new WarmupReport(current.version, Collections.unmodifiableMap(compileNanos), evaluations, matched,
+                System.nanoTime() - start, lastRoundEvaluations == 0 ? 0L : lastRoundNanos / lastRoundEvaluations);
+    }
+
+    /**
+     * 当前版本里出现过的场景（不含 COMMON），例如预热所有场景：warmup(getScenes(), contexts, n)。
+     */
+    public static Set<String> getScenes() {
+        Set<String> scenes = new LinkedHashSet<>();
+        for (Rule rule : snapshot.allRules()) {
+            if (!"COMMON".equalsIgnoreCase(rule.getScene())) {
+                scenes.add(sceneKey(rule.getScene()));
+            }
+        }
+        return scenes;
+    }
+
+    /**
+     * 场景规则集的累计编译次数（所有版本、所有场景）。
+     */
+    public static long getCompilationCount() {
+        return COMPILATIONS.sum();
+    }
+
+    private static String sceneKey(String scene) {
+        return scene == null ? "" : scene.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * 当前规则集版本号，每次 reload 递增。
+     */
+    public static long getVersion() {
+        return snapshot.version;
+    }
+
+    /**
+     * 注册规则重新加载的监听者（全量 reload 和增量更新都会通知）。
+     */
+    public static void addReloadListener(LongConsumer listener) {
+        RELOAD_LISTENERS.add(Objects.requireNonNull(listener, "listener must not be null"));
+    }
+
+    /**
+     * 注销 addReloadListener 注册的监听者（按对象身份），没有注册过时什么都不做。
+     */
+    public static void removeReloadListener(LongConsumer listener) {
+        RELOAD_LISTENERS.removeIf(l -> l == listener);
+    }
+
     /**
      * 获取指定场景下要执行的规则：
      * - 包括 scene 完全匹配的规则；
      * - 以及 scene = "COMMON" 的通用规则。
+     * 同一版本内，同一场景返回的是同一个不可变列表。
      *
      * @param scene 例如 "PAY" / "LOGIN" / "REGISTER"
      */
     public static List<Rule> getRulesForScene(String scene) {
         Objects.requireNonNull(scene, "scene must not be null");
+        return snapshot.rulesForScene(scene);
+    }
+
+    /**
+     * 获取指定场景编译好的规则集（基于默认 ContextSchema），规则范围与 getRulesForScene 相同。
+     */
+    public static CompiledRuleSet getCompiledRuleSet(String scene) {
+        Objects.requireNonNull(scene, "scene must not be null");
+        return snapshot.compiledRuleSetForScene(scene);
+    }
 
-        return ALL_RULES.stream()
-                .filter(rule ->
-                        scene.equalsIgnoreCase(rule.getScene())
-                                || "COMMON".equalsIgnoreCase(rule.getScene())
-                )
-                .collect(Collectors.toList());
+    /**
+     * 获取多个场景合并后的规则集：这些场景的规则加上 COMMON 规则，每条只编译、执行一次，
+     * 按场景拆分结果见 CompiledRuleEngine.evaluate(SlotContext, MultiSceneRuleSet)。
+     * 同一版本内，同一组场景（不区分大小写和顺序）返回同一个实例。
+     */
+    public static MultiSceneRuleSet getMultiSceneRuleSet(Collection<String> scenes) {
+        return snapshot.multiSceneRuleSet(scenes);
     }
 
     /**
      * 如果你真的想拿到全部规则，也可以提供这个方法。
      */
     public static List<Rule> getAllRules() {
-        return ALL_RULES;
+        return snapshot.allRules();
+    }
+
+    /**
+     * 某一版本的规则集快照。
+     */
+    private static final class Snapshot {
+
+        private final long version;
+
+        /** 全部规则；增量版本在第一次用到时才由上一版本加上这次的变化算出来 */
+        private volatile List<Rule> allRules;
+
+        /** 规则 id -> 定义（不可变），和 allRules 一起算出来；场景编译只用这一份 */
+        private volatile Map<String, RuleDefinition> definitions;
+
+        // ======== 增量版本还没算出 allRules 时有值，在 this 上同步 ========
+
+        private Snapshot base;
+        private Map<String, Rule> changed;
+        private Map<String, RuleDefinition> changedDefinitions;
+        private Set<String> removed;
+
+        /** 往前数有几个版本的 allRules 还没算出来，超过 MAX_PENDING_DELTAS 时立即计算 */
+        private final int pendingDepth;
+
+        /** 场景（大写）-> 该场景的规则列表 */
+        private final Map<String, List<Rule>> sceneRules = new ConcurrentHashMap<>();
+
+        /**
+         * 场景（大写）-> 该场景的编译结果。
+         * 第一个调用者放入 future 并负责编译，同时到达的其他调用者等同一个 future（single-flight）；
+         * 不用 computeIfAbsent 是因为它在编译期间持有桶锁，会挡住落在同一个桶里的其他场景。
+         */
+        private final Map<String, CompletableFuture<CompiledRuleSet>> compiledRuleSets = new ConcurrentHashMap<>();
+
+        /** 多场景 key（例如 "LOGIN+PAY"）-> 合并规则集，同样 single-flight；不跨版本沿用，新版本第一次用到时重新编译 */
+        private final Map<String, CompletableFuture<MultiSceneRuleSet>> multiSceneRuleSets = new ConcurrentHashMap<>();
+
+        private Snapshot(long version, List<Rule> allRules, Map<String, RuleDefinition> definitions) {
+            this.version = version;
+            this.allRules = allRules;
+            this.definitions = definitions;
+            this.pendingDepth = 0;
+        }
+
+        private Snapshot(long version, Snapshot base, Map<String, Rule> changed,
+                         Map<String, RuleDefinition> changedDefinitions, Set<String> removed) {
+            this.version = version;
+            this.base = base;
+            this.changed = changed;
+            this.changedDefinitions = changedDefinitions;
+            this.removed = removed;
+            this.pendingDepth = base.allRules == null ? base.pendingDepth + 1 : 1;
+        }
+
+        private List<Rule> allRules() {
+            List<Rule> rules = allRules;
+            if (rules != null) {
+                return rules;
+            }
+            synchronized (this) {
+                if (allRules == null) {
+                    List<Rule> applied = applyTo(base.allRules(), changed, removed);
+                    Map<String, RuleDefinition> defs = new HashMap<>(base.definitions);
+                    defs.keySet().removeAll(removed);
+                    defs.putAll(changedDefinitions);
+                    definitions = Collections.unmodifiableMap(defs);
+                    allRules = applied;
+                    base = null;
+                    changed = null;
+                    changedDefinitions = null;
+                    removed = null;
+                }
+                return allRules;
+            }
+        }
+
+        /**
+         * 这个版本里某条规则的定义，没有时返回 null；还没算出全部定义的增量版本沿着上一版本往前找。
+         */
+        private RuleDefinition definition(String id) {
+            Snapshot s = this;
+            while (true) {
+                Map<String, RuleDefinition> defs = s.definitions;
+                if (defs != null) {
+                    return defs.get(id);
+                }
+                Snapshot base;
+                synchronized (s) {
+                    if (s.definitions != null) {
+                        continue;
+                    }
+                    RuleDefinition def = s.changedDefinitions.get(id);
+                    if (def != null || s.removed.contains(id)) {
+                        return def;
+                    }
+                    base = s.base;
+                }
+                s = base;
+            }
+        }
+
+        private List<Rule> rulesForScene(String scene) {
+            return sceneRules.computeIfAbsent(scene.toUpperCase(Locale.ROOT), key ->
+                    Collections.unmodifiableList(allRules().stream()
+                            .filter(rule ->
+                                    key.equalsIgnoreCase(rule.getScene())
+                                            || "COMMON".equalsIgnoreCase(rule.getScene())
+                            )
+                            .collect(Collectors.toList())));
+        }
+
+        private CompiledRuleSet compiledRuleSetForScene(String scene) {
+            String key = scene.toUpperCase(Locale.ROOT);
+            return singleFlight(compiledRuleSets, key,
+                    () -> CompiledRuleSet.compile(key, version, rulesForScene(key), this::definition,
+                            ContextSchema.defaultSchema()));
+        }
+
+        private MultiSceneRuleSet multiSceneRuleSet(Collection<String> scenes) {
+            String key = MultiSceneRuleSet.key(scenes);
+            return singleFlight(multiSceneRuleSets, key, () -> {
+                Set<String> names = new HashSet<>(Arrays.asList(key.split("\\+")));
+                List<Rule> rules = allRules().stream()
+                        .filter(rule -> "COMMON".equalsIgnoreCase(rule.getScene())
+                                || names.contains(String.valueOf(rule.getScene()).toUpperCase(Locale.ROOT)))
+                        .collect(Collectors.toList());
+                return MultiSceneRuleSet.compile(names, version, rules, this::definition, ContextSchema.defaultSchema());
+            });
+        }
+
+        /**
+         * 第一个调用者放入 future 并负责编译，同时到达的其他调用者等同一个 future。
+         */
+        private static <T> T singleFlight(Map<String, CompletableFuture<T>> cache, String key, Supplier<T> compiler) {
+            CompletableFuture<T> future = cache.get(key);
+            if (future == null) {
+                CompletableFuture<T> mine = new CompletableFuture<>();
+                future = cache.putIfAbsent(key, mine);
+                if (future == null) {
+                    return compile(cache, key, mine, compiler);
+                }
+            }
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        private static <T> T compile(Map<String, CompletableFuture<T>> cache, String key,
+                                     CompletableFuture<T> future, Supplier<T> compiler) {
+            try {
+                T compiled = compiler.get();
+                COMPILATIONS.increment();
+                future.complete(compiled);
+                return compiled;
+            } catch (RuntimeException | Error e) {
+                // 编译失败不缓存，下一个调用者重新编译；正在等的调用者拿到同一个异常
+                cache.remove(key, future);
+                future.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        /** 已经编译完成的结果，还没编译、正在编译或编译失败时返回 null */
+        private CompiledRuleSet compiledIfDone(String key) {
+            CompletableFuture<CompiledRuleSet> future = compiledRuleSets.get(key);
+            return future != null && future.isDone() && !future.isCompletedExceptionally()
+                    ? future.join() : null;
+        }
+
+        /**
+         * 在当前快照上应用增量，生成下一个版本的快照：
+         * 全部规则列表推迟到第一次用到时再算，已经缓存过的场景里，
+         * 受影响的场景在原列表和原编译结果上增量修改，没受影响的直接沿用。
+         *
+         * @param changed        id -> 新规则（新增或替换）
+         * @param changedDefinitions id -> 新规则的定义
+         * @param affectedScenes 变化前后涉及的场景（大写），包含 COMMON 时所有场景都受影响
+         */
+        private Snapshot withChanges(long newVersion, Map<String, Rule> changed,
+                                     Map<String, RuleDefinition> changedDefinitions, Set<String> removed,
+                                     Set<String> affectedScenes) {
+            Snapshot next = new Snapshot(newVersion, this, changed, changedDefinitions, removed);
+            if (next.pendingDepth > MAX_PENDING_DELTAS) {
+                next.allRules();
+            }
+            boolean allAffected = affectedScenes.contains("COMMON");
+            for (Map.Entry<String, List<Rule>> entry : sceneRules.entrySet()) {
+                String key = entry.getKey();
+                // 正在编译的场景不等它，新版本里第一次用到时再编译
+                CompiledRuleSet compiled = compiledIfDone(key);
+                if (!allAffected && !affectedScenes.contains(key)) {
+                    next.sceneRules.put(key, entry.getValue());
+                    if (compiled != null) {
+                        next.compiledRuleSets.put(key, CompletableFuture.completedFuture(compiled.withVersion(newVersion)));
+                    }
+                    continue;
+                }
+                // 对这个场景来说，新规则不属于它（例如改了场景）就等于删除
+                Map<String, Rule> upserts = new LinkedHashMap<>();
+                Set<String> dropped = new HashSet<>(removed);
+                for (Rule rule : changed.values()) {
+                    if (key.equalsIgnoreCase(rule.getScene()) || "COMMON".equalsIgnoreCase(rule.getScene())) {
+                        upserts.put(rule.getId(), rule);
+                    } else {
+                        dropped.add(rule.getId());
+                    }
+                }
+                next.sceneRules.put(key, applyTo(entry.getValue(), upserts, dropped));
+                if (compiled != null) {
+                    next.compiledRuleSets.put(key, CompletableFuture.completedFuture(
+                            compiled.withChanges(newVersion, new ArrayList<>(upserts.values()), dropped, next::definition)));
+                }
+            }
+            return next;
+        }
+
+        /**
+         * 复制一份规则列表：removed 里的删除，changed 里已有且优先级不变的原地替换，其余追加到末尾。
+         */
+        private static List<Rule> applyTo(List<Rule> rules, Map<String, Rule> changed, Set<String> removed) {
+            List<Rule> result = new ArrayList<>(rules.size() + changed.size());
+            Set<String> replaced = new HashSet<>();
+            for (Rule rule : rules) {
+                String id = rule.getId();
+                if (removed.contains(id)) {
+                    continue;
+                }
+                Rule replacement = changed.get(id);
+                if (replacement != null) {
+                    // 优先级变了的规则挪到末尾，和 CompiledRuleSet.withChanges 里同优先级规则的顺序保持一致
+                    if (replacement.getPriority() == rule.getPriority()) {
+                        result.add(replacement);
+                        replaced.add(id);
+                    }
+                } else {
+                    result.add(rule);
+                }
+            }
+            for (Rule rule : changed.values()) {
+                if (!replaced.contains(rule.getId())) {
+                    result.add(rule);
+                }
+            }
+            return Collections.unmodifiableList(result);
+        }
     }
 }
@@ -0,0 +1,64 @@
+package com.zhangyc.minirisk.registry;
+
+import java.util.Map;
+
+/**
+ * RuleRegistry.warmup 的结果：每个场景的编译耗时（已经编译过的场景为 0）、
+ * 执行了多少次决策、总耗时，以及最后一轮的平均单次决策耗时（可以和稳态延迟对比，判断预热是否足够）。
+ */
+public final class WarmupReport {
+
+    private final long version;
+    private final Map<String, Long> compileNanos;
+    private final long evaluations;
+    private final long matched;
+    private final long elapsedNanos;
+    private final long lastRoundNanosPerDecision;
+
+    WarmupReport(long version, Map<String, Long> compileNanos, long evaluations, long matched,
+                 long elapsedNanos, long lastRoundNanosPerDecision) {
+        this.version = version;
+        this.compileNanos = compileNanos;
+        this.evaluations = evaluations;
+        this.matched = matched;
+        this.elapsedNanos = elapsedNanos;
+        this.lastRoundNanosPerDecision = lastRoundNanosPerDecision;
+    }
+
+    /** 预热时的规则集版本号 */
+    public long getVersion() {
+        return version;
+    }
+
+    /** 场景（大写）-> 编译耗时（纳秒），按传入顺序 */
+    public Map<String, Long> getCompileNanos() {
+        return compileNanos;
+    }
+
+    /** 执行的决策次数（每条上下文在每条执行路径上算一次） */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /** 命中规则总数，没有实际意义，只是让执行结果被用到 */
+    public long getMatched() {
+        return matched;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getLastRoundNanosPerDecision() {
+        return lastRoundNanosPerDecision;
+    }
+
+    @Override
+    public String toString() {
+        return "WarmupReport{version=" + version
+                + ", scenes=" + compileNanos.size()
+                + ", evaluations=" + evaluations
+                + ", elapsed=" + elapsedNanos / 1_000_000 + "ms"
+                + ", lastRound=" + lastRoundNanosPerDecision + "ns/decision}";
+    }
+}
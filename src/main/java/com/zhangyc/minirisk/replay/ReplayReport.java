@@ -0,0 +1,141 @@
+package com.zhangyc.minirisk.replay;
+
+import com.zhangyc.minirisk.model.RuleAction;
+
+import java.util.*;
+
+/**
+ * 回放结果：
+ * - 每份规则集的规则命中次数、命中率和最终动作分布；
+ * - 对比两份规则集时，给出最终动作的迁移矩阵（基线动作 -> 候选动作）、决策发生变化的行数，
+ *   以及按规则 id 对齐后的命中次数差异（新增 / 删除的规则单独标出）。
+ */
+public final class ReplayReport {
+
+    private final String scene;
+    private final long rows;
+    private final long elapsedNanos;
+    private final RuleSetStats baseline;
+    private final RuleSetStats candidate;
+
+    /** [基线动作][候选动作] -> 行数，只有候选规则集时才有 */
+    private final long[][] transitions;
+
+    ReplayReport(String scene, long rows, long elapsedNanos,
+                 RuleSetStats baseline, RuleSetStats candidate, long[][] transitions) {
+        this.scene = scene;
+        this.rows = rows;
+        this.elapsedNanos = elapsedNanos;
+        this.baseline = baseline;
+        this.candidate = candidate;
+        this.transitions = transitions;
+    }
+
+    public String getScene() {
+        return scene;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public RuleSetStats getBaseline() {
+        return baseline;
+    }
+
+    /** 没有指定候选规则集时为 null */
+    public RuleSetStats getCandidate() {
+        return candidate;
+    }
+
+    /**
+     * 基线动作为 from、候选动作为 to 的行数。
+     */
+    public long getTransitionCount(RuleAction from, RuleAction to) {
+        return transitions == null ? 0L : transitions[from.ordinal()][to.ordinal()];
+    }
+
+    /**
+     * 两份规则集最终动作不同的行数。
+     */
+    public long getChangedDecisions() {
+        if (transitions == null) {
+            return 0L;
+        }
+        long changed = 0;
+        for (int i = 0; i < transitions.length; i++) {
+            for (int j = 0; j < transitions[i].length; j++) {
+                if (i != j) {
+                    changed += transitions[i][j];
+                }
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ReplayReport{scene=").append(scene)
+                .append(", rows=").append(rows)
+                .append(String.format(", elapsed=%.1f ms, %.0f rows/s",
+                        elapsedNanos / 1e6, elapsedNanos == 0 ? 0.0 : rows * 1e9 / elapsedNanos))
+                .append('\n');
+        appendStats(sb, baseline);
+        if (candidate != null) {
+            appendStats(sb, candidate);
+            appendDiff(sb);
+        }
+        return sb.append('}').toString();
+    }
+
+    private void appendStats(StringBuilder sb, RuleSetStats stats) {
+        sb.append("  [").append(stats.getName()).append("] actions: ");
+        for (RuleAction action : RuleAction.values()) {
+            sb.append(action).append('=').append(stats.getActionCount(action))
+                    .append(String.format("(%.2f%%) ", percent(stats.getActionCount(action))));
+        }
+        sb.append('\n');
+        for (Map.Entry<String, Long> e : stats.getRuleHits().entrySet()) {
+            sb.append("    ").append(e.getKey()).append(": hits=").append(e.getValue())
+                    .append(String.format(" (%.2f%%)", percent(e.getValue()))).append('\n');
+        }
+    }
+
+    private void appendDiff(StringBuilder sb) {
+        sb.append("  [diff] changed decisions=").append(getChangedDecisions())
+                .append(String.format(" (%.2f%%)", percent(getChangedDecisions()))).append('\n');
+        for (RuleAction from : RuleAction.values()) {
+            for (RuleAction to : RuleAction.values()) {
+                long count = getTransitionCount(from, to);
+                if (from != to && count > 0) {
+                    sb.append("    ").append(from).append(" -> ").append(to).append(": ").append(count).append('\n');
+                }
+            }
+        }
+
+        Map<String, Long> before = baseline.getRuleHits();
+        Map<String, Long> after = candidate.getRuleHits();
+        Set<String> ids = new LinkedHashSet<>(before.keySet());
+        ids.addAll(after.keySet());
+        for (String id : ids) {
+            Long a = before.get(id);
+            Long b = after.get(id);
+            if (a == null) {
+                sb.append("    + ").append(id).append(": hits=").append(b).append(" (new rule)\n");
+            } else if (b == null) {
+                sb.append("    - ").append(id).append(": hits=").append(a).append(" (removed rule)\n");
+            } else if (!a.equals(b)) {
+                sb.append("    ~ ").append(id).append(": hits ").append(a).append(" -> ").append(b)
+                        .append(String.format(" (%+d)", b - a)).append('\n');
+            }
+        }
+    }
+
+    private double percent(long count) {
+        return rows == 0 ? 0.0 : 100.0 * count / rows;
+    }
+}
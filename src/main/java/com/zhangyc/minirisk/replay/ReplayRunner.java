@@ -0,0 +1,223 @@
+package com.zhangyc.minirisk.replay;
+
+import com.zhangyc.minirisk.batch.BatchEvaluator;
+import com.zhangyc.minirisk.batch.BatchReader;
+import com.zhangyc.minirisk.batch.BatchResult;
+import com.zhangyc.minirisk.batch.LineRanges;
+import com.zhangyc.minirisk.batch.OffHeapColumnarBatch;
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.config.RuleDefinition;
+import com.zhangyc.minirisk.model.RuleAction;
+import com.zhangyc.minirisk.schema.ContextSchema;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 离线回放 / 回测：把历史事件文件（CSV 或 NDJSON）跑一遍规则集，统计命中情况；
+ * 指定候选规则集时同一批数据两份规则集都执行，输出决策差异。
+ *
+ * - 文件按行切成若干段，每个线程读一段（内存映射、分窗口读取），互不共享可变状态；
+ * - 每个线程只持有一个复用的堆外批次，字符串字典每批清空，内存占用与文件大小无关；
+ * - 规则直接从 RuleDefinition 编译，不经过 RuleConfigLoader 的全局缓存，两份规则文件的 id 可以相同。
+ *
+ * 用法：
+ * <pre>
+ * ReplayReport report = new ReplayRunner()
+ *         .setScene("PAY")
+ *         .setBaseline("prod", RuleConfigLoader.readDefinitions(prodRules))
+ *         .setCandidate("new", RuleConfigLoader.readDefinitions(newRules))
+ *         .run(Paths.get("events-2025-11.ndjson"));
+ * </pre>
+ */
+public class ReplayRunner {
+
+    private ContextSchema schema = ContextSchema.defaultSchema();
+    private String scene;
+    private String baselineName = "baseline";
+    private List<RuleDefinition> baselineDefs;
+    private String candidateName = "candidate";
+    private List<RuleDefinition> candidateDefs;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int batchSize = 64 * 1024;
+
+    // ======== 链式 set 方法 ========
+
+    public ReplayRunner setSchema(ContextSchema schema) {
+        this.schema = schema;
+        return this;
+    }
+
+    public ReplayRunner setScene(String scene) {
+        this.scene = scene.toUpperCase(Locale.ROOT);
+        return this;
+    }
+
+    public ReplayRunner setBaseline(String name, List<RuleDefinition> defs) {
+        this.baselineName = name;
+        this.baselineDefs = defs;
+        return this;
+    }
+
+    /**
+     * 候选规则集（可选）：设置后输出与基线的决策差异。
+     */
+    public ReplayRunner setCandidate(String name, List<RuleDefinition> defs) {
+        this.candidateName = name;
+        this.candidateDefs = defs;
+        return this;
+    }
+
+    public ReplayRunner setThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    public ReplayRunner setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * 回放一个事件文件。
+     */
+    public ReplayReport run(Path input) throws IOException {
+        Objects.requireNonNull(scene, "scene must not be null");
+        Objects.requireNonNull(baselineDefs, "baseline rules must not be set");
+
+        long start = System.nanoTime();
+        BatchEvaluator baseline = new BatchEvaluator(compile(baselineDefs));
+        BatchEvaluator candidate = candidateDefs == null ? null : new BatchEvaluator(compile(candidateDefs));
+
+        long[] bounds = LineRanges.split(input, threads);
+        ExecutorService pool = Executors.newFixedThreadPool(bounds.length - 1, r -> {
+            Thread t = new Thread(r, "replay-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<Partial>> futures = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long from = bounds[i];
+                long to = bounds[i + 1];
+                futures.add(pool.submit(() -> replayRange(input, from, to, baseline, candidate)));
+            }
+
+            Partial total = null;
+            for (Future<Partial> future : futures) {
+                Partial partial = get(future);
+                if (total == null) {
+                    total = partial;
+                } else {
+                    total.merge(partial);
+                }
+            }
+            return new ReplayReport(scene, total.rows, System.nanoTime() - start,
+                    total.baseline, total.candidate, total.transitions);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private CompiledRuleSet compile(List<RuleDefinition> defs) {
+        List<RuleDefinition> selected = new ArrayList<>();
+        for (RuleDefinition def : defs) {
+            String ruleScene = String.valueOf(def.getScene()).toUpperCase(Locale.ROOT);
+            if (ruleScene.equals(scene) || "COMMON".equals(ruleScene)) {
+                selected.add(def);
+            }
+        }
+        return CompiledRuleSet.compileDefinitions(scene, 0L, selected, schema);
+    }
+
+    private Partial replayRange(Path input, long from, long to,
+                                BatchEvaluator baseline, BatchEvaluator candidate) throws IOException {
+        Partial partial = new Partial(new RuleSetStats(baselineName, baseline.getRuleSet()),
+                candidate == null ? null : new RuleSetStats(candidateName, candidate.getRuleSet()));
+        OffHeapColumnarBatch batch = new OffHeapColumnarBatch(schema, batchSize);
+        try (BatchReader reader = BatchReader.open(input, schema, from, to)) {
+            while (true) {
+                batch.clear();
+                batch.getDictionary().clear();
+                if (reader.readInto(batch) == 0) {
+                    return partial;
+                }
+                BatchResult base = baseline.evaluate(batch);
+                partial.baseline.add(base);
+                partial.rows += batch.size();
+                if (candidate == null) {
+                    continue;
+                }
+                BatchResult cand = candidate.evaluate(batch);
+                partial.candidate.add(cand);
+                for (int r = 0; r < batch.size(); r++) {
+                    partial.transitions[base.getFinalAction(r).ordinal()][cand.getFinalAction(r).ordinal()]++;
+                }
+            }
+        }
+    }
+
+    private static Partial get(Future<Partial> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("回放被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("回放失败", cause);
+        }
+    }
+
+    /**
+     * 单个线程的统计结果。
+     */
+    private static final class Partial {
+
+        private final RuleSetStats baseline;
+        private final RuleSetStats candidate;
+        private final long[][] transitions;
+        private long rows;
+
+        private Partial(RuleSetStats baseline, RuleSetStats candidate) {
+            this.baseline = baseline;
+            this.candidate = candidate;
+            int actions = RuleAction.values().length;
+            this.transitions = candidate == null ? null : new long[actions][actions];
+        }
+
+        private void merge(Partial other) {
+            rows += other.rows;
+            baseline.merge(other.baseline);
+            if (candidate != null) {
+                candidate.merge(other.candidate);
+                for (int i = 0; i < transitions.length; i++) {
+                    for (int j = 0; j < transitions[i].length; j++) {
+                        transitions[i][j] += other.transitions[i][j];
+                    }
+                }
+            }
+        }
+    }
+}
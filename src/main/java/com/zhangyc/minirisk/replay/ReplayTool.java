@@ -0,0 +1,62 @@
+package com.zhangyc.minirisk.replay;
+
+import com.zhangyc.minirisk.config.RuleConfigLoader;
+import com.zhangyc.minirisk.config.RuleDefinition;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 回放命令行入口：
+ * <pre>
+ * java -cp ... com.zhangyc.minirisk.replay.ReplayTool &lt;events.csv|events.ndjson&gt; &lt;baseline-rules.json&gt;
+ *      [candidate-rules.json] [--scene PAY] [--threads N]
+ * </pre>
+ * 规则文件先按文件路径查找，找不到时再从 classpath 查找。
+ */
+@Slf4j
+public class ReplayTool {
+
+    public static void main(String[] args) throws IOException {
+        List<String> positional = new ArrayList<>();
+        String scene = "PAY";
+        Integer threads = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--scene".equals(args[i]) && i + 1 < args.length) {
+                scene = args[++i];
+            } else if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                positional.add(args[i]);
+            }
+        }
+        if (positional.size() < 2) {
+            log.error("usage: ReplayTool <events.csv|events.ndjson> <baseline-rules.json> [candidate-rules.json]"
+                    + " [--scene PAY] [--threads N]");
+            return;
+        }
+
+        ReplayRunner runner = new ReplayRunner()
+                .setScene(scene)
+                .setBaseline(positional.get(1), readRules(positional.get(1)));
+        if (positional.size() > 2) {
+            runner.setCandidate(positional.get(2), readRules(positional.get(2)));
+        }
+        if (threads != null) {
+            runner.setThreads(threads);
+        }
+        log.info("{}", runner.run(Paths.get(positional.get(0))));
+    }
+
+    private static List<RuleDefinition> readRules(String location) {
+        Path path = Paths.get(location);
+        return Files.exists(path)
+                ? RuleConfigLoader.readDefinitions(path)
+                : RuleConfigLoader.readDefinitionsFromClasspath(location);
+    }
+}
@@ -0,0 +1,71 @@
+package com.zhangyc.minirisk.replay;
+
+import com.zhangyc.minirisk.batch.BatchResult;
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.model.RuleAction;
+
+import java.util.*;
+
+/**
+ * 一份规则集在回放数据上的统计：每条规则的命中次数、各最终动作的次数。
+ * 每个回放线程各累计一份，最后合并。
+ */
+public final class RuleSetStats {
+
+    private final String name;
+    private final List<Rule> rules;
+    private final long[] hits;
+    private final long[] actionCounts = new long[RuleAction.values().length];
+
+    RuleSetStats(String name, CompiledRuleSet ruleSet) {
+        this.name = name;
+        this.rules = ruleSet.getRulesInPriorityOrder();
+        this.hits = new long[rules.size()];
+    }
+
+    void add(BatchResult result) {
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] += result.getHitCount(i);
+        }
+        for (Map.Entry<RuleAction, Integer> e : result.countByAction().entrySet()) {
+            actionCounts[e.getKey().ordinal()] += e.getValue();
+        }
+    }
+
+    void merge(RuleSetStats other) {
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] += other.hits[i];
+        }
+        for (int i = 0; i < actionCounts.length; i++) {
+            actionCounts[i] += other.actionCounts[i];
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 规则 id -> 命中次数，按优先级从高到低。
+     */
+    public Map<String, Long> getRuleHits() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < hits.length; i++) {
+            result.put(rules.get(i).getId(), hits[i]);
+        }
+        return result;
+    }
+
+    public long getActionCount(RuleAction action) {
+        return actionCounts[action.ordinal()];
+    }
+
+    public Map<RuleAction, Long> getActionCounts() {
+        Map<RuleAction, Long> result = new EnumMap<>(RuleAction.class);
+        for (RuleAction action : RuleAction.values()) {
+            result.put(action, actionCounts[action.ordinal()]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,159 @@
+package com.zhangyc.minirisk.schema;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zhangyc.minirisk.config.FieldDefinition;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * 上下文字段 schema：启动时注册字段路径，每个路径按类型映射到一个稠密下标。
+ * - 规则编译时把字段路径翻译成下标，执行时直接按下标读原始数组，不做哈希也不装箱；
+ * - 新增字段只需要在 context-schema.json 里加一行配置，不需要改 Java 代码；
+ * - 一旦创建过 SlotContext（或调用 freeze），schema 就不再允许注册新字段。
+ */
+public final class ContextSchema {
+
+    /** 默认 schema 额外加载的字段配置文件 */
+    private static final String DEFAULT_SCHEMA_RESOURCE = "context-schema.json";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** 字段路径 -> 槽位 */
+    private final Map<String, FieldSlot> slots = new LinkedHashMap<>();
+
+    private int longCount;
+    private int doubleCount;
+    private int objectCount;
+
+    private volatile boolean frozen;
+
+    /**
+     * 注册一个字段。重复注册同一路径且类型相同时直接返回已有槽位。
+     */
+    public synchronized FieldSlot register(String path, FieldType type) {
+        Objects.requireNonNull(path, "path must not be null");
+        Objects.requireNonNull(type, "type must not be null");
+
+        FieldSlot existing = slots.get(path);
+        if (existing != null) {
+            if (existing.getType() != type) {
+                throw new IllegalStateException(
+                        "字段类型冲突: " + path + ", 已注册=" + existing.getType() + ", 新类型=" + type);
+            }
+            return existing;
+        }
+        if (frozen) {
+            throw new IllegalStateException("schema 已冻结，不能再注册字段: " + path);
+        }
+
+        FieldSlot slot;
+        switch (type) {
+            case LONG:
+            case BOOLEAN:
+                slot = new FieldSlot(path, type, longCount++);
+                break;
+            case DOUBLE:
+                slot = new FieldSlot(path, type, doubleCount++);
+                break;
+            default:
+                slot = new FieldSlot(path, type, objectCount++);
+                break;
+        }
+        slots.put(path, slot);
+        return slot;
+    }
+
+    /**
+     * 从 classpath 上的 JSON 文件批量注册字段。
+     *
+     * @param resourceName 例如 "context-schema.json"
+     */
+    public ContextSchema registerFromClasspath(String resourceName) {
+        try (InputStream in = ContextSchema.class.getClassLoader().getResourceAsStream(resourceName)) {
+            if (in == null) {
+                throw new IllegalArgumentException("字段配置文件未找到: " + resourceName);
+            }
+            List<FieldDefinition> defs = MAPPER.readValue(in, new TypeReference<List<FieldDefinition>>() {});
+            for (FieldDefinition def : defs) {
+                register(def.getField(), FieldType.valueOf(def.getType().toUpperCase(Locale.ROOT)));
+            }
+            return this;
+        } catch (IOException e) {
+            throw new RuntimeException("加载字段配置失败: " + resourceName, e);
+        }
+    }
+
+    /**
+     * 根据字段路径获取槽位，未注册时抛出 IllegalArgumentException。
+     */
+    public FieldSlot getSlot(String path) {
+        FieldSlot slot = slots.get(path);
+        if (slot == null) {
+            throw new IllegalArgumentException("未知字段路径: " + path);
+        }
+        return slot;
+    }
+
+    public boolean contains(String path) {
+        return slots.containsKey(path);
+    }
+
+    public Collection<FieldSlot> getSlots() {
+        return Collections.unmodifiableCollection(slots.values());
+    }
+
+    /**
+     * 冻结 schema：此后各类型的槽位数量固定。
+     */
+    public synchronized ContextSchema freeze() {
+        frozen = true;
+        return this;
+    }
+
+    /**
+     * 按当前 schema 创建一个空上下文（会冻结 schema）。
+     */
+    public SlotContext newContext() {
+        freeze();
+        return new SlotContext(this);
+    }
+
+    /** long[] 槽位个数（LONG + BOOLEAN） */
+    public int getLongCount() {
+        return longCount;
+    }
+
+    /** double[] 槽位个数 */
+    public int getDoubleCount() {
+        return doubleCount;
+    }
+
+    /** Object[] 槽位个数 */
+    public int getObjectCount() {
+        return objectCount;
+    }
+
+    /**
+     * 默认 schema：RiskContext 上所有 @RiskField 字段 + context-schema.json 里配置的字段。
+     */
+    public static ContextSchema defaultSchema() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private static final class DefaultHolder {
+
+        private static final ContextSchema INSTANCE = createDefault();
+
+        private static ContextSchema createDefault() {
+            ContextSchema schema = new ContextSchema();
+            RiskContextAdapter.registerRiskFields(schema);
+            if (ContextSchema.class.getClassLoader().getResource(DEFAULT_SCHEMA_RESOURCE) != null) {
+                schema.registerFromClasspath(DEFAULT_SCHEMA_RESOURCE);
+            }
+            return schema.freeze();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.zhangyc.minirisk.schema;
+
+/**
+ * 懒加载字段的取值函数，例如从画像服务查账号年龄、从设备信誉服务查风险分。
+ * 返回值按字段类型转换后写入槽位（与 SlotContext.set 相同），返回 null 时取类型默认值。
+ *
+ * provider 只能读取请求里直接给出的字段（例如 user.id），不能读取其他懒加载字段；
+ * 并行预取时会在虚拟线程上执行，所以不要依赖调用线程的 ThreadLocal。
+ */
+@FunctionalInterface
+public interface FieldProvider {
+
+    Object provide(SlotContext context) throws Exception;
+}
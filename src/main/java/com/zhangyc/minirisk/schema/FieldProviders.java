@@ -0,0 +1,225 @@
+package com.zhangyc.minirisk.schema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一组懒加载字段（字段路径 -> FieldProvider），绑定到 SlotContext 后：
+ * - 条件第一次读到某个 provider 字段时才调用 provider，结果记在槽位里，同一个请求内只调用一次；
+ * - prefetch 把指定字段里还没取值的 provider 放到虚拟线程上并行执行，通常传入规则集引用到的字段
+ *   （CompiledRuleSet.getReferencedFields），规则不读的字段永远不会调用；
+ * - 绑定之后显式写入的字段（set / setLong ...）以写入的值为准，不再调用 provider。
+ *
+ * 注册完成后可以多线程共享；绑定的 SlotContext 仍然是一个请求一个实例。
+ */
+public final class FieldProviders {
+
+    /** 预取用的虚拟线程，provider 通常是阻塞 IO */
+    private static final ExecutorService PREFETCH = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final ContextSchema schema;
+    private final Map<String, FieldProvider> byPath = new ConcurrentHashMap<>();
+
+    /** 按类型、槽位下标的 provider 字段，没有 provider 的位置为 null */
+    private FieldSlot[] longSlots = new FieldSlot[0];
+    private FieldSlot[] doubleSlots = new FieldSlot[0];
+    private FieldSlot[] objectSlots = new FieldSlot[0];
+
+    /** 绑定时复制的初始位图 */
+    private long[] longMask = new long[0];
+    private long[] doubleMask = new long[0];
+    private long[] objectMask = new long[0];
+
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder prefetched = new LongAdder();
+
+    public FieldProviders(ContextSchema schema) {
+        this.schema = Objects.requireNonNull(schema, "schema must not be null");
+    }
+
+    /**
+     * 注册一个懒加载字段，字段必须已经在 schema 里。同一字段重复注册时后注册的生效。
+     * 注册应该在开始绑定请求之前完成。
+     */
+    public synchronized FieldProviders register(String path, FieldProvider provider) {
+        Objects.requireNonNull(provider, "provider must not be null");
+        FieldSlot slot = schema.getSlot(path);
+        byPath.put(path, provider);
+        int index = slot.getIndex();
+        switch (slot.getType()) {
+            case LONG:
+            case BOOLEAN:
+                longSlots = put(longSlots, slot);
+                longMask = mark(longMask, index);
+                break;
+            case DOUBLE:
+                doubleSlots = put(doubleSlots, slot);
+                doubleMask = mark(doubleMask, index);
+                break;
+            default:
+                objectSlots = put(objectSlots, slot);
+                objectMask = mark(objectMask, index);
+                break;
+        }
+        return this;
+    }
+
+    public ContextSchema getSchema() {
+        return schema;
+    }
+
+    public int size() {
+        return byPath.size();
+    }
+
+    /**
+     * 新建一个已绑定的 SlotContext。
+     */
+    public SlotContext newContext() {
+        return bind(schema.newContext());
+    }
+
+    /**
+     * 把所有 provider 字段标记为待取值（之前写入的值作废）。复用的 SlotContext 在 clear() 之后重新绑定。
+     */
+    public synchronized SlotContext bind(SlotContext context) {
+        if (context.getSchema() != schema) {
+            throw new IllegalArgumentException("SlotContext 的 schema 与 FieldProviders 不一致");
+        }
+        context.bind(this, pending(longMask, schema.getLongCount()), pending(doubleMask, schema.getDoubleCount()),
+                pending(objectMask, schema.getObjectCount()));
+        return context;
+    }
+
+    /** 某类槽位的初始待取值位图，这类槽位上没有 provider 时为 null（读取时少一次位运算） */
+    private static long[] pending(long[] mask, int slotCount) {
+        if (mask.length == 0) {
+            return null;
+        }
+        return Arrays.copyOf(mask, Math.max(mask.length, (slotCount + 63) >>> 6));
+    }
+
+    /**
+     * 并行预取：fields 中还没取值的 provider 字段，每个在一个虚拟线程上执行，全部完成后写回槽位。
+     * 只有一个待取值字段时直接在当前线程执行。预取是尽力而为的：provider 失败的字段保持懒加载，
+     * 条件真正读到时再调用一次（异常在那时抛出）。
+     *
+     * @return 预取成功的字段数
+     */
+    public int prefetch(SlotContext context, Collection<String> fields) {
+        if (context.getProviders() != this) {
+            return 0;
+        }
+        List<FieldSlot> todo = new ArrayList<>();
+        for (String path : fields) {
+            FieldSlot slot = schema.contains(path) ? schema.getSlot(path) : null;
+            if (slot != null && context.isPending(slot)) {
+                todo.add(slot);
+            }
+        }
+        if (todo.isEmpty()) {
+            return 0;
+        }
+        if (todo.size() == 1) {
+            try {
+                context.getValue(todo.get(0).getPath());
+            } catch (RuntimeException e) {
+                return 0;
+            }
+            prefetched.increment();
+            return 1;
+        }
+
+        // provider 在虚拟线程上并发读取 context，期间不允许触发懒加载，结果等全部完成后在当前线程写回
+        List<Future<Object>> futures = new ArrayList<>(todo.size());
+        context.setResolving(true);
+        try {
+            for (FieldSlot slot : todo) {
+                futures.add(PREFETCH.submit(() -> invoke(slot, context)));
+            }
+            Object[] values = new Object[todo.size()];
+            boolean[] ok = new boolean[todo.size()];
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    values[i] = futures.get(i).get();
+                    ok[i] = true;
+                } catch (ExecutionException e) {
+                    // 保持懒加载
+                }
+            }
+            int count = 0;
+            for (int i = 0; i < ok.length; i++) {
+                if (ok[i]) {
+                    context.set(todo.get(i), values[i]);
+                    count++;
+                }
+            }
+            prefetched.add(count);
+            return count;
+        } catch (InterruptedException e) {
+            for (Future<Object> f : futures) {
+                f.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            return 0;
+        } finally {
+            context.setResolving(false);
+        }
+    }
+
+    /** provider 被调用的总次数（懒加载 + 预取） */
+    public long getInvocationCount() {
+        return invocations.sum();
+    }
+
+    /** 通过预取取到值的字段总数 */
+    public long getPrefetchCount() {
+        return prefetched.sum();
+    }
+
+    Object invoke(FieldSlot slot, SlotContext context) {
+        FieldProvider provider = byPath.get(slot.getPath());
+        invocations.increment();
+        try {
+            return provider.provide(context);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("懒加载字段取值失败: " + slot.getPath(), e);
+        }
+    }
+
+    FieldSlot longSlot(int index) {
+        return longSlots[index];
+    }
+
+    FieldSlot doubleSlot(int index) {
+        return doubleSlots[index];
+    }
+
+    FieldSlot objectSlot(int index) {
+        return objectSlots[index];
+    }
+
+    private static FieldSlot[] put(FieldSlot[] slots, FieldSlot slot) {
+        FieldSlot[] result = slots.length > slot.getIndex() ? slots.clone() : Arrays.copyOf(slots, slot.getIndex() + 1);
+        result[slot.getIndex()] = slot;
+        return result;
+    }
+
+    private static long[] mark(long[] mask, int index) {
+        long[] result = Arrays.copyOf(mask, Math.max(mask.length, (index >>> 6) + 1));
+        result[index >>> 6] |= 1L << index;
+        return result;
+    }
+}
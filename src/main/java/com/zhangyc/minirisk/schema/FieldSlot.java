@@ -0,0 +1,42 @@
+package com.zhangyc.minirisk.schema;
+
+/**
+ * 一个字段路径在 schema 中的位置：类型 + 在对应原始数组中的下标。
+ */
+public final class FieldSlot {
+
+    /** 字段路径，例如 "order.amount" */
+    private final String path;
+
+    private final FieldType type;
+
+    /** 在 long[] / double[] / Object[] 中的下标（按类型各自从 0 开始编号） */
+    private final int index;
+
+    FieldSlot(String path, FieldType type, int index) {
+        this.path = path;
+        this.type = type;
+        this.index = index;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public FieldType getType() {
+        return type;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "FieldSlot{" +
+                "path='" + path + '\'' +
+                ", type=" + type +
+                ", index=" + index +
+                '}';
+    }
+}
@@ -0,0 +1,35 @@
+package com.zhangyc.minirisk.schema;
+
+/**
+ * 上下文字段的类型，决定字段落在 SlotContext 的哪个原始数组里：
+ * - LONG / BOOLEAN -> long[]（BOOLEAN 用 0 / 1 表示）
+ * - DOUBLE         -> double[]
+ * - STRING         -> Object[]
+ */
+public enum FieldType {
+
+    LONG,
+
+    DOUBLE,
+
+    BOOLEAN,
+
+    STRING;
+
+    /**
+     * 根据 Java 类型推断字段类型，用于扫描 RiskContext 上 @RiskField 的 getter。
+     */
+    public static FieldType fromJavaType(Class<?> type) {
+        if (type == long.class || type == int.class || type == short.class || type == byte.class
+                || type == Long.class || type == Integer.class) {
+            return LONG;
+        }
+        if (type == double.class || type == float.class || type == Double.class || type == Float.class) {
+            return DOUBLE;
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return BOOLEAN;
+        }
+        return STRING;
+    }
+}
@@ -0,0 +1,252 @@
+package com.zhangyc.minirisk.schema;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 直接从事件 JSON 字节构造 SlotContext，只取指定的字段（通常是场景规则集引用到的字段，
+ * CompiledRuleSet.getReferencedFields），基于 Jackson 的流式解析：
+ * - 字段路径按 "." 对应嵌套对象，例如 order.amount 可以写成 {"order": {"amount": 1500}}，
+ *   也可以是带点的 key：{"order.amount": 1500}，两种写法可以混用；
+ * - 不需要的 key 连同它的值整体跳过（对象、数组用 skipChildren），不生成 Map / JsonNode / POJO，
+ *   字符串值不需要时也不解码；
+ * - 需要的字段全部读到后直接停止解析，后面的内容不再扫描（也不再校验）；
+ * - 同一个字段出现多次时以第一次为准，后面的值跳过（需要的字段超过 64 个时不记录哪些读到过，以最后一次为准）；
+ * - 值按槽位类型写入：数字、布尔直接写原始值，字符串形式的数字 / 布尔按 SlotContext.set 的规则转换，
+ *   null 保持类型默认值，需要的字段是对象或数组时忽略；字符串不能转换成槽位类型时抛 JsonParseException。
+ *
+ * 创建后不可变，可以多线程共享；每次 read 一个解析器。
+ */
+public final class JsonContextReader {
+
+    /** 线程安全，内部复用解析缓冲区和字段名符号表（字段名只在第一次见到时创建字符串） */
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private final ContextSchema schema;
+    private final List<String> fields;
+    private final Node root = new Node();
+
+    /** 所有字段都读到时 found 位图的值；字段超过 64 个时为 0，不提前停止 */
+    private final long allFound;
+
+    /**
+     * @param fields 要读取的字段路径，schema 里没有的忽略
+     */
+    public JsonContextReader(ContextSchema schema, Collection<String> fields) {
+        this.schema = Objects.requireNonNull(schema, "schema must not be null");
+        Objects.requireNonNull(fields, "fields must not be null");
+        Set<String> wanted = new LinkedHashSet<>();
+        for (String path : fields) {
+            if (schema.contains(path)) {
+                wanted.add(path);
+            }
+        }
+        int bit = 0;
+        for (String path : wanted) {
+            long mask = wanted.size() <= 64 ? 1L << bit++ : 0L;
+            insert(root, path.split("\\."), 0, schema.getSlot(path), mask);
+        }
+        this.fields = Collections.unmodifiableList(new ArrayList<>(wanted));
+        this.allFound = wanted.size() <= 64 && !wanted.isEmpty() ? -1L >>> (64 - wanted.size()) : 0L;
+    }
+
+    /**
+     * 每种拆分方式都登记一遍，例如 a.b.c 登记为 a -> b -> c、a -> b.c、a.b -> c 和 a.b.c。
+     */
+    private static void insert(Node node, String[] segments, int from, FieldSlot slot, long mask) {
+        StringBuilder key = new StringBuilder();
+        for (int to = from; to < segments.length; to++) {
+            if (to > from) {
+                key.append('.');
+            }
+            key.append(segments[to]);
+            Node child = node.child(key.toString());
+            if (to == segments.length - 1) {
+                child.slot = slot;
+                child.mask = mask;
+            } else {
+                insert(child, segments, to + 1, slot, mask);
+            }
+        }
+    }
+
+    public ContextSchema getSchema() {
+        return schema;
+    }
+
+    /** 实际会读取的字段路径 */
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public SlotContext read(byte[] json) throws IOException {
+        return read(json, 0, json.length, schema.newContext());
+    }
+
+    /**
+     * 把 json[offset, offset + length) 里需要的字段写入 target（可复用，调用方负责先 clear）。
+     *
+     * @throws JsonParseException 不是 JSON 对象，在读到全部需要的字段之前遇到语法错误，或者字段值不能转换成槽位类型
+     */
+    public SlotContext read(byte[] json, int offset, int length, SlotContext target) throws IOException {
+        checkSchema(target);
+        try (JsonParser parser = FACTORY.createParser(json, offset, length)) {
+            return read(parser, target);
+        }
+    }
+
+    /**
+     * 读取 buffer 的 [position, limit)，不改变 buffer 的 position。堆内 buffer 直接读底层数组，
+     * 堆外 buffer 通过流读取（解析器内部按块复制）。
+     */
+    public SlotContext read(ByteBuffer buffer) throws IOException {
+        return read(buffer, schema.newContext());
+    }
+
+    public SlotContext read(ByteBuffer buffer, SlotContext target) throws IOException {
+        if (buffer.hasArray()) {
+            return read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), target);
+        }
+        checkSchema(target);
+        try (JsonParser parser = FACTORY.createParser(new ByteBufferBackedInputStream(buffer.duplicate()))) {
+            return read(parser, target);
+        }
+    }
+
+    private void checkSchema(SlotContext target) {
+        if (target.getSchema() != schema) {
+            throw new IllegalArgumentException("SlotContext 的 schema 与 JsonContextReader 不一致");
+        }
+    }
+
+    private SlotContext read(JsonParser parser, SlotContext target) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "事件必须是 JSON 对象");
+        }
+        if (fields.isEmpty()) {
+            return target;
+        }
+        readObject(parser, root, target, 0L);
+        return target;
+    }
+
+    /**
+     * 读取当前对象（START_OBJECT 之后），返回更新后的 found 位图；全部读到时立即返回，不再消费后面的 token。
+     */
+    private long readObject(JsonParser parser, Node node, SlotContext target, long found) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Node child = node.children == null ? null : node.children.get(parser.currentName());
+            JsonToken value = parser.nextToken();
+            if (child == null) {
+                parser.skipChildren();
+                continue;
+            }
+            if (value == JsonToken.START_OBJECT && child.children != null) {
+                found = readObject(parser, child, target, found);
+            } else if (child.slot != null && (found & child.mask) == 0L
+                    && write(parser, value, child.slot, target)) {
+                found |= child.mask;
+            } else {
+                parser.skipChildren();
+            }
+            if (allFound != 0L && found == allFound) {
+                return found;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 按槽位类型写入当前值，值是对象或数组时返回 false（调用方负责跳过）。
+     */
+    private static boolean write(JsonParser parser, JsonToken value, FieldSlot slot, SlotContext target)
+            throws IOException {
+        int index = slot.getIndex();
+        switch (value) {
+            case VALUE_NULL:
+                return true;
+            case VALUE_NUMBER_INT:
+                switch (slot.getType()) {
+                    case LONG:
+                        target.setLong(index, parser.getLongValue());
+                        return true;
+                    case DOUBLE:
+                        target.setDouble(index, parser.getDoubleValue());
+                        return true;
+                    case BOOLEAN:
+                        target.setBoolean(index, parser.getLongValue() != 0L);
+                        return true;
+                    default:
+                        target.setObject(index, parser.getText());
+                        return true;
+                }
+            case VALUE_NUMBER_FLOAT:
+                switch (slot.getType()) {
+                    case LONG:
+                        target.setLong(index, (long) parser.getDoubleValue());
+                        return true;
+                    case DOUBLE:
+                        target.setDouble(index, parser.getDoubleValue());
+                        return true;
+                    case BOOLEAN:
+                        target.setBoolean(index, parser.getDoubleValue() != 0.0);
+                        return true;
+                    default:
+                        target.setObject(index, parser.getText());
+                        return true;
+                }
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                boolean bool = value == JsonToken.VALUE_TRUE;
+                if (slot.getType() == FieldType.DOUBLE) {
+                    target.setDouble(index, bool ? 1.0 : 0.0);
+                } else {
+                    target.set(slot, bool);
+                }
+                return true;
+            case VALUE_STRING:
+                String text = parser.getText();
+                try {
+                    target.set(slot, text);
+                } catch (NumberFormatException e) {
+                    throw new JsonParseException(parser, "字段 " + slot.getPath() + " 的值不能转换成 "
+                            + slot.getType() + ": " + text, e);
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 字段路径前缀树的一个节点：children 是下一层需要的 key，slot 不为 null 时这个 key 本身就是一个字段。
+     */
+    private static final class Node {
+
+        private Map<String, Node> children;
+        private FieldSlot slot;
+        private long mask;
+
+        private Node child(String key) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            return children.computeIfAbsent(key, k -> new Node());
+        }
+    }
+}
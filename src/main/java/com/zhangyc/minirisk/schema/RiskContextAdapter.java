@@ -0,0 +1,145 @@
+package com.zhangyc.minirisk.schema;
+
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.support.RiskField;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 把原有的 @RiskField POJO（RiskContext）适配成 SlotContext。
+ * - 启动时扫描 @RiskField getter，用 LambdaMetafactory 生成强类型的取值函数；
+ * - 拷贝时按原始类型直接写入槽位，不走 Method.invoke，也不装箱。
+ */
+public final class RiskContextAdapter {
+
+    private final Copier[] copiers;
+
+    /**
+     * 为给定 schema 创建适配器，只拷贝 schema 里存在的 @RiskField 字段。
+     */
+    public RiskContextAdapter(ContextSchema schema) {
+        List<Copier> list = new ArrayList<>();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Method method : RiskContext.class.getMethods()) {
+            RiskField annotation = method.getAnnotation(RiskField.class);
+            if (annotation == null || !schema.contains(annotation.value())) {
+                continue;
+            }
+            list.add(createCopier(lookup, method, schema.getSlot(annotation.value())));
+        }
+        this.copiers = list.toArray(new Copier[0]);
+    }
+
+    /**
+     * 把 RiskContext 的字段值写入已有的 SlotContext（可复用）。
+     */
+    public SlotContext fill(RiskContext source, SlotContext target) {
+        for (Copier copier : copiers) {
+            copier.copy(source, target);
+        }
+        return target;
+    }
+
+    /**
+     * 创建一个新的 SlotContext 并写入 RiskContext 的字段值。
+     */
+    public SlotContext toSlotContext(RiskContext source, ContextSchema schema) {
+        return fill(source, schema.newContext());
+    }
+
+    /**
+     * 把 RiskContext 上所有 @RiskField 注册到 schema，类型由 getter 的返回值推断。
+     */
+    static void registerRiskFields(ContextSchema schema) {
+        for (Method method : RiskContext.class.getMethods()) {
+            RiskField annotation = method.getAnnotation(RiskField.class);
+            if (annotation != null) {
+                schema.register(annotation.value(), FieldType.fromJavaType(method.getReturnType()));
+            }
+        }
+    }
+
+    /**
+     * 单个字段的拷贝动作。
+     */
+    private interface Copier {
+        void copy(RiskContext source, SlotContext target);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Copier createCopier(MethodHandles.Lookup lookup, Method method, FieldSlot slot) {
+        int index = slot.getIndex();
+        Class<?> returnType = method.getReturnType();
+        try {
+            MethodHandle getter = lookup.unreflect(method);
+            switch (slot.getType()) {
+                case LONG:
+                    if (returnType.isPrimitive()) {
+                        ToLongFunction<RiskContext> f = (ToLongFunction<RiskContext>) metafactory(
+                                lookup, getter, ToLongFunction.class, "applyAsLong", long.class);
+                        return (source, target) -> target.setLong(index, f.applyAsLong(source));
+                    }
+                    break;
+                case DOUBLE:
+                    if (returnType.isPrimitive()) {
+                        ToDoubleFunction<RiskContext> f = (ToDoubleFunction<RiskContext>) metafactory(
+                                lookup, getter, ToDoubleFunction.class, "applyAsDouble", double.class);
+                        return (source, target) -> target.setDouble(index, f.applyAsDouble(source));
+                    }
+                    break;
+                case BOOLEAN:
+                    if (returnType.isPrimitive()) {
+                        Predicate<RiskContext> f = (Predicate<RiskContext>) metafactory(
+                                lookup, getter, Predicate.class, "test", boolean.class);
+                        return (source, target) -> target.setBoolean(index, f.test(source));
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            // 包装类型 / 对象类型：走通用 Function，再按路径规则转换
+            Function<RiskContext, Object> f = (Function<RiskContext, Object>) metafactory(
+                    lookup, getter, Function.class, "apply", Object.class);
+            String path = slot.getPath();
+            return (source, target) -> target.set(path, f.apply(source));
+        } catch (Throwable e) {
+            throw new IllegalStateException("无法为字段生成访问函数: " + slot.getPath(), e);
+        }
+    }
+
+    private static Object metafactory(MethodHandles.Lookup lookup,
+                                      MethodHandle getter,
+                                      Class<?> functionType,
+                                      String methodName,
+                                      Class<?> erasedReturn) throws Throwable {
+        Class<?> returnType = getter.type().returnType();
+        MethodType samType = MethodType.methodType(erasedReturn, Object.class);
+        MethodType instantiatedType = MethodType.methodType(
+                erasedReturn == Object.class && returnType.isPrimitive() ? wrap(returnType)
+                        : erasedReturn == Object.class ? returnType : erasedReturn,
+                RiskContext.class);
+        return LambdaMetafactory.metafactory(
+                lookup,
+                methodName,
+                MethodType.methodType(functionType),
+                samType,
+                getter,
+                instantiatedType
+        ).getTarget().invoke();
+    }
+
+    private static Class<?> wrap(Class<?> primitive) {
+        return MethodType.methodType(primitive).wrap().returnType();
+    }
+}
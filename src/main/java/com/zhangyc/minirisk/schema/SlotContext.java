@@ -0,0 +1,260 @@
+package com.zhangyc.minirisk.schema;
+
+import java.util.Arrays;
+
+/**
+ * 基于 schema 槽位的风控上下文：字段值存放在 long[] / double[] / Object[] 三个稠密数组里。
+ * - 编译后的条件按下标直接读数组，没有哈希查找和装箱；
+ * - 对象可以 clear() 后重复使用，适合按线程复用；
+ * - 可以绑定一组 FieldProviders：provider 字段在第一次被读到时才计算，结果记在槽位里，同一个请求内只算一次。
+ *   没有绑定时读取只多一次 null 判断。
+ *
+ * 非线程安全，一个请求一个实例（或一个线程一个实例）。
+ */
+public final class SlotContext {
+
+    private final ContextSchema schema;
+    private final long[] longs;
+    private final double[] doubles;
+    private final Object[] objects;
+
+    /** 绑定的懒加载字段，没有绑定时为 null */
+    private FieldProviders providers;
+    /** 还没取值的 provider 字段（按槽位下标的位图），没有绑定时为 null */
+    private long[] pendingLongs;
+    private long[] pendingDoubles;
+    private long[] pendingObjects;
+    /** 正在执行 provider（或并行预取），此时不能再触发其他懒加载字段 */
+    private boolean resolving;
+
+    SlotContext(ContextSchema schema) {
+        this.schema = schema;
+        this.longs = new long[schema.getLongCount()];
+        this.doubles = new double[schema.getDoubleCount()];
+        this.objects = new Object[schema.getObjectCount()];
+    }
+
+    public ContextSchema getSchema() {
+        return schema;
+    }
+
+    // ======== 按下标读写：给编译后的条件 / 适配器使用 ========
+
+    public long getLong(int index) {
+        if (pendingLongs != null && isSet(pendingLongs, index)) {
+            resolve(providers.longSlot(index));
+        }
+        return longs[index];
+    }
+
+    public double getDouble(int index) {
+        if (pendingDoubles != null && isSet(pendingDoubles, index)) {
+            resolve(providers.doubleSlot(index));
+        }
+        return doubles[index];
+    }
+
+    public boolean getBoolean(int index) {
+        return getLong(index) != 0L;
+    }
+
+    public Object getObject(int index) {
+        if (pendingObjects != null && isSet(pendingObjects, index)) {
+            resolve(providers.objectSlot(index));
+        }
+        return objects[index];
+    }
+
+    /**
+     * 显式写入的值优先于 provider：写入后该字段不再懒加载。
+     */
+    public SlotContext setLong(int index, long value) {
+        longs[index] = value;
+        if (pendingLongs != null) {
+            unset(pendingLongs, index);
+        }
+        return this;
+    }
+
+    public SlotContext setDouble(int index, double value) {
+        doubles[index] = value;
+        if (pendingDoubles != null) {
+            unset(pendingDoubles, index);
+        }
+        return this;
+    }
+
+    public SlotContext setBoolean(int index, boolean value) {
+        return setLong(index, value ? 1L : 0L);
+    }
+
+    public SlotContext setObject(int index, Object value) {
+        objects[index] = value;
+        if (pendingObjects != null) {
+            unset(pendingObjects, index);
+        }
+        return this;
+    }
+
+    // ======== 按字段路径读写：方便构造数据 / 解释展示，热路径请用下标 ========
+
+    /**
+     * 按字段路径设置值，会根据字段类型做转换。
+     */
+    public SlotContext set(String path, Object value) {
+        return set(schema.getSlot(path), value);
+    }
+
+    SlotContext set(FieldSlot slot, Object value) {
+        switch (slot.getType()) {
+            case LONG:
+                return setLong(slot.getIndex(), value == null ? 0L : toLong(value));
+            case DOUBLE:
+                return setDouble(slot.getIndex(), value == null ? 0.0 : toDouble(value));
+            case BOOLEAN:
+                return setBoolean(slot.getIndex(), toBoolean(value));
+            default:
+                return setObject(slot.getIndex(), value == null ? null : String.valueOf(value));
+        }
+    }
+
+    /**
+     * 按字段路径取值（装箱），仅用于解释 / 日志。
+     */
+    public Object getValue(String path) {
+        FieldSlot slot = schema.getSlot(path);
+        switch (slot.getType()) {
+            case LONG:
+                return getLong(slot.getIndex());
+            case DOUBLE:
+                return getDouble(slot.getIndex());
+            case BOOLEAN:
+                return getBoolean(slot.getIndex());
+            default:
+                return getObject(slot.getIndex());
+        }
+    }
+
+    /**
+     * 清空所有字段，便于复用；同时解除与 FieldProviders 的绑定。
+     */
+    public void clear() {
+        Arrays.fill(longs, 0L);
+        Arrays.fill(doubles, 0.0);
+        Arrays.fill(objects, null);
+        providers = null;
+        pendingLongs = null;
+        pendingDoubles = null;
+        pendingObjects = null;
+        resolving = false;
+    }
+
+    // ======== 懒加载字段：给 FieldProviders 使用 ========
+
+    void bind(FieldProviders providers, long[] pendingLongs, long[] pendingDoubles, long[] pendingObjects) {
+        this.providers = providers;
+        this.pendingLongs = pendingLongs;
+        this.pendingDoubles = pendingDoubles;
+        this.pendingObjects = pendingObjects;
+    }
+
+    FieldProviders getProviders() {
+        return providers;
+    }
+
+    /**
+     * 字段是否还在等 provider 取值（没有绑定、已经取过或者已经显式写入时为 false）。
+     */
+    public boolean isPending(String path) {
+        return isPending(schema.getSlot(path));
+    }
+
+    boolean isPending(FieldSlot slot) {
+        long[] pending;
+        switch (slot.getType()) {
+            case LONG:
+            case BOOLEAN:
+                pending = pendingLongs;
+                break;
+            case DOUBLE:
+                pending = pendingDoubles;
+                break;
+            default:
+                pending = pendingObjects;
+                break;
+        }
+        return pending != null && isSet(pending, slot.getIndex());
+    }
+
+    /**
+     * 执行 provider 并把结果记到槽位里。provider 抛异常时字段保持待取值，下次读到时重试。
+     */
+    private void resolve(FieldSlot slot) {
+        if (resolving) {
+            throw new IllegalStateException("provider 不能读取其他懒加载字段: " + slot.getPath());
+        }
+        resolving = true;
+        Object value;
+        try {
+            value = providers.invoke(slot, this);
+        } finally {
+            resolving = false;
+        }
+        set(slot, value);
+    }
+
+    /** 并行预取期间禁止触发懒加载（provider 在其他线程上读取本对象） */
+    void setResolving(boolean resolving) {
+        this.resolving = resolving;
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void unset(long[] bits, int index) {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+
+    private static long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1L : 0L;
+        }
+        return Long.parseLong(String.valueOf(value));
+    }
+
+    private static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return Double.parseDouble(String.valueOf(value));
+    }
+
+    private static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue() != 0L;
+        }
+        return Boolean.parseBoolean(String.valueOf(value));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("SlotContext{");
+        boolean first = true;
+        for (FieldSlot slot : schema.getSlots()) {
+            if (!first) {
+                sb.append(", ");
+            }
+            first = false;
+            // toString 不触发 provider
+            sb.append(slot.getPath()).append('=').append(isPending(slot) ? "<lazy>" : getValue(slot.getPath()));
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,215 @@
+package com.zhangyc.minirisk.server;
+
+import com.zhangyc.minirisk.model.RuleAction;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.FieldSlot;
+import com.zhangyc.minirisk.schema.SlotContext;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * BinaryDecisionServer 的参考客户端（阻塞 IO，单线程使用）。
+ * - evaluate：发一个请求、等一个响应；
+ * - send + flush + receive：流水线模式，连续发多个请求后再按发送顺序依次读响应。
+ *
+ * 只编码非默认值的字段（0 / false / null 不发送），服务端按默认值处理。
+ */
+public class BinaryDecisionClient implements Closeable {
+
+    private static final int BUFFER_BYTES = 256 * 1024;
+
+    private static final RuleAction[] ACTIONS = RuleAction.values();
+
+    private final SocketChannel channel;
+    private final FieldSlot[] slots;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+    private long nextRequestId = 1L;
+
+    public BinaryDecisionClient(String host, int port) throws IOException {
+        this(host, port, ContextSchema.defaultSchema());
+    }
+
+    public BinaryDecisionClient(String host, int port, ContextSchema schema) throws IOException {
+        this.slots = BinaryProtocol.slotsByOrdinal(schema);
+        this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        out.putInt(BinaryProtocol.MAGIC).putInt(BinaryProtocol.schemaFingerprint(schema));
+        in.flip();
+    }
+
+    /**
+     * 同步执行一次决策。
+     */
+    public Response evaluate(String scene, SlotContext context) throws IOException {
+        send(scene, context);
+        flush();
+        return receive();
+    }
+
+    /**
+     * 把一个请求写入发送缓冲区（缓冲区满时会先写出），返回请求 id。
+     */
+    public long send(String scene, SlotContext context) throws IOException {
+        byte[] sceneBytes = scene.getBytes(StandardCharsets.US_ASCII);
+        if (sceneBytes.length > 255) {
+            throw new IllegalArgumentException("场景名过长: " + scene);
+        }
+        int maxBytes = 4 + 8 + 1 + sceneBytes.length + 2;
+        for (FieldSlot slot : slots) {
+            maxBytes += 2 + BinaryProtocol.maxValueBytes(slot, context);
+        }
+        if (maxBytes - 4 > BinaryProtocol.MAX_FRAME_BYTES) {
+            throw new IllegalArgumentException("请求过大: " + maxBytes + " 字节");
+        }
+        if (out.remaining() < maxBytes) {
+            flush();
+        }
+
+        long requestId = nextRequestId++;
+        int start = out.position();
+        out.putInt(0).putLong(requestId).put((byte) sceneBytes.length).put(sceneBytes);
+        int countPos = out.position();
+        out.putShort((short) 0);
+        int count = 0;
+        for (int ordinal = 0; ordinal < slots.length; ordinal++) {
+            if (isDefault(slots[ordinal], context)) {
+                continue;
+            }
+            out.putShort((short) ordinal);
+            BinaryProtocol.writeValue(out, slots[ordinal], context);
+            count++;
+        }
+        out.putShort(countPos, (short) count);
+        out.putInt(start, out.position() - start - 4);
+        return requestId;
+    }
+
+    /**
+     * 把发送缓冲区里的请求全部写到 socket。
+     */
+    public void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * 读下一个响应（与请求的发送顺序一致）。
+     */
+    public Response receive() throws IOException {
+        ensureReadable(4);
+        int length = in.getInt();
+        ensureReadable(length);
+        long requestId = in.getLong();
+        byte status = in.get();
+        if (status == BinaryProtocol.STATUS_ERROR) {
+            int messageLength = in.getShort();
+            byte[] message = new byte[messageLength];
+            in.get(message);
+            return new Response(requestId, null, Collections.emptyList(), new String(message, StandardCharsets.UTF_8));
+        }
+        int matchedCount = in.getShort();
+        List<String> ruleIds = matchedCount == 0 ? Collections.emptyList() : new ArrayList<>(matchedCount);
+        for (int i = 0; i < matchedCount; i++) {
+            byte[] id = new byte[in.get() & 0xFF];
+            in.get(id);
+            ruleIds.add(new String(id, StandardCharsets.UTF_8));
+        }
+        return new Response(requestId, ACTIONS[status], ruleIds, null);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * 保证读缓冲区里至少有 n 个字节（处于读模式）。
+     */
+    private void ensureReadable(int n) throws IOException {
+        if (in.remaining() >= n) {
+            return;
+        }
+        in.compact();
+        while (in.position() < n) {
+            if (channel.read(in) < 0) {
+                throw new EOFException("连接已关闭");
+            }
+        }
+        in.flip();
+    }
+
+    private static boolean isDefault(FieldSlot slot, SlotContext ctx) {
+        switch (slot.getType()) {
+            case LONG:
+            case BOOLEAN:
+                return ctx.getLong(slot.getIndex()) == 0L;
+            case DOUBLE:
+                return Double.doubleToRawLongBits(ctx.getDouble(slot.getIndex())) == 0L;
+            default:
+                return ctx.getObject(slot.getIndex()) == null;
+        }
+    }
+
+    /**
+     * 一个决策响应。
+     */
+    public static final class Response {
+
+        private final long requestId;
+        private final RuleAction finalAction;
+        private final List<String> matchedRuleIds;
+        private final String error;
+
+        private Response(long requestId, RuleAction finalAction, List<String> matchedRuleIds, String error) {
+            this.requestId = requestId;
+            this.finalAction = finalAction;
+            this.matchedRuleIds = matchedRuleIds;
+            this.error = error;
+        }
+
+        public long getRequestId() {
+            return requestId;
+        }
+
+        /** 出错时为 null */
+        public RuleAction getFinalAction() {
+            return finalAction;
+        }
+
+        public List<String> getMatchedRuleIds() {
+            return matchedRuleIds;
+        }
+
+        /** 成功时为 null */
+        public String getError() {
+            return error;
+        }
+
+        public boolean isError() {
+            return error != null;
+        }
+
+        @Override
+        public String toString() {
+            return isError()
+                    ? "Response{requestId=" + requestId + ", error=" + error + '}'
+                    : "Response{requestId=" + requestId + ", finalAction=" + finalAction
+                    + ", matchedRules=" + matchedRuleIds + '}';
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.zhangyc.minirisk.server;
+
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.engine.CompiledRuleEngine;
+import com.zhangyc.minirisk.engine.DecisionView;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.FieldSlot;
+import com.zhangyc.minirisk.schema.SlotContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * 基于 NIO Selector 的二进制决策服务，协议见 BinaryProtocol。
+ * - 单个事件循环线程负责 accept / 读 / 执行 / 写，连接上的请求可以流水线发送（不等响应就发下一个）；
+ * - 每个连接一对直接内存 ByteBuffer，一次读到的所有完整帧依次执行，响应攒在输出缓冲区里一次写出；
+ * - 请求直接解码进复用的 SlotContext，用 CompiledRuleEngine.evaluateReusing 执行，稳定运行后每个请求几乎不分配对象；
+ * - 输出缓冲区写不下时暂停解析，并且不再关注 OP_READ，等输出写完后再继续读和解析（背压交给 TCP 窗口）；
+ * - 启动时和每次规则 reload 后在调用方线程上把所有场景编译好，事件循环线程上不做懒编译。
+ *
+ * 运行：java -cp ... com.zhangyc.minirisk.server.BinaryDecisionServer [port]
+ */
+@Slf4j
+public class BinaryDecisionServer implements AutoCloseable {
+
+    /** 输入缓冲区至少能放下一个最大的请求帧 */
+    private static final int IN_BUFFER_BYTES = BinaryProtocol.MAX_FRAME_BYTES + 4;
+
+    private static final int OUT_BUFFER_BYTES = 256 * 1024;
+
+    /** 请求头：length + requestId + sceneLength */
+    private static final int REQUEST_HEADER_BYTES = 4 + 8 + 1;
+
+    private final ContextSchema schema = ContextSchema.defaultSchema();
+    private final FieldSlot[] slots = BinaryProtocol.slotsByOrdinal(schema);
+    private final int fingerprint = BinaryProtocol.schemaFingerprint(schema);
+
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final Thread loop;
+
+    // ======== 以下只在事件循环线程上使用 ========
+
+    private final CompiledRuleEngine engine = new CompiledRuleEngine();
+    private final SlotContext scratch = schema.newContext();
+    private final byte[] sceneBytes = new byte[255];
+
+    /** 规则 id -> UTF-8 编码，避免每次响应都编码 */
+    private final Map<String, byte[]> ruleIdBytes = new HashMap<>();
+
+    private volatile boolean running = true;
+
+    /** 规则 reload 后（在 reload 的线程上）把新版本的场景编译好，start 时注册、close 时注销 */
+    private final LongConsumer reloadListener = version -> compileScenes();
+
+    /**
+     * @param port 监听端口，0 表示随机分配
+     */
+    public BinaryDecisionServer(int port) throws IOException {
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.loop = new Thread(this::run, "binary-decision-loop");
+        loop.setDaemon(true);
+    }
+
+    public BinaryDecisionServer start() {
+        compileScenes();
+        RuleRegistry.addReloadListener(reloadListener);
+        loop.start();
+        log.info("BinaryDecisionServer started on port {}", getPort());
+        return this;
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        RuleRegistry.removeReloadListener(reloadListener);
+        running = false;
+        selector.wakeup();
+        try {
+            loop.join(1000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            Connection conn = (Connection) key.attachment();
+                            if (key.isWritable()) {
+                                onWritable(conn);
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                onReadable(conn);
+                            }
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        log.debug("连接异常，关闭: {}", e.toString());
+                        closeQuietly(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("事件循环退出", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // 关闭时忽略
+            }
+        }
+    }
+
+    /**
+     * 编译当前版本的所有场景（只编译不执行），之后事件循环线程取规则集时不会阻塞在编译上。
+     * 请求里出现配置中没有的场景时仍然会在事件循环线程上编译一次（只有 COMMON 规则）。
+     */
+    private static void compileScenes() {
+        RuleRegistry.warmup(RuleRegistry.getScenes(), Collections.emptyList(), 0);
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key));
+    }
+
+    private void onReadable(Connection conn) throws IOException {
+        if (conn.channel.read(conn.in) < 0) {
+            closeQuietly(conn.key);
+            return;
+        }
+        process(conn);
+    }
+
+    private void onWritable(Connection conn) throws IOException {
+        if (flush(conn)) {
+            // 之前因为输出缓冲区满而暂停的请求，继续处理
+            process(conn);
+        }
+    }
+
+    /**
+     * 解析并执行输入缓冲区里的所有完整帧，然后尽量写出响应。
+     */
+    private void process(Connection conn) throws IOException {
+        ByteBuffer in = conn.in;
+        in.flip();
+        try {
+            if (!conn.handshaken) {
+                if (in.remaining() < BinaryProtocol.HANDSHAKE_BYTES) {
+                    return;
+                }
+                int magic = in.getInt();
+                int clientFingerprint = in.getInt();
+                if (magic != BinaryProtocol.MAGIC || clientFingerprint != fingerprint) {
+                    throw new IllegalStateException("握手失败: magic=" + Integer.toHexString(magic)
+                            + ", fingerprint=" + clientFingerprint + ", 期望=" + fingerprint);
+                }
+                conn.handshaken = true;
+            }
+            while (in.remaining() >= 4) {
+                int length = in.getInt(in.position());
+                if (length < REQUEST_HEADER_BYTES - 4 || length > BinaryProtocol.MAX_FRAME_BYTES) {
+                    throw new IllegalStateException("非法帧长度: " + length);
+                }
+                if (in.remaining() < 4 + length) {
+                    break;
+                }
+                if (!handleFrame(conn, in, length) && !flush(conn)) {
+                    // 输出缓冲区满且写不出去：剩下的帧留到可写时再处理
+                    break;
+                }
+            }
+        } finally {
+            in.compact();
+        }
+        flush(conn);
+    }
+
+    /**
+     * 执行一帧并把响应写入输出缓冲区；输出缓冲区剩余空间不够时不消费这一帧，返回 false。
+     */
+    private boolean handleFrame(Connection conn, ByteBuffer in, int length) {
+        int frameStart = in.position();
+        int frameEnd = frameStart + 4 + length;
+        int limit = in.limit();
+        in.position(frameStart + 4).limit(frameEnd);
+
+        long requestId = in.getLong();
+        String error = null;
+        DecisionView view = null;
+        try {
+            String scene = readScene(in);
+            decodeFields(in);
+            CompiledRuleSet ruleSet = RuleRegistry.getCompiledRuleSet(scene);
+            view = engine.evaluateReusing(scratch, ruleSet);
+        } catch (RuntimeException e) {
+            error = String.valueOf(e.getMessage());
+        } finally {
+            in.limit(limit);
+        }
+
+        ByteBuffer out = conn.out;
+        if (error != null) {
+            byte[] message = error.getBytes(StandardCharsets.UTF_8);
+            int messageLength = Math.min(message.length, Short.MAX_VALUE);
+            if (out.remaining() < 4 + 8 + 1 + 2 + messageLength) {
+                in.position(frameStart);
+                return false;
+            }
+            out.putInt(8 + 1 + 2 + messageLength).putLong(requestId).put(BinaryProtocol.STATUS_ERROR)
+                    .putShort((short) messageLength).put(message, 0, messageLength);
+        } else {
+            int bodyBytes = 8 + 1 + 2;
+            for (int i = view.nextMatched(0); i >= 0; i = view.nextMatched(i + 1)) {
+                bodyBytes += 1 + idBytes(view.getRule(i).getId()).length;
+            }
+            if (out.remaining() < 4 + bodyBytes) {
+                in.position(frameStart);
+                return false;
+            }
+            out.putInt(bodyBytes).putLong(requestId).put((byte) view.getFinalAction().ordinal())
+                    .putShort((short) view.getMatchedCount());
+            for (int i = view.nextMatched(0); i >= 0; i = view.nextMatched(i + 1)) {
+                byte[] id = idBytes(view.getRule(i).getId());
+                out.put((byte) id.length).put(id);
+            }
+        }
+        in.position(frameEnd);
+        return true;
+    }
+
+    private String readScene(ByteBuffer in) {
+        int sceneLength = in.get() & 0xFF;
+        in.get(sceneBytes, 0, sceneLength);
+        return new String(sceneBytes, 0, sceneLength, StandardCharsets.US_ASCII);
+    }
+
+    private void decodeFields(ByteBuffer in) {
+        scratch.clear();
+        int fieldCount = in.getShort();
+        for (int i = 0; i < fieldCount; i++) {
+            int ordinal = in.getShort();
+            if (ordinal < 0 || ordinal >= slots.length) {
+                throw new IllegalArgumentException("未知字段序号: " + ordinal);
+            }
+            BinaryProtocol.readValue(in, slots[ordinal], scratch);
+        }
+    }
+
+    private byte[] idBytes(String ruleId) {
+        byte[] bytes = ruleIdBytes.get(ruleId);
+        if (bytes == null) {
+            bytes = ruleId.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 255) {
+                bytes = Arrays.copyOf(bytes, 255);
+            }
+            ruleIdBytes.put(ruleId, bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * 把输出缓冲区写到 socket，全部写完返回 true。
+     * 没写完时只关注 OP_WRITE：输入缓冲区满时 read 会一直返回 0，继续关注 OP_READ 会让 select 立即返回、空转；
+     * 写完后恢复 OP_READ。
+     */
+    private boolean flush(Connection conn) throws IOException {
+        ByteBuffer out = conn.out;
+        out.flip();
+        try {
+            if (out.hasRemaining()) {
+                conn.channel.write(out);
+            }
+            boolean drained = !out.hasRemaining();
+            int ops = drained ? SelectionKey.OP_READ : SelectionKey.OP_WRITE;
+            if (conn.key.isValid() && conn.key.interestOps() != ops) {
+                conn.key.interestOps(ops);
+            }
+            return drained;
+        } finally {
+            out.compact();
+        }
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // 关闭时忽略
+        }
+    }
+
+    /**
+     * 单个连接的状态。
+     */
+    private static final class Connection {
+
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ByteBuffer in = ByteBuffer.allocateDirect(IN_BUFFER_BYTES);
+        private final ByteBuffer out = ByteBuffer.allocateDirect(OUT_BUFFER_BYTES);
+        private boolean handshaken;
+
+        private Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 9090;
+        BinaryDecisionServer server = new BinaryDecisionServer(port).start();
+        server.loop.join();
+    }
+}
@@ -0,0 +1,148 @@
+package com.zhangyc.minirisk.server;
+
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.FieldSlot;
+import com.zhangyc.minirisk.schema.SlotContext;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 决策服务的二进制协议（大端序，所有帧都以 4 字节长度开头，长度不含自身）：
+ *
+ * <pre>
+ * 握手（客户端连上后先发一次，不带长度前缀）:
+ *   int magic | int schemaFingerprint
+ * 请求帧:
+ *   int length | long requestId | byte sceneLength | scene(ASCII)
+ *   | short fieldCount | { short fieldOrdinal | value }*
+ * 响应帧:
+ *   int length | long requestId | byte status
+ *   | status >= 0（RuleAction.ordinal）: short matchedCount | { byte idLength | ruleId(UTF-8) }*
+ *   | status == STATUS_ERROR:           short messageLength | message(UTF-8)
+ * </pre>
+ *
+ * fieldOrdinal 是字段在 ContextSchema.getSlots() 里的顺序号（与 @RiskField / context-schema.json 的路径一一对应），
+ * value 的编码由字段类型决定：LONG / DOUBLE 8 字节，BOOLEAN 1 字节，STRING 为 short 长度 + UTF-8（长度 -1 表示 null）。
+ * 没有出现的字段取默认值（0 / false / null）。双方的 schema 必须一致，握手时用 fingerprint 校验。
+ */
+public final class BinaryProtocol {
+
+    /** "MRSK" */
+    public static final int MAGIC = 0x4D52534B;
+
+    public static final int HANDSHAKE_BYTES = 8;
+
+    /** 单个请求帧的最大长度（不含长度前缀） */
+    public static final int MAX_FRAME_BYTES = 64 * 1024;
+
+    public static final byte STATUS_ERROR = -1;
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * schema 指纹：按顺序对字段路径和类型做哈希。
+     */
+    public static int schemaFingerprint(ContextSchema schema) {
+        int hash = 1;
+        for (FieldSlot slot : schema.getSlots()) {
+            hash = 31 * hash + slot.getPath().hashCode();
+            hash = 31 * hash + slot.getType().ordinal();
+        }
+        return hash;
+    }
+
+    /**
+     * 按顺序号排列的字段槽位，下标即 fieldOrdinal。
+     */
+    public static FieldSlot[] slotsByOrdinal(ContextSchema schema) {
+        return schema.getSlots().toArray(new FieldSlot[0]);
+    }
+
+    /**
+     * 把一个字段的值写入 buf（不含 fieldOrdinal）。
+     */
+    static void writeValue(ByteBuffer buf, FieldSlot slot, SlotContext ctx) {
+        int index = slot.getIndex();
+        switch (slot.getType()) {
+            case LONG:
+                buf.putLong(ctx.getLong(index));
+                break;
+            case DOUBLE:
+                buf.putDouble(ctx.getDouble(index));
+                break;
+            case BOOLEAN:
+                buf.put(ctx.getBoolean(index) ? (byte) 1 : (byte) 0);
+                break;
+            default: {
+                Object value = ctx.getObject(index);
+                if (value == null) {
+                    buf.putShort((short) -1);
+                } else {
+                    byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+                    if (bytes.length > Short.MAX_VALUE) {
+                        throw new IllegalArgumentException("字符串字段过长: " + slot.getPath() + ", " + bytes.length + " 字节");
+                    }
+                    buf.putShort((short) bytes.length).put(bytes);
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * 从 buf 读一个字段的值写入 ctx。
+     */
+    static void readValue(ByteBuffer buf, FieldSlot slot, SlotContext ctx) {
+        int index = slot.getIndex();
+        switch (slot.getType()) {
+            case LONG:
+                ctx.setLong(index, buf.getLong());
+                break;
+            case DOUBLE:
+                ctx.setDouble(index, buf.getDouble());
+                break;
+            case BOOLEAN:
+                ctx.setBoolean(index, buf.get() != 0);
+                break;
+            default: {
+                int length = buf.getShort();
+                if (length < 0) {
+                    ctx.setObject(index, null);
+                } else {
+                    ctx.setObject(index, readUtf8(buf, length));
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * 编码一个字段值最多需要的字节数（不含 fieldOrdinal），用于写之前检查缓冲区剩余空间。
+     */
+    static int maxValueBytes(FieldSlot slot, SlotContext ctx) {
+        switch (slot.getType()) {
+            case LONG:
+            case DOUBLE:
+                return 8;
+            case BOOLEAN:
+                return 1;
+            default: {
+                Object value = ctx.getObject(slot.getIndex());
+                return 2 + (value == null ? 0 : String.valueOf(value).length() * 3);
+            }
+        }
+    }
+
+    static String readUtf8(ByteBuffer buf, int length) {
+        if (buf.hasArray()) {
+            String s = new String(buf.array(), buf.arrayOffset() + buf.position(), length, StandardCharsets.UTF_8);
+            buf.position(buf.position() + length);
+            return s;
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,43 @@
+package com.zhangyc.minirisk.server;
+
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.Rule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 决策接口的响应体：最终动作 + 命中规则 id（按优先级从高到低）。
+ */
+public class DecisionResponse {
+
+    private String finalAction;
+    private List<String> matchedRules;
+
+    public DecisionResponse() {
+    }
+
+    public DecisionResponse(DecisionResult result) {
+        this.finalAction = result.getFinalAction().name();
+        this.matchedRules = new ArrayList<>(result.getMatchedCount());
+        for (Rule rule : result.getMatchedRules()) {
+            matchedRules.add(rule.getId());
+        }
+    }
+
+    public String getFinalAction() {
+        return finalAction;
+    }
+
+    public void setFinalAction(String finalAction) {
+        this.finalAction = finalAction;
+    }
+
+    public List<String> getMatchedRules() {
+        return matchedRules;
+    }
+
+    public void setMatchedRules(List<String> matchedRules) {
+        this.matchedRules = matchedRules;
+    }
+}
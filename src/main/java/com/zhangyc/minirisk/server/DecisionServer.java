@@ -0,0 +1,217 @@
+package com.zhangyc.minirisk.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.zhangyc.minirisk.engine.CompiledRuleEngine;
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 独立部署的决策服务：基于 JDK 自带的 HttpServer，每个请求一个虚拟线程。
+ * - POST /v1/evaluate?scene=PAY         请求体是一个 RiskContext（JSON），返回 DecisionResponse；
+ * - POST /v1/evaluate/batch?scene=PAY   请求体是 RiskContext 数组，返回 DecisionResponse 数组；
+ * - GET  /health                        返回当前规则集版本号。
+ *
+ * 请求体直接反序列化成 RiskContext（字段名与 setter 对应，例如 orderAmount、ipInBlacklist）。
+ * 开启合并时，并发的单条请求由 RequestCoalescer 合并成小批次，和批量接口一样走列式执行。
+ *
+ * 运行：java -cp ... com.zhangyc.minirisk.server.DecisionServer [port] [--no-coalesce]
+ */
+@Slf4j
+public class DecisionServer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /** 不合并时单条请求直接逐条执行 */
+    private static final CompiledRuleEngine ENGINE = new CompiledRuleEngine();
+
+    /** 合并批次和批量接口分段执行的最大行数 */
+    private static final int MAX_BATCH = 256;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /** 不合并时为 null，单条请求直接在请求线程上执行 */
+    private final RequestCoalescer coalescer;
+
+    /**
+     * @param port     监听端口，0 表示随机分配
+     * @param coalesce 是否合并并发的单条请求
+     */
+    public DecisionServer(int port, boolean coalesce) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.coalescer = coalesce
+                ? new RequestCoalescer(MAX_BATCH, 0L, Runtime.getRuntime().availableProcessors())
+                : null;
+        server.setExecutor(executor);
+        server.createContext("/v1/evaluate", this::handleEvaluate);
+        server.createContext("/v1/evaluate/batch", this::handleBatch);
+        server.createContext("/health", this::handleHealth);
+    }
+
+    public DecisionServer start() {
+        server.start();
+        log.info("DecisionServer started on port {}, coalesce={}", getPort(), coalescer != null);
+        return this;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /** 不合并时返回 null */
+    public RequestCoalescer getCoalescer() {
+        return coalescer;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        if (coalescer != null) {
+            coalescer.close();
+        }
+        executor.shutdown();
+    }
+
+    private void handleEvaluate(HttpExchange exchange) throws IOException {
+        if (!"/v1/evaluate".equals(exchange.getRequestURI().getPath())) {
+            sendError(exchange, 404, "not found");
+            return;
+        }
+        String scene = requireScene(exchange);
+        if (scene == null) {
+            return;
+        }
+        RiskContext context;
+        try (InputStream in = exchange.getRequestBody()) {
+            context = MAPPER.readValue(in, RiskContext.class);
+        } catch (JsonProcessingException e) {
+            sendError(exchange, 400, "请求体不是合法的 RiskContext: " + e.getOriginalMessage());
+            return;
+        }
+        if (context == null) {
+            // 请求体是字面量 null
+            sendError(exchange, 400, "请求体不能为 null");
+            return;
+        }
+
+        DecisionResult result;
+        try {
+            result = coalescer != null
+                    ? coalescer.submit(scene, context).join()
+                    : ENGINE.evaluate(context, RuleRegistry.getCompiledRuleSet(scene), MicroBatchEvaluator.ADAPTER);
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, String.valueOf(e.getMessage()));
+            return;
+        }
+        sendJson(exchange, 200, new DecisionResponse(result));
+    }
+
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        String scene = requireScene(exchange);
+        if (scene == null) {
+            return;
+        }
+        List<RiskContext> contexts;
+        try (InputStream in = exchange.getRequestBody()) {
+            contexts = MAPPER.readValue(in, new TypeReference<List<RiskContext>>() {});
+        } catch (JsonProcessingException e) {
+            sendError(exchange, 400, "请求体不是合法的 RiskContext 数组: " + e.getOriginalMessage());
+            return;
+        }
+        if (contexts == null || contexts.contains(null)) {
+            sendError(exchange, 400, "请求体不能包含 null");
+            return;
+        }
+
+        DecisionResult[] results;
+        try {
+            results = evaluateBatch(scene, contexts);
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, String.valueOf(e.getMessage()));
+            return;
+        }
+        List<DecisionResponse> body = new ArrayList<>(results.length);
+        for (DecisionResult result : results) {
+            body.add(new DecisionResponse(result));
+        }
+        sendJson(exchange, 200, body);
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        sendJson(exchange, 200, Collections.singletonMap("ruleSetVersion", RuleRegistry.getVersion()));
+    }
+
+    private static DecisionResult[] evaluateBatch(String scene, List<RiskContext> contexts) {
+        DecisionResult[] results = new DecisionResult[contexts.size()];
+        new MicroBatchEvaluator(Math.min(MAX_BATCH, Math.max(1, contexts.size())))
+                .evaluate(scene, contexts, 0, contexts.size(), results);
+        return results;
+    }
+
+    /**
+     * 读取 scene 查询参数，缺失时直接返回 400 并返回 null。
+     */
+    private static String requireScene(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            sendError(exchange, 405, "只支持 POST");
+            return null;
+        }
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                if (pair.startsWith("scene=") && pair.length() > "scene=".length()) {
+                    return URLDecoder.decode(pair.substring("scene=".length()), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        sendError(exchange, 400, "缺少 scene 参数");
+        return null;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        sendJson(exchange, status, Collections.singletonMap("error", message));
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        boolean coalesce = true;
+        for (String arg : args) {
+            if ("--no-coalesce".equals(arg)) {
+                coalesce = false;
+            } else {
+                port = Integer.parseInt(arg);
+            }
+        }
+        new DecisionServer(port, coalesce).start();
+    }
+}
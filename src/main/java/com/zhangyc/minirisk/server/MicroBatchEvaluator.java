@@ -0,0 +1,69 @@
+package com.zhangyc.minirisk.server;
+
+import com.zhangyc.minirisk.batch.BatchEvaluator;
+import com.zhangyc.minirisk.batch.BatchResult;
+import com.zhangyc.minirisk.batch.ColumnarBatch;
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.RiskContext;
+import com.zhangyc.minirisk.registry.RuleRegistry;
+import com.zhangyc.minirisk.schema.ContextSchema;
+import com.zhangyc.minirisk.schema.RiskContextAdapter;
+import com.zhangyc.minirisk.schema.SlotContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 把一组 RiskContext 拷进列式批次，用 BatchEvaluator 一次执行完。
+ * 每个实例持有自己的批次和临时上下文，只能单线程使用；BatchEvaluator 按规则集版本在所有实例间共享。
+ */
+final class MicroBatchEvaluator {
+
+    /** 场景 -> 当前版本规则集对应的批量执行器（BatchEvaluator 不可变，可以共享） */
+    private static final Map<String, BatchEvaluator> EVALUATORS = new ConcurrentHashMap<>();
+
+    /** 适配器创建时要扫描注解、生成取值函数，比较重；创建后不可变，所有实例共用一个 */
+    static final RiskContextAdapter ADAPTER = new RiskContextAdapter(ContextSchema.defaultSchema());
+
+    private final ContextSchema schema = ContextSchema.defaultSchema();
+    private final ColumnarBatch batch;
+    private final SlotContext scratch;
+
+    MicroBatchEvaluator(int capacity) {
+        this.batch = new ColumnarBatch(schema, capacity);
+        this.scratch = schema.newContext();
+    }
+
+    /**
+     * 执行 contexts[from, to)，结果写入 out 的同一位置；超过批次容量时分段执行。
+     */
+    void evaluate(String scene, List<RiskContext> contexts, int from, int to, DecisionResult[] out) {
+        BatchEvaluator evaluator = evaluatorFor(scene);
+        int row = from;
+        while (row < to) {
+            batch.clear();
+            int start = row;
+            while (row < to && !batch.isFull()) {
+                batch.add(ADAPTER.fill(contexts.get(row), scratch));
+                row++;
+            }
+            BatchResult result = evaluator.evaluate(batch);
+            for (int i = 0; i < result.size(); i++) {
+                out[start + i] = new DecisionResult(result.getFinalAction(i), result.getMatchedBits(i));
+            }
+        }
+    }
+
+    private static BatchEvaluator evaluatorFor(String scene) {
+        CompiledRuleSet ruleSet = RuleRegistry.getCompiledRuleSet(scene);
+        BatchEvaluator evaluator = EVALUATORS.get(ruleSet.getScene());
+        if (evaluator == null || evaluator.getRuleSet() != ruleSet) {
+            // 第一次执行该场景，或规则已重新加载
+            evaluator = new BatchEvaluator(ruleSet);
+            EVALUATORS.put(ruleSet.getScene(), evaluator);
+        }
+        return evaluator;
+    }
+}
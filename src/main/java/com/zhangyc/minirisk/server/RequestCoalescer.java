@@ -0,0 +1,172 @@
+package com.zhangyc.minirisk.server;
+
+import com.zhangyc.minirisk.model.DecisionResult;
+import com.zhangyc.minirisk.model.RiskContext;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 把并发到达的单条决策请求合并成小批次执行：
+ * - 请求线程（虚拟线程）把上下文放进队列后等待自己的 CompletableFuture；
+ * - 若干个合并线程从队列取出当前已到达的全部请求（最多 maxBatch 条），按场景分组后用列式批量执行；
+ * - 默认不额外等待（maxWaitMicros = 0）：空闲时来一条执行一条，繁忙时批次自然变大，低负载下不增加延迟。
+ */
+public final class RequestCoalescer implements AutoCloseable {
+
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread[] workers;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * @param maxBatch      每个批次最多合并的请求数
+     * @param maxWaitMicros 批次没满时最多再等多久（微秒），0 表示只合并已经到达的请求
+     * @param workerCount   合并线程数
+     */
+    public RequestCoalescer(int maxBatch, long maxWaitMicros, int workerCount) {
+        if (maxBatch <= 0) {
+            throw new IllegalArgumentException("maxBatch must be positive: " + maxBatch);
+        }
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("workerCount must be positive: " + workerCount);
+        }
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0L, maxWaitMicros));
+        this.workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(this::run, "coalescer-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * 提交一条请求，返回的 future 在所在批次执行完后完成。
+     */
+    public CompletableFuture<DecisionResult> submit(String scene, RiskContext context) {
+        Objects.requireNonNull(scene, "scene must not be null");
+        Objects.requireNonNull(context, "context must not be null");
+        if (closed) {
+            throw closedException();
+        }
+        Pending pending = new Pending(scene.toUpperCase(Locale.ROOT), context);
+        requests.increment();
+        queue.add(pending);
+        if (closed && queue.remove(pending)) {
+            // 检查之后、入队之前 close 已经清空过队列：没有人会再执行它，直接失败
+            pending.future.completeExceptionally(closedException());
+        }
+        return pending.future;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /** 平均每个批次合并的请求数 */
+    public double getAverageBatchSize() {
+        long b = batches.sum();
+        return b == 0 ? 0.0 : (double) requests.sum() / b;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(closedException());
+        }
+    }
+
+    private static IllegalStateException closedException() {
+        return new IllegalStateException("请求合并器已关闭");
+    }
+
+    private void run() {
+        MicroBatchEvaluator evaluator = new MicroBatchEvaluator(maxBatch);
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        try {
+            while (!closed) {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatch - batch.size());
+                if (maxWaitNanos > 0) {
+                    long deadline = System.nanoTime() + maxWaitNanos;
+                    while (batch.size() < maxBatch) {
+                        Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                        queue.drainTo(batch, maxBatch - batch.size());
+                    }
+                }
+                batches.increment();
+                execute(evaluator, batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // 等批次凑满时被 close 打断：已经从队列取出的请求没有执行，不能留着不完成
+            for (Pending pending : batch) {
+                pending.future.completeExceptionally(closedException());
+            }
+        }
+    }
+
+    private static void execute(MicroBatchEvaluator evaluator, List<Pending> batch) {
+        // 绝大多数情况下一个批次只有一个场景
+        Map<String, List<Pending>> byScene = new HashMap<>(4);
+        for (Pending pending : batch) {
+            byScene.computeIfAbsent(pending.scene, s -> new ArrayList<>()).add(pending);
+        }
+        for (Map.Entry<String, List<Pending>> e : byScene.entrySet()) {
+            List<Pending> group = e.getValue();
+            List<RiskContext> contexts = new ArrayList<>(group.size());
+            for (Pending pending : group) {
+                contexts.add(pending.context);
+            }
+            DecisionResult[] results = new DecisionResult[group.size()];
+            try {
+                evaluator.evaluate(e.getKey(), contexts, 0, contexts.size(), results);
+            } catch (RuntimeException ex) {
+                for (Pending pending : group) {
+                    pending.future.completeExceptionally(ex);
+                }
+                continue;
+            }
+            for (int i = 0; i < group.size(); i++) {
+                group.get(i).future.complete(results[i]);
+            }
+        }
+    }
+
+    private static final class Pending {
+
+        private final String scene;
+        private final RiskContext context;
+        private final CompletableFuture<DecisionResult> future = new CompletableFuture<>();
+
+        private Pending(String scene, RiskContext context) {
+            this.scene = scene;
+            this.context = context;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.zhangyc.minirisk.tenant;
+
+import com.zhangyc.minirisk.compile.CompiledRule;
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.compile.ConditionExpr;
+import com.zhangyc.minirisk.compile.RuleInterner;
+import com.zhangyc.minirisk.model.Rule;
+
+import java.util.*;
+
+/**
+ * 按对象布局估算规则对象图的大小（64 位 JVM、压缩指针：对象头 12 字节、引用 4 字节、8 字节对齐）。
+ * 只认识规则相关的类型，集合按 JDK 实现的近似布局计算；编译出的谓词（lambda）不能直接遍历，
+ * 按条件表达式节点折算（每个节点一个 SlotPredicate + 一个 Predicate）。
+ * 全局共享的对象（schema、枚举）不计入。
+ */
+final class MemoryEstimator {
+
+    private static final int HEADER = 12;
+    private static final int REF = 4;
+
+    /** 每个表达式节点对应的两个编译后谓词（lambda 对象头 + 捕获的 1~3 个引用） */
+    private static final int COMPILED_NODE_BYTES = 2 * 24;
+
+    private MemoryEstimator() {
+    }
+
+    static TenantMemoryReport report(List<TenantRuleSet> tenants, RuleInterner.Stats stats) {
+        tenants.sort(Comparator.comparing(TenantRuleSet::getTenantId));
+        List<Map<Object, Long>> graphs = new ArrayList<>(tenants.size());
+        Map<Object, Integer> owners = new IdentityHashMap<>();
+        for (TenantRuleSet tenant : tenants) {
+            Map<Object, Long> graph = new IdentityHashMap<>();
+            visitTenant(tenant, graph);
+            graphs.add(graph);
+            for (Object o : graph.keySet()) {
+                owners.merge(o, 1, Integer::sum);
+            }
+        }
+
+        List<TenantMemoryReport.TenantUsage> usages = new ArrayList<>(tenants.size());
+        long shared = 0L;
+        Set<Object> countedShared = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < tenants.size(); i++) {
+            long reachable = 0L;
+            long exclusive = 0L;
+            for (Map.Entry<Object, Long> e : graphs.get(i).entrySet()) {
+                reachable += e.getValue();
+                if (owners.get(e.getKey()) == 1) {
+                    exclusive += e.getValue();
+                } else if (countedShared.add(e.getKey())) {
+                    shared += e.getValue();
+                }
+            }
+            TenantRuleSet tenant = tenants.get(i);
+            usages.add(new TenantMemoryReport.TenantUsage(tenant.getTenantId(), tenant.getRuleCount(), reachable, exclusive));
+        }
+        // 驻留池：每个条目一个 HashMap.Node（32 字节）+ 桶数组，规则另有一个 key 对象
+        long poolEntries = (long) stats.getStrings() + 3L * stats.getExprNodes() + stats.getRules()
+                + stats.getRuleLists() + stats.getRuleSets();
+        long internerBytes = poolEntries * (32 + 2 * REF) + stats.getRules() * align(HEADER + 4 + 4 + 6 * REF);
+        return new TenantMemoryReport(Collections.unmodifiableList(usages), shared, internerBytes, stats);
+    }
+
+    private static void visitTenant(TenantRuleSet tenant, Map<Object, Long> graph) {
+        add(graph, tenant, align(HEADER + 8 + 4 + 3 * REF));
+        add(graph, tenant.getSceneRules(), hashMapBytes(tenant.getSceneRules().size()));
+        for (Map.Entry<String, List<Rule>> e : tenant.getSceneRules().entrySet()) {
+            visitString(e.getKey(), graph);
+            visitRuleList(e.getValue(), graph);
+        }
+        add(graph, tenant.getCompiledRuleSets(), hashMapBytes(tenant.getCompiledRuleSets().size()));
+        for (CompiledRuleSet ruleSet : tenant.getCompiledRuleSets().values()) {
+            visitRuleSet(ruleSet, graph);
+        }
+    }
+
+    private static void visitRuleSet(CompiledRuleSet ruleSet, Map<Object, Long> graph) {
+        if (!add(graph, ruleSet, align(HEADER + 8 + 6 * REF))) {
+            return;
+        }
+        visitString(ruleSet.getScene(), graph);
+        // 规则数组、按优先级排序的规则列表和两个字段表只能按大小估算，挂在各自能识别的对象上
+        add(graph, ruleSet.getRulesInPriorityOrder(), listBytes(ruleSet.size()) + arrayBytes(ruleSet.size()));
+        add(graph, ruleSet.getReferencedFields(), 2 * hashMapBytes(ruleSet.getReferencedFields().size()));
+        for (int i = 0; i < ruleSet.size(); i++) {
+            CompiledRule rule = ruleSet.get(i);
+            if (add(graph, rule, align(HEADER + 4 + 4 * REF))) {
+                visitRule(rule.getRule(), graph);
+                visitExpr(rule.getCondition(), graph);
+            }
+        }
+    }
+
+    private static void visitRuleList(List<Rule> rules, Map<Object, Long> graph) {
+        if (!add(graph, rules, listBytes(rules.size()))) {
+            return;
+        }
+        for (Rule rule : rules) {
+            visitRule(rule, graph);
+        }
+    }
+
+    private static void visitRule(Rule rule, Map<Object, Long> graph) {
+        if (add(graph, rule, align(HEADER + 4 + 5 * REF))) {
+            visitString(rule.getId(), graph);
+            visitString(rule.getDescription(), graph);
+            visitString(rule.getScene(), graph);
+        }
+    }
+
+    private static void visitExpr(ConditionExpr expr, Map<Object, Long> graph) {
+        if (expr.isConstant()) {
+            return;
+        }
+        if (!add(graph, expr, align(HEADER + 4 + 5 * REF) + COMPILED_NODE_BYTES)) {
+            return;
+        }
+        visitString(expr.getField(), graph);
+        visitString(expr.getOp(), graph);
+        visitString(expr.getValue(), graph);
+        if (!expr.getChildren().isEmpty()) {
+            add(graph, expr.getChildren(), listBytes(expr.getChildren().size()));
+            for (ConditionExpr child : expr.getChildren()) {
+                visitExpr(child, graph);
+            }
+        }
+    }
+
+    private static void visitString(String s, Map<Object, Long> graph) {
+        if (s == null) {
+            return;
+        }
+        boolean latin1 = true;
+        for (int i = 0; i < s.length() && latin1; i++) {
+            latin1 = s.charAt(i) < 256;
+        }
+        add(graph, s, align(HEADER + 4 + 1 + 1 + REF) + align(16 + (long) s.length() * (latin1 ? 1 : 2)));
+    }
+
+    /**
+     * 记录一个对象，已经记录过时返回 false（不再往下遍历）。
+     */
+    private static boolean add(Map<Object, Long> graph, Object o, long bytes) {
+        return graph.putIfAbsent(o, bytes) == null;
+    }
+
+    /** 不可变包装 + ArrayList + 元素数组 */
+    private static long listBytes(int size) {
+        return align(HEADER + REF) + align(HEADER + 4 + 4 + REF) + arrayBytes(size);
+    }
+
+    private static long arrayBytes(int size) {
+        return align(16 + (long) size * REF);
+    }
+
+    private static long hashMapBytes(int size) {
+        int capacity = Integer.highestOneBit(Math.max(1, (int) (size / 0.75f)) * 2 - 1);
+        return align(HEADER + 4 * 4 + 3 * REF) + arrayBytes(capacity) + (long) size * 32;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
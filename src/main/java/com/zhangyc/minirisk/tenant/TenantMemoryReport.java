@@ -0,0 +1,121 @@
+package com.zhangyc.minirisk.tenant;
+
+import com.zhangyc.minirisk.compile.RuleInterner;
+
+import java.util.List;
+
+/**
+ * 多租户规则集的内存估算：
+ * - 每个租户：规则条数、能引用到的全部字节数（不共享时大约要占的内存）、独占字节数（只被这个租户引用的对象）；
+ * - 被两个及以上租户引用的对象算作共享字节数，驻留池自身的哈希表开销单独列出。
+ *
+ * 「独占字节数」就是删掉这个租户能释放的内存，按模板复制的租户应该只和它的差异成正比。
+ */
+public final class TenantMemoryReport {
+
+    /**
+     * 单个租户的估算结果。
+     */
+    public static final class TenantUsage {
+
+        private final String tenantId;
+        private final int ruleCount;
+        private final long reachableBytes;
+        private final long exclusiveBytes;
+
+        TenantUsage(String tenantId, int ruleCount, long reachableBytes, long exclusiveBytes) {
+            this.tenantId = tenantId;
+            this.ruleCount = ruleCount;
+            this.reachableBytes = reachableBytes;
+            this.exclusiveBytes = exclusiveBytes;
+        }
+
+        public String getTenantId() {
+            return tenantId;
+        }
+
+        public int getRuleCount() {
+            return ruleCount;
+        }
+
+        /** 这个租户能引用到的全部对象（包括共享的） */
+        public long getReachableBytes() {
+            return reachableBytes;
+        }
+
+        /** 只被这个租户引用的对象，即删除这个租户能释放的内存 */
+        public long getExclusiveBytes() {
+            return exclusiveBytes;
+        }
+
+        @Override
+        public String toString() {
+            return tenantId + ": rules=" + ruleCount + ", reachable=" + reachableBytes + "B, exclusive=" + exclusiveBytes + "B";
+        }
+    }
+
+    private final List<TenantUsage> tenants;
+    private final long sharedBytes;
+    private final long internerBytes;
+    private final RuleInterner.Stats internerStats;
+
+    TenantMemoryReport(List<TenantUsage> tenants, long sharedBytes, long internerBytes, RuleInterner.Stats internerStats) {
+        this.tenants = tenants;
+        this.sharedBytes = sharedBytes;
+        this.internerBytes = internerBytes;
+        this.internerStats = internerStats;
+    }
+
+    /** 按租户 id 排序 */
+    public List<TenantUsage> getTenants() {
+        return tenants;
+    }
+
+    /** 被两个及以上租户引用的对象 */
+    public long getSharedBytes() {
+        return sharedBytes;
+    }
+
+    /** 驻留池哈希表本身的开销（不含池里的对象） */
+    public long getInternerBytes() {
+        return internerBytes;
+    }
+
+    public RuleInterner.Stats getInternerStats() {
+        return internerStats;
+    }
+
+    /** 实际估算占用：各租户独占 + 共享 + 驻留池 */
+    public long getTotalBytes() {
+        long total = sharedBytes + internerBytes;
+        for (TenantUsage usage : tenants) {
+            total += usage.exclusiveBytes;
+        }
+        return total;
+    }
+
+    /** 不做任何共享时的估算占用：各租户能引用到的字节数之和 */
+    public long getUnsharedBytes() {
+        long total = 0L;
+        for (TenantUsage usage : tenants) {
+            total += usage.reachableBytes;
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("tenants=%d, total=%.1f MB (shared=%.1f MB, interner=%.1f MB), unshared=%.1f MB, %s%n",
+                tenants.size(), mb(getTotalBytes()), mb(sharedBytes), mb(internerBytes), mb(getUnsharedBytes()),
+                internerStats));
+        for (TenantUsage usage : tenants) {
+            sb.append("  ").append(usage).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    private static double mb(long bytes) {
+        return bytes / 1048576.0;
+    }
+}
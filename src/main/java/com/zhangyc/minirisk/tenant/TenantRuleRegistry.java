@@ -0,0 +1,125 @@
+package com.zhangyc.minirisk.tenant;
+
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.compile.RuleInterner;
+import com.zhangyc.minirisk.config.RuleDefinition;
+import com.zhangyc.minirisk.model.Rule;
+import com.zhangyc.minirisk.schema.ContextSchema;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 多租户规则注册中心：每个租户一份独立的规则集，租户之间规则 id 可以重复、内容可以不同。
+ * - 所有租户共用一个 RuleInterner：字符串、条件表达式节点、编译好的谓词、定义相同的规则和规则集都只存一份，
+ *   按同一个模板复制出来的租户，新增的内存只和它与模板的差异成正比；
+ * - 不保留 RuleDefinition，也不写 RuleConfigLoader 的全局定义缓存；
+ * - memoryReport() 估算每个租户独占的字节数和所有租户共享的字节数。
+ *
+ * 读（get / getRulesForScene / getCompiledRuleSet）不加锁，注册和删除在 this 上同步。
+ */
+public class TenantRuleRegistry {
+
+    static final String COMMON = "COMMON";
+
+    private final RuleInterner interner;
+    private final Map<String, TenantRuleSet> tenants = new ConcurrentHashMap<>();
+
+    public TenantRuleRegistry() {
+        this(ContextSchema.defaultSchema());
+    }
+
+    public TenantRuleRegistry(ContextSchema schema) {
+        this.interner = new RuleInterner(schema);
+    }
+
+    /**
+     * 注册（或整体替换）一个租户的规则，返回新的规则集；定义不合法时抛异常，原有规则集保持不变。
+     */
+    public synchronized TenantRuleSet register(String tenantId, List<RuleDefinition> defs) {
+        Objects.requireNonNull(tenantId, "tenantId must not be null");
+        Objects.requireNonNull(defs, "defs must not be null");
+
+        // 按场景分组，保持配置顺序；与 RuleRegistry 一致，每个场景的列表里也包含 COMMON 规则
+        Map<String, List<RuleDefinition>> byScene = new LinkedHashMap<>();
+        byScene.put(COMMON, new ArrayList<>());
+        for (RuleDefinition def : defs) {
+            byScene.putIfAbsent(sceneKey(def), new ArrayList<>());
+        }
+        for (RuleDefinition def : defs) {
+            String scene = sceneKey(def);
+            if (COMMON.equals(scene)) {
+                for (List<RuleDefinition> sceneDefs : byScene.values()) {
+                    sceneDefs.add(def);
+                }
+            } else {
+                byScene.get(scene).add(def);
+            }
+        }
+
+        TenantRuleSet previous = tenants.get(tenantId);
+        long version = previous == null ? 1L : previous.getVersion() + 1;
+        Map<String, List<Rule>> sceneRules = new HashMap<>();
+        Map<String, CompiledRuleSet> compiledRuleSets = new HashMap<>();
+        for (Map.Entry<String, List<RuleDefinition>> entry : byScene.entrySet()) {
+            String scene = interner.intern(entry.getKey());
+            sceneRules.put(scene, rulesOf(entry.getValue()));
+            compiledRuleSets.put(scene, interner.compile(scene, version, entry.getValue()));
+        }
+
+        TenantRuleSet ruleSet = new TenantRuleSet(tenantId, version, defs.size(),
+                Collections.unmodifiableMap(sceneRules), Collections.unmodifiableMap(compiledRuleSets));
+        tenants.put(tenantId, ruleSet);
+        return ruleSet;
+    }
+
+    public synchronized boolean remove(String tenantId) {
+        return tenants.remove(tenantId) != null;
+    }
+
+    /**
+     * 租户当前的规则集，租户不存在时抛 IllegalArgumentException。
+     */
+    public TenantRuleSet get(String tenantId) {
+        TenantRuleSet ruleSet = tenants.get(tenantId);
+        if (ruleSet == null) {
+            throw new IllegalArgumentException("未知租户: " + tenantId);
+        }
+        return ruleSet;
+    }
+
+    public List<Rule> getRulesForScene(String tenantId, String scene) {
+        return get(tenantId).getRulesForScene(scene);
+    }
+
+    public CompiledRuleSet getCompiledRuleSet(String tenantId, String scene) {
+        return get(tenantId).getCompiledRuleSet(scene);
+    }
+
+    public Set<String> getTenantIds() {
+        return Collections.unmodifiableSet(new TreeSet<>(tenants.keySet()));
+    }
+
+    public RuleInterner.Stats getInternerStats() {
+        return interner.getStats();
+    }
+
+    /**
+     * 估算每个租户独占 / 所有租户共享的内存（按对象布局估算，见 MemoryEstimator）。
+     */
+    public TenantMemoryReport memoryReport() {
+        return MemoryEstimator.report(new ArrayList<>(tenants.values()), interner.getStats());
+    }
+
+    private static String sceneKey(RuleDefinition def) {
+        return def.getScene() == null ? "" : def.getScene().toUpperCase(Locale.ROOT);
+    }
+
+    private List<Rule> rulesOf(List<RuleDefinition> defs) {
+        List<Rule> rules = new ArrayList<>(defs.size());
+        for (RuleDefinition def : defs) {
+            rules.add(interner.internRule(def));
+        }
+        return interner.internRules(rules);
+    }
+}
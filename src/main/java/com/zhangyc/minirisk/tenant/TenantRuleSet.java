@@ -0,0 +1,85 @@
+package com.zhangyc.minirisk.tenant;
+
+import com.zhangyc.minirisk.compile.CompiledRuleSet;
+import com.zhangyc.minirisk.model.Rule;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 一个租户某一版本的规则集（不可变）：场景 -> 规则列表 / 编译好的规则集，规则范围与 RuleRegistry 相同（本场景 + COMMON）。
+ * 内部对象大多和其他租户共享（见 RuleInterner），但对外看是完全隔离的一份。
+ */
+public final class TenantRuleSet {
+
+    private final String tenantId;
+    private final long version;
+    private final int ruleCount;
+
+    /** 场景（大写）-> 规则列表，COMMON 对应只有通用规则的列表 */
+    private final Map<String, List<Rule>> sceneRules;
+
+    /** 场景（大写）-> 编译好的规则集 */
+    private final Map<String, CompiledRuleSet> compiledRuleSets;
+
+    TenantRuleSet(String tenantId, long version, int ruleCount,
+                  Map<String, List<Rule>> sceneRules, Map<String, CompiledRuleSet> compiledRuleSets) {
+        this.tenantId = tenantId;
+        this.version = version;
+        this.ruleCount = ruleCount;
+        this.sceneRules = sceneRules;
+        this.compiledRuleSets = compiledRuleSets;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    /** 该租户的规则版本号，每次重新注册递增 */
+    public long getVersion() {
+        return version;
+    }
+
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    /**
+     * 某个场景要执行的规则（本场景 + COMMON）；租户没有这个场景的规则时只返回 COMMON 规则。
+     */
+    public List<Rule> getRulesForScene(String scene) {
+        List<Rule> rules = sceneRules.get(key(scene));
+        return rules != null ? rules : sceneRules.get(TenantRuleRegistry.COMMON);
+    }
+
+    /**
+     * 某个场景编译好的规则集，规则范围与 getRulesForScene 相同。
+     */
+    public CompiledRuleSet getCompiledRuleSet(String scene) {
+        CompiledRuleSet ruleSet = compiledRuleSets.get(key(scene));
+        return ruleSet != null ? ruleSet : compiledRuleSets.get(TenantRuleRegistry.COMMON);
+    }
+
+    Map<String, List<Rule>> getSceneRules() {
+        return sceneRules;
+    }
+
+    Map<String, CompiledRuleSet> getCompiledRuleSets() {
+        return compiledRuleSets;
+    }
+
+    private static String key(String scene) {
+        return Objects.requireNonNull(scene, "scene must not be null").toUpperCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return "TenantRuleSet{tenantId='" + tenantId + '\'' +
+                ", version=" + version +
+                ", rules=" + ruleCount +
+                ", scenes=" + sceneRules.keySet() +
+                '}';
+    }
+}